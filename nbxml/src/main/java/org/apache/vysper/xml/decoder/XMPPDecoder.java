@@ -19,6 +19,8 @@
  */
 package org.apache.vysper.xml.decoder;
 
+import java.util.concurrent.atomic.LongAdder;
+
 import org.apache.mina.core.buffer.IoBuffer;
 import org.apache.mina.core.session.IoSession;
 import org.apache.mina.filter.codec.CumulativeProtocolDecoder;
@@ -41,6 +43,13 @@ public class XMPPDecoder extends CumulativeProtocolDecoder {
 
     public static final String SESSION_ATTRIBUTE_NAME = "xmppParser";
 
+    /**
+     * set on the session, when it is closed because the peer has closed its stream
+     */
+    public static final String STREAM_CLOSED_ATTRIBUTE_NAME = "xmppStreamClosed";
+
+    private static final LongAdder DECODED_BYTES = new LongAdder();
+
     private XMLElementBuilderFactory builderFactory = new XMLElementBuilderFactory();
 
     public XMPPDecoder() {
@@ -51,6 +60,13 @@ public class XMPPDecoder extends CumulativeProtocolDecoder {
         this.builderFactory = builderFactory;
     }
 
+    /**
+     * @return the number of bytes parsed by all decoders in this VM
+     */
+    public static long getDecodedBytes() {
+        return DECODED_BYTES.sum();
+    }
+
     public static class MinaStanzaListener implements XMLElementListener {
         private ProtocolDecoderOutput protocolDecoder;
         private boolean closed = false;
@@ -102,9 +118,12 @@ public class XMPPDecoder extends CumulativeProtocolDecoder {
         MinaStanzaListener listener = new MinaStanzaListener(out);
         contentHandler.setListener(listener);
 
+        int position = in.position();
         reader.parse(in, CharsetUtil.getDecoder());
+        DECODED_BYTES.add(in.position() - position);
         
         if (listener.isClosed()) {
+            session.setAttribute(STREAM_CLOSED_ATTRIBUTE_NAME, Boolean.TRUE);
             session.close(true);
             return true;
         } else {
@@ -61,6 +61,27 @@ public class Renderer {
         return openElementBuffer.toString() + elementContentBuffer.toString() + closeElementBuffer.toString();
     }
 
+    /**
+     * appends the opening element to the given buffer, without creating an intermediate String
+     */
+    public StringBuilder appendOpeningElement(StringBuilder target) {
+        return target.append(openElementBuffer);
+    }
+
+    /**
+     * appends the element content to the given buffer, without creating an intermediate String
+     */
+    public StringBuilder appendElementContent(StringBuilder target) {
+        return target.append(elementContentBuffer);
+    }
+
+    /**
+     * appends the complete element to the given buffer, without creating an intermediate String
+     */
+    public StringBuilder appendComplete(StringBuilder target) {
+        return target.append(openElementBuffer).append(elementContentBuffer).append(closeElementBuffer);
+    }
+
     private void renderXMLElement(XMLElement element, ResolverNamespaceResolver nsResolver,
             StringBuilder openElementBuffer, StringBuilder elementContentBuffer, StringBuilder closeElementBuffer) {
         nsResolver.push(element);
@@ -56,6 +56,11 @@ public class DefaultNonBlockingXMLReader implements NonBlockingXMLReader {
 
     private XMLParser parser;
 
+    /**
+     * true from the first call to parse, until the reader is reset
+     */
+    private boolean parsing = false;
+
     private Map<String, Boolean> features = new HashMap<String, Boolean>();
 
     private Map<String, Object> properties = new HashMap<String, Object>();
@@ -85,9 +90,11 @@ public class DefaultNonBlockingXMLReader implements NonBlockingXMLReader {
     public void setFeature(String name, boolean value) throws SAXNotRecognizedException, SAXNotSupportedException {
 
         // features must be set before parsing starts
-        if (parser != null) {
+        if (parsing) {
             throw new SAXNotSupportedException("Feature can not be set during parsing");
         }
+        // the parser is created again with the changed features
+        parser = null;
 
         if (features.containsKey(name)) {
             // TODO make configurable features and values easier to manage
@@ -119,6 +126,7 @@ public class DefaultNonBlockingXMLReader implements NonBlockingXMLReader {
      */
     public void setProperty(String name, Object value) throws SAXNotRecognizedException, SAXNotSupportedException {
         properties.put(name, value);
+        if (!parsing) parser = null;
     }
 
     /**
@@ -151,6 +159,7 @@ public class DefaultNonBlockingXMLReader implements NonBlockingXMLReader {
      */
     public void setContentHandler(ContentHandler handler) {
         this.contentHandler = handler;
+        if (!parsing) parser = null;
     }
 
     /**
@@ -165,6 +174,7 @@ public class DefaultNonBlockingXMLReader implements NonBlockingXMLReader {
      */
     public void setErrorHandler(ErrorHandler handler) {
         this.errorHandler = handler;
+        if (!parsing) parser = null;
     }
 
     /**
@@ -181,8 +191,26 @@ public class DefaultNonBlockingXMLReader implements NonBlockingXMLReader {
         if (parser == null) {
             parser = new XMLParser(contentHandler, errorHandler, features, properties);
         }
+        parsing = true;
 
         parser.parse(buffer, decoder);
     }
 
+    /**
+     * Discards the state of the current document. The next call to {@link #parse(IoBuffer, CharsetDecoder)}
+     * starts a new document, using the handlers, features and properties already set on this reader.
+     * This allows reusing a reader, and its parser, for a sequence of independent documents.
+     */
+    public void reset() {
+        if (parser != null) parser.reset();
+        parsing = false;
+    }
+
+    /**
+     * @return the parser of this reader, null before the first document
+     */
+    XMLParser getParser() {
+        return parser;
+    }
+
 }
\ No newline at end of file
@@ -36,6 +36,13 @@ public class ParserNamespaceResolver {
     public ParserNamespaceResolver() {
     }
 
+    /**
+     * forgets all namespace declarations
+     */
+    public void clear() {
+        elements.clear();
+    }
+
     public void push(Map<String, String> elmXmlns) {
         elements.push(elmXmlns);
     }
@@ -338,6 +338,21 @@ public class XMLParser implements TokenListener {
         tokenizer.restart();
     }
 
+    /**
+     * discards the state of the current document, so that this parser and its tokenizer can parse the
+     * next document with the same handlers and features
+     */
+    public void reset() {
+        state = State.START;
+        qname = null;
+        attributes = null;
+        attributeName = null;
+        elements.clear();
+        nsResolver.clear();
+        sentStartDocument = false;
+        tokenizer.reset();
+    }
+
     private void xmlDeclaration() {
         // we got an XML declaration, should we restart stream?
         // TODO could also be a PI, if we want to support PIs, this code needs further attention
@@ -145,6 +145,14 @@ public class XMLTokenizer {
         buffer.clear();
     }
 
+    /**
+     * discards the state of the current document, including a closed state, keeping the buffer
+     */
+    public void reset() {
+        state = State.START;
+        buffer.clear();
+    }
+
     private boolean isControlChar(byte c) {
         return c == '<' || c == '>' || c == '!' || c == '/' || c == '?' || c == '=';
     }
@@ -174,6 +174,19 @@ public class RendererTestCase extends TestCase {
         assertRendering("<foo>ba&lt;r</foo>", elm);
     }
 
+    public void testAppendToBuffer() {
+        XMLElement elm = new XMLElement(null, "foo", null, null, new XMLFragment[] { new XMLText("bar") });
+        Renderer renderer = new Renderer(elm);
+
+        StringBuilder buffer = new StringBuilder("x");
+        assertEquals("x<foo>bar</foo>", renderer.appendComplete(buffer).toString());
+
+        buffer.setLength(0);
+        renderer.appendOpeningElement(buffer);
+        renderer.appendElementContent(buffer);
+        assertEquals("<foo>bar", buffer.toString());
+    }
+
     private void assertRendering(String expected, XMLElement elm) {
         assertEquals(expected, new Renderer(elm).getComplete());
     }
@@ -20,10 +20,12 @@
 package org.apache.vysper.xml.sax.impl;
 
 import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
 
 import org.apache.mina.core.buffer.IoBuffer;
 import org.apache.vysper.charset.CharsetUtil;
 import org.apache.vysper.xml.sax.NonBlockingXMLReader;
+import org.apache.vysper.xml.sax.impl.TestHandler.TestEvent;
 import org.xml.sax.DTDHandler;
 import org.xml.sax.SAXException;
 import org.xml.sax.SAXNotRecognizedException;
@@ -70,6 +72,47 @@ public class DefaultAsyncXMLReaderTestCase extends AbstractAsyncXMLReaderTestCas
         }
     }
 
+    public void testResetReusesParser() throws Exception {
+        TestHandler handler = new TestHandler();
+        DefaultNonBlockingXMLReader reader = new DefaultNonBlockingXMLReader();
+        reader.setContentHandler(handler);
+        reader.setErrorHandler(handler);
+
+        // the first document is left incomplete
+        reader.parse(IoBuffer.wrap("<body xmlns='http://jabber.org/protocol/httpbind' rid='1'><mess"
+                .getBytes(StandardCharsets.UTF_8)), CharsetUtil.getDecoder());
+        XMLParser parser = reader.getParser();
+
+        reader.reset();
+        handler.getEvents().clear();
+        reader.parse(IoBuffer.wrap("<body xmlns='http://jabber.org/protocol/httpbind' rid='2'/>"
+                .getBytes(StandardCharsets.UTF_8)), CharsetUtil.getDecoder());
+        assertSame(parser, reader.getParser());
+
+        reader.reset();
+        reader.parse(IoBuffer.wrap("<body xmlns='http://jabber.org/protocol/httpbind' rid='3'/>"
+                .getBytes(StandardCharsets.UTF_8)), CharsetUtil.getDecoder());
+        assertSame(parser, reader.getParser());
+
+        Iterator<TestEvent> events = handler.getEvents().iterator();
+        for (String rid : new String[] { "2", "3" }) {
+            assertStartDocument(events.next());
+            assertStartElement("http://jabber.org/protocol/httpbind", "body", "body",
+                    attributes(new Attribute("rid", "", "rid", rid)), events.next());
+            assertEndElement("http://jabber.org/protocol/httpbind", "body", "body", events.next());
+            assertEndDocument(events.next());
+        }
+        assertNoMoreevents(events);
+    }
+
+    public void testSetFeatureAfterReset() throws Exception {
+        DefaultNonBlockingXMLReader reader = new DefaultNonBlockingXMLReader();
+        reader.parse(IoBuffer.wrap("<foo />".getBytes(StandardCharsets.UTF_8)), CharsetUtil.getDecoder());
+        reader.reset();
+        reader.setFeature(DefaultNonBlockingXMLReader.FEATURE_COMMENTS_ALLOWED, false);
+        assertNull(reader.getParser());
+    }
+
     public void testSetDtdHandlerNotSupported() {
         try {
             new DefaultNonBlockingXMLReader().setDTDHandler(new DTDHandler() {
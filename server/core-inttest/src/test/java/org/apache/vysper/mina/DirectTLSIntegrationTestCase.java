@@ -0,0 +1,155 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.mina;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
+
+import junit.framework.TestCase;
+
+import org.apache.vysper.storage.StorageProviderRegistry;
+import org.apache.vysper.storage.inmemory.MemoryStorageProviderRegistry;
+import org.apache.vysper.xmpp.addressing.EntityImpl;
+import org.apache.vysper.xmpp.authentication.AccountManagement;
+import org.apache.vysper.xmpp.cryptography.NonCheckingX509TrustManagerFactory;
+import org.apache.vysper.xmpp.server.XMPPServer;
+import org.jivesoftware.smack.ConnectionConfiguration;
+import org.jivesoftware.smack.SmackConfiguration;
+import org.jivesoftware.smack.sasl.SASLMechanism;
+import org.jivesoftware.smack.tcp.XMPPTCPConnection;
+import org.jivesoftware.smack.tcp.XMPPTCPConnectionConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * logs in over STARTTLS and over direct TLS, and compares the time it takes
+ */
+public class DirectTLSIntegrationTestCase extends TestCase {
+
+    private final Logger logger = LoggerFactory.getLogger(DirectTLSIntegrationTestCase.class);
+
+    private static final String SERVER_DOMAIN = "vysper.org";
+
+    private static final String TEST_USERNAME = "test1@vysper.org";
+
+    private static final String TEST_PASSWORD = "password";
+
+    private static final int LOGINS = 10;
+
+    private XMPPServer server;
+
+    private int startTlsPort;
+
+    private int directTlsPort;
+
+    @Override
+    protected void setUp() throws Exception {
+        SmackConfiguration.setDefaultReplyTimeout(5000);
+
+        StorageProviderRegistry providerRegistry = new MemoryStorageProviderRegistry();
+        AccountManagement accountManagement = (AccountManagement) providerRegistry.retrieve(AccountManagement.class);
+        accountManagement.addUser(EntityImpl.parseUnchecked(TEST_USERNAME), TEST_PASSWORD);
+
+        server = new XMPPServer(SERVER_DOMAIN);
+
+        startTlsPort = findFreePort();
+        TCPEndpoint startTlsEndpoint = new C2SEndpoint();
+        startTlsEndpoint.setPort(startTlsPort);
+        server.addEndpoint(startTlsEndpoint);
+
+        directTlsPort = findFreePort();
+        TCPEndpoint directTlsEndpoint = new DirectTLSC2SEndpoint();
+        directTlsEndpoint.setPort(directTlsPort);
+        server.addEndpoint(directTlsEndpoint);
+
+        server.setStorageProviderRegistry(providerRegistry);
+        server.setTLSCertificateInfo(new File("src/main/config/bogus_mina_tls.cert"), "boguspw");
+        server.start();
+    }
+
+    public void testLoginTime() throws Exception {
+        // warm up both paths, class loading and JIT would otherwise decide the comparison
+        login(startTlsConfiguration());
+        login(directTlsConfiguration());
+
+        long startTlsNanos = 0;
+        long directTlsNanos = 0;
+        for (int i = 0; i < LOGINS; i++) {
+            startTlsNanos += login(startTlsConfiguration());
+            directTlsNanos += login(directTlsConfiguration());
+        }
+
+        logger.info("average login time over STARTTLS {}ms, over direct TLS {}ms", startTlsNanos / LOGINS / 1000000,
+                directTlsNanos / LOGINS / 1000000);
+    }
+
+    private long login(XMPPTCPConnectionConfiguration configuration) throws Exception {
+        XMPPTCPConnection client = new XMPPTCPConnection(configuration);
+        long start = System.nanoTime();
+        try {
+            client.connect();
+            client.login(TEST_USERNAME, TEST_PASSWORD);
+            assertTrue(client.isAuthenticated());
+            return System.nanoTime() - start;
+        } finally {
+            client.disconnect();
+        }
+    }
+
+    private XMPPTCPConnectionConfiguration startTlsConfiguration() throws Exception {
+        return XMPPTCPConnectionConfiguration.builder().setHost("localhost").setXmppDomain(SERVER_DOMAIN)
+                .setPort(startTlsPort).setCompressionEnabled(false)
+                .setSecurityMode(ConnectionConfiguration.SecurityMode.required)
+                .addEnabledSaslMechanism(SASLMechanism.PLAIN).setHostnameVerifier((hostname, session) -> true)
+                .setKeystorePath("src/main/config/bogus_mina_tls.cert")
+                .setCustomX509TrustManager(NonCheckingX509TrustManagerFactory.X509).build();
+    }
+
+    private XMPPTCPConnectionConfiguration directTlsConfiguration() throws Exception {
+        SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(null, new TrustManager[] { NonCheckingX509TrustManagerFactory.X509 }, null);
+
+        // the socket is encrypted before the stream is opened, there is nothing to negotiate
+        return XMPPTCPConnectionConfiguration.builder().setHost("localhost").setXmppDomain(SERVER_DOMAIN)
+                .setPort(directTlsPort).setCompressionEnabled(false)
+                .setSecurityMode(ConnectionConfiguration.SecurityMode.disabled)
+                .setSocketFactory(sslContext.getSocketFactory())
+                .addEnabledSaslMechanism(SASLMechanism.PLAIN).build();
+    }
+
+    private int findFreePort() throws IOException {
+        ServerSocket ss = new ServerSocket(0);
+        try {
+            ss.setReuseAddress(true);
+            return ss.getLocalPort();
+        } finally {
+            ss.close();
+        }
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        server.stop();
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.event;
+
+/**
+ * A listener receiving its events asynchronously, when published through an
+ * {@link IndexedEventBus}. The events are queued per listener and delivered one
+ * after the other, in the order they have been published, on a thread of the
+ * bus. When the queue of the listener is full, events are dropped.
+ * <p>
+ * Listeners doing slow work, like storage or network calls, should be
+ * asynchronous, so that they do not add latency to the stanza being processed.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public interface AsyncEventListener<T> extends EventListener<T> {
+
+}
@@ -0,0 +1,246 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.event;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An event bus resolving the listeners of an event type once, into an array
+ * which is reused for every event of that type until a dictionary is added.
+ * Dictionaries are expected not to change after they have been added.
+ * <p>
+ * Plain listeners are fired on the publishing thread. {@link AsyncEventListener}s
+ * get a bounded queue each, drained by the threads of the bus.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class IndexedEventBus implements EventBus {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IndexedEventBus.class);
+
+    public static final int DEFAULT_THREADS = 2;
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    /**
+     * Maximum number of events delivered to one listener before other listeners
+     * get a turn.
+     */
+    private static final int BATCH_SIZE = 64;
+
+    private final int queueCapacity;
+
+    private final ThreadPoolExecutor executor;
+
+    private final ConcurrentMap<EventListener<?>, Mailbox> mailboxes = new ConcurrentHashMap<>();
+
+    private final LongAdder dropped = new LongAdder();
+
+    private volatile Index index = new Index(Collections.emptyList());
+
+    public IndexedEventBus() {
+        this(DEFAULT_THREADS, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * @param threads
+     *            Number of threads delivering to asynchronous listeners. The
+     *            threads are started on demand and stop when idle.
+     * @param queueCapacity
+     *            Number of events queued per asynchronous listener.
+     */
+    public IndexedEventBus(int threads, int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "vysper-event-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public synchronized IndexedEventBus addDictionary(EventListenerDictionary dictionary) {
+        if (index.dictionaries.contains(dictionary)) {
+            return this;
+        }
+        List<EventListenerDictionary> dictionaries = new ArrayList<>(index.dictionaries);
+        dictionaries.add(dictionary);
+        index = new Index(Collections.unmodifiableList(dictionaries));
+        return this;
+    }
+
+    @Override
+    public <T> EventBus publish(Class<T> eventType, T event) {
+        for (Dispatch dispatch : index.get(eventType)) {
+            dispatch.dispatch(event);
+        }
+        return this;
+    }
+
+    /**
+     * @return The number of events dropped because the queue of an asynchronous
+     *         listener was full.
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Stops delivering to asynchronous listeners. Events still queued are
+     * discarded.
+     */
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private Dispatch dispatchFor(EventListener<?> listener) {
+        if (listener instanceof AsyncEventListener) {
+            return mailboxes.computeIfAbsent(listener, Mailbox::new);
+        }
+        return new Dispatch(listener);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void fireEvent(Object event, EventListener<?> listener) {
+        LOG.trace("Firing event {} on listener {}", event, listener);
+        try {
+            ((EventListener<Object>) listener).onEvent(event);
+            LOG.trace("Fired event {} on listener {}", event, listener);
+        } catch (Exception e) {
+            LOG.error(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * The listeners per event type, resolved from one set of dictionaries.
+     */
+    private final class Index {
+
+        private final List<EventListenerDictionary> dictionaries;
+
+        private final ConcurrentMap<Class<?>, Dispatch[]> dispatchesByEventType = new ConcurrentHashMap<>();
+
+        private Index(List<EventListenerDictionary> dictionaries) {
+            this.dictionaries = dictionaries;
+        }
+
+        private Dispatch[] get(Class<?> eventType) {
+            Dispatch[] dispatches = dispatchesByEventType.get(eventType);
+            if (dispatches == null) {
+                dispatches = dispatchesByEventType.computeIfAbsent(eventType, this::resolve);
+            }
+            return dispatches;
+        }
+
+        private Dispatch[] resolve(Class<?> eventType) {
+            Set<EventListener<?>> listeners = new LinkedHashSet<>();
+            for (EventListenerDictionary dictionary : dictionaries) {
+                listeners.addAll(dictionary.get(eventType));
+            }
+            Dispatch[] dispatches = new Dispatch[listeners.size()];
+            int i = 0;
+            for (EventListener<?> listener : listeners) {
+                dispatches[i++] = dispatchFor(listener);
+            }
+            return dispatches;
+        }
+    }
+
+    private static class Dispatch {
+
+        protected final EventListener<?> listener;
+
+        private Dispatch(EventListener<?> listener) {
+            this.listener = listener;
+        }
+
+        void dispatch(Object event) {
+            fireEvent(event, listener);
+        }
+    }
+
+    private final class Mailbox extends Dispatch implements Runnable {
+
+        private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private Mailbox(EventListener<?> listener) {
+            super(listener);
+        }
+
+        @Override
+        void dispatch(Object event) {
+            if (!queue.offer(event)) {
+                dropped.increment();
+                LOG.warn("Dropping event {}, the queue of listener {} is full", event, listener);
+                return;
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            if (!scheduled.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                scheduled.set(false);
+                LOG.debug("Event bus is closed, not delivering to {}", listener);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                Object event;
+                for (int i = 0; i < BATCH_SIZE && (event = queue.poll()) != null; i++) {
+                    fireEvent(event, listener);
+                }
+            } finally {
+                scheduled.set(false);
+            }
+            if (!queue.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+}
@@ -0,0 +1,390 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.mina;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.mina.core.buffer.IoBuffer;
+import org.apache.mina.core.filterchain.IoFilterAdapter;
+import org.apache.mina.core.session.IdleStatus;
+import org.apache.mina.core.session.IoSession;
+import org.apache.mina.core.write.DefaultWriteRequest;
+import org.apache.mina.core.write.WriteRequest;
+import org.apache.mina.filter.FilterEvent;
+import org.apache.mina.filter.ssl.SslFilter;
+import org.apache.vysper.xml.fragment.Renderer;
+import org.apache.vysper.xmpp.addressing.Entity;
+import org.apache.vysper.xmpp.protocol.SessionStateHolder;
+import org.apache.vysper.xmpp.protocol.StreamErrorCondition;
+import org.apache.vysper.xmpp.server.ServerRuntimeContext;
+import org.apache.vysper.xmpp.server.SessionContext.SessionTerminationCause;
+import org.apache.vysper.xmpp.server.SessionState;
+import org.apache.vysper.xmpp.server.XMPPVersion;
+import org.apache.vysper.xmpp.server.response.ServerErrorResponses;
+import org.apache.vysper.xmpp.server.response.ServerResponses;
+import org.apache.vysper.xmpp.stanza.Stanza;
+import org.apache.vysper.xmpp.writer.StanzaWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * admits new connections to an endpoint only as long as the number of connections not yet authenticated
+ * stays below its limit, and only as fast as the accept rate allows. connections not authenticated in time
+ * are closed with a connection-timeout stream error. while the {@link LoadSheddingPolicy} tells the server is
+ * overloaded, all new connections are redirected to its peer node.
+ * <br>
+ * rejected connections receive a complete stream with a see-other-host stream error, if a redirect host is
+ * set, and a system-shutdown stream error otherwise. the stream is prepared in advance and written right
+ * away, rejected connections are never seen by the XML codec or the handler. on direct TLS endpoints no
+ * stream can be written before the handshake, so rejected connections are closed without a stream error.
+ * <br>
+ * the filter is the first in the chain. it learns about a successful authentication when the next data
+ * is received from the connection, which is the stream restarted by the client.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class AdmissionControlFilter extends IoFilterAdapter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AdmissionControlFilter.class);
+
+    private static final String ATTRIBUTE_REJECTED = "vysperAdmissionRejected";
+
+    /**
+     * set while the connection is counted as unauthenticated, holds the pending timeout, if any
+     */
+    private static final String ATTRIBUTE_UNAUTHENTICATED = "vysperAdmissionUnauthenticated";
+
+    private int maxUnauthenticatedSessions = 0;
+
+    private TokenBucket acceptRate;
+
+    private int authenticationTimeoutSeconds = 0;
+
+    private String redirectHost;
+
+    private LoadSheddingPolicy loadSheddingPolicy;
+
+    private boolean directTLS;
+
+    private boolean forClient;
+
+    private Entity serverEntity;
+
+    private byte[] rejection;
+
+    private byte[] redirection;
+
+    private ScheduledThreadPoolExecutor timeoutExecutor;
+
+    private final AtomicInteger unauthenticatedSessions = new AtomicInteger();
+
+    private final AtomicLong admittedSessions = new AtomicLong();
+
+    private final AtomicLong rejectedSessions = new AtomicLong();
+
+    private final AtomicLong redirectedSessions = new AtomicLong();
+
+    private final AtomicLong timedOutSessions = new AtomicLong();
+
+    public int getMaxUnauthenticatedSessions() {
+        return maxUnauthenticatedSessions;
+    }
+
+    /**
+     * @param maxUnauthenticatedSessions the most connections which may be waiting for authentication at
+     *          a time, 0 for no limit
+     */
+    public void setMaxUnauthenticatedSessions(int maxUnauthenticatedSessions) {
+        if (maxUnauthenticatedSessions < 0) throw new IllegalArgumentException("limit must not be negative");
+        this.maxUnauthenticatedSessions = maxUnauthenticatedSessions;
+    }
+
+    /**
+     * @param connectionsPerSecond the connections accepted per second on average, 0 for no limit
+     * @param burst the connections accepted at once after a quiet period
+     */
+    public void setAcceptRate(double connectionsPerSecond, int burst) {
+        this.acceptRate = connectionsPerSecond == 0 ? null : new TokenBucket(connectionsPerSecond, burst);
+    }
+
+    public int getAuthenticationTimeoutSeconds() {
+        return authenticationTimeoutSeconds;
+    }
+
+    /**
+     * @param authenticationTimeoutSeconds the time a connection is given to authenticate, 0 for no deadline
+     */
+    public void setAuthenticationTimeoutSeconds(int authenticationTimeoutSeconds) {
+        if (authenticationTimeoutSeconds < 0) throw new IllegalArgumentException("timeout must not be negative");
+        this.authenticationTimeoutSeconds = authenticationTimeoutSeconds;
+    }
+
+    public String getRedirectHost() {
+        return redirectHost;
+    }
+
+    /**
+     * @param redirectHost the host rejected connections are sent to with a see-other-host stream error,
+     *          optionally with a port like 'xmpp2.example.org:5222'. null for a system-shutdown stream error.
+     */
+    public void setRedirectHost(String redirectHost) {
+        this.redirectHost = redirectHost;
+    }
+
+    public LoadSheddingPolicy getLoadSheddingPolicy() {
+        return loadSheddingPolicy;
+    }
+
+    /**
+     * @param loadSheddingPolicy tells when to redirect new connections to a peer node, null to never redirect
+     *          because of load
+     */
+    public void setLoadSheddingPolicy(LoadSheddingPolicy loadSheddingPolicy) {
+        this.loadSheddingPolicy = loadSheddingPolicy;
+    }
+
+    /**
+     * @return the connections currently waiting for authentication
+     */
+    public int getUnauthenticatedSessions() {
+        return unauthenticatedSessions.get();
+    }
+
+    public long getAdmittedSessions() {
+        return admittedSessions.get();
+    }
+
+    public long getRejectedSessions() {
+        return rejectedSessions.get();
+    }
+
+    /**
+     * @return the connections redirected because the server has been overloaded
+     */
+    public long getRedirectedSessions() {
+        return redirectedSessions.get();
+    }
+
+    public long getTimedOutSessions() {
+        return timedOutSessions.get();
+    }
+
+    /**
+     * called by the endpoint before it starts accepting connections
+     *
+     * @param forClient true for client connections, false for server connections
+     */
+    void start(ServerRuntimeContext serverRuntimeContext, boolean forClient, boolean directTLS) {
+        this.serverEntity = serverRuntimeContext.getServerEntity();
+        this.forClient = forClient;
+        this.directTLS = directTLS;
+        Stanza error = redirectHost != null ? ServerErrorResponses.getSeeOtherHostStreamError(redirectHost)
+                : ServerErrorResponses.getStreamError(StreamErrorCondition.SYSTEM_SHUTDOWN, null, null, null);
+        this.rejection = renderStream(error);
+        if (loadSheddingPolicy != null) {
+            loadSheddingPolicy.start(serverRuntimeContext);
+            redirection = renderStream(
+                    ServerErrorResponses.getSeeOtherHostStreamError(loadSheddingPolicy.getRedirectHost()));
+        }
+        if (authenticationTimeoutSeconds > 0) {
+            timeoutExecutor = new ScheduledThreadPoolExecutor(1, runnable -> {
+                Thread thread = new Thread(runnable, "vysper-admission-timeout");
+                thread.setDaemon(true);
+                return thread;
+            });
+            // most connections authenticate in time, do not keep their timeouts around
+            timeoutExecutor.setRemoveOnCancelPolicy(true);
+        }
+    }
+
+    private byte[] renderStream(Stanza error) {
+        Stanza stream = new ServerResponses().getStreamOpenerForError(forClient, serverEntity,
+                XMPPVersion.VERSION_1_0, error);
+        String complete = StanzaWriter.XML_PROLOG + new Renderer(stream).getComplete();
+        return complete.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void destroy() {
+        if (timeoutExecutor != null) timeoutExecutor.shutdownNow();
+    }
+
+    @Override
+    public void sessionCreated(NextFilter nextFilter, IoSession session) throws Exception {
+        if (loadSheddingPolicy != null && loadSheddingPolicy.isOverloaded()) {
+            redirectedSessions.incrementAndGet();
+            reject(nextFilter, session, redirection);
+            return;
+        }
+        if (!admit()) {
+            rejectedSessions.incrementAndGet();
+            reject(nextFilter, session, rejection);
+            return;
+        }
+        admittedSessions.incrementAndGet();
+        Object timeout = Boolean.TRUE;
+        if (timeoutExecutor != null) {
+            timeout = timeoutExecutor.schedule(() -> authenticationTimedOut(session), authenticationTimeoutSeconds,
+                    TimeUnit.SECONDS);
+        }
+        session.setAttribute(ATTRIBUTE_UNAUTHENTICATED, timeout);
+        nextFilter.sessionCreated(session);
+    }
+
+    private boolean admit() {
+        int unauthenticated = unauthenticatedSessions.incrementAndGet();
+        if ((maxUnauthenticatedSessions > 0 && unauthenticated > maxUnauthenticatedSessions)
+                || (acceptRate != null && !acceptRate.tryTake(1))) {
+            unauthenticatedSessions.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    private void reject(NextFilter nextFilter, IoSession session, byte[] stream) {
+        session.setAttribute(ATTRIBUTE_REJECTED, Boolean.TRUE);
+        LOG.debug("rejecting connection from {}", session.getRemoteAddress());
+        if (directTLS) {
+            session.closeNow();
+            return;
+        }
+        // straight to the socket, the filters further up have not seen the session
+        nextFilter.filterWrite(session, new DefaultWriteRequest(IoBuffer.wrap(stream)));
+        session.closeOnFlush();
+    }
+
+    private void authenticationTimedOut(IoSession session) {
+        if (isAuthenticated(session)) {
+            release(session);
+            return;
+        }
+        if (!release(session)) return;
+        timedOutSessions.incrementAndGet();
+        LOG.info("{} has not authenticated within {} seconds, closing the connection", session.getRemoteAddress(),
+                authenticationTimeoutSeconds);
+
+        session.setAttribute(XmppIoHandlerAdapter.ATTRIBUTE_VYSPER_TERMINATE_REASON,
+                SessionTerminationCause.STREAM_ERROR);
+        Object sessionContext = session.getAttribute(XmppIoHandlerAdapter.ATTRIBUTE_VYSPER_SESSION);
+        boolean handshaking = session.getFilterChain().contains(SslFilter.class)
+                && session.getAttribute(SslFilter.SSL_SESSION) == null;
+        if (!(sessionContext instanceof MinaBackedSessionContext) || handshaking) {
+            // nothing can be written before the handshake has completed
+            session.closeNow();
+            return;
+        }
+        MinaBackedSessionContext context = (MinaBackedSessionContext) sessionContext;
+        Stanza error = ServerErrorResponses.getStreamError(StreamErrorCondition.CONNECTION_TIMEOUT,
+                context.getXMLLang(), "authentication timed out", null);
+        if (!context.isStreamOpened()) {
+            error = new ServerResponses().getStreamOpenerForError(forClient, serverEntity, XMPPVersion.VERSION_1_0,
+                    error);
+        }
+        // ending the session waits for the connection to close, closing is left to the handler
+        context.writeToConnection(error);
+        session.closeOnFlush();
+    }
+
+    private boolean isAuthenticated(IoSession session) {
+        SessionStateHolder stateHolder = (SessionStateHolder) session
+                .getAttribute(XmppIoHandlerAdapter.ATTRIBUTE_VYSPER_SESSIONSTATEHOLDER);
+        return stateHolder != null && stateHolder.getState() == SessionState.AUTHENTICATED;
+    }
+
+    /**
+     * stops counting the connection as unauthenticated
+     *
+     * @return false, if it has not been counted anymore
+     */
+    private boolean release(IoSession session) {
+        Object timeout = session.removeAttribute(ATTRIBUTE_UNAUTHENTICATED);
+        if (timeout == null) return false;
+        if (timeout instanceof ScheduledFuture) ((ScheduledFuture<?>) timeout).cancel(false);
+        unauthenticatedSessions.decrementAndGet();
+        return true;
+    }
+
+    private boolean isRejected(IoSession session) {
+        return session.containsAttribute(ATTRIBUTE_REJECTED);
+    }
+
+    @Override
+    public void sessionOpened(NextFilter nextFilter, IoSession session) throws Exception {
+        if (isRejected(session)) return;
+        nextFilter.sessionOpened(session);
+    }
+
+    @Override
+    public void sessionClosed(NextFilter nextFilter, IoSession session) throws Exception {
+        if (isRejected(session)) return;
+        release(session);
+        nextFilter.sessionClosed(session);
+    }
+
+    @Override
+    public void sessionIdle(NextFilter nextFilter, IoSession session, IdleStatus status) throws Exception {
+        if (isRejected(session)) return;
+        nextFilter.sessionIdle(session, status);
+    }
+
+    @Override
+    public void exceptionCaught(NextFilter nextFilter, IoSession session, Throwable cause) throws Exception {
+        if (isRejected(session)) {
+            session.closeNow();
+            return;
+        }
+        nextFilter.exceptionCaught(session, cause);
+    }
+
+    @Override
+    public void inputClosed(NextFilter nextFilter, IoSession session) throws Exception {
+        if (isRejected(session)) {
+            session.closeNow();
+            return;
+        }
+        nextFilter.inputClosed(session);
+    }
+
+    @Override
+    public void messageReceived(NextFilter nextFilter, IoSession session, Object message) throws Exception {
+        if (isRejected(session)) return;
+        if (session.containsAttribute(ATTRIBUTE_UNAUTHENTICATED) && isAuthenticated(session)) {
+            release(session);
+        }
+        nextFilter.messageReceived(session, message);
+    }
+
+    @Override
+    public void messageSent(NextFilter nextFilter, IoSession session, WriteRequest writeRequest) throws Exception {
+        if (isRejected(session)) return;
+        nextFilter.messageSent(session, writeRequest);
+    }
+
+    @Override
+    public void event(NextFilter nextFilter, IoSession session, FilterEvent event) throws Exception {
+        if (isRejected(session)) return;
+        nextFilter.event(session, event);
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.mina;
+
+import org.apache.mina.core.buffer.CachedBufferAllocator;
+import org.apache.mina.core.buffer.IoBuffer;
+import org.apache.mina.core.buffer.SimpleBufferAllocator;
+
+/**
+ * the buffer allocator used by MINA. the allocator is a JVM wide setting of MINA, so it is
+ * configured once for the whole server, see
+ * {@link org.apache.vysper.xmpp.server.XMPPServer#setBufferAllocation(BufferAllocation)}.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public enum BufferAllocation {
+    HEAP, DIRECT,
+    /**
+     * direct buffers, recycled through a per-thread cache. MINA frees written buffers before an
+     * executor gets to process the messageSent event, so this requires all endpoints and connectors
+     * to use {@link IoTopology.ExecutorModel#IO_THREAD}.
+     */
+    POOLED;
+
+    /**
+     * installs the allocator for all MINA services of this JVM
+     */
+    public void apply() {
+        switch (this) {
+        case HEAP:
+            IoBuffer.setUseDirectBuffer(false);
+            IoBuffer.setAllocator(new SimpleBufferAllocator());
+            break;
+        case DIRECT:
+            IoBuffer.setUseDirectBuffer(true);
+            IoBuffer.setAllocator(new SimpleBufferAllocator());
+            break;
+        case POOLED:
+            IoBuffer.setUseDirectBuffer(true);
+            IoBuffer.setAllocator(new CachedBufferAllocator());
+            break;
+        }
+    }
+
+    /**
+     * @return true, if the installed allocator recycles buffers
+     */
+    public static boolean isPooledInstalled() {
+        return IoBuffer.getAllocator() instanceof CachedBufferAllocator;
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.mina;
+
+/**
+ * Endpoint used for server-to-server (s2s) connections encrypted from the start, as of
+ * <a href="http://xmpp.org/extensions/xep-0368.html">XEP-0368</a>. Defaults to listen on port 5270,
+ * accepting the ALPN protocol 'xmpp-server'.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class DirectTLSS2SEndpoint extends S2SEndpoint {
+
+    public DirectTLSS2SEndpoint() {
+        setPort(5270);
+        setDirectTLS(true);
+        setApplicationProtocols("xmpp-server");
+    }
+
+}
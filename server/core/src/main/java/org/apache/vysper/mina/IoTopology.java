@@ -0,0 +1,295 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.mina;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.mina.core.filterchain.DefaultIoFilterChainBuilder;
+import org.apache.mina.filter.executor.ExecutorFilter;
+import org.apache.mina.transport.socket.SocketSessionConfig;
+import org.apache.mina.transport.socket.nio.NioSocketAcceptor;
+import org.apache.mina.transport.socket.nio.NioSocketConnector;
+
+/**
+ * describes how MINA services are laid out on threads and sockets: the number of NIO processors,
+ * where stanzas are processed and socket options.
+ * <br>
+ * options left unset keep the MINA or operating system defaults. the default instance
+ * reproduces the layout Vysper always used: default processor count and an ordered executor
+ * with 10 to 20 threads. {@link #manyIdleConnections()} and {@link #fewHighThroughputConnections()}
+ * are presets for the two typical deployments.
+ * <br>
+ * the buffer allocator is not part of the topology, MINA only has one per JVM. it is configured for
+ * the whole server, see {@link BufferAllocation}.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class IoTopology {
+
+    public enum ExecutorModel {
+        /**
+         * stanzas are processed on the NIO processor threads. lowest latency, but a handler blocking on
+         * storage stalls all sessions of that processor.
+         */
+        IO_THREAD,
+        /**
+         * stanzas are processed on an ordered thread pool, preserving the order within each session
+         */
+        ORDERED_THREAD_POOL,
+        /**
+         * stanzas are processed on virtual threads, preserving the order within each session.
+         * requires Java 21 or later, see {@link VirtualThreadExecutorFilter}.
+         */
+        VIRTUAL_THREADS
+    }
+
+    private int processorCount = Runtime.getRuntime().availableProcessors() + 1;
+
+    private ExecutorModel executorModel = ExecutorModel.ORDERED_THREAD_POOL;
+
+    private int coreThreadCount = 10;
+
+    private int maxThreadCount = 20;
+
+    private int threadTimeoutSeconds = 2 * 60;
+
+    private Boolean tcpNoDelay;
+
+    private Boolean keepAlive;
+
+    private Integer receiveBufferSize;
+
+    private Integer sendBufferSize;
+
+    private Integer backlog;
+
+    private Integer readBufferSize;
+
+    private Integer minReadBufferSize;
+
+    private Integer maxReadBufferSize;
+
+    /**
+     * tuned for a large number of mostly idle client connections: small read buffers keep the
+     * per-connection footprint low, a large accept backlog absorbs reconnect storms, keep-alive
+     * detects dead peers, and a larger executor absorbs handlers blocking on storage.
+     * kernel socket buffers are left to the operating system's autotuning, fixing them to a small
+     * size can stall transfers on links with a large MTU.
+     */
+    public static IoTopology manyIdleConnections() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        IoTopology topology = new IoTopology();
+        topology.setProcessorCount(cores);
+        topology.setCoreThreadCount(2 * cores);
+        topology.setMaxThreadCount(8 * cores);
+        topology.setTcpNoDelay(true);
+        topology.setKeepAlive(true);
+        topology.setBacklog(1024);
+        topology.setReadBufferSize(512);
+        topology.setMinReadBufferSize(64);
+        topology.setMaxReadBufferSize(16 * 1024);
+        return topology;
+    }
+
+    /**
+     * tuned for a few connections moving a lot of data, like server-to-server links or
+     * component connections: large read buffers and kernel socket buffers and one processing
+     * thread per core. such deployments usually also benefit from {@link BufferAllocation#DIRECT}.
+     */
+    public static IoTopology fewHighThroughputConnections() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        IoTopology topology = new IoTopology();
+        topology.setProcessorCount(Math.max(1, cores / 2));
+        topology.setCoreThreadCount(cores);
+        topology.setMaxThreadCount(2 * cores);
+        topology.setTcpNoDelay(true);
+        topology.setReceiveBufferSize(256 * 1024);
+        topology.setSendBufferSize(256 * 1024);
+        topology.setBacklog(64);
+        topology.setReadBufferSize(64 * 1024);
+        topology.setMinReadBufferSize(4 * 1024);
+        topology.setMaxReadBufferSize(256 * 1024);
+        return topology;
+    }
+
+    public NioSocketAcceptor createAcceptor() {
+        checkBufferAllocation();
+        NioSocketAcceptor acceptor = new NioSocketAcceptor(processorCount);
+        acceptor.setReuseAddress(true);
+        if (backlog != null) acceptor.setBacklog(backlog);
+        configure(acceptor.getSessionConfig());
+        return acceptor;
+    }
+
+    public NioSocketConnector createConnector() {
+        checkBufferAllocation();
+        NioSocketConnector connector = new NioSocketConnector(processorCount);
+        configure(connector.getSessionConfig());
+        return connector;
+    }
+
+    /**
+     * adds the executor filter as the last filter, if the executor model requires one
+     * @return the added filter, which has to be destroyed when the service is disposed, or null
+     * @throws UnsupportedOperationException if virtual threads are requested, but not available
+     */
+    public ExecutorFilter addExecutorFilter(DefaultIoFilterChainBuilder filterChainBuilder) {
+        ExecutorFilter executorFilter;
+        switch (executorModel) {
+        case ORDERED_THREAD_POOL:
+            executorFilter = new ExecutorFilter(coreThreadCount, maxThreadCount, threadTimeoutSeconds,
+                    TimeUnit.SECONDS);
+            break;
+        case VIRTUAL_THREADS:
+            executorFilter = new VirtualThreadExecutorFilter();
+            break;
+        default:
+            return null;
+        }
+        filterChainBuilder.addLast("executorFilter", executorFilter);
+        return executorFilter;
+    }
+
+    protected void configure(SocketSessionConfig config) {
+        if (tcpNoDelay != null) config.setTcpNoDelay(tcpNoDelay);
+        if (keepAlive != null) config.setKeepAlive(keepAlive);
+        if (receiveBufferSize != null) config.setReceiveBufferSize(receiveBufferSize);
+        if (sendBufferSize != null) config.setSendBufferSize(sendBufferSize);
+        // min and max first, MINA clamps the read buffer size to them
+        if (minReadBufferSize != null) config.setMinReadBufferSize(minReadBufferSize);
+        if (maxReadBufferSize != null) config.setMaxReadBufferSize(maxReadBufferSize);
+        if (readBufferSize != null) config.setReadBufferSize(readBufferSize);
+    }
+
+    /**
+     * @throws IllegalStateException if the installed allocator recycles buffers, but the stanzas
+     * would be processed on another thread
+     */
+    protected void checkBufferAllocation() {
+        if (executorModel != ExecutorModel.IO_THREAD && BufferAllocation.isPooledInstalled()) {
+            throw new IllegalStateException("pooled buffers can only be used with executor model IO_THREAD");
+        }
+    }
+
+    public int getProcessorCount() {
+        return processorCount;
+    }
+
+    public void setProcessorCount(int processorCount) {
+        if (processorCount < 1) throw new IllegalArgumentException("processorCount must be at least 1");
+        this.processorCount = processorCount;
+    }
+
+    public ExecutorModel getExecutorModel() {
+        return executorModel;
+    }
+
+    public void setExecutorModel(ExecutorModel executorModel) {
+        this.executorModel = executorModel;
+    }
+
+    public int getCoreThreadCount() {
+        return coreThreadCount;
+    }
+
+    public void setCoreThreadCount(int coreThreadCount) {
+        this.coreThreadCount = coreThreadCount;
+    }
+
+    public int getMaxThreadCount() {
+        return maxThreadCount;
+    }
+
+    public void setMaxThreadCount(int maxThreadCount) {
+        this.maxThreadCount = maxThreadCount;
+    }
+
+    public int getThreadTimeoutSeconds() {
+        return threadTimeoutSeconds;
+    }
+
+    public void setThreadTimeoutSeconds(int threadTimeoutSeconds) {
+        this.threadTimeoutSeconds = threadTimeoutSeconds;
+    }
+
+    public Boolean getTcpNoDelay() {
+        return tcpNoDelay;
+    }
+
+    public void setTcpNoDelay(Boolean tcpNoDelay) {
+        this.tcpNoDelay = tcpNoDelay;
+    }
+
+    public Boolean getKeepAlive() {
+        return keepAlive;
+    }
+
+    public void setKeepAlive(Boolean keepAlive) {
+        this.keepAlive = keepAlive;
+    }
+
+    public Integer getReceiveBufferSize() {
+        return receiveBufferSize;
+    }
+
+    public void setReceiveBufferSize(Integer receiveBufferSize) {
+        this.receiveBufferSize = receiveBufferSize;
+    }
+
+    public Integer getSendBufferSize() {
+        return sendBufferSize;
+    }
+
+    public void setSendBufferSize(Integer sendBufferSize) {
+        this.sendBufferSize = sendBufferSize;
+    }
+
+    public Integer getBacklog() {
+        return backlog;
+    }
+
+    public void setBacklog(Integer backlog) {
+        this.backlog = backlog;
+    }
+
+    public Integer getReadBufferSize() {
+        return readBufferSize;
+    }
+
+    public void setReadBufferSize(Integer readBufferSize) {
+        this.readBufferSize = readBufferSize;
+    }
+
+    public Integer getMinReadBufferSize() {
+        return minReadBufferSize;
+    }
+
+    public void setMinReadBufferSize(Integer minReadBufferSize) {
+        this.minReadBufferSize = minReadBufferSize;
+    }
+
+    public Integer getMaxReadBufferSize() {
+        return maxReadBufferSize;
+    }
+
+    public void setMaxReadBufferSize(Integer maxReadBufferSize) {
+        this.maxReadBufferSize = maxReadBufferSize;
+    }
+}
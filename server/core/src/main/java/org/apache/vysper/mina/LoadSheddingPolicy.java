@@ -0,0 +1,191 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.mina;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.vysper.xmpp.delivery.StanzaRelay;
+import org.apache.vysper.xmpp.delivery.StanzaRelayBroker;
+import org.apache.vysper.xmpp.server.DefaultServerRuntimeContext;
+import org.apache.vysper.xmpp.server.ServerRuntimeContext;
+import org.apache.vysper.xmpp.server.resources.ManagedThreadPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * tells when the server is overloaded, so that newly connecting entities are redirected to a peer node
+ * by the {@link AdmissionControlFilter}. connections already established are kept.
+ * <br>
+ * the server is overloaded while any of the thresholds set is exceeded: the stanzas waiting in the relay
+ * queues, the share of the maximum heap in use, or the number of entities with bound sessions.
+ * the load is evaluated at most once per evaluation interval, so that a reconnect storm does not add
+ * to the load by measuring it.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class LoadSheddingPolicy {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LoadSheddingPolicy.class);
+
+    private final String redirectHost;
+
+    private int maxRelayQueueDepth = 0;
+
+    private double maxHeapUsage = 0;
+
+    private long maxSessions = 0;
+
+    private long evaluationIntervalMillis = 500;
+
+    private ServerRuntimeContext serverRuntimeContext;
+
+    private final List<ManagedThreadPool> relays = new ArrayList<ManagedThreadPool>();
+
+    private volatile long lastEvaluation;
+
+    private volatile boolean overloaded = false;
+
+    /**
+     * @param redirectHost the peer node new connections are sent to while overloaded, optionally with a port
+     *          like 'xmpp2.example.org:5222'
+     */
+    public LoadSheddingPolicy(String redirectHost) {
+        if (redirectHost == null) throw new IllegalArgumentException("redirect host must be given");
+        this.redirectHost = redirectHost;
+    }
+
+    public String getRedirectHost() {
+        return redirectHost;
+    }
+
+    public int getMaxRelayQueueDepth() {
+        return maxRelayQueueDepth;
+    }
+
+    /**
+     * @param maxRelayQueueDepth the most stanzas waiting in the internal and external relay together,
+     *          0 to ignore the relays
+     */
+    public void setMaxRelayQueueDepth(int maxRelayQueueDepth) {
+        this.maxRelayQueueDepth = maxRelayQueueDepth;
+    }
+
+    public double getMaxHeapUsage() {
+        return maxHeapUsage;
+    }
+
+    /**
+     * @param maxHeapUsage the largest share of the maximum heap in use, between 0 and 1, 0 to ignore the heap.
+     *          the heap in use includes garbage not collected yet, so this should be set well above the
+     *          usage after a full collection, like 0.9.
+     */
+    public void setMaxHeapUsage(double maxHeapUsage) {
+        if (maxHeapUsage < 0 || maxHeapUsage > 1) throw new IllegalArgumentException("heap usage must be 0..1");
+        this.maxHeapUsage = maxHeapUsage;
+    }
+
+    public long getMaxSessions() {
+        return maxSessions;
+    }
+
+    /**
+     * @param maxSessions the number of entities with bound sessions new connections are redirected at,
+     *          0 to ignore the sessions
+     */
+    public void setMaxSessions(long maxSessions) {
+        this.maxSessions = maxSessions;
+    }
+
+    public long getEvaluationIntervalMillis() {
+        return evaluationIntervalMillis;
+    }
+
+    /**
+     * @param evaluationIntervalMillis the time the last evaluation is relied on, 0 to evaluate the load
+     *          for every new connection
+     */
+    public void setEvaluationIntervalMillis(long evaluationIntervalMillis) {
+        this.evaluationIntervalMillis = evaluationIntervalMillis;
+    }
+
+    void start(ServerRuntimeContext serverRuntimeContext) {
+        this.serverRuntimeContext = serverRuntimeContext;
+        relays.clear();
+        if (serverRuntimeContext instanceof DefaultServerRuntimeContext) {
+            StanzaRelay stanzaRelay = ((DefaultServerRuntimeContext) serverRuntimeContext).getStanzaRelay();
+            if (stanzaRelay instanceof StanzaRelayBroker) {
+                StanzaRelayBroker relayBroker = (StanzaRelayBroker) stanzaRelay;
+                addRelay(relayBroker.getInternalRelay());
+                addRelay(relayBroker.getExternalRelay());
+            } else {
+                addRelay(stanzaRelay);
+            }
+        }
+        lastEvaluation = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(evaluationIntervalMillis);
+    }
+
+    private void addRelay(StanzaRelay stanzaRelay) {
+        if (stanzaRelay instanceof ManagedThreadPool) relays.add((ManagedThreadPool) stanzaRelay);
+    }
+
+    /**
+     * @return true, if new connections are to be redirected
+     */
+    public boolean isOverloaded() {
+        long now = System.nanoTime();
+        if (now - lastEvaluation < TimeUnit.MILLISECONDS.toNanos(evaluationIntervalMillis)) return overloaded;
+        lastEvaluation = now;
+
+        String exceeded = findExceededThreshold();
+        boolean wasOverloaded = overloaded;
+        overloaded = exceeded != null;
+        if (overloaded && !wasOverloaded) {
+            LOG.warn("server is overloaded, {}, redirecting new connections to {}", exceeded, redirectHost);
+        } else if (!overloaded && wasOverloaded) {
+            LOG.info("server is no longer overloaded, accepting new connections");
+        }
+        return overloaded;
+    }
+
+    /**
+     * @return the threshold exceeded, or null if the server is not overloaded
+     */
+    private String findExceededThreshold() {
+        if (maxRelayQueueDepth > 0) {
+            int queueDepth = 0;
+            for (ManagedThreadPool relay : relays) {
+                queueDepth += relay.getQueueDepth();
+            }
+            if (queueDepth > maxRelayQueueDepth) return "relay queue depth " + queueDepth;
+        }
+        if (maxHeapUsage > 0) {
+            Runtime runtime = Runtime.getRuntime();
+            double heapUsage = (runtime.totalMemory() - runtime.freeMemory()) / (double) runtime.maxMemory();
+            if (heapUsage > maxHeapUsage) return "heap usage " + Math.round(heapUsage * 100) + "%";
+        }
+        if (maxSessions > 0 && serverRuntimeContext != null) {
+            long sessions = serverRuntimeContext.getResourceRegistry().getSessionCount();
+            if (sessions >= maxSessions) return "sessions " + sessions;
+        }
+        return null;
+    }
+}
@@ -19,6 +19,9 @@
  */
 package org.apache.vysper.mina;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.mina.core.future.CloseFuture;
@@ -26,11 +29,16 @@ import org.apache.mina.core.future.IoFuture;
 import org.apache.mina.core.future.IoFutureListener;
 import org.apache.mina.core.session.IoSession;
 import org.apache.mina.filter.ssl.SslFilter;
+import org.apache.vysper.mina.codec.StanzaWriteBatch;
 import org.apache.vysper.mina.codec.StanzaWriteInfo;
+import org.apache.vysper.xmpp.modules.extension.xep0138_stream_compression.CompressibleSession;
+import org.apache.vysper.xmpp.modules.extension.xep0198_stream_mgmt.StreamManagedSession;
+import org.apache.vysper.xmpp.modules.extension.xep0198_stream_mgmt.StreamManagement;
 import org.apache.vysper.xmpp.protocol.SessionStateHolder;
 import org.apache.vysper.xmpp.protocol.StanzaProcessor;
 import org.apache.vysper.xmpp.server.AbstractSessionContext;
 import org.apache.vysper.xmpp.server.ServerRuntimeContext;
+import org.apache.vysper.xmpp.server.SessionContext.SessionTerminationCause;
 import org.apache.vysper.xmpp.server.SessionState;
 import org.apache.vysper.xmpp.stanza.Stanza;
 import org.apache.vysper.xmpp.writer.StanzaWriter;
@@ -42,17 +50,23 @@ import org.slf4j.LoggerFactory;
  *
  * @author The Apache MINA Project (dev@mina.apache.org)
  */
-public class MinaBackedSessionContext extends AbstractSessionContext implements StanzaWriter, IoFutureListener {
+public class MinaBackedSessionContext extends AbstractSessionContext implements StanzaWriter, IoFutureListener,
+        StreamManagedSession, CompressibleSession {
 
     final Logger logger = LoggerFactory.getLogger(MinaBackedSessionContext.class);
 
-    private IoSession minaSession;
+    private volatile IoSession minaSession;
 
     private boolean openingStanzaWritten = false;
 
+    private volatile StreamManagement streamManagement;
+
     private boolean switchToTLS = false;
     private boolean clientTLS = false;
 
+    private volatile ZlibCompressionFilter compressionFilter;
+    private boolean switchToCompression = false;
+
     protected CloseFuture closeFuture;
 
     public MinaBackedSessionContext(ServerRuntimeContext serverRuntimeContext, StanzaProcessor stanzaProcessor, SessionStateHolder sessionStateHolder,
@@ -65,7 +79,7 @@ public class MinaBackedSessionContext extends AbstractSessionContext implements
     }
 
     public StanzaWriter getResponseWriter() {
-        return this;
+        return filterResponseWriter(this);
     }
 
     public void switchToTLS(boolean delayed, boolean clientTls) {
@@ -78,9 +92,35 @@ public class MinaBackedSessionContext extends AbstractSessionContext implements
         }
     }
 
+    public boolean isCompressed() {
+        return compressionFilter != null;
+    }
+
+    public void switchToCompression(boolean delayed, int compressionLevel) {
+        compressionFilter = new ZlibCompressionFilter(compressionLevel);
+
+        if (delayed) {
+            switchToCompression = true;
+        } else {
+            addCompressionFilter(false);
+        }
+    }
+
+    public double getCompressionRatio() {
+        ZlibCompressionFilter filter = compressionFilter;
+        return filter == null ? 1.0 : filter.getCompressionRatio();
+    }
+
     public void setIsReopeningXMLStream() {
         openingStanzaWritten = false;
     }
+
+    /**
+     * @return true, if the stream has been opened towards the connected entity
+     */
+    boolean isStreamOpened() {
+        return openingStanzaWritten;
+    }
     
     private void addSslFilter() {
         
@@ -88,6 +128,7 @@ public class MinaBackedSessionContext extends AbstractSessionContext implements
         minaSession.suspendWrite();
         SslFilter filter = new SslFilter(getServerRuntimeContext().getSslContext());
         filter.setUseClientMode(clientTLS);
+        minaSession.setAttribute(XmppIoHandlerAdapter.ATTRIBUTE_VYSPER_TLS_HANDSHAKE_STARTED, System.currentTimeMillis());
         minaSession.getFilterChain().addFirst("sslFilter", filter);
         if(!clientTLS) {
             minaSession.setAttribute(SslFilter.DISABLE_ENCRYPTION_ONCE, Boolean.TRUE);
@@ -98,16 +139,128 @@ public class MinaBackedSessionContext extends AbstractSessionContext implements
         
     }
 
+    /**
+     * @param disableOnce true, to send the next buffer uncompressed
+     */
+    private void addCompressionFilter(boolean disableOnce) {
+        minaSession.suspendRead();
+        minaSession.suspendWrite();
+        compressionFilter.addTo(minaSession);
+        if (disableOnce) {
+            minaSession.setAttribute(ZlibCompressionFilter.DISABLE_COMPRESSION_ONCE, Boolean.TRUE);
+        }
+        minaSession.resumeWrite();
+        minaSession.resumeRead();
+    }
+
     public void write(Stanza stanza) {
+        StreamManagement managed = streamManagement;
+        if (managed != null) {
+            managed.write(stanza);
+        } else {
+            writeToConnection(stanza);
+        }
+    }
+
+    public void writeToConnection(Stanza stanza) {
         if (switchToTLS) {
             addSslFilter();
             switchToTLS = false;
         }
+        if (switchToCompression) {
+            addCompressionFilter(true);
+            switchToCompression = false;
+        }
 
         minaSession.write(new StanzaWriteInfo(stanza, !openingStanzaWritten));
         openingStanzaWritten = true;
     }
 
+    /**
+     * encodes all stanzas into one buffer, which is handed to MINA as a single write request.
+     * with stream management enabled, the stanzas are counted and queued one by one first.
+     */
+    @Override
+    public void writeBatch(Collection<Stanza> stanzas) {
+        if (stanzas.isEmpty()) return;
+        StreamManagement managed = streamManagement;
+        if (managed != null) {
+            managed.writeBatch(stanzas);
+        } else {
+            writeToConnection(new ArrayList<Stanza>(stanzas));
+        }
+    }
+
+    public void writeToConnection(List<Stanza> stanzas) {
+        if (stanzas.size() == 1) {
+            writeToConnection(stanzas.get(0));
+            return;
+        }
+        if (switchToTLS) {
+            addSslFilter();
+            switchToTLS = false;
+        }
+        if (switchToCompression) {
+            addCompressionFilter(true);
+            switchToCompression = false;
+        }
+
+        List<StanzaWriteInfo> stanzaWriteInfos = new ArrayList<StanzaWriteInfo>(stanzas.size());
+        for (Stanza stanza : stanzas) {
+            stanzaWriteInfos.add(new StanzaWriteInfo(stanza, !openingStanzaWritten));
+            openingStanzaWritten = true;
+        }
+        minaSession.write(new StanzaWriteBatch(stanzaWriteInfos));
+    }
+
+    public StreamManagement getStreamManagement() {
+        return streamManagement;
+    }
+
+    public void setStreamManagement(StreamManagement streamManagement) {
+        this.streamManagement = streamManagement;
+    }
+
+    /**
+     * moves the connection of the resuming session over to this one. from now on, the stanzas read
+     * from the connection are processed by this session.
+     */
+    public void takeOverConnection(StreamManagedSession connection) {
+        IoSession previousSession = minaSession;
+        IoSession resumingSession = ((MinaBackedSessionContext) connection).minaSession;
+
+        resumingSession.setAttribute(XmppIoHandlerAdapter.ATTRIBUTE_VYSPER_SESSION, this);
+        resumingSession.setAttribute(XmppIoHandlerAdapter.ATTRIBUTE_VYSPER_SESSIONSTATEHOLDER, sessionStateHolder);
+        minaSession = resumingSession;
+        closeFuture = resumingSession.getCloseFuture();
+        closeFuture.addListener(this);
+        // the resuming session has already opened the stream
+        openingStanzaWritten = true;
+        switchToTLS = false;
+        switchToCompression = false;
+        compressionFilter = ((MinaBackedSessionContext) connection).compressionFilter;
+
+        if (previousSession != resumingSession && previousSession.isConnected()) {
+            logger.info("session {} is resumed on a new connection, closing the previous one", getSessionId());
+            previousSession.closeNow();
+        }
+    }
+
+    /**
+     * @return true, if the session is attached to the given connection
+     */
+    public boolean isAttachedTo(IoSession ioSession) {
+        return minaSession == ioSession;
+    }
+
+    @Override
+    public void endSession(SessionTerminationCause terminationCause) {
+        StreamManagement managed = streamManagement;
+        if (managed != null) managed.end();
+        super.endSession(terminationCause);
+        if (managed != null) managed.redeliverUnacknowledged();
+    }
+
     public void close() {
         logger.info("session will be closed now");
         closeFuture.setClosed();
@@ -0,0 +1,91 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.mina;
+
+/**
+ * the rates stanzas and bytes may be received at, see {@link RateLimitFilter}. a rate of 0 does not limit.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class RateLimit {
+
+    private final double stanzasPerSecond;
+
+    private final int stanzaBurst;
+
+    private final double bytesPerSecond;
+
+    private final int byteBurst;
+
+    /**
+     * @param stanzasPerSecond stanzas received per second on average
+     * @param stanzaBurst stanzas received at once after a quiet period
+     * @param bytesPerSecond bytes read per second on average
+     * @param byteBurst bytes read at once after a quiet period
+     */
+    public RateLimit(double stanzasPerSecond, int stanzaBurst, double bytesPerSecond, int byteBurst) {
+        if (stanzasPerSecond < 0 || bytesPerSecond < 0) throw new IllegalArgumentException("rates must not be negative");
+        if ((stanzasPerSecond > 0 && stanzaBurst <= 0) || (bytesPerSecond > 0 && byteBurst <= 0)) {
+            throw new IllegalArgumentException("bursts must be positive");
+        }
+        this.stanzasPerSecond = stanzasPerSecond;
+        this.stanzaBurst = stanzaBurst;
+        this.bytesPerSecond = bytesPerSecond;
+        this.byteBurst = byteBurst;
+    }
+
+    public static RateLimit stanzas(double stanzasPerSecond, int stanzaBurst) {
+        return new RateLimit(stanzasPerSecond, stanzaBurst, 0, 0);
+    }
+
+    public static RateLimit bytes(double bytesPerSecond, int byteBurst) {
+        return new RateLimit(0, 0, bytesPerSecond, byteBurst);
+    }
+
+    public double getStanzasPerSecond() {
+        return stanzasPerSecond;
+    }
+
+    public int getStanzaBurst() {
+        return stanzaBurst;
+    }
+
+    public double getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    public int getByteBurst() {
+        return byteBurst;
+    }
+
+    TokenBucket createStanzaBucket() {
+        return stanzasPerSecond > 0 ? new TokenBucket(stanzasPerSecond, stanzaBurst) : null;
+    }
+
+    TokenBucket createByteBucket() {
+        return bytesPerSecond > 0 ? new TokenBucket(bytesPerSecond, byteBurst) : null;
+    }
+
+    @Override
+    public String toString() {
+        return "stanzas/s=" + stanzasPerSecond + " (burst " + stanzaBurst + "), bytes/s=" + bytesPerSecond
+                + " (burst " + byteBurst + ")";
+    }
+}
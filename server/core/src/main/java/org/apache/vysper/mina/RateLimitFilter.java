@@ -0,0 +1,310 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.mina;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.mina.core.filterchain.IoFilterAdapter;
+import org.apache.mina.core.session.IoSession;
+import org.apache.vysper.xmpp.addressing.Entity;
+import org.apache.vysper.xmpp.addressing.EntityUtils;
+import org.apache.vysper.xmpp.protocol.SessionStateHolder;
+import org.apache.vysper.xmpp.server.ServerRuntimeContext;
+import org.apache.vysper.xmpp.server.SessionContext;
+import org.apache.vysper.xmpp.server.SessionState;
+import org.apache.vysper.xmpp.stanza.Stanza;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * limits the stanzas and bytes received per session, and per JID over all sessions of an entity. a session
+ * exceeding a limit is not dropped, reading from it is suspended until its buckets are out of debt. this way
+ * a flooding entity is slowed down to its rate before its stanzas reach the executor and the relays.
+ * <br>
+ * the filter is placed between the XML codec and the executor. bytes are counted as read from the socket,
+ * before decompression and decryption. the stanzas already decoded when reading is suspended are passed on.
+ * <br>
+ * limits are set per traffic class. sessions are of the class of their endpoint, users for client endpoints,
+ * servers for server endpoints, until they have authenticated. entities authenticated as a subdomain of the
+ * server are components. per-JID limits only apply to authenticated sessions. classes without a limit set are
+ * not limited.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class RateLimitFilter extends IoFilterAdapter {
+
+    public enum TrafficClass {
+        USER, SERVER, COMPONENT
+    }
+
+    private static final Logger LOG = LoggerFactory.getLogger(RateLimitFilter.class);
+
+    private static final String ATTRIBUTE_LIMITER = "vysperRateLimiter";
+
+    private final Map<TrafficClass, RateLimit> sessionLimits = new EnumMap<TrafficClass, RateLimit>(TrafficClass.class);
+
+    private final Map<TrafficClass, RateLimit> jidLimits = new EnumMap<TrafficClass, RateLimit>(TrafficClass.class);
+
+    private final ConcurrentMap<Entity, JidBuckets> jidBuckets = new ConcurrentHashMap<Entity, JidBuckets>();
+
+    private final Map<TrafficClass, AtomicLong> throttleCounts = new EnumMap<TrafficClass, AtomicLong>(
+            TrafficClass.class);
+
+    private final AtomicInteger throttledSessions = new AtomicInteger();
+
+    private Entity serverEntity;
+
+    private TrafficClass endpointClass = TrafficClass.USER;
+
+    private ScheduledThreadPoolExecutor resumeExecutor;
+
+    public RateLimitFilter() {
+        for (TrafficClass trafficClass : TrafficClass.values()) {
+            throttleCounts.put(trafficClass, new AtomicLong());
+        }
+    }
+
+    public RateLimit getSessionLimit(TrafficClass trafficClass) {
+        return sessionLimits.get(trafficClass);
+    }
+
+    /**
+     * @param sessionLimit the limit of each session of the class, null for no limit
+     */
+    public void setSessionLimit(TrafficClass trafficClass, RateLimit sessionLimit) {
+        sessionLimits.put(trafficClass, sessionLimit);
+    }
+
+    public RateLimit getJidLimit(TrafficClass trafficClass) {
+        return jidLimits.get(trafficClass);
+    }
+
+    /**
+     * @param jidLimit the limit shared by all sessions of a bare JID of the class, null for no limit
+     */
+    public void setJidLimit(TrafficClass trafficClass, RateLimit jidLimit) {
+        jidLimits.put(trafficClass, jidLimit);
+    }
+
+    /**
+     * @return the sessions currently not read from
+     */
+    public int getThrottledSessions() {
+        return throttledSessions.get();
+    }
+
+    /**
+     * @return how often sessions of the class have been throttled
+     */
+    public long getThrottleCount(TrafficClass trafficClass) {
+        return throttleCounts.get(trafficClass).get();
+    }
+
+    /**
+     * called by the endpoint before it starts accepting connections
+     *
+     * @param forClient true for client connections, false for server connections
+     */
+    void start(ServerRuntimeContext serverRuntimeContext, boolean forClient) {
+        this.serverEntity = serverRuntimeContext.getServerEntity();
+        this.endpointClass = forClient ? TrafficClass.USER : TrafficClass.SERVER;
+        resumeExecutor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "vysper-rate-limit");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void destroy() {
+        if (resumeExecutor != null) resumeExecutor.shutdownNow();
+    }
+
+    @Override
+    public void sessionCreated(NextFilter nextFilter, IoSession session) throws Exception {
+        SessionLimiter limiter = new SessionLimiter(endpointClass, sessionLimits.get(endpointClass));
+        limiter.readBytes = session.getReadBytes();
+        session.setAttribute(ATTRIBUTE_LIMITER, limiter);
+        nextFilter.sessionCreated(session);
+    }
+
+    @Override
+    public void messageReceived(NextFilter nextFilter, IoSession session, Object message) throws Exception {
+        SessionLimiter limiter = (SessionLimiter) session.getAttribute(ATTRIBUTE_LIMITER);
+        if (limiter == null) {
+            nextFilter.messageReceived(session, message);
+            return;
+        }
+        if (limiter.entity == null) authenticated(session, limiter);
+
+        long readBytes = session.getReadBytes();
+        long wait = limiter.charge(message instanceof Stanza ? 1 : 0, readBytes - limiter.readBytes);
+        limiter.readBytes = readBytes;
+
+        nextFilter.messageReceived(session, message);
+        if (wait > 0) throttle(session, limiter, wait);
+    }
+
+    /**
+     * classifies the session, and lets it share the buckets of its JID, once it has authenticated
+     */
+    private void authenticated(IoSession session, SessionLimiter limiter) {
+        SessionStateHolder stateHolder = (SessionStateHolder) session
+                .getAttribute(XmppIoHandlerAdapter.ATTRIBUTE_VYSPER_SESSIONSTATEHOLDER);
+        SessionContext sessionContext = (SessionContext) session
+                .getAttribute(XmppIoHandlerAdapter.ATTRIBUTE_VYSPER_SESSION);
+        if (stateHolder == null || stateHolder.getState() != SessionState.AUTHENTICATED || sessionContext == null) {
+            return;
+        }
+        Entity entity = sessionContext.getInitiatingEntity();
+        if (entity == null) return;
+
+        TrafficClass trafficClass = classify(entity);
+        if (trafficClass != limiter.trafficClass) {
+            limiter.trafficClass = trafficClass;
+            limiter.session = new Buckets(sessionLimits.get(trafficClass));
+        }
+        RateLimit jidLimit = jidLimits.get(trafficClass);
+        if (jidLimit != null) {
+            limiter.jid = jidBuckets.compute(entity, (jid, buckets) -> {
+                if (buckets == null) buckets = new JidBuckets(jidLimit);
+                buckets.sessions++;
+                return buckets;
+            });
+        }
+        limiter.entity = entity;
+    }
+
+    private TrafficClass classify(Entity entity) {
+        if (entity.getNode() == null && EntityUtils.isAddressingServerComponent(entity, serverEntity)) {
+            return TrafficClass.COMPONENT;
+        }
+        return endpointClass;
+    }
+
+    private void throttle(IoSession session, SessionLimiter limiter, long waitNanos) {
+        // while throttled, the pending resume checks the buckets again
+        if (!limiter.throttled.compareAndSet(false, true)) return;
+        throttledSessions.incrementAndGet();
+        throttleCounts.get(limiter.trafficClass).incrementAndGet();
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("throttling {} for {}ms", limiter.entity != null ? limiter.entity : session.getRemoteAddress(),
+                    TimeUnit.NANOSECONDS.toMillis(waitNanos));
+        }
+        session.suspendRead();
+        resumeExecutor.schedule(() -> resume(session, limiter), waitNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void resume(IoSession session, SessionLimiter limiter) {
+        if (!limiter.throttled.get()) return;
+        long wait = limiter.charge(0, 0);
+        if (wait > 0 && !session.isClosing()) {
+            resumeExecutor.schedule(() -> resume(session, limiter), wait, TimeUnit.NANOSECONDS);
+            return;
+        }
+        if (limiter.throttled.compareAndSet(true, false)) {
+            throttledSessions.decrementAndGet();
+            session.resumeRead();
+        }
+    }
+
+    @Override
+    public void sessionClosed(NextFilter nextFilter, IoSession session) throws Exception {
+        SessionLimiter limiter = (SessionLimiter) session.getAttribute(ATTRIBUTE_LIMITER);
+        if (limiter != null) {
+            if (limiter.throttled.compareAndSet(true, false)) throttledSessions.decrementAndGet();
+            if (limiter.jid != null) {
+                jidBuckets.computeIfPresent(limiter.entity, (jid, buckets) -> --buckets.sessions == 0 ? null : buckets);
+            }
+        }
+        nextFilter.sessionClosed(session);
+    }
+
+    private static class Buckets {
+
+        private final TokenBucket stanzas;
+
+        private final TokenBucket bytes;
+
+        Buckets(RateLimit limit) {
+            this.stanzas = limit == null ? null : limit.createStanzaBucket();
+            this.bytes = limit == null ? null : limit.createByteBucket();
+        }
+
+        /**
+         * @return the nanoseconds until the buckets are out of debt
+         */
+        long charge(long stanzaCount, long byteCount) {
+            long wait = stanzas == null ? 0 : stanzas.take(stanzaCount);
+            if (bytes != null) wait = Math.max(wait, bytes.take(byteCount));
+            return wait;
+        }
+    }
+
+    private static class JidBuckets extends Buckets {
+
+        /**
+         * guarded by the map of the JID buckets
+         */
+        private int sessions;
+
+        JidBuckets(RateLimit limit) {
+            super(limit);
+        }
+    }
+
+    private static class SessionLimiter {
+
+        private volatile TrafficClass trafficClass;
+
+        private volatile Buckets session;
+
+        private volatile JidBuckets jid;
+
+        /**
+         * the authenticated entity, null before authentication
+         */
+        private volatile Entity entity;
+
+        private long readBytes;
+
+        private final AtomicBoolean throttled = new AtomicBoolean();
+
+        SessionLimiter(TrafficClass trafficClass, RateLimit limit) {
+            this.trafficClass = trafficClass;
+            this.session = new Buckets(limit);
+        }
+
+        long charge(long stanzaCount, long byteCount) {
+            long wait = session.charge(stanzaCount, byteCount);
+            JidBuckets shared = jid;
+            if (shared != null) wait = Math.max(wait, shared.charge(stanzaCount, byteCount));
+            return wait;
+        }
+    }
+}
@@ -31,5 +31,10 @@ public class S2SEndpoint extends TCPEndpoint {
     public S2SEndpoint() {
         super(5269);
     }
+
+    @Override
+    protected boolean isClientEndpoint() {
+        return false;
+    }
     
 }
@@ -22,14 +22,16 @@ package org.apache.vysper.mina;
 import org.apache.mina.core.filterchain.IoFilterAdapter;
 import org.apache.mina.core.session.IoSession;
 import org.apache.mina.core.write.WriteRequest;
+import org.apache.vysper.mina.codec.StanzaWriteBatch;
 import org.apache.vysper.mina.codec.StanzaWriteInfo;
-import org.apache.vysper.xml.fragment.Renderer;
 import org.apache.vysper.xml.fragment.XMLElement;
-import org.apache.vysper.xmpp.writer.DenseStanzaLogRenderer;
+import org.apache.vysper.xmpp.server.logging.StanzaLogPipeline;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
+ * logs the stanzas received and sent, at debug level as XML, at info level in a dense form. the
+ * stanzas are rendered and logged by a {@link StanzaLogPipeline}, off the I/O thread.
  *
  * @author The Apache MINA Project (dev@mina.apache.org)
  */
@@ -39,63 +41,56 @@ public class StanzaLoggingFilter extends IoFilterAdapter {
 
     final Logger clientLogger = LoggerFactory.getLogger("stanza.client");
 
+    private final StanzaLogPipeline pipeline;
+
+    public StanzaLoggingFilter() {
+        this(StanzaLogPipeline.getDefault());
+    }
+
+    public StanzaLoggingFilter(StanzaLogPipeline pipeline) {
+        this.pipeline = pipeline;
+    }
+
     public void messageReceived(NextFilter nextFilter, IoSession session, Object message) throws Exception {
-        if (message instanceof XMLElement) {
+        if (message instanceof XMLElement && clientLogger.isInfoEnabled()) {
             XMLElement element = (XMLElement) message;
 
-            if(clientLogger.isDebugEnabled()) {
-                boolean openElement = true;
-                boolean closeElement = true;
-                // this is somewhat of a hack, can we detect opening and closing elements only cleaner?
-                if (element.getName().equals("stream")) {
-                    if (element.getAttributes().size() > 0) {
-                        // is stream element, and with attributes, should be opening tag
-                        closeElement = false;
-                    } else {
-                        // is stream element, without attributes, should be closing tag
-                        openElement = false;
-                    }
+            boolean openElement = true;
+            boolean closeElement = true;
+            // this is somewhat of a hack, can we detect opening and closing elements only cleaner?
+            if (element.getName().equals("stream")) {
+                if (element.getAttributes().size() > 0) {
+                    // is stream element, and with attributes, should be opening tag
+                    closeElement = false;
+                } else {
+                    // is stream element, without attributes, should be closing tag
+                    openElement = false;
                 }
-                
-                String xml = toXml(element, openElement, closeElement);
-                clientLogger.debug("< " + xml);
-            } else if (clientLogger.isInfoEnabled()) {
-                clientLogger.info(DenseStanzaLogRenderer.render(element));
             }
+
+            pipeline.log(clientLogger, "< ", element, openElement, closeElement);
         }
 
         nextFilter.messageReceived(session, message);
     }
 
     public void messageSent(NextFilter nextFilter, IoSession session, WriteRequest request) throws Exception {
-        Object message = request.getMessage();
-        if (message instanceof StanzaWriteInfo) {
-            StanzaWriteInfo stanzaWriteInfo = (StanzaWriteInfo) message;
-
-            if(serverLogger.isDebugEnabled()) {
-                String xml = toXml(stanzaWriteInfo.getStanza(), stanzaWriteInfo.isWriteOpeningElement(),
-                        stanzaWriteInfo.isWriteClosingElement());
-                
-                serverLogger.debug("> " + xml);
-            } else if (serverLogger.isInfoEnabled()) {
-                serverLogger.info(DenseStanzaLogRenderer.render(stanzaWriteInfo.getStanza()));
+        if (serverLogger.isInfoEnabled()) {
+            Object message = request.getMessage();
+            if (message instanceof StanzaWriteInfo) {
+                logSent((StanzaWriteInfo) message);
+            } else if (message instanceof StanzaWriteBatch) {
+                for (StanzaWriteInfo stanzaWriteInfo : ((StanzaWriteBatch) message).getStanzaWriteInfos()) {
+                    logSent(stanzaWriteInfo);
+                }
             }
         }
 
         nextFilter.messageSent(session, request);
     }
 
-    private String toXml(XMLElement element, boolean openElement, boolean closeElement) {
-        Renderer renderer = new Renderer(element);
-
-        StringBuffer xml = new StringBuffer();
-        if (openElement) {
-            xml.append(renderer.getOpeningElement());
-        }
-        xml.append(renderer.getElementContent());
-        if (closeElement) {
-            xml.append(renderer.getClosingElement());
-        }
-        return xml.toString();
+    private void logSent(StanzaWriteInfo stanzaWriteInfo) {
+        pipeline.log(serverLogger, "> ", stanzaWriteInfo.getStanza(), stanzaWriteInfo.isWriteOpeningElement(),
+                stanzaWriteInfo.isWriteClosingElement());
     }
 }
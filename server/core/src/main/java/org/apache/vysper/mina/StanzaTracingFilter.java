@@ -0,0 +1,109 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.mina;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.apache.mina.core.buffer.IoBuffer;
+import org.apache.mina.core.filterchain.DefaultIoFilterChainBuilder;
+import org.apache.mina.core.filterchain.IoFilterAdapter;
+import org.apache.mina.core.session.AttributeKey;
+import org.apache.mina.core.session.IoSession;
+import org.apache.vysper.xmpp.server.trace.StanzaTrace;
+import org.apache.vysper.xmpp.server.trace.StanzaTracer;
+import org.apache.vysper.xmpp.server.trace.TracePoint;
+import org.apache.vysper.xmpp.stanza.Stanza;
+
+/**
+ * starts the {@link StanzaTrace}s of stanzas read from a connection. one instance before the codec
+ * notes when data has been read, one after it starts a trace for every decoded stanza.
+ * <br>
+ * the traces are queued in the session until {@link XmppIoHandlerAdapter} picks them up, after the
+ * stanza has passed the executor filter. the executor keeps the stanzas of a session in order, so
+ * the queue does as well.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class StanzaTracingFilter extends IoFilterAdapter {
+
+    private static final AttributeKey READ_NANOS = new AttributeKey(StanzaTracingFilter.class, "readNanos");
+
+    private static final AttributeKey TRACES = new AttributeKey(StanzaTracingFilter.class, "traces");
+
+    /**
+     * queued for stanzas which are not traced, keeps the queue in line with the stanzas
+     */
+    private static final StanzaTrace NOT_TRACED = new StanzaTrace("not traced");
+
+    /**
+     * adds the filters around the codec filter
+     */
+    public static void addAround(DefaultIoFilterChainBuilder filterChainBuilder, String codecFilterName) {
+        filterChainBuilder.addBefore(codecFilterName, "traceRead", new StanzaTracingFilter(true));
+        filterChainBuilder.addAfter(codecFilterName, "traceDecoded", new StanzaTracingFilter(false));
+    }
+
+    /**
+     * @return the trace of the next stanza received from the session, or null if it is not traced
+     */
+    @SuppressWarnings("unchecked")
+    public static StanzaTrace pollTrace(IoSession session) {
+        Queue<StanzaTrace> traces = (Queue<StanzaTrace>) session.getAttribute(TRACES);
+        if (traces == null) return null;
+        StanzaTrace trace = traces.poll();
+        if (trace == null || trace == NOT_TRACED) return null;
+        return trace;
+    }
+
+    private final boolean beforeCodec;
+
+    public StanzaTracingFilter(boolean beforeCodec) {
+        this.beforeCodec = beforeCodec;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void messageReceived(NextFilter nextFilter, IoSession session, Object message) throws Exception {
+        if (StanzaTracer.isEnabled()) {
+            if (beforeCodec) {
+                if (message instanceof IoBuffer) {
+                    session.setAttribute(READ_NANOS, System.nanoTime());
+                }
+            } else if (message instanceof Stanza) {
+                Queue<StanzaTrace> traces = (Queue<StanzaTrace>) session.getAttribute(TRACES);
+                if (traces == null) {
+                    traces = new ConcurrentLinkedQueue<StanzaTrace>();
+                    session.setAttribute(TRACES, traces);
+                }
+                StanzaTrace trace = StanzaTracer.newTrace((Stanza) message);
+                if (trace == null) {
+                    traces.add(NOT_TRACED);
+                } else {
+                    Long readNanos = (Long) session.getAttribute(READ_NANOS);
+                    if (readNanos != null) trace.stamp(TracePoint.READ, readNanos);
+                    trace.stamp(TracePoint.DECODED);
+                    traces.add(trace);
+                }
+            }
+        }
+        nextFilter.messageReceived(session, message);
+    }
+}
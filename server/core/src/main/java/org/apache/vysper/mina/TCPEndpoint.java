@@ -21,18 +21,21 @@ package org.apache.vysper.mina;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
-import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLContext;
 
 import org.apache.mina.core.filterchain.DefaultIoFilterChainBuilder;
 import org.apache.mina.filter.codec.ProtocolCodecFilter;
 import org.apache.mina.filter.executor.ExecutorFilter;
-import org.apache.mina.filter.executor.OrderedThreadPoolExecutor;
+import org.apache.mina.filter.ssl.SslFilter;
 import org.apache.mina.transport.socket.SocketAcceptor;
 import org.apache.mina.transport.socket.nio.NioSocketAcceptor;
 import org.apache.vysper.mina.codec.XMPPProtocolCodecFactory;
+import org.apache.vysper.xmpp.cryptography.ApplicationProtocolSSLContext;
 import org.apache.vysper.xmpp.protocol.StanzaProcessor;
 import org.apache.vysper.xmpp.server.Endpoint;
 import org.apache.vysper.xmpp.server.ServerRuntimeContext;
+import org.apache.vysper.xmpp.server.logging.StanzaLogPipeline;
 
 /**
  *
@@ -47,6 +50,18 @@ public class TCPEndpoint implements Endpoint {
     private int port = 5222;
 
     private SocketAcceptor acceptor;
+
+    private ExecutorFilter executorFilter;
+
+    private IoTopology ioTopology = new IoTopology();
+
+    private boolean directTLS = false;
+
+    private String[] applicationProtocols = new String[0];
+
+    private AdmissionControlFilter admissionControl;
+
+    private RateLimitFilter rateLimit;
     
     /**
      * @deprecated Use {@link C2SEndpoint} or {@link S2SEndpoint} instead. This class will
@@ -87,30 +102,149 @@ public class TCPEndpoint implements Endpoint {
         this.port = port;
     }
 
+    public IoTopology getIoTopology() {
+        return ioTopology;
+    }
+
+    /**
+     * Sets processor count, executor model and socket options of this endpoint.
+     * See {@link IoTopology#manyIdleConnections()} and {@link IoTopology#fewHighThroughputConnections()}
+     * for presets.
+     */
+    public void setIoTopology(IoTopology ioTopology) {
+        if(acceptor != null) {
+            throw new IllegalStateException("Endpoint started, can not set I/O topology");
+        }
+        
+        this.ioTopology = ioTopology;
+    }
+
+    public boolean isDirectTLS() {
+        return directTLS;
+    }
+
+    /**
+     * Lets clients and servers start TLS right after connecting, as of XEP-0368, instead of
+     * negotiating STARTTLS within the stream. Requires the server's TLS certificate to be set up.
+     */
+    public void setDirectTLS(boolean directTLS) {
+        if(acceptor != null) {
+            throw new IllegalStateException("Endpoint started, can not set direct TLS");
+        }
+
+        this.directTLS = directTLS;
+    }
+
+    public String[] getApplicationProtocols() {
+        return applicationProtocols.clone();
+    }
+
+    /**
+     * Sets the ALPN protocols accepted with direct TLS, like 'xmpp-client' or 'xmpp-server'.
+     * Clients not using ALPN are accepted anyway.
+     */
+    public void setApplicationProtocols(String... applicationProtocols) {
+        if(acceptor != null) {
+            throw new IllegalStateException("Endpoint started, can not set application protocols");
+        }
+
+        this.applicationProtocols = applicationProtocols.clone();
+    }
+
+    public AdmissionControlFilter getAdmissionControl() {
+        return admissionControl;
+    }
+
+    /**
+     * Limits the connections waiting for authentication, the rate new connections are accepted at and
+     * the time they are given to authenticate, and redirects new connections while the server is
+     * overloaded. By default, all connections are accepted.
+     */
+    public void setAdmissionControl(AdmissionControlFilter admissionControl) {
+        if(acceptor != null) {
+            throw new IllegalStateException("Endpoint started, can not set admission control");
+        }
+
+        this.admissionControl = admissionControl;
+    }
+
+    public RateLimitFilter getRateLimit() {
+        return rateLimit;
+    }
+
+    /**
+     * Limits the stanzas and bytes received per session and per JID. Sessions exceeding their limits
+     * are not read from until they are within them again. By default, sessions are not limited.
+     */
+    public void setRateLimit(RateLimitFilter rateLimit) {
+        if(acceptor != null) {
+            throw new IllegalStateException("Endpoint started, can not set rate limit");
+        }
+
+        this.rateLimit = rateLimit;
+    }
+
+    /**
+     * @return true, if clients connect to this endpoint, false for servers
+     */
+    protected boolean isClientEndpoint() {
+        return true;
+    }
+
     public void start() throws IOException {
-        NioSocketAcceptor acceptor = new NioSocketAcceptor();
+        NioSocketAcceptor acceptor = ioTopology.createAcceptor();
 
         DefaultIoFilterChainBuilder filterChainBuilder = new DefaultIoFilterChainBuilder();
+        if (directTLS) {
+            filterChainBuilder.addFirst("sslFilter", createDirectTLSFilter());
+        }
+        if (admissionControl != null) {
+            // rejects connections before any other filter has been involved
+            admissionControl.start(serverRuntimeContext, isClientEndpoint(), directTLS);
+            filterChainBuilder.addFirst("admissionControl", admissionControl);
+        }
         filterChainBuilder.addLast("xmppCodec", new ProtocolCodecFilter(new XMPPProtocolCodecFactory()));
-        filterChainBuilder.addLast("loggingFilter", new StanzaLoggingFilter());
-        
-        int coreThreadCount = 10;
-        int maxThreadCount = 20;
-        int threadTimeoutSeconds = 2 * 60;
-        filterChainBuilder.addLast("executorFilter", new ExecutorFilter(new OrderedThreadPoolExecutor(coreThreadCount, maxThreadCount, threadTimeoutSeconds, TimeUnit.SECONDS)));
+        filterChainBuilder.addLast("loggingFilter", new StanzaLoggingFilter(StanzaLogPipeline.of(serverRuntimeContext)));
+        StanzaTracingFilter.addAround(filterChainBuilder, "xmppCodec");
+        if (rateLimit != null) {
+            // throttles before stanzas are handed to the executor
+            rateLimit.start(serverRuntimeContext, isClientEndpoint());
+            filterChainBuilder.addLast("rateLimit", rateLimit);
+        }
+        executorFilter = ioTopology.addExecutorFilter(filterChainBuilder);
         acceptor.setFilterChainBuilder(filterChainBuilder);
 
-        XmppIoHandlerAdapter adapter = new XmppIoHandlerAdapter(serverRuntimeContext, stanzaProcessor);
+        XmppIoHandlerAdapter adapter = new XmppIoHandlerAdapter(serverRuntimeContext, stanzaProcessor, directTLS);
         acceptor.setHandler(adapter);
 
-        acceptor.setReuseAddress(true);
         acceptor.bind(new InetSocketAddress(port));
 
         this.acceptor = acceptor;
     }
 
+    private SslFilter createDirectTLSFilter() {
+        SSLContext sslContext = serverRuntimeContext.getSslContext();
+        if (sslContext == null) {
+            throw new IllegalStateException("direct TLS on port " + port + " requires a TLS certificate");
+        }
+        if (applicationProtocols.length > 0) {
+            sslContext = new ApplicationProtocolSSLContext(sslContext, applicationProtocols);
+        }
+        // the handshake is started by the connecting entity, there is no SECURED event to wait for
+        return new SslFilter(sslContext);
+    }
+
     public void stop() {
         acceptor.unbind();
         acceptor.dispose();
+        if (executorFilter != null) {
+            executorFilter.destroy();
+        }
+        if (admissionControl != null) {
+            admissionControl.destroy();
+        }
+        if (rateLimit != null) {
+            rateLimit.destroy();
+        }
     }
 }
@@ -0,0 +1,106 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.mina;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * a token bucket, refilled continuously at a fixed rate up to its capacity.
+ * <br>
+ * {@link #tryTake(long)} only takes tokens which are available, {@link #take(long)} always takes them
+ * and lets the bucket go into debt, telling how long the taker has to wait until it is paid off.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class TokenBucket {
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final double tokensPerNano;
+
+    private final double capacity;
+
+    private double tokens;
+
+    private long lastRefill;
+
+    /**
+     * @param ratePerSecond tokens added per second
+     * @param capacity the most tokens the bucket holds, which is the largest burst allowed. the bucket starts
+     *          full.
+     */
+    public TokenBucket(double ratePerSecond, long capacity) {
+        this(ratePerSecond, capacity, System.nanoTime());
+    }
+
+    TokenBucket(double ratePerSecond, long capacity, long now) {
+        if (ratePerSecond <= 0) throw new IllegalArgumentException("rate must be positive");
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be positive");
+        this.tokensPerNano = ratePerSecond / NANOS_PER_SECOND;
+        this.capacity = capacity;
+        this.tokens = capacity;
+        this.lastRefill = now;
+    }
+
+    /**
+     * @return true, if the tokens have been available and are taken
+     */
+    public boolean tryTake(long count) {
+        return tryTake(count, System.nanoTime());
+    }
+
+    synchronized boolean tryTake(long count, long now) {
+        refill(now);
+        if (tokens < count) return false;
+        tokens -= count;
+        return true;
+    }
+
+    /**
+     * takes the tokens, even if not all of them are available
+     *
+     * @return the nanoseconds until the bucket is out of debt again, 0 if it has not gone into debt
+     */
+    public long take(long count) {
+        return take(count, System.nanoTime());
+    }
+
+    synchronized long take(long count, long now) {
+        refill(now);
+        tokens -= count;
+        if (tokens >= 0) return 0;
+        return (long) Math.ceil(-tokens / tokensPerNano);
+    }
+
+    /**
+     * @return the tokens currently available, negative if the bucket is in debt
+     */
+    public synchronized double getTokens() {
+        refill(System.nanoTime());
+        return tokens;
+    }
+
+    private void refill(long now) {
+        long elapsed = now - lastRefill;
+        if (elapsed <= 0) return;
+        tokens = Math.min(capacity, tokens + elapsed * tokensPerNano);
+        lastRefill = now;
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.mina;
+
+import java.util.concurrent.ExecutorService;
+
+import org.apache.mina.core.session.IoEvent;
+import org.apache.mina.filter.executor.ExecutorFilter;
+import org.apache.vysper.xmpp.server.resources.KeyedSerialExecutor;
+import org.apache.vysper.xmpp.server.resources.VirtualThreads;
+
+/**
+ * executor filter processing the events of every session on virtual threads. the events of one
+ * session are processed one after the other, in the order they occurred, like with MINA's
+ * ordered thread pool, but a handler blocking on storage does not hold a platform thread.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class VirtualThreadExecutorFilter extends ExecutorFilter {
+
+    private final ExecutorService virtualThreadExecutor;
+
+    /**
+     * @throws UnsupportedOperationException if the JVM does not provide virtual threads
+     */
+    public VirtualThreadExecutorFilter() {
+        this(VirtualThreads.newThreadPerTaskExecutor("vysper-session-"));
+    }
+
+    private VirtualThreadExecutorFilter(ExecutorService virtualThreadExecutor) {
+        this(virtualThreadExecutor, new KeyedSerialExecutor(virtualThreadExecutor));
+    }
+
+    private VirtualThreadExecutorFilter(ExecutorService virtualThreadExecutor, KeyedSerialExecutor sessionExecutor) {
+        super(event -> sessionExecutor.execute(((IoEvent) event).getSession(), event));
+        this.virtualThreadExecutor = virtualThreadExecutor;
+    }
+
+    @Override
+    public void destroy() {
+        super.destroy();
+        virtualThreadExecutor.shutdown();
+    }
+}
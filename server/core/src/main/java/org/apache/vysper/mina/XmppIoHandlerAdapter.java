@@ -21,21 +21,32 @@ package org.apache.vysper.mina;
 
 import java.io.IOException;
 
+import javax.net.ssl.SSLSession;
+
+import org.apache.mina.core.buffer.IoBuffer;
 import org.apache.mina.core.service.IoHandler;
 import org.apache.mina.core.session.IdleStatus;
 import org.apache.mina.core.session.IoSession;
 import org.apache.mina.core.write.WriteToClosedSessionException;
 import org.apache.mina.filter.FilterEvent;
 import org.apache.mina.filter.ssl.SslEvent;
+import org.apache.mina.filter.ssl.SslFilter;
+import org.apache.vysper.xml.decoder.XMPPDecoder;
 import org.apache.vysper.xml.fragment.XMLText;
+import org.apache.vysper.xmpp.cryptography.TLSSessionCache;
+import org.apache.vysper.xmpp.modules.extension.xep0198_stream_mgmt.StreamManagedSession;
+import org.apache.vysper.xmpp.modules.extension.xep0198_stream_mgmt.StreamManagement;
 import org.apache.vysper.xmpp.protocol.SessionStateHolder;
 import org.apache.vysper.xmpp.protocol.StanzaProcessor;
 import org.apache.vysper.xmpp.protocol.StreamErrorCondition;
 import org.apache.vysper.xmpp.server.ServerRuntimeContext;
 import org.apache.vysper.xmpp.server.SessionContext;
 import org.apache.vysper.xmpp.server.SessionContext.SessionTerminationCause;
+import org.apache.vysper.xmpp.server.SessionState;
 import org.apache.vysper.xmpp.server.InternalSessionContext;
 import org.apache.vysper.xmpp.server.response.ServerErrorResponses;
+import org.apache.vysper.xmpp.server.trace.StanzaTrace;
+import org.apache.vysper.xmpp.server.trace.StanzaTracer;
 import org.apache.vysper.xmpp.stanza.Stanza;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -54,15 +65,28 @@ public class XmppIoHandlerAdapter implements IoHandler {
 
     public static final String ATTRIBUTE_VYSPER_TERMINATE_REASON = "vysperTerminateReason";
 
+    public static final String ATTRIBUTE_VYSPER_TLS_HANDSHAKE_STARTED = "vysperTlsHandshakeStarted";
+
     final Logger logger = LoggerFactory.getLogger(XmppIoHandlerAdapter.class);
 
     private final ServerRuntimeContext serverRuntimeContext;
 
     private final StanzaProcessor stanzaProcessor;
 
+    private final boolean directTLS;
+
     public XmppIoHandlerAdapter(ServerRuntimeContext serverRuntimeContext, StanzaProcessor stanzaProcessor) {
+        this(serverRuntimeContext, stanzaProcessor, false);
+    }
+
+    /**
+     * @param directTLS true, if the connections are encrypted from the start, as of XEP-0368
+     */
+    public XmppIoHandlerAdapter(ServerRuntimeContext serverRuntimeContext, StanzaProcessor stanzaProcessor,
+            boolean directTLS) {
         this.serverRuntimeContext = serverRuntimeContext;
         this.stanzaProcessor = stanzaProcessor;
+        this.directTLS = directTLS;
     }
 
     @Override
@@ -84,7 +108,17 @@ public class XmppIoHandlerAdapter implements IoHandler {
         SessionStateHolder stateHolder = (SessionStateHolder) ioSession
                 .getAttribute(ATTRIBUTE_VYSPER_SESSIONSTATEHOLDER);
 
-        stanzaProcessor.processStanza(serverRuntimeContext, session, stanza, stateHolder);
+        StanzaTrace trace = StanzaTracingFilter.pollTrace(ioSession);
+        StanzaTrace previousTrace = StanzaTracer.begin(trace);
+        try {
+            stanzaProcessor.processStanza(serverRuntimeContext, session, stanza, stateHolder);
+        } finally {
+            StanzaTracer.end(trace, previousTrace);
+        }
+        if (session instanceof StreamManagedSession) {
+            StreamManagement streamManagement = ((StreamManagedSession) session).getStreamManagement();
+            if (streamManagement != null) streamManagement.received(stanza);
+        }
     }
 
     private InternalSessionContext extractSession(IoSession ioSession) {
@@ -104,20 +138,43 @@ public class XmppIoHandlerAdapter implements IoHandler {
     @Override
     public void event(IoSession ioSession, FilterEvent event) throws Exception {
         if (event == SslEvent.SECURED) {
-            InternalSessionContext session = extractSession(ioSession);
-            SessionStateHolder stateHolder = (SessionStateHolder) ioSession
-                    .getAttribute(ATTRIBUTE_VYSPER_SESSIONSTATEHOLDER);
-            stanzaProcessor.processTLSEstablished(session, stateHolder);
+            countHandshake(ioSession);
+            // direct TLS sessions have been encrypted from the start, there is no stream to restart
+            if (!directTLS) {
+                InternalSessionContext session = extractSession(ioSession);
+                SessionStateHolder stateHolder = (SessionStateHolder) ioSession
+                        .getAttribute(ATTRIBUTE_VYSPER_SESSIONSTATEHOLDER);
+                stanzaProcessor.processTLSEstablished(session, stateHolder);
+            }
+            // MINA keeps data received along with the last handshake message until more data arrives,
+            // so a stream opened by the client right after its handshake is only processed now
+            ioSession.getFilterChain().fireMessageReceived(IoBuffer.allocate(0));
         } else if (event == SslEvent.UNSECURED) {
             // TODO
         }
     }
 
+    private void countHandshake(IoSession ioSession) {
+        TLSSessionCache sessionCache = (TLSSessionCache) serverRuntimeContext
+                .getServerRuntimeContextService(TLSSessionCache.SERVICE_NAME);
+        SSLSession sslSession = (SSLSession) ioSession.getAttribute(SslFilter.SSL_SESSION);
+        if (sessionCache == null || sslSession == null) return;
+        Long started = (Long) ioSession.getAttribute(ATTRIBUTE_VYSPER_TLS_HANDSHAKE_STARTED);
+        // direct TLS handshakes start with the connection
+        boolean resumed = sessionCache.handshakeCompleted(sslSession,
+                started == null ? ioSession.getCreationTime() : started);
+        logger.debug("TLS handshake of {} completed, resumed: {}", ioSession.getRemoteAddress(), resumed);
+    }
+
     @Override
     public void sessionCreated(IoSession ioSession) throws Exception {
         SessionStateHolder stateHolder = new SessionStateHolder();
         SessionContext sessionContext = new MinaBackedSessionContext(serverRuntimeContext, stanzaProcessor, stateHolder,
                 ioSession);
+        if (directTLS) {
+            // the stream is opened within TLS, the features go straight to authentication
+            stateHolder.setState(SessionState.ENCRYPTED);
+        }
         ioSession.setAttribute(ATTRIBUTE_VYSPER_SESSION, sessionContext);
         ioSession.setAttribute(ATTRIBUTE_VYSPER_SESSIONSTATEHOLDER, stateHolder);
         ioSession.setAttribute(ATTRIBUTE_VYSPER_TERMINATE_REASON, SessionTerminationCause.CLIENT_BYEBYE);
@@ -136,11 +193,35 @@ public class XmppIoHandlerAdapter implements IoHandler {
         String sessionId = "UNKNOWN";
         if (sessionContext != null) {
             sessionId = sessionContext.getSessionId();
+            if (sessionContext instanceof MinaBackedSessionContext
+                    && !((MinaBackedSessionContext) sessionContext).isAttachedTo(ioSession)) {
+                // the session has been resumed on another connection
+                logger.info("previous connection of session {} has been closed", sessionId);
+                return;
+            }
+            if (detach(ioSession, sessionContext, cause)) {
+                logger.info("connection of session {} has been closed, the session is kept for resumption", sessionId);
+                return;
+            }
             sessionContext.endSession(cause);
         }
         logger.info("session {} has been closed", sessionId);
     }
 
+    /**
+     * keeps a resumable session when its connection is lost. a client closing its stream has logged out,
+     * its session is ended as required by XEP-0198.
+     */
+    private boolean detach(IoSession ioSession, SessionContext sessionContext, SessionTerminationCause cause) {
+        if (cause != SessionTerminationCause.CONNECTION_ABORT && cause != SessionTerminationCause.CLIENT_BYEBYE) {
+            return false;
+        }
+        if (ioSession.containsAttribute(XMPPDecoder.STREAM_CLOSED_ATTRIBUTE_NAME)) return false;
+        if (!(sessionContext instanceof StreamManagedSession)) return false;
+        StreamManagement streamManagement = ((StreamManagedSession) sessionContext).getStreamManagement();
+        return streamManagement != null && streamManagement.detach();
+    }
+
     @Override
     public void sessionIdle(IoSession ioSession, IdleStatus idleStatus) throws Exception {
         logger.debug("session {} is idle",
@@ -0,0 +1,276 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.mina;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.apache.mina.core.buffer.IoBuffer;
+import org.apache.mina.core.filterchain.IoFilterAdapter;
+import org.apache.mina.core.filterchain.IoFilterChain;
+import org.apache.mina.core.session.AttributeKey;
+import org.apache.mina.core.session.IoSession;
+import org.apache.mina.core.write.WriteRequest;
+import org.apache.mina.filter.codec.ProtocolDecoderException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * compresses a stream with zlib, as of <a href="http://xmpp.org/extensions/xep-0138.html">XEP-0138</a>.
+ * the filter keeps the deflate and inflate state of the stream, so every session needs an instance
+ * of its own. it is placed right after the SSL filter, data is compressed before it is encrypted.
+ * <br>
+ * every write is flushed with a sync flush, so the other side can read each stanza as soon as it
+ * has been received. inflated data is passed on in chunks, a small amount of compressed data never
+ * expands into one big buffer.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class ZlibCompressionFilter extends IoFilterAdapter {
+
+    /**
+     * set as session attribute to let the next written buffer pass uncompressed, like
+     * {@link org.apache.mina.filter.ssl.SslFilter#DISABLE_ENCRYPTION_ONCE}
+     */
+    public static final AttributeKey DISABLE_COMPRESSION_ONCE = new AttributeKey(ZlibCompressionFilter.class,
+            "disableOnce");
+
+    private static final Logger LOG = LoggerFactory.getLogger(ZlibCompressionFilter.class);
+
+    private static final int CHUNK_SIZE = 8192;
+
+    private static final LongAdder TOTAL_RAW_IN = new LongAdder();
+
+    private static final LongAdder TOTAL_COMPRESSED_IN = new LongAdder();
+
+    private static final LongAdder TOTAL_RAW_OUT = new LongAdder();
+
+    private static final LongAdder TOTAL_COMPRESSED_OUT = new LongAdder();
+
+    /**
+     * @return the number of uncompressed bytes inflated from all compressed streams
+     */
+    public static long getTotalRawBytesIn() {
+        return TOTAL_RAW_IN.sum();
+    }
+
+    /**
+     * @return the number of compressed bytes read from all compressed streams
+     */
+    public static long getTotalCompressedBytesIn() {
+        return TOTAL_COMPRESSED_IN.sum();
+    }
+
+    /**
+     * @return the number of uncompressed bytes deflated into all compressed streams
+     */
+    public static long getTotalRawBytesOut() {
+        return TOTAL_RAW_OUT.sum();
+    }
+
+    /**
+     * @return the number of compressed bytes written to all compressed streams
+     */
+    public static long getTotalCompressedBytesOut() {
+        return TOTAL_COMPRESSED_OUT.sum();
+    }
+
+    private final Deflater deflater;
+
+    private final Inflater inflater = new Inflater();
+
+    private final byte[] chunk = new byte[CHUNK_SIZE];
+
+    private long rawBytesIn;
+
+    private long compressedBytesIn;
+
+    private long rawBytesOut;
+
+    private long compressedBytesOut;
+
+    private boolean ended = false;
+
+    /**
+     * @param compressionLevel the deflate level, from {@link Deflater#NO_COMPRESSION} to
+     *            {@link Deflater#BEST_COMPRESSION}, or {@link Deflater#DEFAULT_COMPRESSION}
+     */
+    public ZlibCompressionFilter(int compressionLevel) {
+        if (compressionLevel != Deflater.DEFAULT_COMPRESSION
+                && (compressionLevel < Deflater.NO_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION)) {
+            throw new IllegalArgumentException("invalid compression level " + compressionLevel);
+        }
+        this.deflater = new Deflater(compressionLevel);
+    }
+
+    /**
+     * adds the filter to the session, after the SSL filter if the session is encrypted
+     */
+    public void addTo(IoSession session) {
+        IoFilterChain filterChain = session.getFilterChain();
+        if (filterChain.contains("sslFilter")) {
+            filterChain.addAfter("sslFilter", "compressionFilter", this);
+        } else {
+            filterChain.addFirst("compressionFilter", this);
+        }
+    }
+
+    @Override
+    public void messageReceived(NextFilter nextFilter, IoSession session, Object message) throws Exception {
+        if (!(message instanceof IoBuffer)) {
+            nextFilter.messageReceived(session, message);
+            return;
+        }
+        IoBuffer in = (IoBuffer) message;
+        byte[] compressed = new byte[in.remaining()];
+        in.get(compressed);
+
+        synchronized (inflater) {
+            if (ended) return;
+            compressedBytesIn += compressed.length;
+            TOTAL_COMPRESSED_IN.add(compressed.length);
+            inflater.setInput(compressed);
+            try {
+                int length;
+                while ((length = inflater.inflate(chunk)) > 0) {
+                    rawBytesIn += length;
+                    TOTAL_RAW_IN.add(length);
+                    IoBuffer out = IoBuffer.allocate(length);
+                    out.put(chunk, 0, length).flip();
+                    nextFilter.messageReceived(session, out);
+                }
+                if (inflater.needsDictionary()) {
+                    throw new ProtocolDecoderException("compressed stream requires a preset dictionary");
+                }
+            } catch (DataFormatException e) {
+                throw new ProtocolDecoderException("compressed stream is corrupt", e);
+            }
+        }
+    }
+
+    @Override
+    public void filterWrite(NextFilter nextFilter, IoSession session, WriteRequest writeRequest) throws Exception {
+        Object message = writeRequest.getMessage();
+        if (!(message instanceof IoBuffer) || !((IoBuffer) message).hasRemaining()) {
+            nextFilter.filterWrite(session, writeRequest);
+            return;
+        }
+        if (session.removeAttribute(DISABLE_COMPRESSION_ONCE) != null) {
+            nextFilter.filterWrite(session, writeRequest);
+            return;
+        }
+
+        IoBuffer in = (IoBuffer) message;
+        byte[] raw = new byte[in.remaining()];
+        in.get(raw);
+
+        IoBuffer out;
+        synchronized (deflater) {
+            if (ended) throw new IllegalStateException("compression has ended");
+            out = IoBuffer.allocate(raw.length / 2 + 16).setAutoExpand(true);
+            deflater.setInput(raw);
+            int length;
+            do {
+                length = deflater.deflate(chunk, 0, chunk.length, Deflater.SYNC_FLUSH);
+                out.put(chunk, 0, length);
+            } while (length == chunk.length);
+            out.flip();
+            rawBytesOut += raw.length;
+            compressedBytesOut += out.remaining();
+        }
+        TOTAL_RAW_OUT.add(raw.length);
+        TOTAL_COMPRESSED_OUT.add(out.remaining());
+
+        writeRequest.setMessage(out);
+        nextFilter.filterWrite(session, writeRequest);
+    }
+
+    @Override
+    public void onPostRemove(IoFilterChain parent, String name, NextFilter nextFilter) throws Exception {
+        end();
+    }
+
+    @Override
+    public void sessionClosed(NextFilter nextFilter, IoSession session) throws Exception {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("compression ratio of session {} has been {}", session.getId(), getCompressionRatio());
+        }
+        end();
+        nextFilter.sessionClosed(session);
+    }
+
+    /**
+     * frees the native zlib memory
+     */
+    private void end() {
+        synchronized (inflater) {
+            synchronized (deflater) {
+                if (ended) return;
+                ended = true;
+                inflater.end();
+                deflater.end();
+            }
+        }
+    }
+
+    /**
+     * @return the compressed size of all data read and written, relative to its uncompressed size,
+     *         or 1 if nothing has passed the filter yet
+     */
+    public double getCompressionRatio() {
+        long raw;
+        long compressed;
+        synchronized (inflater) {
+            raw = rawBytesIn;
+            compressed = compressedBytesIn;
+        }
+        synchronized (deflater) {
+            raw += rawBytesOut;
+            compressed += compressedBytesOut;
+        }
+        return raw == 0 ? 1.0 : (double) compressed / raw;
+    }
+
+    public long getRawBytesIn() {
+        synchronized (inflater) {
+            return rawBytesIn;
+        }
+    }
+
+    public long getCompressedBytesIn() {
+        synchronized (inflater) {
+            return compressedBytesIn;
+        }
+    }
+
+    public long getRawBytesOut() {
+        synchronized (deflater) {
+            return rawBytesOut;
+        }
+    }
+
+    public long getCompressedBytesOut() {
+        synchronized (deflater) {
+            return compressedBytesOut;
+        }
+    }
+}
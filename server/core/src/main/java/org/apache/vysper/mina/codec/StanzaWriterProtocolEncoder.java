@@ -19,6 +19,7 @@
  */
 package org.apache.vysper.mina.codec;
 
+import java.nio.charset.CharacterCodingException;
 import java.nio.charset.CharsetEncoder;
 
 import org.apache.mina.core.buffer.IoBuffer;
@@ -29,6 +30,8 @@ import org.apache.mina.filter.codec.ProtocolEncoderOutput;
 import org.apache.vysper.charset.CharsetUtil;
 import org.apache.vysper.mina.XmppIoHandlerAdapter;
 import org.apache.vysper.xml.fragment.Renderer;
+import org.apache.vysper.xmpp.server.trace.StanzaTracer;
+import org.apache.vysper.xmpp.server.trace.TracePoint;
 import org.apache.vysper.xmpp.stanza.Stanza;
 import org.apache.vysper.xmpp.writer.StanzaWriter;
 import org.slf4j.Logger;
@@ -44,15 +47,27 @@ public class StanzaWriterProtocolEncoder implements ProtocolEncoder {
     private final Logger logger = LoggerFactory.getLogger(StanzaWriterProtocolEncoder.class);
 
     public void encode(IoSession ioSession, Object o, ProtocolEncoderOutput protocolEncoderOutput) throws Exception {
-        if (!(o instanceof StanzaWriteInfo)) {
-            throw new IllegalArgumentException("StanzaWriterProtocolEncoder only handles StanzaWriteInfo objects");
+        IoBuffer byteBuffer = IoBuffer.allocate(16).setAutoExpand(true);
+        if (o instanceof StanzaWriteInfo) {
+            encode((StanzaWriteInfo) o, byteBuffer);
+        } else if (o instanceof StanzaWriteBatch) {
+            for (StanzaWriteInfo stanzaWriteInfo : ((StanzaWriteBatch) o).getStanzaWriteInfos()) {
+                encode(stanzaWriteInfo, byteBuffer);
+            }
+        } else {
+            throw new IllegalArgumentException(
+                    "StanzaWriterProtocolEncoder only handles StanzaWriteInfo and StanzaWriteBatch objects");
         }
-        StanzaWriteInfo stanzaWriteInfo = (StanzaWriteInfo) o;
 
+        byteBuffer.flip();
+        protocolEncoderOutput.write(byteBuffer);
+        StanzaTracer.stamp(TracePoint.WRITTEN);
+    }
+
+    private void encode(StanzaWriteInfo stanzaWriteInfo, IoBuffer byteBuffer) throws CharacterCodingException {
         Stanza element = stanzaWriteInfo.getStanza();
         Renderer renderer = new Renderer(element);
 
-        IoBuffer byteBuffer = IoBuffer.allocate(16).setAutoExpand(true);
         if (stanzaWriteInfo.isWriteProlog())
             byteBuffer.putString(StanzaWriter.XML_PROLOG, getSessionEncoder());
         if (stanzaWriteInfo.isWriteOpeningElement())
@@ -61,9 +76,6 @@ public class StanzaWriterProtocolEncoder implements ProtocolEncoder {
             byteBuffer.putString(renderer.getElementContent(), getSessionEncoder());
         if (stanzaWriteInfo.isWriteClosingElement())
             byteBuffer.putString(renderer.getClosingElement(), getSessionEncoder());
-
-        byteBuffer.flip();
-        protocolEncoderOutput.write(byteBuffer);
     }
 
     public void dispose(IoSession ioSession) throws Exception {
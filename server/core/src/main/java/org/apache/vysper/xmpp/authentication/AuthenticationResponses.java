@@ -19,6 +19,8 @@
  */
 package org.apache.vysper.xmpp.authentication;
 
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.binary.StringUtils;
 import org.apache.vysper.xmpp.modules.core.sasl.SASLFailureType;
 import org.apache.vysper.xmpp.protocol.NamespaceURIs;
 import org.apache.vysper.xmpp.stanza.Stanza;
@@ -36,6 +38,25 @@ public class AuthenticationResponses {
         return stanzaBuilder.build();
     }
 
+    /**
+     * @param additionalData data for the client along with success, as SCRAM's server signature
+     */
+    public Stanza getSuccess(String additionalData) {
+        StanzaBuilder stanzaBuilder = new StanzaBuilder("success", NamespaceURIs.URN_IETF_PARAMS_XML_NS_XMPP_SASL);
+        stanzaBuilder.addText(encode(additionalData));
+        return stanzaBuilder.build();
+    }
+
+    public Stanza getChallenge(String challenge) {
+        StanzaBuilder stanzaBuilder = new StanzaBuilder("challenge", NamespaceURIs.URN_IETF_PARAMS_XML_NS_XMPP_SASL);
+        stanzaBuilder.addText(encode(challenge));
+        return stanzaBuilder.build();
+    }
+
+    private String encode(String data) {
+        return StringUtils.newStringUtf8(Base64.encodeBase64(StringUtils.getBytesUtf8(data)));
+    }
+
     public Stanza getFailureNotAuthorized() {
         return getFailure(SASLFailureType.NOT_AUTHORIZED);
     }
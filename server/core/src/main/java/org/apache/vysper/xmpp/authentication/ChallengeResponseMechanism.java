@@ -0,0 +1,43 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.authentication;
+
+import org.apache.vysper.xmpp.protocol.SessionStateHolder;
+import org.apache.vysper.xmpp.server.SessionContext;
+import org.apache.vysper.xmpp.stanza.Stanza;
+
+/**
+ * a SASL mechanism taking more than one round trip. it answers the auth-stanza with a challenge, and
+ * gets the response-stanzas of the client until it answers with success or failure.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public interface ChallengeResponseMechanism extends SASLMechanism {
+
+    /**
+     * called by the server as the client answers a challenge with a response-stanza
+     */
+    Stanza responded(SessionContext sessionContext, SessionStateHolder sessionStateHolder, Stanza responseStanza);
+
+    /**
+     * called by the server as the client aborts the exchange, or starts a new one
+     */
+    void aborted(SessionContext sessionContext);
+}
@@ -0,0 +1,258 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.authentication;
+
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.binary.StringUtils;
+import org.apache.vysper.xml.fragment.XMLText;
+import org.apache.vysper.xmpp.addressing.EntityFormatException;
+import org.apache.vysper.xmpp.addressing.EntityImpl;
+import org.apache.vysper.xmpp.modules.core.sasl.SASLFailureType;
+import org.apache.vysper.xmpp.protocol.SessionStateHolder;
+import org.apache.vysper.xmpp.server.SessionContext;
+import org.apache.vysper.xmpp.server.SessionState;
+import org.apache.vysper.xmpp.stanza.Stanza;
+
+/**
+ * handles the SASL SCRAM mechanisms, standardized in RFC 5802 and RFC 7677. the client proves it
+ * knows the password without sending it, and the server proves it knows the credentials.
+ * <br>
+ * the credentials are taken from the {@link ScramCredentialsProvider}. unknown users get a made-up
+ * salt, so they can not be told from known ones before the final step. channel binding is not
+ * supported.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public abstract class Scram implements ChallengeResponseMechanism {
+
+    public static final String SESSION_ATTRIBUTE_EXCHANGE = "scramExchange";
+
+    private static final AuthenticationResponses AUTHENTICATION_RESPONSES = new AuthenticationResponses();
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private static final byte[] UNKNOWN_USER_SALT_KEY = new byte[32];
+
+    static {
+        RANDOM.nextBytes(UNKNOWN_USER_SALT_KEY);
+    }
+
+    private static final int NONCE_LENGTH = 18;
+
+    /**
+     * the state of an exchange, between the challenge and the response
+     */
+    private static final class Exchange {
+
+        private final EntityImpl user;
+
+        private final ScramCredentials credentials;
+
+        private final String gs2Header;
+
+        private final String clientFirstBare;
+
+        private final String serverFirst;
+
+        private final String nonce;
+
+        private Exchange(EntityImpl user, ScramCredentials credentials, String gs2Header, String clientFirstBare,
+                String serverFirst, String nonce) {
+            this.user = user;
+            this.credentials = credentials;
+            this.gs2Header = gs2Header;
+            this.clientFirstBare = clientFirstBare;
+            this.serverFirst = serverFirst;
+            this.nonce = nonce;
+        }
+    }
+
+    private final ScramAlgorithm algorithm;
+
+    protected Scram(ScramAlgorithm algorithm) {
+        this.algorithm = algorithm;
+    }
+
+    public String getName() {
+        return algorithm.getMechanismName();
+    }
+
+    public Stanza started(SessionContext sessionContext, SessionStateHolder sessionStateHolder, Stanza authStanza) {
+        sessionContext.putAttribute(SESSION_ATTRIBUTE_EXCHANGE, null);
+
+        String clientFirst = decode(authStanza);
+        if (clientFirst == null) return AUTHENTICATION_RESPONSES.getFailure(SASLFailureType.INCORRECT_ENCODING);
+
+        // gs2-header: channel binding flag and authorization identity
+        int flagEnd = clientFirst.indexOf(',');
+        int headerEnd = flagEnd < 0 ? -1 : clientFirst.indexOf(',', flagEnd + 1);
+        if (headerEnd < 0) return AUTHENTICATION_RESPONSES.getFailureMalformedRequest();
+        String channelBindingFlag = clientFirst.substring(0, flagEnd);
+        if (!channelBindingFlag.equals("n") && !channelBindingFlag.equals("y")) {
+            // channel binding is not supported
+            return AUTHENTICATION_RESPONSES.getFailureMalformedRequest();
+        }
+        String authorizationPart = clientFirst.substring(flagEnd + 1, headerEnd);
+        String gs2Header = clientFirst.substring(0, headerEnd + 1);
+        String clientFirstBare = clientFirst.substring(headerEnd + 1);
+
+        List<String> attributes = Arrays.asList(clientFirstBare.split(","));
+        if (attributes.size() < 2 || !attributes.get(0).startsWith("n=") || !attributes.get(1).startsWith("r=")) {
+            return AUTHENTICATION_RESPONSES.getFailureMalformedRequest();
+        }
+        String username = decodeName(attributes.get(0).substring(2));
+        String clientNonce = attributes.get(1).substring(2);
+        if (username == null || username.length() == 0 || clientNonce.length() == 0) {
+            return AUTHENTICATION_RESPONSES.getFailureMalformedRequest();
+        }
+        if (authorizationPart.length() > 0) {
+            String authorizationIdentity = authorizationPart.startsWith("a=")
+                    ? decodeName(authorizationPart.substring(2)) : null;
+            if (authorizationIdentity == null) return AUTHENTICATION_RESPONSES.getFailureMalformedRequest();
+            // acting as another user is not supported
+            if (!authorizationIdentity.equals(username)) {
+                return AUTHENTICATION_RESPONSES.getFailure(SASLFailureType.INVALID_AUTHZID);
+            }
+        }
+
+        if (!username.contains("@"))
+            username = username + "@" + sessionContext.getServerJID().getDomain();
+        EntityImpl user;
+        try {
+            user = EntityImpl.parse(username);
+        } catch (EntityFormatException e) {
+            return AUTHENTICATION_RESPONSES.getFailureNotAuthorized();
+        }
+
+        ScramCredentialsProvider credentialsProvider = sessionContext.getServerRuntimeContext()
+                .getStorageProvider(ScramCredentialsProvider.class);
+        if (credentialsProvider == null) {
+            return AUTHENTICATION_RESPONSES.getFailure(SASLFailureType.TEMPORARY_AUTH_FAILURE);
+        }
+        ScramCredentials credentials = credentialsProvider.getScramCredentials(user, algorithm);
+
+        byte[] salt;
+        int iterations;
+        if (credentials != null) {
+            salt = credentials.getSalt();
+            iterations = credentials.getIterations();
+        } else {
+            salt = Arrays.copyOf(algorithm.hmac(UNKNOWN_USER_SALT_KEY, user.getFullQualifiedName()), 16);
+            iterations = ScramCredentials.DEFAULT_ITERATIONS;
+        }
+
+        byte[] serverNonce = new byte[NONCE_LENGTH];
+        RANDOM.nextBytes(serverNonce);
+        String nonce = clientNonce + ScramCredentials.encodeBase64(serverNonce);
+        String serverFirst = "r=" + nonce + ",s=" + ScramCredentials.encodeBase64(salt) + ",i=" + iterations;
+
+        sessionContext.putAttribute(SESSION_ATTRIBUTE_EXCHANGE,
+                new Exchange(user, credentials, gs2Header, clientFirstBare, serverFirst, nonce));
+        return AUTHENTICATION_RESPONSES.getChallenge(serverFirst);
+    }
+
+    public Stanza responded(SessionContext sessionContext, SessionStateHolder sessionStateHolder,
+            Stanza responseStanza) {
+        Exchange exchange = (Exchange) sessionContext.putAttribute(SESSION_ATTRIBUTE_EXCHANGE, null);
+        if (exchange == null) return AUTHENTICATION_RESPONSES.getFailureMalformedRequest();
+
+        String clientFinal = decode(responseStanza);
+        if (clientFinal == null) return AUTHENTICATION_RESPONSES.getFailure(SASLFailureType.INCORRECT_ENCODING);
+
+        int proofStart = clientFinal.lastIndexOf(",p=");
+        if (proofStart < 0) return AUTHENTICATION_RESPONSES.getFailureMalformedRequest();
+        String clientFinalWithoutProof = clientFinal.substring(0, proofStart);
+        byte[] proof = Base64.decodeBase64(StringUtils.getBytesUtf8(clientFinal.substring(proofStart + 3)));
+
+        List<String> attributes = Arrays.asList(clientFinalWithoutProof.split(","));
+        if (attributes.size() < 2 || !attributes.get(0).startsWith("c=") || !attributes.get(1).startsWith("r=")) {
+            return AUTHENTICATION_RESPONSES.getFailureMalformedRequest();
+        }
+        String channelBinding = attributes.get(0).substring(2);
+        String nonce = attributes.get(1).substring(2);
+        if (!channelBinding.equals(ScramCredentials.encodeBase64(StringUtils.getBytesUtf8(exchange.gs2Header)))
+                || !nonce.equals(exchange.nonce)) {
+            return AUTHENTICATION_RESPONSES.getFailureNotAuthorized();
+        }
+
+        ScramCredentials credentials = exchange.credentials;
+        if (credentials == null) return AUTHENTICATION_RESPONSES.getFailureNotAuthorized();
+
+        String authMessage = exchange.clientFirstBare + "," + exchange.serverFirst + "," + clientFinalWithoutProof;
+        byte[] storedKey = credentials.getStoredKey();
+        byte[] clientSignature = algorithm.hmac(storedKey, authMessage);
+        if (proof.length != clientSignature.length) return AUTHENTICATION_RESPONSES.getFailureNotAuthorized();
+        byte[] clientKey = new byte[proof.length];
+        for (int i = 0; i < proof.length; i++) {
+            clientKey[i] = (byte) (proof[i] ^ clientSignature[i]);
+        }
+        if (!MessageDigest.isEqual(algorithm.hash(clientKey), storedKey)) {
+            return AUTHENTICATION_RESPONSES.getFailureNotAuthorized();
+        }
+
+        byte[] serverSignature = algorithm.hmac(credentials.getServerKey(), authMessage);
+        sessionContext.setInitiatingEntity(exchange.user);
+        sessionStateHolder.setState(SessionState.AUTHENTICATED);
+        return AUTHENTICATION_RESPONSES.getSuccess("v=" + ScramCredentials.encodeBase64(serverSignature));
+    }
+
+    public void aborted(SessionContext sessionContext) {
+        sessionContext.putAttribute(SESSION_ATTRIBUTE_EXCHANGE, null);
+    }
+
+    private String decode(Stanza stanza) {
+        List<XMLText> innerTexts = stanza.getInnerTexts();
+        if (innerTexts == null || innerTexts.isEmpty()) return null;
+        try {
+            String decoded = StringUtils
+                    .newStringUtf8(Base64.decodeBase64(StringUtils.getBytesUtf8(innerTexts.get(0).getText())));
+            return decoded.length() == 0 ? null : decoded;
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the name with ',' and '=' unescaped, or null, if it is escaped wrongly
+     */
+    private String decodeName(String saslName) {
+        StringBuilder name = new StringBuilder(saslName.length());
+        for (int i = 0; i < saslName.length(); i++) {
+            char ch = saslName.charAt(i);
+            if (ch != '=') {
+                name.append(ch);
+            } else if (saslName.startsWith("2C", i + 1)) {
+                name.append(',');
+                i += 2;
+            } else if (saslName.startsWith("3D", i + 1)) {
+                name.append('=');
+                i += 2;
+            } else {
+                return null;
+            }
+        }
+        return name.toString();
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.authentication;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.text.Normalizer;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * the hash functions SCRAM is used with, see RFC 5802 and RFC 7677
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public enum ScramAlgorithm {
+
+    SHA_1("SCRAM-SHA-1", "SHA-1", "HmacSHA1", "PBKDF2WithHmacSHA1", 160),
+
+    SHA_256("SCRAM-SHA-256", "SHA-256", "HmacSHA256", "PBKDF2WithHmacSHA256", 256);
+
+    private final String mechanismName;
+
+    private final String digestAlgorithm;
+
+    private final String macAlgorithm;
+
+    private final String keyDerivationAlgorithm;
+
+    private final int keyLength;
+
+    ScramAlgorithm(String mechanismName, String digestAlgorithm, String macAlgorithm, String keyDerivationAlgorithm,
+            int keyLength) {
+        this.mechanismName = mechanismName;
+        this.digestAlgorithm = digestAlgorithm;
+        this.macAlgorithm = macAlgorithm;
+        this.keyDerivationAlgorithm = keyDerivationAlgorithm;
+        this.keyLength = keyLength;
+    }
+
+    public String getMechanismName() {
+        return mechanismName;
+    }
+
+    public static ScramAlgorithm forMechanismName(String mechanismName) {
+        for (ScramAlgorithm algorithm : values()) {
+            if (algorithm.mechanismName.equals(mechanismName)) return algorithm;
+        }
+        return null;
+    }
+
+    public byte[] hash(byte[] data) {
+        try {
+            return MessageDigest.getInstance(digestAlgorithm).digest(data);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public byte[] hmac(byte[] key, byte[] data) {
+        try {
+            Mac mac = Mac.getInstance(macAlgorithm);
+            mac.init(new SecretKeySpec(key, macAlgorithm));
+            return mac.doFinal(data);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public byte[] hmac(byte[] key, String data) {
+        return hmac(key, data.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * the Hi() function of RFC 5802, which is PBKDF2 with the HMAC of this algorithm. this is the
+     * expensive part, its cost grows with the iteration count.
+     * <br>
+     * the password is normalized with NFKC, which SASLprep is based on.
+     */
+    public byte[] saltPassword(String password, byte[] salt, int iterations) {
+        String normalized = Normalizer.normalize(password, Normalizer.Form.NFKC);
+        PBEKeySpec keySpec = new PBEKeySpec(normalized.toCharArray(), salt, iterations, keyLength);
+        try {
+            return SecretKeyFactory.getInstance(keyDerivationAlgorithm).generateSecret(keySpec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            keySpec.clearPassword();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.authentication;
+
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.binary.StringUtils;
+
+/**
+ * the salted and iterated credentials SCRAM authenticates against. the password itself can not be
+ * recovered from them.
+ * <br>
+ * they are stored in the format of RFC 5803,
+ * <code>SCRAM-SHA-256$&lt;iterations&gt;:&lt;salt&gt;$&lt;stored key&gt;:&lt;server key&gt;</code>
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class ScramCredentials {
+
+    /**
+     * the minimum RFC 7677 recommends
+     */
+    public static final int DEFAULT_ITERATIONS = 4096;
+
+    private static final int SALT_LENGTH = 16;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final ScramAlgorithm algorithm;
+
+    private final byte[] salt;
+
+    private final int iterations;
+
+    private final byte[] storedKey;
+
+    private final byte[] serverKey;
+
+    public ScramCredentials(ScramAlgorithm algorithm, byte[] salt, int iterations, byte[] storedKey,
+            byte[] serverKey) {
+        if (iterations < 1) throw new IllegalArgumentException("iterations must be positive");
+        this.algorithm = algorithm;
+        this.salt = salt.clone();
+        this.iterations = iterations;
+        this.storedKey = storedKey.clone();
+        this.serverKey = serverKey.clone();
+    }
+
+    /**
+     * derives credentials with a new random salt
+     */
+    public static ScramCredentials create(ScramAlgorithm algorithm, String password, int iterations) {
+        byte[] salt = new byte[SALT_LENGTH];
+        RANDOM.nextBytes(salt);
+        return derive(algorithm, password, salt, iterations);
+    }
+
+    public static ScramCredentials derive(ScramAlgorithm algorithm, String password, byte[] salt, int iterations) {
+        byte[] saltedPassword = algorithm.saltPassword(password, salt, iterations);
+        byte[] clientKey = algorithm.hmac(saltedPassword, "Client Key");
+        byte[] serverKey = algorithm.hmac(saltedPassword, "Server Key");
+        return new ScramCredentials(algorithm, salt, iterations, algorithm.hash(clientKey), serverKey);
+    }
+
+    /**
+     * checks a password given in cleartext, as with SASL PLAIN. this takes the full key derivation.
+     */
+    public boolean verifyPassword(String password) {
+        if (password == null) return false;
+        ScramCredentials derived = derive(algorithm, password, salt, iterations);
+        return MessageDigest.isEqual(storedKey, derived.storedKey);
+    }
+
+    public ScramAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    public byte[] getSalt() {
+        return salt.clone();
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    public byte[] getStoredKey() {
+        return storedKey.clone();
+    }
+
+    public byte[] getServerKey() {
+        return serverKey.clone();
+    }
+
+    public String encode() {
+        return algorithm.getMechanismName() + "$" + iterations + ":" + encodeBase64(salt) + "$"
+                + encodeBase64(storedKey) + ":" + encodeBase64(serverKey);
+    }
+
+    static String encodeBase64(byte[] data) {
+        // not encodeBase64String(), which adds line breaks in this version of commons-codec
+        return StringUtils.newStringUtf8(Base64.encodeBase64(data));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the credentials are not encoded as by {@link #encode()}
+     */
+    public static ScramCredentials decode(String encoded) {
+        String[] parts = encoded.split("[$:]");
+        if (parts.length != 5) throw new IllegalArgumentException("not encoded SCRAM credentials");
+        ScramAlgorithm algorithm = ScramAlgorithm.forMechanismName(parts[0]);
+        if (algorithm == null) throw new IllegalArgumentException("unknown SCRAM mechanism " + parts[0]);
+        try {
+            return new ScramCredentials(algorithm, Base64.decodeBase64(parts[2]), Integer.parseInt(parts[1]),
+                    Base64.decodeBase64(parts[3]), Base64.decodeBase64(parts[4]));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("not encoded SCRAM credentials", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return algorithm.getMechanismName() + "$" + iterations;
+    }
+}
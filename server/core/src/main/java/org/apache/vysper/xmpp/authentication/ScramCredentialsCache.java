@@ -0,0 +1,210 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.authentication;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.vysper.xmpp.addressing.Entity;
+
+/**
+ * a bounded cache of the SCRAM credentials of recently authenticated users, so that a storm of
+ * logins neither reads them from storage nor derives keys from passwords over and over again.
+ * <br>
+ * for passwords given in cleartext, as with SASL PLAIN, the cache remembers a keyed hash of the last
+ * password verified. verifying the same password again skips the key derivation. the hash key is
+ * random and never leaves memory.
+ * <br>
+ * storages must {@link #invalidate(Entity)} users whose password changes. storages shared by several
+ * servers give the cached credentials a maximum age, so that a password changed on another server is
+ * seen after that time at the latest.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class ScramCredentialsCache {
+
+    public static final int DEFAULT_SIZE = 10000;
+
+    /**
+     * loads credentials not found in the cache
+     */
+    public interface Loader {
+
+        /**
+         * @return the credentials, or null, if the user is unknown or has none
+         */
+        ScramCredentials load(Entity jid, ScramAlgorithm algorithm);
+    }
+
+    private static final class Entry {
+
+        private final ScramCredentials credentials;
+
+        private final long loaded;
+
+        private byte[] verifiedPassword;
+
+        private Entry(ScramCredentials credentials, long loaded) {
+            this.credentials = credentials;
+            this.loaded = loaded;
+        }
+    }
+
+    private final int maxSize;
+
+    private final long maxAgeMillis;
+
+    private final byte[] passwordHashKey = new byte[32];
+
+    private final Map<Entity, Map<ScramAlgorithm, Entry>> entries;
+
+    private int size;
+
+    /**
+     * counts invalidations, credentials loaded during one are not cached
+     */
+    private long generation;
+
+    /**
+     * @param maxSize the maximum number of cached credentials, 0 to disable caching
+     */
+    public ScramCredentialsCache(int maxSize) {
+        this(maxSize, 0);
+    }
+
+    /**
+     * @param maxSize the maximum number of cached credentials, 0 to disable caching
+     * @param maxAgeMillis the time after which cached credentials are loaded again, 0 to keep them until
+     *          they are evicted or invalidated
+     */
+    public ScramCredentialsCache(int maxSize, long maxAgeMillis) {
+        if (maxSize < 0) throw new IllegalArgumentException("cache size must not be negative");
+        if (maxAgeMillis < 0) throw new IllegalArgumentException("maximum age must not be negative");
+        this.maxSize = maxSize;
+        this.maxAgeMillis = maxAgeMillis;
+        new SecureRandom().nextBytes(passwordHashKey);
+        // access order, the least recently authenticated users are evicted first
+        this.entries = new LinkedHashMap<Entity, Map<ScramAlgorithm, Entry>>(16, 0.75f, true);
+    }
+
+    public ScramCredentials getCredentials(Entity jid, ScramAlgorithm algorithm, Loader loader) {
+        Entry entry = getEntry(jid.getBareJID(), algorithm, loader);
+        return entry == null ? null : entry.credentials;
+    }
+
+    /**
+     * verifies a password given in cleartext against the credentials
+     * @return false, if the password does not match, or if the user has no credentials
+     */
+    public boolean verifyPassword(Entity jid, ScramAlgorithm algorithm, String password, Loader loader) {
+        if (password == null) return false;
+        Entity bareJID = jid.getBareJID();
+        Entry entry = getEntry(bareJID, algorithm, loader);
+        if (entry == null) return false;
+
+        byte[] passwordHash = algorithm.hmac(passwordHashKey, password.getBytes(StandardCharsets.UTF_8));
+        synchronized (this) {
+            if (entry.verifiedPassword != null && MessageDigest.isEqual(entry.verifiedPassword, passwordHash)) {
+                return true;
+            }
+        }
+        if (!entry.credentials.verifyPassword(password)) return false;
+        synchronized (this) {
+            entry.verifiedPassword = passwordHash;
+        }
+        return true;
+    }
+
+    private Entry getEntry(Entity bareJID, ScramAlgorithm algorithm, Loader loader) {
+        long loadGeneration;
+        long now = currentTimeMillis();
+        synchronized (this) {
+            Map<ScramAlgorithm, Entry> userEntries = entries.get(bareJID);
+            Entry entry = userEntries == null ? null : userEntries.get(algorithm);
+            if (entry != null) {
+                if (maxAgeMillis == 0 || now - entry.loaded < maxAgeMillis) return entry;
+                // expired, the credentials might have been changed by another server
+                userEntries.remove(algorithm);
+                size--;
+                if (userEntries.isEmpty()) entries.remove(bareJID);
+            }
+            loadGeneration = generation;
+        }
+        // loaded outside the lock, concurrent logins of the same user might load twice
+        ScramCredentials credentials = loader.load(bareJID, algorithm);
+        if (credentials == null) return null;
+        Entry entry = new Entry(credentials, now);
+        if (maxSize == 0) return entry;
+        synchronized (this) {
+            if (loadGeneration != generation) return entry;
+            Map<ScramAlgorithm, Entry> userEntries = entries.get(bareJID);
+            if (userEntries == null) {
+                userEntries = new LinkedHashMap<ScramAlgorithm, Entry>();
+                entries.put(bareJID, userEntries);
+            }
+            if (userEntries.put(algorithm, entry) == null) size++;
+            evict();
+        }
+        return entry;
+    }
+
+    private void evict() {
+        Iterator<Map<ScramAlgorithm, Entry>> iterator = entries.values().iterator();
+        while (size > maxSize && iterator.hasNext()) {
+            size -= iterator.next().size();
+            iterator.remove();
+        }
+    }
+
+    public synchronized void invalidate(Entity jid) {
+        generation++;
+        Map<ScramAlgorithm, Entry> userEntries = entries.remove(jid.getBareJID());
+        if (userEntries != null) size -= userEntries.size();
+    }
+
+    public synchronized void clear() {
+        generation++;
+        entries.clear();
+        size = 0;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getMaxAgeMillis() {
+        return maxAgeMillis;
+    }
+
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * @return the number of cached credentials
+     */
+    public synchronized int size() {
+        return size;
+    }
+}
@@ -19,48 +19,86 @@
  */
 package org.apache.vysper.xmpp.authentication;
 
-import java.util.HashMap;
+import java.util.EnumMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.vysper.xmpp.addressing.Entity;
 
 /**
- * very simple in-memory {@link org.apache.vysper.xmpp.authentication.UserAuthentication} service
+ * very simple in-memory {@link org.apache.vysper.xmpp.authentication.UserAuthentication} service.
+ * passwords are not kept, only the SCRAM credentials derived from them.
  *
  * @author The Apache MINA Project (dev@mina.apache.org)
  */
-public class SimpleUserAuthentication implements UserAuthentication, AccountManagement {
+public class SimpleUserAuthentication implements UserAuthentication, AccountManagement, ScramCredentialsProvider {
 
-    private final Map<Entity, String> userPasswordMap = new HashMap<Entity, String>();
+    private final Map<Entity, Map<ScramAlgorithm, ScramCredentials>> userCredentialsMap = new ConcurrentHashMap<>();
+
+    private int iterations = ScramCredentials.DEFAULT_ITERATIONS;
+
+    private ScramCredentialsCache credentialsCache = new ScramCredentialsCache(ScramCredentialsCache.DEFAULT_SIZE);
+
+    private final ScramCredentialsCache.Loader credentialsLoader = new ScramCredentialsCache.Loader() {
+        public ScramCredentials load(Entity jid, ScramAlgorithm algorithm) {
+            Map<ScramAlgorithm, ScramCredentials> credentials = userCredentialsMap.get(jid);
+            return credentials == null ? null : credentials.get(algorithm);
+        }
+    };
 
     public SimpleUserAuthentication() {
         ; // empty
     }
 
     public SimpleUserAuthentication(Map<Entity, String> userPasswordMap) {
-        this.userPasswordMap.putAll(userPasswordMap);
+        for (Map.Entry<Entity, String> entry : userPasswordMap.entrySet()) {
+            addUser(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * @param iterations the iteration count of the key derivation for passwords set from now on
+     */
+    public void setIterations(int iterations) {
+        this.iterations = iterations;
+    }
+
+    /**
+     * @param size the maximum number of users whose last verified password is remembered, 0 for none
+     */
+    public void setCredentialsCacheSize(int size) {
+        credentialsCache = new ScramCredentialsCache(size);
     }
 
     public void addUser(Entity username, String password) {
-        userPasswordMap.put(username, password);
+        userCredentialsMap.put(username.getBareJID(), createCredentials(password));
+        credentialsCache.invalidate(username);
     }
 
     public void changePassword(Entity username, String password) throws AccountCreationException {
-        if (!userPasswordMap.containsKey(username)) {
+        if (!userCredentialsMap.containsKey(username.getBareJID())) {
             throw new AccountCreationException("could not change password for unknown user " + username);
         }
-        userPasswordMap.put(username, password);
+        addUser(username, password);
+    }
+
+    private Map<ScramAlgorithm, ScramCredentials> createCredentials(String password) {
+        Map<ScramAlgorithm, ScramCredentials> credentials = new EnumMap<>(ScramAlgorithm.class);
+        for (ScramAlgorithm algorithm : ScramAlgorithm.values()) {
+            credentials.put(algorithm, ScramCredentials.create(algorithm, password, iterations));
+        }
+        return credentials;
     }
 
     public boolean verifyCredentials(Entity jid, String passwordCleartext, Object credentials) {
-        return verify(jid.getBareJID(), passwordCleartext);
+        return credentialsCache.verifyPassword(jid, ScramAlgorithm.SHA_256, passwordCleartext, credentialsLoader);
     }
 
     public boolean verifyAccountExists(Entity jid) {
-        return userPasswordMap.get(jid.getBareJID()) != null;
+        return userCredentialsMap.get(jid.getBareJID()) != null;
     }
 
-    private boolean verify(Entity username, String passwordCleartext) {
-        return passwordCleartext.equals(userPasswordMap.get(username));
+    public ScramCredentials getScramCredentials(Entity jid, ScramAlgorithm algorithm) {
+        return credentialsLoader.load(jid.getBareJID(), algorithm);
     }
 }
@@ -45,6 +45,11 @@ public abstract class AbstractTLSContextFactory implements TLSContextFactory {
 
     private static final String KEY_MANAGER_FACTORY_ALGORITHM;
 
+    /**
+     * JDK 13 and later issue stateless session tickets when this is enabled
+     */
+    public static final String SESSION_TICKETS_PROPERTY = "jdk.tls.server.enableSessionTicketExtension";
+
     static {
         String algorithm = Security.getProperty("ssl.KeyManagerFactory.algorithm");
         if (algorithm == null) algorithm = DEFAULT_ALGORITHM;
@@ -60,6 +65,12 @@ public abstract class AbstractTLSContextFactory implements TLSContextFactory {
 
     protected TrustManagerFactory trustManagerFactory = null;
 
+    private int sessionCacheSize = -1;
+
+    private int sessionTimeout = -1;
+
+    private Boolean sessionTicketsEnabled = null;
+
     // NOTE: The keystore 'bogus_mina_tls.cert' was generated using keytool:
     //   keytool -genkey -alias bogus -keysize 512 -validity 3650
     //           -keyalg RSA -dname "CN=bogus.com, OU=XXX CA,
@@ -80,6 +91,31 @@ public abstract class AbstractTLSContextFactory implements TLSContextFactory {
     	this.keystoreType = keyStoreType;
     }
     
+    /**
+     * @param sessionCacheSize the maximum number of TLS sessions cached for resumption, 0 for no limit.
+     *                         the JDK's default applies when not set.
+     */
+    public void setSessionCacheSize(int sessionCacheSize) {
+        this.sessionCacheSize = sessionCacheSize;
+    }
+
+    /**
+     * @param sessionTimeout the seconds a TLS session can be resumed for, 0 for no limit.
+     *                       the JDK's default applies when not set.
+     */
+    public void setSessionTimeout(int sessionTimeout) {
+        this.sessionTimeout = sessionTimeout;
+    }
+
+    /**
+     * enables or disables stateless session tickets, which take the load off the session cache.
+     * this sets a system property and so applies to the whole JVM. it has no effect before JDK 13,
+     * where resumption is always based on cached session IDs.
+     */
+    public void setSessionTicketsEnabled(boolean sessionTicketsEnabled) {
+        this.sessionTicketsEnabled = sessionTicketsEnabled;
+    }
+
     public SSLContext getSSLContext() throws GeneralSecurityException, IOException {
         if (sslContext == null)
             sslContext = createSSLContext();
@@ -87,6 +123,11 @@ public abstract class AbstractTLSContextFactory implements TLSContextFactory {
     }
 
     private SSLContext createSSLContext() throws GeneralSecurityException, IOException {
+        if (sessionTicketsEnabled != null) {
+            // read by the JDK when TLS is first used
+            System.setProperty(SESSION_TICKETS_PROPERTY, sessionTicketsEnabled.toString());
+        }
+
         // Create keystore
         KeyStore ks = KeyStore.getInstance(keystoreType);
         InputStream in = null;
@@ -117,6 +158,9 @@ public abstract class AbstractTLSContextFactory implements TLSContextFactory {
         }
         sslContext.init(kmf.getKeyManagers(), trustManagers, null);
 
+        if (sessionCacheSize >= 0) sslContext.getServerSessionContext().setSessionCacheSize(sessionCacheSize);
+        if (sessionTimeout >= 0) sslContext.getServerSessionContext().setSessionTimeout(sessionTimeout);
+
         return sslContext;
     }
 
@@ -0,0 +1,136 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.cryptography;
+
+import java.lang.reflect.Method;
+import java.security.KeyManagementException;
+import java.security.SecureRandom;
+
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLContextSpi;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLServerSocketFactory;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * an initialized {@link SSLContext} whose engines negotiate the given application protocols with
+ * ALPN, e.g. 'xmpp-client' as of <a href="http://xmpp.org/extensions/xep-0368.html">XEP-0368</a>.
+ * <br>
+ * ALPN is available from Java 8u252 on, and Vysper is built for older Java versions, so the API is
+ * looked up reflectively. where it is missing, the engines are created without ALPN.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class ApplicationProtocolSSLContext extends SSLContext {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ApplicationProtocolSSLContext.class);
+
+    private static final Method SET_APPLICATION_PROTOCOLS;
+
+    static {
+        Method setApplicationProtocols = null;
+        try {
+            setApplicationProtocols = SSLParameters.class.getMethod("setApplicationProtocols", String[].class);
+        } catch (NoSuchMethodException e) {
+            LOG.info("ALPN is not supported by this JVM");
+        }
+        SET_APPLICATION_PROTOCOLS = setApplicationProtocols;
+    }
+
+    public static boolean isAlpnAvailable() {
+        return SET_APPLICATION_PROTOCOLS != null;
+    }
+
+    /**
+     * @param delegate the initialized context creating the engines
+     * @param applicationProtocols the protocols accepted, in order of preference
+     */
+    public ApplicationProtocolSSLContext(SSLContext delegate, String... applicationProtocols) {
+        super(new Spi(delegate, applicationProtocols.clone()), delegate.getProvider(), delegate.getProtocol());
+    }
+
+    private static class Spi extends SSLContextSpi {
+
+        private final SSLContext delegate;
+
+        private final String[] applicationProtocols;
+
+        Spi(SSLContext delegate, String[] applicationProtocols) {
+            this.delegate = delegate;
+            this.applicationProtocols = applicationProtocols;
+        }
+
+        @Override
+        protected void engineInit(KeyManager[] keyManagers, TrustManager[] trustManagers, SecureRandom random)
+                throws KeyManagementException {
+            throw new KeyManagementException("the delegate context has already been initialized");
+        }
+
+        @Override
+        protected SSLSocketFactory engineGetSocketFactory() {
+            return delegate.getSocketFactory();
+        }
+
+        @Override
+        protected SSLServerSocketFactory engineGetServerSocketFactory() {
+            return delegate.getServerSocketFactory();
+        }
+
+        @Override
+        protected SSLEngine engineCreateSSLEngine() {
+            return withApplicationProtocols(delegate.createSSLEngine());
+        }
+
+        @Override
+        protected SSLEngine engineCreateSSLEngine(String host, int port) {
+            return withApplicationProtocols(delegate.createSSLEngine(host, port));
+        }
+
+        @Override
+        protected SSLSessionContext engineGetServerSessionContext() {
+            return delegate.getServerSessionContext();
+        }
+
+        @Override
+        protected SSLSessionContext engineGetClientSessionContext() {
+            return delegate.getClientSessionContext();
+        }
+
+        private SSLEngine withApplicationProtocols(SSLEngine engine) {
+            if (SET_APPLICATION_PROTOCOLS == null || applicationProtocols.length == 0) return engine;
+            SSLParameters parameters = engine.getSSLParameters();
+            try {
+                SET_APPLICATION_PROTOCOLS.invoke(parameters, (Object) applicationProtocols);
+            } catch (Exception e) {
+                LOG.warn("failed to set the application protocols", e);
+                return engine;
+            }
+            engine.setSSLParameters(parameters);
+            return engine;
+        }
+    }
+}
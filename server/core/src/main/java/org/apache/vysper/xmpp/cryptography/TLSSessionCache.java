@@ -0,0 +1,142 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.cryptography;
+
+import java.util.Enumeration;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSessionContext;
+
+import org.apache.vysper.xmpp.modules.ServerRuntimeContextService;
+
+/**
+ * manages the server side TLS session cache of the server's {@link SSLContext}, which lets clients
+ * reconnecting with a known session skip the full handshake. all endpoints sharing the context,
+ * C2S, S2S and the HTTP based ones, share the cache.
+ * <br>
+ * endpoints report every completed handshake, which is counted as full or resumed.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class TLSSessionCache implements ServerRuntimeContextService {
+
+    public static final String SERVICE_NAME = "tlsSessionCache";
+
+    private final SSLContext sslContext;
+
+    private final LongAdder fullHandshakes = new LongAdder();
+
+    private final LongAdder resumedHandshakes = new LongAdder();
+
+    public TLSSessionCache(SSLContext sslContext) {
+        if (sslContext == null) throw new IllegalArgumentException("SSL context must not be null");
+        this.sslContext = sslContext;
+    }
+
+    public String getServiceName() {
+        return SERVICE_NAME;
+    }
+
+    public SSLContext getSslContext() {
+        return sslContext;
+    }
+
+    private SSLSessionContext getSessionContext() {
+        return sslContext.getServerSessionContext();
+    }
+
+    /**
+     * @return the maximum number of cached sessions, 0 for no limit
+     */
+    public int getSessionCacheSize() {
+        return getSessionContext().getSessionCacheSize();
+    }
+
+    public void setSessionCacheSize(int size) {
+        getSessionContext().setSessionCacheSize(size);
+    }
+
+    /**
+     * @return the seconds a session can be resumed after its creation, 0 for no limit
+     */
+    public int getSessionTimeout() {
+        return getSessionContext().getSessionTimeout();
+    }
+
+    public void setSessionTimeout(int seconds) {
+        getSessionContext().setSessionTimeout(seconds);
+    }
+
+    public int getCachedSessionCount() {
+        int count = 0;
+        Enumeration<byte[]> ids = getSessionContext().getIds();
+        while (ids.hasMoreElements()) {
+            ids.nextElement();
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * invalidates all cached sessions, for example after the certificate has been replaced.
+     * the next connection of every client takes a full handshake.
+     */
+    public void invalidateAll() {
+        SSLSessionContext sessionContext = getSessionContext();
+        Enumeration<byte[]> ids = sessionContext.getIds();
+        while (ids.hasMoreElements()) {
+            SSLSession session = sessionContext.getSession(ids.nextElement());
+            if (session != null) session.invalidate();
+        }
+    }
+
+    /**
+     * counts a completed handshake.
+     * @param handshakeStarted the time in milliseconds the handshake has started at
+     * @return true, if the handshake has resumed a cached session
+     */
+    public boolean handshakeCompleted(SSLSession session, long handshakeStarted) {
+        boolean resumed = isResumed(session, handshakeStarted);
+        if (resumed) {
+            resumedHandshakes.increment();
+        } else {
+            fullHandshakes.increment();
+        }
+        return resumed;
+    }
+
+    /**
+     * a full handshake creates its session, a resumed one takes over a session created before.
+     * TLS 1.3 copies the creation time into the session resumed from a ticket.
+     */
+    public static boolean isResumed(SSLSession session, long handshakeStarted) {
+        return session.getCreationTime() < handshakeStarted;
+    }
+
+    public long getFullHandshakes() {
+        return fullHandshakes.sum();
+    }
+
+    public long getResumedHandshakes() {
+        return resumedHandshakes.sum();
+    }
+}
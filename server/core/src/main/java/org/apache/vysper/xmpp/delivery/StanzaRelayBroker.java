@@ -57,6 +57,10 @@ public class StanzaRelayBroker implements StanzaRelay {
         this.internalRelay = internalRelay;
     }
 
+    public StanzaRelay getInternalRelay() {
+        return internalRelay;
+    }
+
     /**
      * a StanzaRelay receiving stanzas which are targeted to JIDs which are external to this server
      */
@@ -64,6 +68,10 @@ public class StanzaRelayBroker implements StanzaRelay {
         this.externalRelay = externalRelay;
     }
 
+    public StanzaRelay getExternalRelay() {
+        return externalRelay;
+    }
+
     public void setServerRuntimeContext(ServerRuntimeContext serverRuntimeContext) {
         this.serverRuntimeContext = serverRuntimeContext;
     }
@@ -25,6 +25,7 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -40,9 +41,15 @@ import org.apache.vysper.xmpp.delivery.failure.ServiceNotAvailableException;
 import org.apache.vysper.xmpp.protocol.NamespaceURIs;
 import org.apache.vysper.xmpp.server.InternalServerRuntimeContext;
 import org.apache.vysper.xmpp.server.InternalSessionContext;
+import org.apache.vysper.xmpp.server.jfr.FlightRecorderEvents;
+import org.apache.vysper.xmpp.server.resources.KeyedSerialExecutor;
 import org.apache.vysper.xmpp.server.resources.ManagedThreadPool;
 import org.apache.vysper.xmpp.server.resources.ManagedThreadPoolUtil;
+import org.apache.vysper.xmpp.server.resources.VirtualThreads;
 import org.apache.vysper.xmpp.server.s2s.XMPPServerConnector;
+import org.apache.vysper.xmpp.server.trace.StanzaTrace;
+import org.apache.vysper.xmpp.server.trace.StanzaTracer;
+import org.apache.vysper.xmpp.server.trace.TracePoint;
 import org.apache.vysper.xmpp.stanza.Stanza;
 import org.apache.vysper.xmpp.stanza.StanzaBuilder;
 import org.apache.vysper.xmpp.stanza.XMPPCoreStanza;
@@ -79,6 +86,11 @@ public class DeliveringExternalInboundStanzaRelay implements StanzaRelay, Manage
     
     protected ExecutorService executor;
 
+    /**
+     * set when relaying on virtual threads, keeps the stanzas to one remote domain in order
+     */
+    protected KeyedSerialExecutor domainExecutor;
+
     protected OfflineStanzaReceiver offlineStanzaReceiver = null;
 
     protected InternalServerRuntimeContext serverRuntimeContext = null;
@@ -102,6 +114,18 @@ public class DeliveringExternalInboundStanzaRelay implements StanzaRelay, Manage
         this.serverRuntimeContext = serverRuntimeContext;
     }
 
+    /**
+     * relays stanzas on virtual threads instead of the thread pool. stanzas to the same remote domain are
+     * handed to its connector one after the other, in the order they have been relayed.
+     * @throws UnsupportedOperationException if the JVM does not provide virtual threads
+     */
+    public void useVirtualThreads() {
+        ExecutorService virtualThreadExecutor = VirtualThreads.newThreadPerTaskExecutor("external-relay-");
+        executor.shutdown();
+        executor = virtualThreadExecutor;
+        domainExecutor = new KeyedSerialExecutor(virtualThreadExecutor);
+    }
+
     public void setMaxThreadCount(int maxThreadPoolCount) {
         if (!(executor instanceof ThreadPoolExecutor)) {
             throw new IllegalStateException("cannot set max thread count for " + executor.getClass());
@@ -120,6 +144,12 @@ public class DeliveringExternalInboundStanzaRelay implements StanzaRelay, Manage
     }
     
     public void dumpThreadPoolInfo(Writer writer) throws IOException {
+        if (domainExecutor != null) {
+            writer.append("==== externalRelay:").append("\n");
+            writer.append("virtual threads, active keys=\t").append(Integer.toString(domainExecutor.getActiveKeyCount()))
+                    .append("\n");
+            return;
+        }
         if (!(executor instanceof ThreadPoolExecutor)) {
             throw new IllegalStateException("cannot dump info for " + executor.getClass());
         }
@@ -137,6 +167,16 @@ public class DeliveringExternalInboundStanzaRelay implements StanzaRelay, Manage
         lastCompleted = completedTaskCount;
     }
 
+    public int getQueueDepth() {
+        if (domainExecutor != null) {
+            return domainExecutor.getPendingCount();
+        }
+        if (executor instanceof ThreadPoolExecutor) {
+            return ((ThreadPoolExecutor)executor).getQueue().size();
+        }
+        return 0;
+    }
+
     public void relay(InternalSessionContext sessionContext, Entity receiver, Stanza stanza, DeliveryFailureStrategy deliveryFailureStrategy)
             throws DeliveryException {
         
@@ -149,7 +189,16 @@ public class DeliveringExternalInboundStanzaRelay implements StanzaRelay, Manage
         XMPPCoreStanza coreStanza = XMPPCoreStanza.getWrapper(stanza);
         
         if(coreStanza != null) {
-            Future<RelayResult> resultFuture = executor.submit(new OutboundRelayCallable(coreStanza, deliveryFailureStrategy));
+            OutboundRelayCallable relayCallable = new OutboundRelayCallable(coreStanza, deliveryFailureStrategy);
+            if (domainExecutor == null) {
+                Future<RelayResult> resultFuture = executor.submit(relayCallable);
+            } else {
+                try {
+                    domainExecutor.execute(coreStanza.getTo().getDomain(), relayCallable::call);
+                } catch (RejectedExecutionException e) {
+                    logger.info("relaying of external inbound stanza has been rejected");
+                }
+            }
         } else {
             // ignore non-core stanzas
         }
@@ -168,18 +217,32 @@ public class DeliveringExternalInboundStanzaRelay implements StanzaRelay, Manage
 
         private DeliveryFailureStrategy deliveryFailureStrategy;
 
+        private final StanzaTrace trace = StanzaTracer.branchForRelay();
+
+        private final long enqueuedNanos = FlightRecorderEvents.isRelayDeliveryEnabled() ? System.nanoTime() : 0;
+
         OutboundRelayCallable(XMPPCoreStanza stanza, DeliveryFailureStrategy deliveryFailureStrategy) {
             this.stanza = stanza;
             this.deliveryFailureStrategy = deliveryFailureStrategy;
         }
 
         public RelayResult call() {
-            RelayResult relayResult = deliver();
+            StanzaTrace previousTrace = StanzaTracer.begin(trace);
+            Object jfrEvent = FlightRecorderEvents.beginRelayDelivery(enqueuedNanos);
+            RelayResult relayResult = null;
+            try {
+                StanzaTracer.stamp(TracePoint.RELAY_DEQUEUED);
+                relayResult = deliver();
 
-            if (relayResult == null || !relayResult.hasProcessingErrors()) {
-                return relayResult;
-            } else {
-                return runFailureStrategy(relayResult);
+                if (relayResult == null || !relayResult.hasProcessingErrors()) {
+                    return relayResult;
+                } else {
+                    return runFailureStrategy(relayResult);
+                }
+            } finally {
+                int fanOut = relayResult != null && !relayResult.hasProcessingErrors() ? 1 : 0;
+                FlightRecorderEvents.endRelayDelivery(jfrEvent, "external", stanza, fanOut);
+                StanzaTracer.end(trace, previousTrace);
             }
         }
 
@@ -27,6 +27,7 @@ import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -54,8 +55,15 @@ import org.apache.vysper.xmpp.server.InternalSessionContext;
 import org.apache.vysper.xmpp.server.ServerRuntimeContext;
 import org.apache.vysper.xmpp.server.SessionState;
 import org.apache.vysper.xmpp.server.components.ComponentRegistry;
+import org.apache.vysper.xmpp.server.jfr.FlightRecorderEvents;
+import org.apache.vysper.xmpp.server.logging.StanzaLogPipeline;
+import org.apache.vysper.xmpp.server.resources.KeyedSerialExecutor;
 import org.apache.vysper.xmpp.server.resources.ManagedThreadPool;
 import org.apache.vysper.xmpp.server.resources.ManagedThreadPoolUtil;
+import org.apache.vysper.xmpp.server.resources.VirtualThreads;
+import org.apache.vysper.xmpp.server.trace.StanzaTrace;
+import org.apache.vysper.xmpp.server.trace.StanzaTracer;
+import org.apache.vysper.xmpp.server.trace.TracePoint;
 import org.apache.vysper.xmpp.stanza.IQStanza;
 import org.apache.vysper.xmpp.stanza.MessageStanza;
 import org.apache.vysper.xmpp.stanza.MessageStanzaType;
@@ -104,6 +112,11 @@ public class DeliveringInternalInboundStanzaRelay implements StanzaRelay, Manage
 
     protected ExecutorService executor;
 
+    /**
+     * set when relaying on virtual threads, keeps the stanzas to one bare JID in order
+     */
+    protected KeyedSerialExecutor receiverExecutor;
+
     protected AccountManagement accountVerification;
 
     protected Entity serverEntity;
@@ -112,6 +125,8 @@ public class DeliveringInternalInboundStanzaRelay implements StanzaRelay, Manage
 
     protected LogStorageProvider logStorageProvider = null;
 
+    protected StanzaLogPipeline stanzaLogPipeline = StanzaLogPipeline.getDefault();
+
     protected long lastCompleted = 0;
 
     protected long lastDumpTimestamp = 0;
@@ -153,6 +168,25 @@ public class DeliveringInternalInboundStanzaRelay implements StanzaRelay, Manage
         this.logStorageProvider = logStorageProvider;
     }
 
+    /**
+     * the pipeline handing relayed stanzas to the {@link LogStorageProvider}, off the relaying thread
+     */
+    public void setStanzaLogPipeline(StanzaLogPipeline stanzaLogPipeline) {
+        this.stanzaLogPipeline = stanzaLogPipeline;
+    }
+
+    /**
+     * relays stanzas on virtual threads instead of the thread pool. stanzas to the same bare JID are
+     * delivered one after the other, in the order they have been relayed.
+     * @throws UnsupportedOperationException if the JVM does not provide virtual threads
+     */
+    public void useVirtualThreads() {
+        ExecutorService virtualThreadExecutor = VirtualThreads.newThreadPerTaskExecutor("internal-relay-");
+        executor.shutdown();
+        executor = virtualThreadExecutor;
+        receiverExecutor = new KeyedSerialExecutor(virtualThreadExecutor);
+    }
+
     public void setMaxThreadCount(int maxThreadPoolCount) {
         if (!(executor instanceof ThreadPoolExecutor)) {
             throw new IllegalStateException("cannot set max thread count for " + executor.getClass());
@@ -171,6 +205,12 @@ public class DeliveringInternalInboundStanzaRelay implements StanzaRelay, Manage
     }
 
     public void dumpThreadPoolInfo(Writer writer) throws IOException {
+        if (receiverExecutor != null) {
+            writer.append("==== internalRelay:").append("\n");
+            writer.append("virtual threads, active keys=\t").append(Integer.toString(receiverExecutor.getActiveKeyCount()))
+                    .append("\n");
+            return;
+        }
         if (!(executor instanceof ThreadPoolExecutor)) {
             throw new IllegalStateException("cannot dump info for " + executor.getClass());
         }
@@ -188,15 +228,34 @@ public class DeliveringInternalInboundStanzaRelay implements StanzaRelay, Manage
         lastCompleted = completedTaskCount;
     }
 
+    public int getQueueDepth() {
+        if (receiverExecutor != null) {
+            return receiverExecutor.getPendingCount();
+        }
+        if (executor instanceof ThreadPoolExecutor) {
+            return ((ThreadPoolExecutor) executor).getQueue().size();
+        }
+        return 0;
+    }
+
     public void relay(InternalSessionContext sessionContext, Entity receiver, Stanza stanza,
             DeliveryFailureStrategy deliveryFailureStrategy) throws DeliveryException {
         if (!isRelaying()) {
             throw new ServiceNotAvailableException("internal inbound relay is not relaying");
         }
 
-        executor.submit(new Relay(sessionContext, receiver, stanza, deliveryFailureStrategy));
+        Relay relay = new Relay(sessionContext, receiver, stanza, deliveryFailureStrategy);
+        if (receiverExecutor == null) {
+            executor.submit(relay);
+        } else {
+            try {
+                receiverExecutor.execute(receiver.getBareJID(), relay::call);
+            } catch (RejectedExecutionException e) {
+                LOG.info("relaying of internal inbound stanza has been rejected");
+            }
+        }
         if (this.logStorageProvider != null) {
-            this.logStorageProvider.logStanza(receiver, stanza);
+            this.stanzaLogPipeline.log(logStorageProvider, receiver, stanza);
         }
     }
 
@@ -219,6 +278,15 @@ public class DeliveringInternalInboundStanzaRelay implements StanzaRelay, Manage
 
         protected final UnmodifyableSessionStateHolder sessionStateHolder = new UnmodifyableSessionStateHolder();
 
+        private final StanzaTrace trace = StanzaTracer.branchForRelay();
+
+        private final long enqueuedNanos = FlightRecorderEvents.isRelayDeliveryEnabled() ? System.nanoTime() : 0;
+
+        /**
+         * number of sessions the stanza has been delivered to
+         */
+        private int fanOut;
+
         Relay(InternalSessionContext sessionContext, Entity receiver, Stanza stanza,
                 DeliveryFailureStrategy deliveryFailureStrategy) {
             this.sessionContext = sessionContext;
@@ -240,10 +308,18 @@ public class DeliveringInternalInboundStanzaRelay implements StanzaRelay, Manage
         }
 
         public RelayResult call() {
-            RelayResult relayResult = deliver();
-            if (relayResult == null || !relayResult.hasProcessingErrors())
-                return relayResult;
-            return runFailureStrategy(relayResult);
+            StanzaTrace previousTrace = StanzaTracer.begin(trace);
+            Object jfrEvent = FlightRecorderEvents.beginRelayDelivery(enqueuedNanos);
+            try {
+                StanzaTracer.stamp(TracePoint.RELAY_DEQUEUED);
+                RelayResult relayResult = deliver();
+                if (relayResult == null || !relayResult.hasProcessingErrors())
+                    return relayResult;
+                return runFailureStrategy(relayResult);
+            } finally {
+                FlightRecorderEvents.endRelayDelivery(jfrEvent, "internal", stanza, fanOut);
+                StanzaTracer.end(trace, previousTrace);
+            }
         }
 
         private RelayResult runFailureStrategy(RelayResult relayResult) {
@@ -411,6 +487,7 @@ public class DeliveringInternalInboundStanzaRelay implements StanzaRelay, Manage
                     StanzaHandler stanzaHandler = receivingSession.getServerRuntimeContext().getHandler(stanza);
                     inboundStanzaProtocolWorker.processStanza(serverRuntimeContext, receivingSession,
                             sessionStateHolder, stanza, stanzaHandler);
+                    fanOut++;
                 } catch (Exception e) {
                     relayResult.addProcessingError(new DeliveryException("no relay to non-authenticated sessions"));
                     continue;
@@ -449,6 +526,7 @@ public class DeliveringInternalInboundStanzaRelay implements StanzaRelay, Manage
                     StanzaHandler stanzaHandler = sessionContext.getServerRuntimeContext().getHandler(stanza);
                     inboundStanzaProtocolWorker.processStanza(serverRuntimeContext, sessionContext, sessionStateHolder,
                             stanza, stanzaHandler);
+                    fanOut++;
                 } catch (Exception e) {
                     relayResult.addProcessingError(new DeliveryException(e));
                 }
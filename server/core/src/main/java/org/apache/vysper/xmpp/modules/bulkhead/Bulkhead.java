@@ -0,0 +1,183 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.modules.bulkhead;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.vysper.xmpp.server.resources.ManagedThreadPoolUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * a bounded thread pool dedicated to one {@link ExecutionClass}.
+ * <br>
+ * the number of waiting tasks is limited by the queue capacity. tasks are admitted through
+ * {@link #tryReserve()} before they are queued, so a full bulkhead rejects new work right away
+ * instead of letting it pile up.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class Bulkhead {
+
+    private static final Logger LOG = LoggerFactory.getLogger(Bulkhead.class);
+
+    private final ExecutionClass executionClass;
+
+    private final int queueCapacity;
+
+    private final ThreadPoolExecutor executor;
+
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final AtomicLong completed = new AtomicLong();
+
+    private final AtomicLong rejected = new AtomicLong();
+
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    public Bulkhead(ExecutionClass executionClass, int threadCount, int queueCapacity) {
+        if (threadCount < 1) throw new IllegalArgumentException("threadCount must be at least 1");
+        if (queueCapacity < 1) throw new IllegalArgumentException("queueCapacity must be at least 1");
+        this.executionClass = executionClass;
+        this.queueCapacity = queueCapacity;
+        final String namePrefix = "bulkhead-" + executionClass.name().toLowerCase(Locale.US).replace('_', '-') + "-";
+        final AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> new Thread(runnable, namePrefix + threadNumber.incrementAndGet());
+        // the queue is bounded through the reservations, not by the executor
+        this.executor = new ThreadPoolExecutor(threadCount, threadCount, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), threadFactory);
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public ExecutionClass getExecutionClass() {
+        return executionClass;
+    }
+
+    /**
+     * reserves a place in the queue for a task to be run later
+     * @return false, if the queue is full
+     */
+    public boolean tryReserve() {
+        while (true) {
+            int current = queued.get();
+            if (current >= queueCapacity) {
+                rejected.incrementAndGet();
+                return false;
+            }
+            if (queued.compareAndSet(current, current + 1)) return true;
+        }
+    }
+
+    /**
+     * runs a task a place has been reserved for
+     * @param submittedNanos when the task has been submitted, for measuring its latency
+     * @param afterTask run after the task, even if it failed
+     */
+    void execute(final Runnable task, final long submittedNanos, final Runnable afterTask) {
+        executor.execute(() -> {
+            queued.decrementAndGet();
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                LOG.warn("task failed in {} bulkhead", executionClass, e);
+            } finally {
+                long latency = System.nanoTime() - submittedNanos;
+                completed.incrementAndGet();
+                totalLatencyNanos.addAndGet(latency);
+                maxLatencyNanos.accumulateAndGet(latency, Math::max);
+                afterTask.run();
+            }
+        });
+    }
+
+    /**
+     * gives back a place which has been reserved, but not used
+     */
+    void release() {
+        queued.decrementAndGet();
+    }
+
+    /**
+     * @return the number of tasks waiting to be run
+     */
+    public int getQueueDepth() {
+        return queued.get();
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public int getThreadCount() {
+        return executor.getMaximumPoolSize();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public long getCompletedCount() {
+        return completed.get();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * @return the average time from submission to completion of a task
+     */
+    public long getAverageLatencyMicros() {
+        long count = completed.get();
+        return count == 0 ? 0 : totalLatencyNanos.get() / count / 1000;
+    }
+
+    public long getMaxLatencyMicros() {
+        return maxLatencyNanos.get() / 1000;
+    }
+
+    public void dumpInfo(Writer writer) throws IOException {
+        writer.append("==== bulkhead ").append(executionClass.name()).append(":\n");
+        ManagedThreadPoolUtil.writeThreadPoolInfo(writer, executor);
+        writer.append("queueDepth=\t").append(Integer.toString(getQueueDepth())).append(" of ")
+                .append(Integer.toString(queueCapacity)).append("\n");
+        writer.append("rejected=\t").append(Long.toString(getRejectedCount())).append("\n");
+        writer.append("latency=\t").append(Long.toString(getAverageLatencyMicros())).append(" us avg, ")
+                .append(Long.toString(getMaxLatencyMicros())).append(" us max\n");
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    public boolean isShutdown() {
+        return executor.isShutdown();
+    }
+}
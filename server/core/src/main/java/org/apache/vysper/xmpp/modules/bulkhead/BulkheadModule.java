@@ -0,0 +1,100 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.modules.bulkhead;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.vysper.xmpp.modules.DefaultModule;
+import org.apache.vysper.xmpp.modules.ServerRuntimeContextService;
+
+/**
+ * isolates storage bound request handling from message routing. with this module added, IQ handlers
+ * declaring an {@link ExecutionClass} (see
+ * {@link org.apache.vysper.xmpp.modules.core.base.handler.DefaultIQHandler#getExecutionClass(org.apache.vysper.xmpp.stanza.IQStanza)})
+ * run in the bounded pool of that class, and write their response when done. without it, all handlers
+ * run on the session's thread, as before.
+ * <br>
+ * the pools have to be configured before the module is added to the server.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class BulkheadModule extends DefaultModule {
+
+    private final Map<ExecutionClass, int[]> configuration = new EnumMap<ExecutionClass, int[]>(ExecutionClass.class);
+
+    private BulkheadService bulkheadService;
+
+    public BulkheadModule() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        setBulkhead(ExecutionClass.STORAGE_READ, 2 * cores, 1000);
+        setBulkhead(ExecutionClass.STORAGE_WRITE, cores, 1000);
+        setBulkhead(ExecutionClass.ADMIN, 2, 100);
+    }
+
+    /**
+     * sets the size of the pool for an execution class. {@link ExecutionClass#ROUTING} always runs
+     * on the session's thread and cannot be configured.
+     */
+    public void setBulkhead(ExecutionClass executionClass, int threadCount, int queueCapacity) {
+        if (executionClass == ExecutionClass.ROUTING) {
+            throw new IllegalArgumentException("routing is not run in a bulkhead");
+        }
+        if (bulkheadService != null) {
+            throw new IllegalStateException("bulkheads are already running");
+        }
+        configuration.put(executionClass, new int[] { threadCount, queueCapacity });
+    }
+
+    @Override
+    public String getName() {
+        return "Bulkheads";
+    }
+
+    @Override
+    public String getVersion() {
+        return "1.0";
+    }
+
+    @Override
+    protected void addServerServices(List<ServerRuntimeContextService> serviceList) {
+        serviceList.add(getBulkheadService());
+    }
+
+    public synchronized BulkheadService getBulkheadService() {
+        if (bulkheadService == null) {
+            Map<ExecutionClass, Bulkhead> bulkheads = new EnumMap<ExecutionClass, Bulkhead>(ExecutionClass.class);
+            for (Map.Entry<ExecutionClass, int[]> entry : configuration.entrySet()) {
+                bulkheads.put(entry.getKey(),
+                        new Bulkhead(entry.getKey(), entry.getValue()[0], entry.getValue()[1]));
+            }
+            bulkheadService = new BulkheadService(bulkheads);
+        }
+        return bulkheadService;
+    }
+
+    @Override
+    public void close() {
+        if (bulkheadService != null) {
+            bulkheadService.shutdown();
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.modules.bulkhead;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.vysper.xmpp.modules.ServerRuntimeContextService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * runs tasks in the {@link Bulkhead} of their {@link ExecutionClass}.
+ * <br>
+ * tasks sharing an ordering key, usually the session they originate from, are run one after the other
+ * in submission order, even if they run in different bulkheads. this way a client reading its vCard
+ * right after writing it gets the new one.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class BulkheadService implements ServerRuntimeContextService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BulkheadService.class);
+
+    public static final String SERVICE_NAME = "bulkheads";
+
+    private final Map<ExecutionClass, Bulkhead> bulkheads;
+
+    private final ConcurrentMap<Object, Lane> lanes = new ConcurrentHashMap<Object, Lane>();
+
+    public BulkheadService(Map<ExecutionClass, Bulkhead> bulkheads) {
+        Map<ExecutionClass, Bulkhead> copy = new EnumMap<ExecutionClass, Bulkhead>(ExecutionClass.class);
+        copy.putAll(bulkheads);
+        this.bulkheads = Collections.unmodifiableMap(copy);
+    }
+
+    public String getServiceName() {
+        return SERVICE_NAME;
+    }
+
+    /**
+     * @return the bulkhead of the execution class, or null, if tasks of this class are run directly
+     */
+    public Bulkhead getBulkhead(ExecutionClass executionClass) {
+        return bulkheads.get(executionClass);
+    }
+
+    public Map<ExecutionClass, Bulkhead> getBulkheads() {
+        return bulkheads;
+    }
+
+    /**
+     * submits a task to the bulkhead of its execution class. if there is no bulkhead for the class,
+     * the task is run directly.
+     * @param orderingKey tasks with the same key are run in submission order, null for no ordering
+     * @return false, if the bulkhead is full and the task has been rejected
+     */
+    public boolean execute(ExecutionClass executionClass, Object orderingKey, Runnable task) {
+        Bulkhead bulkhead = bulkheads.get(executionClass);
+        if (bulkhead == null) {
+            task.run();
+            return true;
+        }
+        if (bulkhead.isShutdown() || !bulkhead.tryReserve()) {
+            return false;
+        }
+        LaneEntry entry = new LaneEntry(bulkhead, task, System.nanoTime());
+        Object key = orderingKey == null ? entry : orderingKey;
+        while (true) {
+            Lane lane = lanes.computeIfAbsent(key, Lane::new);
+            synchronized (lane) {
+                if (lane.retired) continue;
+                if (lane.running) {
+                    lane.pending.add(entry);
+                    return true;
+                }
+                lane.running = true;
+            }
+            lane.start(entry);
+            return true;
+        }
+    }
+
+    public void dumpInfo(Writer writer) throws IOException {
+        for (Bulkhead bulkhead : bulkheads.values()) {
+            bulkhead.dumpInfo(writer);
+        }
+    }
+
+    public void shutdown() {
+        for (Bulkhead bulkhead : bulkheads.values()) {
+            bulkhead.shutdown();
+        }
+    }
+
+    private static class LaneEntry {
+
+        private final Bulkhead bulkhead;
+
+        private final Runnable task;
+
+        private final long submittedNanos;
+
+        LaneEntry(Bulkhead bulkhead, Runnable task, long submittedNanos) {
+            this.bulkhead = bulkhead;
+            this.task = task;
+            this.submittedNanos = submittedNanos;
+        }
+    }
+
+    /**
+     * the tasks of one ordering key. only one of them is handed to a bulkhead at a time, the next one
+     * is started when it completes.
+     */
+    private class Lane {
+
+        private final Object key;
+
+        private final Queue<LaneEntry> pending = new ArrayDeque<LaneEntry>();
+
+        private boolean running = false;
+
+        private boolean retired = false;
+
+        Lane(Object key) {
+            this.key = key;
+        }
+
+        void start(LaneEntry entry) {
+            while (entry != null) {
+                try {
+                    entry.bulkhead.execute(entry.task, entry.submittedNanos, this::advance);
+                    return;
+                } catch (RejectedExecutionException e) {
+                    LOG.info("{} bulkhead is shut down, dropping task", entry.bulkhead.getExecutionClass());
+                    entry.bulkhead.release();
+                    entry = next();
+                }
+            }
+        }
+
+        void advance() {
+            LaneEntry next = next();
+            if (next != null) start(next);
+        }
+
+        private synchronized LaneEntry next() {
+            LaneEntry next = pending.poll();
+            if (next == null) {
+                running = false;
+                retired = true;
+                lanes.remove(key, this);
+            }
+            return next;
+        }
+    }
+}
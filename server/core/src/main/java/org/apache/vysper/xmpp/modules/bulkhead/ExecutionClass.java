@@ -0,0 +1,60 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.modules.bulkhead;
+
+import org.apache.vysper.xmpp.stanza.IQStanza;
+import org.apache.vysper.xmpp.stanza.IQStanzaType;
+
+/**
+ * classes of stanza processing which are isolated from each other by running in their own
+ * {@link Bulkhead}, so that a slow storage backend cannot starve message routing.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public enum ExecutionClass {
+
+    /**
+     * routing of messages and presence. this is executed directly on the session's thread and never
+     * moved to a bulkhead.
+     */
+    ROUTING,
+
+    /**
+     * requests reading from storage, like retrieving a roster, vCard or archived messages
+     */
+    STORAGE_READ,
+
+    /**
+     * requests writing to storage
+     */
+    STORAGE_WRITE,
+
+    /**
+     * administrative requests, like ad-hoc commands
+     */
+    ADMIN;
+
+    /**
+     * @return {@link #STORAGE_READ} for gets, {@link #STORAGE_WRITE} for all other IQs
+     */
+    public static ExecutionClass forStorageAccess(IQStanza stanza) {
+        return stanza.getIQType() == IQStanzaType.GET ? STORAGE_READ : STORAGE_WRITE;
+    }
+}
@@ -22,11 +22,14 @@ package org.apache.vysper.xmpp.modules.core.base.handler;
 import java.util.Collections;
 import java.util.List;
 
+import org.apache.vysper.xmpp.modules.bulkhead.BulkheadService;
+import org.apache.vysper.xmpp.modules.bulkhead.ExecutionClass;
 import org.apache.vysper.xmpp.protocol.StanzaBroker;
 import org.apache.vysper.xmpp.server.ServerRuntimeContext;
 import org.apache.vysper.xmpp.server.SessionContext;
 import org.apache.vysper.xmpp.server.response.ServerErrorResponses;
 import org.apache.vysper.xmpp.stanza.IQStanza;
+import org.apache.vysper.xmpp.stanza.IQStanzaType;
 import org.apache.vysper.xmpp.stanza.Stanza;
 import org.apache.vysper.xmpp.stanza.StanzaErrorCondition;
 import org.apache.vysper.xmpp.stanza.StanzaErrorType;
@@ -67,16 +70,78 @@ public abstract class DefaultIQHandler extends IQHandler {
             handleError(stanza, serverRuntimeContext, sessionContext);
             return null;
         case GET:
-            return handleGet(stanza, serverRuntimeContext, sessionContext, stanzaBroker);
+        case SET:
+            beforeExecution(stanza, serverRuntimeContext, sessionContext);
+            ExecutionClass executionClass = getExecutionClass(stanza);
+            BulkheadService bulkheadService = executionClass == null ? null
+                    : (BulkheadService) serverRuntimeContext.getServerRuntimeContextService(BulkheadService.SERVICE_NAME);
+            if (bulkheadService != null && bulkheadService.getBulkhead(executionClass) != null) {
+                return executeInBulkhead(bulkheadService, executionClass, stanza, serverRuntimeContext,
+                        sessionContext, stanzaBroker);
+            }
+            return handleGetOrSet(stanza, serverRuntimeContext, sessionContext, stanzaBroker);
         case RESULT:
             return handleResult(stanza, serverRuntimeContext, sessionContext, stanzaBroker);
-        case SET:
-            return handleSet(stanza, serverRuntimeContext, sessionContext, stanzaBroker);
         default:
             throw new RuntimeException("iq stanza type not supported: " + stanza.getIQType().value());
         }
     }
 
+    /**
+     * the class of work a get or set is doing. if the server runs a
+     * {@link org.apache.vysper.xmpp.modules.bulkhead.BulkheadModule}, the request is handled in the bulkhead
+     * of this class, and the response is written to the session when done. null (the default) or
+     * {@link ExecutionClass#ROUTING} handle it directly on the session's thread.
+     */
+    protected ExecutionClass getExecutionClass(IQStanza stanza) {
+        return null;
+    }
+
+    /**
+     * called on the session's thread right before a get or set is handled, even if it is handled in a
+     * bulkhead. session state which the following stanzas of the session rely on is updated here.
+     */
+    protected void beforeExecution(IQStanza stanza, ServerRuntimeContext serverRuntimeContext,
+            SessionContext sessionContext) {
+        // empty default implementation
+    }
+
+    private List<Stanza> handleGetOrSet(IQStanza stanza, ServerRuntimeContext serverRuntimeContext,
+            SessionContext sessionContext, StanzaBroker stanzaBroker) {
+        if (stanza.getIQType() == IQStanzaType.GET) {
+            return handleGet(stanza, serverRuntimeContext, sessionContext, stanzaBroker);
+        }
+        return handleSet(stanza, serverRuntimeContext, sessionContext, stanzaBroker);
+    }
+
+    private List<Stanza> executeInBulkhead(BulkheadService bulkheadService, ExecutionClass executionClass,
+            final IQStanza stanza, final ServerRuntimeContext serverRuntimeContext,
+            final SessionContext sessionContext, final StanzaBroker stanzaBroker) {
+        boolean accepted = bulkheadService.execute(executionClass, sessionContext, () -> {
+            List<Stanza> responses;
+            try {
+                responses = handleGetOrSet(stanza, serverRuntimeContext, sessionContext, stanzaBroker);
+            } catch (RuntimeException e) {
+                logger.error("failed to handle IQ in " + executionClass + " bulkhead: "
+                        + DenseStanzaLogRenderer.render(stanza), e);
+                responses = Collections.singletonList(ServerErrorResponses.getStanzaError(
+                        StanzaErrorCondition.INTERNAL_SERVER_ERROR, stanza, StanzaErrorType.CANCEL, null,
+                        getErrorLanguage(serverRuntimeContext, sessionContext), null));
+            }
+            if (responses != null) {
+                responses.forEach(stanzaBroker::writeToSession);
+            }
+        });
+        if (!accepted) {
+            return Collections.singletonList(ServerErrorResponses.getStanzaError(
+                    StanzaErrorCondition.RESOURCE_CONSTRAINT, stanza, StanzaErrorType.WAIT,
+                    "server is busy, try again later", getErrorLanguage(serverRuntimeContext, sessionContext),
+                    null));
+        }
+        // the response is written when the bulkhead is done
+        return null;
+    }
+
     protected List<Stanza> handleResult(IQStanza stanza, ServerRuntimeContext serverRuntimeContext,
                                         SessionContext sessionContext, StanzaBroker stanzaBroker) {
         logger.warn("IQ 'result' stanza not handled by {}: {}", getClass().getCanonicalName(),
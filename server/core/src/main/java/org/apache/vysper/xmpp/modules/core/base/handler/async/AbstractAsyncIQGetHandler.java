@@ -46,6 +46,8 @@ abstract public class AbstractAsyncIQGetHandler extends IQHandler {
 
     /**
      * handles the actutal business logic invocation (separate thread, remote call etc.)
+     * for backends blocking on I/O, {@link org.apache.vysper.xmpp.server.resources.VirtualThreads#newThreadPerTaskExecutor(String)}
+     * saves sizing a thread pool on Java 21 or later.
      */
     protected Executor serviceExecutor;
 
@@ -271,9 +271,9 @@ public class PresenceAvailabilityHandler extends AbstractPresenceSpecializedHand
             logger.warn("No Offline Storage Provider configured");
         } else {
             Collection<Stanza> offlineStanzas = offlineProvider.getStanzasFor(user);
-            for (Stanza stanza : offlineStanzas) {
-                logger.debug("Sending out delayed offline stanza");
-                stanzaBroker.writeToSession(stanza);
+            if (!offlineStanzas.isEmpty()) {
+                logger.debug("Sending out {} delayed offline stanzas", offlineStanzas.size());
+                stanzaBroker.writeToSession(offlineStanzas);
             }
         }
 
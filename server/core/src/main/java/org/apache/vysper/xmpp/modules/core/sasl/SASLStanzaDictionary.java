@@ -19,7 +19,9 @@
  */
 package org.apache.vysper.xmpp.modules.core.sasl;
 
+import org.apache.vysper.xmpp.modules.core.sasl.handler.AbortHandler;
 import org.apache.vysper.xmpp.modules.core.sasl.handler.AuthHandler;
+import org.apache.vysper.xmpp.modules.core.sasl.handler.ResponseHandler;
 import org.apache.vysper.xmpp.protocol.NamespaceHandlerDictionary;
 import org.apache.vysper.xmpp.protocol.NamespaceURIs;
 
@@ -34,6 +36,8 @@ public class SASLStanzaDictionary extends NamespaceHandlerDictionary {
     public SASLStanzaDictionary() {
         super(NamespaceURIs.URN_IETF_PARAMS_XML_NS_XMPP_SASL);
         register(new AuthHandler());
+        register(new ResponseHandler());
+        register(new AbortHandler());
         seal();
     }
 }
\ No newline at end of file
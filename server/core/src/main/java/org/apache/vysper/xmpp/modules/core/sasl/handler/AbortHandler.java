@@ -44,7 +44,7 @@ public class AbortHandler extends AbstractSASLHandler {
         AuthorizationRetriesCounter counter = AuthorizationRetriesCounter.getFromSession(sessionContext);
         boolean moreTriesLeft = counter.countFailedTry(); // record that client aborted
 
-        // TODO do more clean-ups as mechanism requires.
+        abortMechanism(sessionContext);
 
         return new ServerResponses().getAuthAborted();
     }
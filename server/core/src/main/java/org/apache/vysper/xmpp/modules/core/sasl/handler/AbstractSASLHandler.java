@@ -19,7 +19,11 @@
  */
 package org.apache.vysper.xmpp.modules.core.sasl.handler;
 
+import java.util.List;
+
 import org.apache.vysper.xml.fragment.XMLElementVerifier;
+import org.apache.vysper.xmpp.authentication.ChallengeResponseMechanism;
+import org.apache.vysper.xmpp.authentication.SASLMechanism;
 import org.apache.vysper.xmpp.modules.core.sasl.AuthorizationRetriesCounter;
 import org.apache.vysper.xmpp.modules.core.sasl.SASLFailureType;
 import org.apache.vysper.xmpp.protocol.NamespaceURIs;
@@ -39,6 +43,12 @@ import org.apache.vysper.xmpp.stanza.Stanza;
  * @author The Apache MINA Project (dev@mina.apache.org)
  */
 public abstract class AbstractSASLHandler implements StanzaHandler {
+
+    /**
+     * the {@link ChallengeResponseMechanism} waiting for the client's response
+     */
+    public static final String SESSION_ATTRIBUTE_MECHANISM_IN_PROGRESS = "saslMechanismInProgress";
+
     public boolean verify(Stanza stanza) {
         if (stanza == null)
             return false;
@@ -58,7 +68,7 @@ public abstract class AbstractSASLHandler implements StanzaHandler {
         }
 
         XMLElementVerifier xmlElementVerifier = stanza.getVerifier();
-        boolean saslNamespace = xmlElementVerifier.namespacePresent(NamespaceURIs.URN_IETF_PARAMS_XML_NS_XMPP_SASL);
+        boolean saslNamespace = xmlElementVerifier.namespacePresent(getNamespace());
 
         if (!saslNamespace) {
             stanzaBroker.writeToSession(buildSASLFailure());
@@ -74,7 +84,98 @@ public abstract class AbstractSASLHandler implements StanzaHandler {
             return;
         }
 
-        stanzaBroker.writeToSession(executeWorker(stanza, sessionContext, sessionStateHolder));
+        Stanza responseStanza = executeWorker(stanza, sessionContext, sessionStateHolder);
+        stanzaBroker.writeToSession(responseStanza);
+        responseWritten(responseStanza, sessionContext, sessionStateHolder, stanzaBroker);
+    }
+
+    /**
+     * @return the namespace of the SASL profile the handled elements belong to
+     */
+    protected String getNamespace() {
+        return NamespaceURIs.URN_IETF_PARAMS_XML_NS_XMPP_SASL;
+    }
+
+    /**
+     * called after the response to the handled element has been written
+     */
+    protected void responseWritten(Stanza responseStanza, SessionContext sessionContext,
+            SessionStateHolder sessionStateHolder, StanzaBroker stanzaBroker) {
+        // nothing more to write
+    }
+
+    /**
+     * @return the offered mechanism with the given name, or null
+     */
+    protected SASLMechanism findMechanism(String mechanismName, SessionContext sessionContext) {
+        List<SASLMechanism> list = sessionContext.getServerRuntimeContext().getServerFeatures()
+                .getAuthenticationMethods();
+        for (SASLMechanism saslMechanism : list) {
+            if (saslMechanism.getName().equals(mechanismName)) {
+                return saslMechanism;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * starts an exchange with the mechanism, ending an exchange still waiting for a response
+     * @return the mechanism's response
+     */
+    protected Stanza startMechanism(SASLMechanism mechanism, Stanza authStanza, SessionContext sessionContext,
+            SessionStateHolder sessionStateHolder) {
+        abortMechanism(sessionContext);
+
+        Stanza responseStanza = mechanism.started(sessionContext, sessionStateHolder, authStanza);
+        return countTry(responseStanza, mechanism, sessionContext, sessionStateHolder);
+    }
+
+    /**
+     * passes the client's answer to a challenge on to the mechanism which has sent it
+     * @return the mechanism's response, or null, if there has been no challenge
+     */
+    protected Stanza respondToMechanism(Stanza responseStanza, SessionContext sessionContext,
+            SessionStateHolder sessionStateHolder) {
+        ChallengeResponseMechanism mechanism = removeMechanismInProgress(sessionContext);
+        if (mechanism == null) {
+            AuthorizationRetriesCounter.getFromSession(sessionContext).countFailedTry();
+            return null;
+        }
+
+        Stanza mechanismResponse = mechanism.responded(sessionContext, sessionStateHolder, responseStanza);
+        return countTry(mechanismResponse, mechanism, sessionContext, sessionStateHolder);
+    }
+
+    /**
+     * ends the exchange waiting for the client's response, if any
+     */
+    protected void abortMechanism(SessionContext sessionContext) {
+        ChallengeResponseMechanism mechanismInProgress = removeMechanismInProgress(sessionContext);
+        if (mechanismInProgress != null) {
+            mechanismInProgress.aborted(sessionContext);
+        }
+    }
+
+    /**
+     * keeps the mechanism of an exchange which continues with a response, and counts the tries
+     */
+    protected Stanza countTry(Stanza responseStanza, SASLMechanism mechanism, SessionContext sessionContext,
+            SessionStateHolder sessionStateHolder) {
+        if (sessionStateHolder.getState() == SessionState.AUTHENTICATED) {
+            AuthorizationRetriesCounter.removeFromSession(sessionContext);
+        } else if (mechanism instanceof ChallengeResponseMechanism && responseStanza.getName().equals("challenge")) {
+            sessionContext.putAttribute(SESSION_ATTRIBUTE_MECHANISM_IN_PROGRESS, mechanism);
+        } else {
+            AuthorizationRetriesCounter.getFromSession(sessionContext).countFailedTry();
+        }
+        return responseStanza;
+    }
+
+    /**
+     * @return the mechanism which has been waiting for the client's response, or null
+     */
+    protected ChallengeResponseMechanism removeMechanismInProgress(SessionContext sessionContext) {
+        return (ChallengeResponseMechanism) sessionContext.putAttribute(SESSION_ATTRIBUTE_MECHANISM_IN_PROGRESS, null);
     }
 
     protected Stanza buildSASLFailure() {
@@ -19,13 +19,9 @@
  */
 package org.apache.vysper.xmpp.modules.core.sasl.handler;
 
-import java.util.List;
-
 import org.apache.vysper.xmpp.authentication.SASLMechanism;
-import org.apache.vysper.xmpp.modules.core.sasl.AuthorizationRetriesCounter;
 import org.apache.vysper.xmpp.protocol.SessionStateHolder;
 import org.apache.vysper.xmpp.server.SessionContext;
-import org.apache.vysper.xmpp.server.SessionState;
 import org.apache.vysper.xmpp.stanza.Stanza;
 
 /**
@@ -49,27 +45,11 @@ public class AuthHandler extends AbstractSASLHandler {
             return buildSASLFailure();
         }
 
-        SASLMechanism identifiedMechanism = null;
-
-        List<SASLMechanism> list = sessionContext.getServerRuntimeContext().getServerFeatures()
-                .getAuthenticationMethods();
-        for (SASLMechanism saslMechanism : list) {
-            if (saslMechanism.getName().equals(requestedMechanism)) {
-                identifiedMechanism = saslMechanism;
-                break;
-            }
-        }
+        SASLMechanism identifiedMechanism = findMechanism(requestedMechanism, sessionContext);
         if (identifiedMechanism == null)
             throw new RuntimeException("return error");
 
-        Stanza responseStanza = identifiedMechanism.started(sessionContext, sessionStateHolder, stanza);
-        if (sessionStateHolder.getState() == SessionState.AUTHENTICATED) {
-            AuthorizationRetriesCounter.removeFromSession(sessionContext);
-        } else {
-            AuthorizationRetriesCounter.getFromSession(sessionContext).countFailedTry();
-        }
-
-        return responseStanza;
+        return startMechanism(identifiedMechanism, stanza, sessionContext, sessionStateHolder);
     }
 
 }
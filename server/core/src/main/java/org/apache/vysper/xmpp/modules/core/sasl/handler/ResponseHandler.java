@@ -0,0 +1,48 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.modules.core.sasl.handler;
+
+import org.apache.vysper.xmpp.protocol.SessionStateHolder;
+import org.apache.vysper.xmpp.server.SessionContext;
+import org.apache.vysper.xmpp.stanza.Stanza;
+
+/**
+ * passes the client's answer to a challenge on to the mechanism which has sent it
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class ResponseHandler extends AbstractSASLHandler {
+    public String getName() {
+        return "response";
+    }
+
+    public boolean isSessionRequired() {
+        return true;
+    }
+
+    @Override
+    protected Stanza executeWorker(Stanza stanza, SessionContext sessionContext,
+            SessionStateHolder sessionStateHolder) {
+        Stanza responseStanza = respondToMechanism(stanza, sessionContext, sessionStateHolder);
+        // there has been no challenge
+        return responseStanza == null ? buildSASLFailure() : responseStanza;
+    }
+
+}
@@ -23,6 +23,7 @@ import org.apache.vysper.compliance.SpecCompliant;
 import org.apache.vysper.xml.fragment.Renderer;
 import org.apache.vysper.xml.fragment.XMLElement;
 import org.apache.vysper.xmpp.addressing.Entity;
+import org.apache.vysper.xmpp.modules.bulkhead.ExecutionClass;
 import org.apache.vysper.xmpp.modules.core.base.handler.DefaultIQHandler;
 import org.apache.vysper.xmpp.parser.XMLParserUtil;
 import org.apache.vysper.xmpp.protocol.NamespaceURIs;
@@ -58,6 +59,11 @@ public class PrivateDataIQHandler extends DefaultIQHandler {
         return verifyInnerElementWorker(stanza, "query") && verifyInnerNamespace(stanza, NamespaceURIs.PRIVATE_DATA);
     }
 
+    @Override
+    protected ExecutionClass getExecutionClass(IQStanza stanza) {
+        return ExecutionClass.forStorageAccess(stanza);
+    }
+
     @Override
     protected List<Stanza> handleSet(IQStanza stanza, ServerRuntimeContext serverRuntimeContext, SessionContext sessionContext, StanzaBroker stanzaBroker) {
         // Get From
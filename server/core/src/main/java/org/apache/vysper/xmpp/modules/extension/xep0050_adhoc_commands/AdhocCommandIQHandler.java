@@ -22,14 +22,15 @@ package org.apache.vysper.xmpp.modules.extension.xep0050_adhoc_commands;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.vysper.xml.fragment.XMLElement;
 import org.apache.vysper.xml.fragment.XMLSemanticError;
 import org.apache.vysper.xmpp.addressing.Entity;
+import org.apache.vysper.xmpp.modules.bulkhead.ExecutionClass;
 import org.apache.vysper.xmpp.modules.core.base.handler.DefaultIQHandler;
 import org.apache.vysper.xmpp.protocol.NamespaceURIs;
 import org.apache.vysper.xmpp.protocol.StanzaBroker;
@@ -48,7 +49,7 @@ import org.apache.vysper.xmpp.stanza.StanzaErrorType;
 public class AdhocCommandIQHandler extends DefaultIQHandler {
 
     protected final Collection<AdhocCommandSupport> adhocCommandSupporters;
-    protected final Map<String, AdhocCommandHandler> runningCommands = new HashMap<String, AdhocCommandHandler>();
+    protected final Map<String, AdhocCommandHandler> runningCommands = new ConcurrentHashMap<String, AdhocCommandHandler>();
 
     public AdhocCommandIQHandler(Collection<AdhocCommandSupport> adhocCommandSupporters) {
         this.adhocCommandSupporters = adhocCommandSupporters;
@@ -64,6 +65,11 @@ public class AdhocCommandIQHandler extends DefaultIQHandler {
         return verifyInnerElementWorker(stanza, "command");
     }
 
+    @Override
+    protected ExecutionClass getExecutionClass(IQStanza stanza) {
+        return ExecutionClass.ADMIN;
+    }
+
     @Override
     protected List<Stanza> handleSet(IQStanza stanza, ServerRuntimeContext serverRuntimeContext, SessionContext sessionContext, StanzaBroker stanzaBroker) {
         Entity from = stanza.getFrom();
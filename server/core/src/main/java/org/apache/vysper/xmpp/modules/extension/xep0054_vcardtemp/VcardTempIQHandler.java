@@ -24,6 +24,7 @@ import org.apache.vysper.xml.fragment.Renderer;
 import org.apache.vysper.xml.fragment.XMLElement;
 import org.apache.vysper.xml.fragment.XMLSemanticError;
 import org.apache.vysper.xmpp.addressing.Entity;
+import org.apache.vysper.xmpp.modules.bulkhead.ExecutionClass;
 import org.apache.vysper.xmpp.modules.core.base.handler.DefaultIQHandler;
 import org.apache.vysper.xmpp.parser.XMLParserUtil;
 import org.apache.vysper.xmpp.protocol.NamespaceURIs;
@@ -62,6 +63,11 @@ public class VcardTempIQHandler extends DefaultIQHandler {
         return verifyInnerElementWorker(stanza, "vCard") && verifyInnerNamespace(stanza, NamespaceURIs.VCARD_TEMP);
     }
 
+    @Override
+    protected ExecutionClass getExecutionClass(IQStanza stanza) {
+        return ExecutionClass.forStorageAccess(stanza);
+    }
+
     @Override
     protected List<Stanza> handleSet(IQStanza stanza, ServerRuntimeContext serverRuntimeContext, SessionContext sessionContext, StanzaBroker stanzaBroker) {
         Entity to = stanza.getTo();
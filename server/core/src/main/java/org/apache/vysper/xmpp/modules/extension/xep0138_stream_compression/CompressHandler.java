@@ -0,0 +1,110 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.modules.extension.xep0138_stream_compression;
+
+import java.util.List;
+
+import org.apache.vysper.xml.fragment.XMLElement;
+import org.apache.vysper.xml.fragment.XMLText;
+import org.apache.vysper.xmpp.protocol.NamespaceURIs;
+import org.apache.vysper.xmpp.protocol.SessionStateHolder;
+import org.apache.vysper.xmpp.protocol.StanzaBroker;
+import org.apache.vysper.xmpp.protocol.StanzaHandler;
+import org.apache.vysper.xmpp.server.ServerRuntimeContext;
+import org.apache.vysper.xmpp.server.SessionContext;
+import org.apache.vysper.xmpp.server.SessionState;
+import org.apache.vysper.xmpp.stanza.Stanza;
+import org.apache.vysper.xmpp.stanza.StanzaBuilder;
+
+/**
+ * handles &lt;compress/&gt;. clients may compress after authentication but before binding a
+ * resource, servers once the stream has been encrypted. &lt;compressed/&gt; is the last element
+ * sent uncompressed, after it the stream is restarted.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class CompressHandler implements StanzaHandler {
+
+    private final StreamCompressionModule module;
+
+    public CompressHandler(StreamCompressionModule module) {
+        this.module = module;
+    }
+
+    public String getName() {
+        return "compress";
+    }
+
+    public boolean verify(Stanza stanza) {
+        if (stanza == null)
+            return false;
+        if (!getName().equals(stanza.getName()))
+            return false;
+        return NamespaceURIs.XEP0138_STREAM_COMPRESSION.equals(stanza.getNamespaceURI());
+    }
+
+    public boolean isSessionRequired() {
+        return true;
+    }
+
+    public void execute(Stanza stanza, ServerRuntimeContext serverRuntimeContext, boolean isOutboundStanza,
+            SessionContext sessionContext, SessionStateHolder sessionStateHolder, StanzaBroker stanzaBroker) {
+        if (!isZlibRequested(stanza)) {
+            stanzaBroker.writeToSession(buildFailure("unsupported-method"));
+            return;
+        }
+        if (!(sessionContext instanceof CompressibleSession) || ((CompressibleSession) sessionContext).isCompressed()
+                || !isCompressionAllowed(serverRuntimeContext, sessionContext, sessionStateHolder)) {
+            stanzaBroker.writeToSession(buildFailure("setup-failed"));
+            return;
+        }
+
+        CompressibleSession session = (CompressibleSession) sessionContext;
+        session.switchToCompression(true, module.getCompressionLevel());
+        stanzaBroker.writeToSession(new StanzaBuilder("compressed", NamespaceURIs.XEP0138_STREAM_COMPRESSION).build());
+        // the initiating entity restarts the stream, compressed
+        session.setIsReopeningXMLStream();
+    }
+
+    private boolean isZlibRequested(Stanza stanza) {
+        List<XMLElement> methods = stanza.getInnerElementsNamed("method", NamespaceURIs.XEP0138_STREAM_COMPRESSION);
+        for (XMLElement method : methods) {
+            XMLText name = method.getInnerText();
+            if (name != null && StreamCompressionModule.METHOD_ZLIB.equals(name.getText().trim())) return true;
+        }
+        return false;
+    }
+
+    private boolean isCompressionAllowed(ServerRuntimeContext serverRuntimeContext, SessionContext sessionContext,
+            SessionStateHolder sessionStateHolder) {
+        SessionState state = sessionStateHolder.getState();
+        if (sessionContext.isServerToServer()) {
+            return state == SessionState.ENCRYPTED || state == SessionState.AUTHENTICATED;
+        }
+        // resources are bound over the compressed stream
+        return state == SessionState.AUTHENTICATED
+                && serverRuntimeContext.getResourceRegistry().getResourcesForSession(sessionContext).isEmpty();
+    }
+
+    private Stanza buildFailure(String condition) {
+        return new StanzaBuilder("failure", NamespaceURIs.XEP0138_STREAM_COMPRESSION)
+                .startInnerElement(condition, NamespaceURIs.XEP0138_STREAM_COMPRESSION).endInnerElement().build();
+    }
+}
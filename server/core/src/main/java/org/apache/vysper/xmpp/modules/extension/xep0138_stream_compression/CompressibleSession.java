@@ -0,0 +1,50 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.modules.extension.xep0138_stream_compression;
+
+import org.apache.vysper.xmpp.server.InternalSessionContext;
+
+/**
+ * a session whose transport can be compressed. it is compressed below the encryption, if any.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public interface CompressibleSession extends InternalSessionContext {
+
+    /**
+     * @return true, if the stream has been compressed, or will be after the next write
+     */
+    boolean isCompressed();
+
+    /**
+     * compresses the stream from now on
+     *
+     * @param delayed if true, the next stanza written is not compressed, all following are. this is
+     *            the way the receiving entity sends &lt;compressed/&gt;.
+     * @param compressionLevel the deflate level, 0 to 9, or -1 for zlib's default
+     */
+    void switchToCompression(boolean delayed, int compressionLevel);
+
+    /**
+     * @return the compressed size of the data read and written, relative to its uncompressed size,
+     *         or 1 if the stream is not compressed
+     */
+    double getCompressionRatio();
+}
@@ -0,0 +1,82 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.modules.extension.xep0138_stream_compression;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+
+import org.apache.vysper.xmpp.modules.DefaultModule;
+import org.apache.vysper.xmpp.protocol.HandlerDictionary;
+import org.apache.vysper.xmpp.protocol.NamespaceHandlerDictionary;
+import org.apache.vysper.xmpp.protocol.NamespaceURIs;
+import org.apache.vysper.xmpp.protocol.StanzaHandler;
+
+/**
+ * A module for <a href="http://xmpp.org/extensions/xep-0138.html">XEP-0138 Stream Compression</a>.
+ * <br>
+ * offers zlib compression to clients after authentication, and to servers after TLS. the
+ * compression sits below TLS, so the encrypted data is what has been compressed.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class StreamCompressionModule extends DefaultModule {
+
+    public static final String METHOD_ZLIB = "zlib";
+
+    /**
+     * deflate level 6 is zlib's own default, a good trade between CPU and size for XML
+     */
+    public static final int DEFAULT_COMPRESSION_LEVEL = 6;
+
+    private int compressionLevel = DEFAULT_COMPRESSION_LEVEL;
+
+    @Override
+    public String getName() {
+        return "XEP-0138 Stream Compression";
+    }
+
+    @Override
+    public String getVersion() {
+        return "2.0";
+    }
+
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    /**
+     * @param compressionLevel the deflate level, from 1 (fastest) to 9 (smallest), 0 to not compress
+     *            at all
+     */
+    public void setCompressionLevel(int compressionLevel) {
+        if (compressionLevel < Deflater.NO_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("compression level must be between 0 and 9");
+        }
+        this.compressionLevel = compressionLevel;
+    }
+
+    @Override
+    protected void addHandlerDictionaries(List<HandlerDictionary> dictionary) {
+        List<StanzaHandler> handlers = new ArrayList<StanzaHandler>();
+        handlers.add(new CompressHandler(this));
+        dictionary.add(new NamespaceHandlerDictionary(NamespaceURIs.XEP0138_STREAM_COMPRESSION, handlers));
+    }
+}
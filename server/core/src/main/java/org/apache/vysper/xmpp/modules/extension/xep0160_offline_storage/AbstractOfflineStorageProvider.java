@@ -19,6 +19,7 @@
  */
 package org.apache.vysper.xmpp.modules.extension.xep0160_offline_storage;
 
+import org.apache.vysper.xmpp.server.jfr.FlightRecorderEvents;
 import org.apache.vysper.xmpp.stanza.MessageStanza;
 import org.apache.vysper.xmpp.stanza.MessageStanzaType;
 import org.apache.vysper.xmpp.stanza.PresenceStanza;
@@ -80,7 +81,12 @@ public abstract class AbstractOfflineStorageProvider implements OfflineStoragePr
             return;
         }
         logger.debug("Stanza will be stored offline");
-        storeStanza(stanza);
+        Object jfrEvent = FlightRecorderEvents.beginStorage();
+        try {
+            storeStanza(stanza);
+        } finally {
+            FlightRecorderEvents.endStorage(jfrEvent, "offline.store", getClass());
+        }
     }
 
     /** does the actual storage mechanism */
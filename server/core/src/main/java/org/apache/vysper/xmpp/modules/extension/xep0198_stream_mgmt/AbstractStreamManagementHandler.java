@@ -0,0 +1,88 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.modules.extension.xep0198_stream_mgmt;
+
+import org.apache.vysper.xmpp.protocol.NamespaceURIs;
+import org.apache.vysper.xmpp.protocol.SessionStateHolder;
+import org.apache.vysper.xmpp.protocol.StanzaBroker;
+import org.apache.vysper.xmpp.protocol.StanzaHandler;
+import org.apache.vysper.xmpp.server.ServerRuntimeContext;
+import org.apache.vysper.xmpp.server.SessionContext;
+import org.apache.vysper.xmpp.server.SessionState;
+import org.apache.vysper.xmpp.stanza.Stanza;
+import org.apache.vysper.xmpp.stanza.StanzaBuilder;
+
+/**
+ * base for the handlers of the stream management elements, which are only accepted from
+ * authenticated client sessions
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public abstract class AbstractStreamManagementHandler implements StanzaHandler {
+
+    public boolean verify(Stanza stanza) {
+        if (stanza == null)
+            return false;
+        if (!getName().equals(stanza.getName()))
+            return false;
+        return NamespaceURIs.URN_XMPP_SM_3.equals(stanza.getNamespaceURI());
+    }
+
+    public boolean isSessionRequired() {
+        return true;
+    }
+
+    public void execute(Stanza stanza, ServerRuntimeContext serverRuntimeContext, boolean isOutboundStanza,
+            SessionContext sessionContext, SessionStateHolder sessionStateHolder, StanzaBroker stanzaBroker) {
+        if (!(sessionContext instanceof StreamManagedSession) || sessionContext.isServerToServer()) {
+            stanzaBroker.writeToSession(buildFailed("feature-not-implemented"));
+            return;
+        }
+        if (sessionStateHolder.getState() != SessionState.AUTHENTICATED) {
+            stanzaBroker.writeToSession(buildFailed("unexpected-request"));
+            return;
+        }
+        executeWorker(stanza, serverRuntimeContext, (StreamManagedSession) sessionContext, stanzaBroker);
+    }
+
+    protected abstract void executeWorker(Stanza stanza, ServerRuntimeContext serverRuntimeContext,
+            StreamManagedSession sessionContext, StanzaBroker stanzaBroker);
+
+    protected Stanza buildFailed(String errorCondition) {
+        StanzaBuilder stanzaBuilder = new StanzaBuilder("failed", NamespaceURIs.URN_XMPP_SM_3);
+        stanzaBuilder.startInnerElement(errorCondition, NamespaceURIs.URN_IETF_PARAMS_XML_NS_XMPP_STANZAS)
+                .endInnerElement();
+        return stanzaBuilder.build();
+    }
+
+    /**
+     * @return the value of the 'h' attribute, or -1 if it is missing or not a valid counter value
+     */
+    protected long parseCounter(Stanza stanza) {
+        String value = stanza.getAttributeValue("h");
+        if (value == null) return -1;
+        try {
+            long h = Long.parseLong(value);
+            return h < 0 || h > StreamManagement.COUNTER_MASK ? -1 : h;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
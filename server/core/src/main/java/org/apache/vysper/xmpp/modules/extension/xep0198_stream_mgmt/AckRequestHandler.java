@@ -0,0 +1,50 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.modules.extension.xep0198_stream_mgmt;
+
+import org.apache.vysper.xmpp.protocol.NamespaceURIs;
+import org.apache.vysper.xmpp.protocol.StanzaBroker;
+import org.apache.vysper.xmpp.server.ServerRuntimeContext;
+import org.apache.vysper.xmpp.stanza.Stanza;
+import org.apache.vysper.xmpp.stanza.StanzaBuilder;
+
+/**
+ * handles &lt;r/&gt;, answering with the number of stanzas received from the client
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class AckRequestHandler extends AbstractStreamManagementHandler {
+
+    public String getName() {
+        return "r";
+    }
+
+    @Override
+    protected void executeWorker(Stanza stanza, ServerRuntimeContext serverRuntimeContext,
+            StreamManagedSession sessionContext, StanzaBroker stanzaBroker) {
+        StreamManagement streamManagement = sessionContext.getStreamManagement();
+        if (streamManagement == null) {
+            stanzaBroker.writeToSession(buildFailed("unexpected-request"));
+            return;
+        }
+        stanzaBroker.writeToSession(new StanzaBuilder("a", NamespaceURIs.URN_XMPP_SM_3)
+                .addAttribute("h", Long.toString(streamManagement.getInbound())).build());
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.modules.extension.xep0198_stream_mgmt;
+
+import org.apache.vysper.xmpp.protocol.StanzaBroker;
+import org.apache.vysper.xmpp.server.ServerRuntimeContext;
+import org.apache.vysper.xmpp.stanza.Stanza;
+
+/**
+ * handles &lt;enable/&gt;, which starts stream management after a resource has been bound
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class EnableHandler extends AbstractStreamManagementHandler {
+
+    private final StreamManagementModule module;
+
+    public EnableHandler(StreamManagementModule module) {
+        this.module = module;
+    }
+
+    public String getName() {
+        return "enable";
+    }
+
+    @Override
+    protected void executeWorker(Stanza stanza, ServerRuntimeContext serverRuntimeContext,
+            StreamManagedSession sessionContext, StanzaBroker stanzaBroker) {
+        if (sessionContext.getStreamManagement() != null
+                || serverRuntimeContext.getResourceRegistry().getResourcesForSession(sessionContext).isEmpty()) {
+            stanzaBroker.writeToSession(buildFailed("unexpected-request"));
+            return;
+        }
+
+        StreamManagement streamManagement = module.enable(sessionContext,
+                StreamManagementModule.isResumeRequested(stanza));
+
+        // stanzas are counted from the first one following <enabled/>
+        sessionContext.writeToConnection(module.buildEnabled(streamManagement));
+        sessionContext.setStreamManagement(streamManagement);
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.modules.extension.xep0198_stream_mgmt;
+
+import org.apache.vysper.xmpp.protocol.StanzaBroker;
+import org.apache.vysper.xmpp.server.ServerRuntimeContext;
+import org.apache.vysper.xmpp.stanza.Stanza;
+
+/**
+ * handles &lt;resume/&gt;, which a client sends instead of binding a resource to continue the session
+ * it has lost the connection of.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class ResumeHandler extends AbstractStreamManagementHandler {
+
+    private final StreamManagementModule module;
+
+    public ResumeHandler(StreamManagementModule module) {
+        this.module = module;
+    }
+
+    public String getName() {
+        return "resume";
+    }
+
+    @Override
+    protected void executeWorker(Stanza stanza, ServerRuntimeContext serverRuntimeContext,
+            StreamManagedSession sessionContext, StanzaBroker stanzaBroker) {
+        long h = parseCounter(stanza);
+        if (h < 0) {
+            stanzaBroker.writeToSession(buildFailed("bad-request"));
+            return;
+        }
+        if (sessionContext.getStreamManagement() != null
+                || !serverRuntimeContext.getResourceRegistry().getResourcesForSession(sessionContext).isEmpty()) {
+            stanzaBroker.writeToSession(buildFailed("unexpected-request"));
+            return;
+        }
+
+        StreamManagement streamManagement = module.getResumable(stanza.getAttributeValue("previd"));
+        // only the user who owns the session may resume it
+        if (streamManagement == null || streamManagement.getSession() == sessionContext
+                || sessionContext.getInitiatingEntity() == null
+                || !sessionContext.getInitiatingEntity().equals(streamManagement.getSession().getInitiatingEntity())
+                || !streamManagement.resume(sessionContext, h)) {
+            stanzaBroker.writeToSession(buildFailed("item-not-found"));
+        }
+    }
+}
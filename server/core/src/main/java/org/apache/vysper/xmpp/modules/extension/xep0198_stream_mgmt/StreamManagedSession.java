@@ -0,0 +1,58 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.modules.extension.xep0198_stream_mgmt;
+
+import java.util.List;
+
+import org.apache.vysper.xmpp.server.InternalSessionContext;
+import org.apache.vysper.xmpp.stanza.Stanza;
+
+/**
+ * a session whose transport supports stream management. all stanzas written to the response writer
+ * of such a session must pass through its {@link StreamManagement}, once enabled.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public interface StreamManagedSession extends InternalSessionContext {
+
+    /**
+     * @return the stream management of the session, or null if the client has not enabled it
+     */
+    StreamManagement getStreamManagement();
+
+    void setStreamManagement(StreamManagement streamManagement);
+
+    /**
+     * writes to the connection the session is attached to, without counting or queueing
+     */
+    void writeToConnection(Stanza stanza);
+
+    /**
+     * writes the stanzas to the connection in one go, without counting or queueing
+     */
+    void writeToConnection(List<Stanza> stanzas);
+
+    /**
+     * attaches this session to the connection of the given session, which has been opened by the
+     * same client to resume this one. the connection this session was attached to before is closed,
+     * the given session is abandoned without ending it.
+     */
+    void takeOverConnection(StreamManagedSession connection);
+}
@@ -0,0 +1,304 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.modules.extension.xep0198_stream_mgmt;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+
+import org.apache.vysper.xmpp.protocol.NamespaceURIs;
+import org.apache.vysper.xmpp.server.SessionContext.SessionTerminationCause;
+import org.apache.vysper.xmpp.stanza.Stanza;
+import org.apache.vysper.xmpp.stanza.StanzaBuilder;
+import org.apache.vysper.xmpp.stanza.XMPPCoreStanza;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * the stream management state of a session: counts the stanzas handled in both directions and
+ * keeps the stanzas sent, but not yet acknowledged by the client.
+ * <br>
+ * a resumable session whose connection is lost is detached instead of being ended. it stays bound,
+ * stanzas for it are queued, and it is ended when not resumed within the resumption timeout.
+ * the messages still unacknowledged when the session ends are delivered again, as of XEP-0198 section 5.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class StreamManagement {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StreamManagement.class);
+
+    /**
+     * the counters wrap around at 2^32, as required by XEP-0198
+     */
+    static final long COUNTER_MASK = 0xFFFFFFFFL;
+
+    private final StreamManagedSession session;
+
+    private final StreamManagementModule module;
+
+    private final String id;
+
+    private final Deque<Stanza> unacked = new ArrayDeque<Stanza>();
+
+    private long inbound;
+
+    private long outbound;
+
+    private long acknowledged;
+
+    private boolean resumable;
+
+    private boolean ackRequested;
+
+    private boolean detached;
+
+    private boolean ended;
+
+    private boolean redelivered;
+
+    private ScheduledFuture<?> expiry;
+
+    /**
+     * @param id the resumption id, null if the session is not resumable
+     */
+    StreamManagement(StreamManagedSession session, StreamManagementModule module, String id) {
+        this.session = session;
+        this.module = module;
+        this.id = id;
+        this.resumable = id != null;
+    }
+
+    public StreamManagedSession getSession() {
+        return session;
+    }
+
+    /**
+     * @return the resumption id, or null if the session is not resumable
+     */
+    public String getId() {
+        return id;
+    }
+
+    public synchronized boolean isResumable() {
+        return resumable && !ended;
+    }
+
+    public synchronized boolean isDetached() {
+        return detached;
+    }
+
+    /**
+     * @return the number of stanzas received from the client, modulo 2^32
+     */
+    public synchronized long getInbound() {
+        return inbound;
+    }
+
+    /**
+     * @return the number of stanzas sent, but not yet acknowledged by the client
+     */
+    public synchronized int getUnacknowledgedCount() {
+        return (int) ((outbound - acknowledged) & COUNTER_MASK);
+    }
+
+    /**
+     * counts a stanza received from the client
+     */
+    public synchronized void received(Stanza stanza) {
+        if (XMPPCoreStanza.getWrapper(stanza) == null) return;
+        inbound = (inbound + 1) & COUNTER_MASK;
+    }
+
+    /**
+     * counts and queues a stanza sent to the client, and writes it unless the session is detached.
+     * when enough stanzas are unacknowledged, an acknowledgement is requested from the client.
+     */
+    public synchronized void write(Stanza stanza) {
+        boolean counted = XMPPCoreStanza.getWrapper(stanza) != null;
+        if (!record(stanza)) return;
+
+        session.writeToConnection(stanza);
+        if (counted && isAckRequestDue()) {
+            session.writeToConnection(createAckRequest());
+        }
+    }
+
+    /**
+     * counts and queues the stanzas like {@link #write(Stanza)}, but writes them to the connection in
+     * one batch, followed by the acknowledgement request if one is due
+     */
+    public synchronized void writeBatch(Collection<Stanza> stanzas) {
+        List<Stanza> batch = new ArrayList<Stanza>(stanzas.size() + 1);
+        boolean counted = false;
+        for (Stanza stanza : stanzas) {
+            if (XMPPCoreStanza.getWrapper(stanza) != null) counted = true;
+            if (record(stanza)) batch.add(stanza);
+        }
+        if (batch.isEmpty()) return;
+
+        if (counted && isAckRequestDue()) {
+            batch.add(createAckRequest());
+        }
+        session.writeToConnection(batch);
+    }
+
+    /**
+     * counts and queues a stanza sent to the client
+     * @return true, if the stanza has to be written to the connection
+     */
+    private boolean record(Stanza stanza) {
+        if (XMPPCoreStanza.getWrapper(stanza) == null) return !detached;
+        if (ended && detached) {
+            // arrived while the session is unbound, it is delivered again along with the unacknowledged ones
+            if (!redelivered) unacked.addLast(stanza);
+            return false;
+        }
+
+        outbound = (outbound + 1) & COUNTER_MASK;
+        if (resumable) {
+            unacked.addLast(stanza);
+            if (unacked.size() > module.getMaxUnackedStanzas()) {
+                LOG.info("session {} has too many unacknowledged stanzas, it will no longer be resumable", session);
+                giveUpResumption();
+            }
+        }
+        return !detached;
+    }
+
+    private boolean isAckRequestDue() {
+        return !ackRequested && getUnacknowledgedCount() >= module.getAckRequestThreshold();
+    }
+
+    private Stanza createAckRequest() {
+        ackRequested = true;
+        return new StanzaBuilder("r", NamespaceURIs.URN_XMPP_SM_3).build();
+    }
+
+    /**
+     * handles an acknowledgement from the client
+     * @param h the number of stanzas the client has received, modulo 2^32
+     */
+    public synchronized void acknowledge(long h) {
+        long count = (h - acknowledged) & COUNTER_MASK;
+        int unacknowledged = getUnacknowledgedCount();
+        if (count > unacknowledged) {
+            LOG.warn("session {} acknowledged {} stanzas, but only " + unacknowledged + " were unacknowledged",
+                    session, count);
+            count = unacknowledged;
+        }
+        for (long i = 0; i < count && !unacked.isEmpty(); i++) {
+            unacked.removeFirst();
+        }
+        acknowledged = (acknowledged + count) & COUNTER_MASK;
+        ackRequested = false;
+    }
+
+    /**
+     * detaches the session from its lost connection, if it is resumable
+     * @return true, if the session has been detached and must not be ended
+     */
+    public synchronized boolean detach() {
+        if (!resumable || ended) return false;
+        detached = true;
+        expiry = module.scheduleExpiry(this);
+        return true;
+    }
+
+    /**
+     * attaches the session to the connection of the resuming client, tells the client about the
+     * stanzas received so far and sends again all stanzas it has not acknowledged.
+     * @param connection the session of the new connection
+     * @param h the number of stanzas the client has received, modulo 2^32
+     * @return false, if the session has ended in the meantime
+     */
+    public synchronized boolean resume(StreamManagedSession connection, long h) {
+        if (!resumable || ended) return false;
+        if (expiry != null) {
+            expiry.cancel(false);
+            expiry = null;
+        }
+        session.takeOverConnection(connection);
+        detached = false;
+        acknowledge(h);
+
+        session.writeToConnection(new StanzaBuilder("resumed", NamespaceURIs.URN_XMPP_SM_3)
+                .addAttribute("previd", id).addAttribute("h", Long.toString(inbound)).build());
+
+        List<Stanza> retransmit = new ArrayList<Stanza>(unacked);
+        unacked.clear();
+        outbound = acknowledged;
+        writeBatch(retransmit);
+        return true;
+    }
+
+    /**
+     * ends the session, if it is still detached
+     */
+    void expire() {
+        synchronized (this) {
+            if (!detached || ended) return;
+        }
+        LOG.info("session {} has not been resumed in time, ending it", session);
+        session.endSession(SessionTerminationCause.CONNECTION_ABORT);
+    }
+
+    /**
+     * called when the session is ended. the unacknowledged stanzas are kept until
+     * {@link #redeliverUnacknowledged()} is called.
+     */
+    public void end() {
+        synchronized (this) {
+            if (ended) return;
+            ended = true;
+            if (expiry != null) {
+                expiry.cancel(false);
+                expiry = null;
+            }
+        }
+        module.unregister(this);
+    }
+
+    /**
+     * relays the messages the client has not acknowledged again, so that they reach another resource of
+     * the user or the offline storage, or are bounced to their sender.
+     * must be called after the session has ended and is unbound, otherwise they would be relayed back to it.
+     */
+    public void redeliverUnacknowledged() {
+        List<Stanza> undelivered;
+        synchronized (this) {
+            if (!ended || redelivered) return;
+            redelivered = true;
+            undelivered = new ArrayList<Stanza>(unacked);
+            unacked.clear();
+        }
+        if (!undelivered.isEmpty()) module.redeliver(session, undelivered);
+    }
+
+    private void giveUpResumption() {
+        resumable = false;
+        module.unregister(this);
+        // the unacknowledged stanzas are kept, and delivered again if the session ends before they are acknowledged
+        if (detached) module.expireNow(this);
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.modules.extension.xep0198_stream_mgmt;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.vysper.xml.fragment.XMLElement;
+import org.apache.vysper.xmpp.delivery.StanzaRelay;
+import org.apache.vysper.xmpp.delivery.failure.DeliveryException;
+import org.apache.vysper.xmpp.delivery.failure.ReturnErrorToSenderFailureStrategy;
+import org.apache.vysper.xmpp.modules.DefaultModule;
+import org.apache.vysper.xmpp.protocol.DefaultStanzaBroker;
+import org.apache.vysper.xmpp.protocol.HandlerDictionary;
+import org.apache.vysper.xmpp.protocol.NamespaceHandlerDictionary;
+import org.apache.vysper.xmpp.protocol.NamespaceURIs;
+import org.apache.vysper.xmpp.protocol.StanzaHandler;
+import org.apache.vysper.xmpp.server.DefaultServerRuntimeContext;
+import org.apache.vysper.xmpp.server.ServerRuntimeContext;
+import org.apache.vysper.xmpp.server.SessionContext.SessionTerminationCause;
+import org.apache.vysper.xmpp.stanza.MessageStanza;
+import org.apache.vysper.xmpp.stanza.MessageStanzaType;
+import org.apache.vysper.xmpp.stanza.Stanza;
+import org.apache.vysper.xmpp.stanza.StanzaBuilder;
+import org.apache.vysper.xmpp.uuid.SecureUUIDGenerator;
+import org.apache.vysper.xmpp.uuid.UUIDGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A module for <a href="http://xmpp.org/extensions/xep-0198.html">XEP-0198 Stream Management</a>,
+ * supporting acknowledgements and session resumption for client sessions on TCP endpoints.
+ * <br>
+ * a client resuming its session after losing the connection skips binding, roster retrieval and
+ * initial presence, and the contacts do not see it going offline and online again.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class StreamManagementModule extends DefaultModule {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StreamManagementModule.class);
+
+    public static final int DEFAULT_RESUMPTION_TIMEOUT_SECONDS = 300;
+
+    public static final int DEFAULT_MAX_UNACKED_STANZAS = 1000;
+
+    public static final int DEFAULT_ACK_REQUEST_THRESHOLD = 5;
+
+    private final ConcurrentMap<String, StreamManagement> resumableSessions = new ConcurrentHashMap<String, StreamManagement>();
+
+    private final UUIDGenerator idGenerator = new SecureUUIDGenerator();
+
+    private int resumptionTimeoutSeconds = DEFAULT_RESUMPTION_TIMEOUT_SECONDS;
+
+    private int maxUnackedStanzas = DEFAULT_MAX_UNACKED_STANZAS;
+
+    private int ackRequestThreshold = DEFAULT_ACK_REQUEST_THRESHOLD;
+
+    private ScheduledExecutorService expiryExecutor;
+
+    private StanzaRelay stanzaRelay;
+
+    @Override
+    public String getName() {
+        return "XEP-0198 Stream Management";
+    }
+
+    @Override
+    public String getVersion() {
+        return "1.6";
+    }
+
+    public int getResumptionTimeoutSeconds() {
+        return resumptionTimeoutSeconds;
+    }
+
+    /**
+     * @param resumptionTimeoutSeconds how long a session with a lost connection is kept for resumption,
+     * 0 disables resumption
+     */
+    public void setResumptionTimeoutSeconds(int resumptionTimeoutSeconds) {
+        this.resumptionTimeoutSeconds = resumptionTimeoutSeconds;
+    }
+
+    public int getMaxUnackedStanzas() {
+        return maxUnackedStanzas;
+    }
+
+    /**
+     * @param maxUnackedStanzas how many unacknowledged stanzas are kept per session. a session exceeding
+     * this is no longer resumable
+     */
+    public void setMaxUnackedStanzas(int maxUnackedStanzas) {
+        this.maxUnackedStanzas = maxUnackedStanzas;
+    }
+
+    public int getAckRequestThreshold() {
+        return ackRequestThreshold;
+    }
+
+    /**
+     * @param ackRequestThreshold the number of unacknowledged stanzas after which the client is asked
+     * for an acknowledgement
+     */
+    public void setAckRequestThreshold(int ackRequestThreshold) {
+        this.ackRequestThreshold = ackRequestThreshold;
+    }
+
+    @Override
+    protected void addHandlerDictionaries(List<HandlerDictionary> dictionary) {
+        List<StanzaHandler> handlers = new ArrayList<StanzaHandler>();
+        handlers.add(new EnableHandler(this));
+        handlers.add(new ResumeHandler(this));
+        handlers.add(new AckRequestHandler());
+        handlers.add(new AckHandler());
+        dictionary.add(new NamespaceHandlerDictionary(NamespaceURIs.URN_XMPP_SM_3, handlers));
+    }
+
+    @Override
+    public void initialize(ServerRuntimeContext serverRuntimeContext) {
+        if (serverRuntimeContext instanceof DefaultServerRuntimeContext) {
+            stanzaRelay = ((DefaultServerRuntimeContext) serverRuntimeContext).getStanzaRelay();
+        }
+        expiryExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "vysper-sm-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void close() {
+        for (StreamManagement streamManagement : resumableSessions.values()) {
+            if (streamManagement.isDetached()) {
+                streamManagement.getSession().endSession(SessionTerminationCause.SERVER_SHUTDOWN);
+            }
+        }
+        resumableSessions.clear();
+        if (expiryExecutor != null) expiryExecutor.shutdownNow();
+    }
+
+    /**
+     * enables stream management for a session
+     */
+    StreamManagement enable(StreamManagedSession session, boolean resume) {
+        if (!resume || resumptionTimeoutSeconds <= 0 || expiryExecutor == null) {
+            return new StreamManagement(session, this, null);
+        }
+        StreamManagement streamManagement = new StreamManagement(session, this, idGenerator.create());
+        resumableSessions.put(streamManagement.getId(), streamManagement);
+        return streamManagement;
+    }
+
+    /**
+     * enables stream management for a session which has bound its resource along with its
+     * authentication, as of XEP-0386
+     * @param enable the &lt;enable/&gt; element the client has sent inline
+     * @return the &lt;enabled/&gt; element for the client
+     */
+    public Stanza enableInline(StreamManagedSession session, XMLElement enable) {
+        StreamManagement streamManagement = enable(session, isResumeRequested(enable));
+        // the response to the authentication is no stanza, and is not counted
+        session.setStreamManagement(streamManagement);
+        return buildEnabled(streamManagement);
+    }
+
+    static boolean isResumeRequested(XMLElement enable) {
+        String resume = enable.getAttributeValue("resume");
+        return "true".equals(resume) || "1".equals(resume);
+    }
+
+    Stanza buildEnabled(StreamManagement streamManagement) {
+        StanzaBuilder enabled = new StanzaBuilder("enabled", NamespaceURIs.URN_XMPP_SM_3);
+        if (streamManagement.getId() != null) {
+            enabled.addAttribute("id", streamManagement.getId()).addAttribute("resume", "true")
+                    .addAttribute("max", Integer.toString(resumptionTimeoutSeconds));
+        }
+        return enabled.build();
+    }
+
+    /**
+     * @return the stream management of the resumable session with the given id, or null
+     */
+    StreamManagement getResumable(String id) {
+        if (id == null) return null;
+        return resumableSessions.get(id);
+    }
+
+    /**
+     * @return the number of sessions which are detached and waiting to be resumed
+     */
+    public int getDetachedCount() {
+        int count = 0;
+        for (StreamManagement streamManagement : resumableSessions.values()) {
+            if (streamManagement.isDetached()) count++;
+        }
+        return count;
+    }
+
+    void unregister(StreamManagement streamManagement) {
+        if (streamManagement.getId() != null) resumableSessions.remove(streamManagement.getId(), streamManagement);
+    }
+
+    ScheduledFuture<?> scheduleExpiry(StreamManagement streamManagement) {
+        return expiryExecutor.schedule(streamManagement::expire, resumptionTimeoutSeconds, TimeUnit.SECONDS);
+    }
+
+    void expireNow(StreamManagement streamManagement) {
+        expiryExecutor.execute(streamManagement::expire);
+    }
+
+    /**
+     * relays the messages a session has ended with unacknowledged again, to their original receiver.
+     * as the session is unbound, they reach another resource of the user or the offline storage, and
+     * when they cannot be delivered at all, an error is returned to the sender.
+     * other stanzas, like IQ results or presences, are outdated by now and are dropped.
+     */
+    void redeliver(StreamManagedSession session, List<Stanza> stanzas) {
+        int redelivered = 0;
+        for (Stanza stanza : stanzas) {
+            if (stanzaRelay == null || !isRedeliverable(stanza)) continue;
+            try {
+                stanzaRelay.relay(null, stanza.getTo(), stanza,
+                        new ReturnErrorToSenderFailureStrategy(new DefaultStanzaBroker(stanzaRelay, null)));
+                redelivered++;
+            } catch (DeliveryException e) {
+                LOG.warn("failed to deliver unacknowledged stanza again to " + stanza.getTo(), e);
+            }
+        }
+        LOG.info("session {} ended with {} unacknowledged stanzas, " + redelivered + " of them are delivered again",
+                session, stanzas.size());
+    }
+
+    private static boolean isRedeliverable(Stanza stanza) {
+        if (!MessageStanza.isOfType(stanza) || stanza.getTo() == null) return false;
+        MessageStanzaType type = new MessageStanza(stanza).getMessageType();
+        // group chat messages are part of the room history, errors must not be answered
+        return type != MessageStanzaType.GROUPCHAT && type != MessageStanzaType.ERROR;
+    }
+}
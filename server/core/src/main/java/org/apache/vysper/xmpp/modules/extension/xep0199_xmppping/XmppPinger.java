@@ -19,7 +19,6 @@
  */
 package org.apache.vysper.xmpp.modules.extension.xep0199_xmppping;
 
-import java.util.UUID;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 
@@ -27,6 +26,8 @@ import org.apache.vysper.xmpp.addressing.Entity;
 import org.apache.vysper.xmpp.protocol.NamespaceURIs;
 import org.apache.vysper.xmpp.stanza.Stanza;
 import org.apache.vysper.xmpp.stanza.StanzaBuilder;
+import org.apache.vysper.xmpp.uuid.FastUUIDGenerator;
+import org.apache.vysper.xmpp.uuid.UUIDGenerator;
 import org.apache.vysper.xmpp.writer.StanzaWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -39,7 +40,9 @@ public class XmppPinger {
 
     private static final Logger LOG = LoggerFactory.getLogger(XmppPinger.class);
 
-    private String id = "xmppping-" + UUID.randomUUID().toString();
+    private static final UUIDGenerator ID_GENERATOR = new FastUUIDGenerator();
+
+    private String id = "xmppping-" + ID_GENERATOR.create();
     private XmppPingIQHandler handler;
     
     private LinkedBlockingQueue<String> pingQueue = new LinkedBlockingQueue<String>(1);
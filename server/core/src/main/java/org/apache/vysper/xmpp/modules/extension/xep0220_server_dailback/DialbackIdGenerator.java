@@ -21,7 +21,6 @@ package org.apache.vysper.xmpp.modules.extension.xep0220_server_dailback;
 import java.nio.charset.StandardCharsets;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
-import java.util.UUID;
 
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
@@ -30,12 +29,13 @@ import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang.Validate;
 import org.apache.vysper.xmpp.addressing.Entity;
+import org.apache.vysper.xmpp.uuid.SecureUUIDGenerator;
 
 
 public class DialbackIdGenerator {
 
     // generates a shared secret within the server
-    private static final String SECRET = UUID.randomUUID().toString();
+    private static final String SECRET = new SecureUUIDGenerator().create();
     private SecretKeySpec signingKey = new SecretKeySpec(DigestUtils.sha256(SECRET), "HmacSHA256");
     private Mac mac;
     
@@ -0,0 +1,139 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.modules.extension.xep0352_csi;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.vysper.xmpp.addressing.Entity;
+import org.apache.vysper.xmpp.stanza.MessageStanza;
+import org.apache.vysper.xmpp.stanza.PresenceStanza;
+import org.apache.vysper.xmpp.stanza.PresenceStanzaType;
+import org.apache.vysper.xmpp.stanza.Stanza;
+import org.apache.vysper.xmpp.writer.StanzaWriter;
+
+/**
+ * sits between a session and its transport writer once the client has indicated its state.
+ * <br>
+ * while the client is inactive, availability presences are held back, keeping only the latest one
+ * per sender. they are written when the client becomes active again, when a message with a body
+ * is written, or when too many senders are held back. all other stanzas pass through.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class ClientStateFilter implements StanzaWriter {
+
+    private final StanzaWriter transportWriter;
+
+    private final int maxBufferedPresences;
+
+    private final Map<Entity, Stanza> bufferedPresences = new LinkedHashMap<Entity, Stanza>();
+
+    private boolean active = true;
+
+    private long coalescedCount;
+
+    public ClientStateFilter(StanzaWriter transportWriter, int maxBufferedPresences) {
+        this.transportWriter = transportWriter;
+        this.maxBufferedPresences = maxBufferedPresences;
+    }
+
+    public synchronized boolean isActive() {
+        return active;
+    }
+
+    /**
+     * changes the client state. becoming active writes all presences held back.
+     */
+    public synchronized void setActive(boolean active) {
+        this.active = active;
+        if (active) flush();
+    }
+
+    /**
+     * @return the number of presences held back at the moment
+     */
+    public synchronized int getBufferedCount() {
+        return bufferedPresences.size();
+    }
+
+    /**
+     * @return the number of presences which have been replaced by a later one, and never been written
+     */
+    public synchronized long getCoalescedCount() {
+        return coalescedCount;
+    }
+
+    public synchronized void write(Stanza stanza) {
+        if (!active) {
+            if (isAvailabilityPresence(stanza)) {
+                // re-inserting moves the sender to the end, keeping the buffer in order of the latest presences
+                if (bufferedPresences.remove(stanza.getFrom()) != null) coalescedCount++;
+                bufferedPresences.put(stanza.getFrom(), stanza);
+                if (bufferedPresences.size() > maxBufferedPresences) flush();
+                return;
+            }
+            if (isUrgent(stanza)) flush();
+        }
+        transportWriter.write(stanza);
+    }
+
+    @Override
+    public synchronized void writeBatch(Collection<Stanza> stanzas) {
+        if (active) {
+            transportWriter.writeBatch(stanzas);
+            return;
+        }
+        for (Stanza stanza : stanzas) {
+            write(stanza);
+        }
+    }
+
+    public void close() {
+        transportWriter.close();
+    }
+
+    private void flush() {
+        if (bufferedPresences.isEmpty()) return;
+        List<Stanza> presences = new ArrayList<Stanza>(bufferedPresences.values());
+        bufferedPresences.clear();
+        transportWriter.writeBatch(presences);
+    }
+
+    /**
+     * available and unavailable presences replace each other, subscription handling and errors must not
+     * be held back
+     */
+    static boolean isAvailabilityPresence(Stanza stanza) {
+        if (!PresenceStanza.isOfType(stanza) || stanza.getFrom() == null) return false;
+        PresenceStanza presence = new PresenceStanza(stanza);
+        return presence.getType() == null || presence.getPresenceType() == PresenceStanzaType.UNAVAILABLE;
+    }
+
+    /**
+     * messages with a body are what the user is waiting for, they take the presences held back with them
+     */
+    static boolean isUrgent(Stanza stanza) {
+        return MessageStanza.isOfType(stanza) && !stanza.getInnerElementsNamed("body").isEmpty();
+    }
+}
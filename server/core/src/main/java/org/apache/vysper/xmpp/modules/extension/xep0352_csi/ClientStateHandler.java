@@ -0,0 +1,83 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.modules.extension.xep0352_csi;
+
+import org.apache.vysper.xmpp.protocol.NamespaceURIs;
+import org.apache.vysper.xmpp.protocol.SessionStateHolder;
+import org.apache.vysper.xmpp.protocol.StanzaBroker;
+import org.apache.vysper.xmpp.protocol.StanzaHandler;
+import org.apache.vysper.xmpp.server.AbstractSessionContext;
+import org.apache.vysper.xmpp.server.ServerRuntimeContext;
+import org.apache.vysper.xmpp.server.SessionContext;
+import org.apache.vysper.xmpp.server.SessionState;
+import org.apache.vysper.xmpp.stanza.Stanza;
+
+/**
+ * handles &lt;active/&gt; and &lt;inactive/&gt;. as required by XEP-0352, nothing is sent back.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class ClientStateHandler implements StanzaHandler {
+
+    private final String name;
+
+    private final ClientStateIndicationModule module;
+
+    /**
+     * @param active true for the handler of &lt;active/&gt;, false for &lt;inactive/&gt;
+     */
+    public ClientStateHandler(boolean active, ClientStateIndicationModule module) {
+        this.name = active ? "active" : "inactive";
+        this.module = module;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean verify(Stanza stanza) {
+        if (stanza == null)
+            return false;
+        if (!getName().equals(stanza.getName()))
+            return false;
+        return NamespaceURIs.URN_XMPP_CSI_0.equals(stanza.getNamespaceURI());
+    }
+
+    public boolean isSessionRequired() {
+        return true;
+    }
+
+    public void execute(Stanza stanza, ServerRuntimeContext serverRuntimeContext, boolean isOutboundStanza,
+            SessionContext sessionContext, SessionStateHolder sessionStateHolder, StanzaBroker stanzaBroker) {
+        if (!(sessionContext instanceof AbstractSessionContext) || sessionContext.isServerToServer()) return;
+        if (sessionStateHolder.getState() != SessionState.AUTHENTICATED) return;
+
+        AbstractSessionContext session = (AbstractSessionContext) sessionContext;
+        boolean active = "active".equals(name);
+        ClientStateFilter filter = session.getClientStateFilter();
+        if (filter == null) {
+            // clients are active until they say otherwise
+            if (active) return;
+            filter = new ClientStateFilter(session.getResponseWriter(), module.getMaxBufferedPresences());
+            session.setClientStateFilter(filter);
+        }
+        filter.setActive(active);
+    }
+}
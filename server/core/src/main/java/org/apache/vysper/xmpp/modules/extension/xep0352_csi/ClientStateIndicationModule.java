@@ -0,0 +1,74 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.modules.extension.xep0352_csi;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.vysper.xmpp.modules.DefaultModule;
+import org.apache.vysper.xmpp.protocol.HandlerDictionary;
+import org.apache.vysper.xmpp.protocol.NamespaceHandlerDictionary;
+import org.apache.vysper.xmpp.protocol.NamespaceURIs;
+import org.apache.vysper.xmpp.protocol.StanzaHandler;
+
+/**
+ * A module for <a href="http://xmpp.org/extensions/xep-0352.html">XEP-0352 Client State Indication</a>.
+ * <br>
+ * clients in the background tell the server they are inactive, and then only receive the latest
+ * presence of each contact once they become active again or a message arrives.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class ClientStateIndicationModule extends DefaultModule {
+
+    public static final int DEFAULT_MAX_BUFFERED_PRESENCES = 500;
+
+    private int maxBufferedPresences = DEFAULT_MAX_BUFFERED_PRESENCES;
+
+    @Override
+    public String getName() {
+        return "XEP-0352 Client State Indication";
+    }
+
+    @Override
+    public String getVersion() {
+        return "1.0";
+    }
+
+    public int getMaxBufferedPresences() {
+        return maxBufferedPresences;
+    }
+
+    /**
+     * @param maxBufferedPresences how many senders' presences are held back for an inactive client,
+     * before they are written anyway
+     */
+    public void setMaxBufferedPresences(int maxBufferedPresences) {
+        this.maxBufferedPresences = maxBufferedPresences;
+    }
+
+    @Override
+    protected void addHandlerDictionaries(List<HandlerDictionary> dictionary) {
+        List<StanzaHandler> handlers = new ArrayList<StanzaHandler>();
+        handlers.add(new ClientStateHandler(true, this));
+        handlers.add(new ClientStateHandler(false, this));
+        dictionary.add(new NamespaceHandlerDictionary(NamespaceURIs.URN_XMPP_CSI_0, handlers));
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.modules.extension.xep0388_sasl2;
+
+import java.util.List;
+
+import org.apache.vysper.xml.fragment.XMLElement;
+import org.apache.vysper.xml.fragment.XMLText;
+import org.apache.vysper.xmpp.addressing.Entity;
+import org.apache.vysper.xmpp.modules.core.sasl.SASLFailureType;
+import org.apache.vysper.xmpp.modules.core.sasl.handler.AbstractSASLHandler;
+import org.apache.vysper.xmpp.protocol.NamespaceURIs;
+import org.apache.vysper.xmpp.protocol.SessionStateHolder;
+import org.apache.vysper.xmpp.protocol.StanzaBroker;
+import org.apache.vysper.xmpp.server.SessionContext;
+import org.apache.vysper.xmpp.server.SessionState;
+import org.apache.vysper.xmpp.server.response.ServerResponses;
+import org.apache.vysper.xmpp.stanza.Stanza;
+import org.apache.vysper.xmpp.stanza.StanzaBuilder;
+
+/**
+ * base for the handlers of the SASL2 elements. the exchange is run by the same mechanisms as
+ * RFC 6120 SASL, their responses are translated into the SASL2 profile.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public abstract class AbstractSasl2Handler extends AbstractSASLHandler {
+
+    /**
+     * the &lt;authenticate/&gt; element of the exchange in progress, holding the inline requests
+     */
+    public static final String SESSION_ATTRIBUTE_AUTHENTICATE = "sasl2Authenticate";
+
+    public boolean isSessionRequired() {
+        return true;
+    }
+
+    @Override
+    protected String getNamespace() {
+        return NamespaceURIs.URN_XMPP_SASL_2;
+    }
+
+    @Override
+    protected Stanza buildSASLFailure() {
+        return buildFailure(SASLFailureType.MALFORMED_REQUEST);
+    }
+
+    protected Stanza buildFailure(SASLFailureType failureType) {
+        return new StanzaBuilder("failure", NamespaceURIs.URN_XMPP_SASL_2)
+                .startInnerElement(failureType.value(), NamespaceURIs.URN_IETF_PARAMS_XML_NS_XMPP_SASL)
+                .endInnerElement().build();
+    }
+
+    /**
+     * translates the mechanism's response, and completes a successful authentication with the
+     * requests the client has sent inline
+     */
+    protected Stanza complete(Stanza mechanismResponse, SessionContext sessionContext,
+            SessionStateHolder sessionStateHolder) {
+        if (mechanismResponse.getName().equals("challenge")) {
+            StanzaBuilder challenge = new StanzaBuilder("challenge", NamespaceURIs.URN_XMPP_SASL_2);
+            XMLText data = mechanismResponse.getInnerText();
+            if (data != null) challenge.addText(data.getText());
+            return challenge.build();
+        }
+
+        Stanza authenticate = (Stanza) sessionContext.putAttribute(SESSION_ATTRIBUTE_AUTHENTICATE, null);
+        if (sessionStateHolder.getState() != SessionState.AUTHENTICATED) {
+            StanzaBuilder failure = new StanzaBuilder("failure", NamespaceURIs.URN_XMPP_SASL_2);
+            for (XMLElement condition : mechanismResponse.getInnerElements()) {
+                failure.addPreparedElement(condition);
+            }
+            return failure.build();
+        }
+
+        StanzaBuilder success = new StanzaBuilder("success", NamespaceURIs.URN_XMPP_SASL_2);
+        XMLText additionalData = mechanismResponse.getInnerText();
+        if (additionalData != null) {
+            success.startInnerElement("additional-data", NamespaceURIs.URN_XMPP_SASL_2)
+                    .addText(additionalData.getText()).endInnerElement();
+        }
+
+        List<XMLElement> bindRequests = authenticate == null ? null
+                : authenticate.getInnerElementsNamed("bind", NamespaceURIs.URN_XMPP_BIND_0);
+        XMLElement bound = null;
+        Entity authorizationIdentifier = sessionContext.getInitiatingEntity();
+        if (bindRequests != null && !bindRequests.isEmpty()) {
+            InlineBind inlineBind = new InlineBind(sessionContext);
+            bound = inlineBind.bind(bindRequests.get(0));
+            if (bound != null) authorizationIdentifier = inlineBind.getBoundEntity();
+        }
+        success.startInnerElement("authorization-identifier", NamespaceURIs.URN_XMPP_SASL_2)
+                .addText(authorizationIdentifier.getFullQualifiedName()).endInnerElement();
+        if (bound != null) success.addPreparedElement(bound);
+        return success.build();
+    }
+
+    @Override
+    protected void responseWritten(Stanza responseStanza, SessionContext sessionContext,
+            SessionStateHolder sessionStateHolder, StanzaBroker stanzaBroker) {
+        if (!responseStanza.getName().equals("success")) return;
+        // the stream is not restarted. a client which has not bound inline learns how to continue
+        // from the features following the success
+        if (sessionContext.getServerRuntimeContext().getResourceRegistry().getResourcesForSession(sessionContext)
+                .isEmpty()) {
+            stanzaBroker.writeToSession(new ServerResponses().getFeaturesForSession(sessionContext));
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.modules.extension.xep0388_sasl2;
+
+import java.util.List;
+
+import org.apache.vysper.xml.fragment.XMLElement;
+import org.apache.vysper.xml.fragment.XMLText;
+import org.apache.vysper.xmpp.authentication.SASLMechanism;
+import org.apache.vysper.xmpp.modules.core.sasl.AuthorizationRetriesCounter;
+import org.apache.vysper.xmpp.modules.core.sasl.SASLFailureType;
+import org.apache.vysper.xmpp.protocol.NamespaceURIs;
+import org.apache.vysper.xmpp.protocol.SessionStateHolder;
+import org.apache.vysper.xmpp.server.SessionContext;
+import org.apache.vysper.xmpp.stanza.Stanza;
+import org.apache.vysper.xmpp.stanza.StanzaBuilder;
+
+/**
+ * handles &lt;authenticate/&gt;, which starts the exchange and carries the inline requests
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class AuthenticateHandler extends AbstractSasl2Handler {
+
+    public String getName() {
+        return "authenticate";
+    }
+
+    @Override
+    protected Stanza executeWorker(Stanza stanza, SessionContext sessionContext,
+            SessionStateHolder sessionStateHolder) {
+        String requestedMechanism = stanza.getAttributeValue("mechanism");
+        if (requestedMechanism == null) {
+            return buildSASLFailure();
+        }
+        SASLMechanism mechanism = findMechanism(requestedMechanism, sessionContext);
+        if (mechanism == null) {
+            AuthorizationRetriesCounter.getFromSession(sessionContext).countFailedTry();
+            return buildFailure(SASLFailureType.INVALID_MECHANISM);
+        }
+
+        // the mechanism gets the initial response as if it had been sent with RFC 6120 <auth/>
+        StanzaBuilder auth = new StanzaBuilder("auth", NamespaceURIs.URN_IETF_PARAMS_XML_NS_XMPP_SASL)
+                .addAttribute("mechanism", requestedMechanism);
+        List<XMLElement> initialResponse = stanza.getInnerElementsNamed("initial-response",
+                NamespaceURIs.URN_XMPP_SASL_2);
+        if (!initialResponse.isEmpty()) {
+            XMLText data = initialResponse.get(0).getInnerText();
+            if (data != null) auth.addText(data.getText());
+        }
+
+        sessionContext.putAttribute(SESSION_ATTRIBUTE_AUTHENTICATE, stanza);
+        Stanza mechanismResponse = startMechanism(mechanism, auth.build(), sessionContext, sessionStateHolder);
+        return complete(mechanismResponse, sessionContext, sessionStateHolder);
+    }
+}
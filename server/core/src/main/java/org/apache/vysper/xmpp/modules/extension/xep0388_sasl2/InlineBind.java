@@ -0,0 +1,89 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.modules.extension.xep0388_sasl2;
+
+import java.util.List;
+
+import org.apache.vysper.xml.fragment.XMLElement;
+import org.apache.vysper.xmpp.addressing.Entity;
+import org.apache.vysper.xmpp.addressing.EntityImpl;
+import org.apache.vysper.xmpp.modules.extension.xep0198_stream_mgmt.StreamManagedSession;
+import org.apache.vysper.xmpp.modules.extension.xep0198_stream_mgmt.StreamManagementModule;
+import org.apache.vysper.xmpp.protocol.NamespaceURIs;
+import org.apache.vysper.xmpp.server.SessionContext;
+import org.apache.vysper.xmpp.stanza.StanzaBuilder;
+import org.apache.vysper.xmpp.state.resourcebinding.BindException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * binds a resource requested inline with the authentication, as of
+ * <a href="http://xmpp.org/extensions/xep-0386.html">XEP-0386 Bind 2</a>, and enables stream
+ * management if requested along with it.
+ * <br>
+ * like with the bind IQ, the resource is chosen by the server, the client's tag is not used.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+class InlineBind {
+
+    private static final Logger LOG = LoggerFactory.getLogger(InlineBind.class);
+
+    private final SessionContext sessionContext;
+
+    private Entity boundEntity;
+
+    InlineBind(SessionContext sessionContext) {
+        this.sessionContext = sessionContext;
+    }
+
+    /**
+     * @return the &lt;bound/&gt; element for the success, or null, if no resource could be bound
+     */
+    XMLElement bind(XMLElement bindRequest) {
+        String resourceId;
+        try {
+            resourceId = sessionContext.bindResource();
+        } catch (BindException e) {
+            // the client is authenticated nevertheless, and may still bind with an IQ
+            LOG.info("inline bind for session {} failed", sessionContext.getSessionId(), e);
+            return null;
+        }
+        boundEntity = new EntityImpl(sessionContext.getInitiatingEntity(), resourceId);
+
+        StanzaBuilder bound = new StanzaBuilder("bound", NamespaceURIs.URN_XMPP_BIND_0);
+        List<XMLElement> enableRequests = bindRequest.getInnerElementsNamed("enable", NamespaceURIs.URN_XMPP_SM_3);
+        StreamManagementModule streamManagementModule = sessionContext.getServerRuntimeContext()
+                .getModule(StreamManagementModule.class);
+        if (!enableRequests.isEmpty() && streamManagementModule != null
+                && sessionContext instanceof StreamManagedSession && !sessionContext.isServerToServer()) {
+            bound.addPreparedElement(
+                    streamManagementModule.enableInline((StreamManagedSession) sessionContext, enableRequests.get(0)));
+        }
+        return bound.build();
+    }
+
+    /**
+     * @return the full JID of the resource bound
+     */
+    Entity getBoundEntity() {
+        return boundEntity;
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.modules.extension.xep0388_sasl2;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.vysper.xmpp.modules.DefaultModule;
+import org.apache.vysper.xmpp.protocol.HandlerDictionary;
+import org.apache.vysper.xmpp.protocol.NamespaceHandlerDictionary;
+import org.apache.vysper.xmpp.protocol.NamespaceURIs;
+import org.apache.vysper.xmpp.protocol.StanzaHandler;
+
+/**
+ * A module for <a href="http://xmpp.org/extensions/xep-0388.html">XEP-0388 Extensible SASL Profile</a>,
+ * with resource binding inline as of <a href="http://xmpp.org/extensions/xep-0386.html">XEP-0386 Bind 2</a>.
+ * <br>
+ * the client authenticates, binds a resource and enables stream management in one exchange, and the
+ * stream is not restarted. compared to RFC 6120 SASL, this saves the stream restart, the bind and the
+ * session request, and the enabling of stream management, each a round trip.
+ * <br>
+ * the mechanisms are the same as offered for RFC 6120 SASL.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class Sasl2Module extends DefaultModule {
+
+    @Override
+    public String getName() {
+        return "XEP-0388 Extensible SASL Profile";
+    }
+
+    @Override
+    public String getVersion() {
+        return "0.4.0";
+    }
+
+    @Override
+    protected void addHandlerDictionaries(List<HandlerDictionary> dictionary) {
+        List<StanzaHandler> handlers = new ArrayList<StanzaHandler>();
+        handlers.add(new AuthenticateHandler());
+        handlers.add(new Sasl2ResponseHandler());
+        handlers.add(new Sasl2AbortHandler());
+        dictionary.add(new NamespaceHandlerDictionary(NamespaceURIs.URN_XMPP_SASL_2, handlers));
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.modules.extension.xep0388_sasl2;
+
+import org.apache.vysper.xmpp.protocol.SessionStateHolder;
+import org.apache.vysper.xmpp.server.SessionContext;
+import org.apache.vysper.xmpp.stanza.Stanza;
+
+/**
+ * handles &lt;response/&gt;, the client's answer to a challenge
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class Sasl2ResponseHandler extends AbstractSasl2Handler {
+
+    public String getName() {
+        return "response";
+    }
+
+    @Override
+    protected Stanza executeWorker(Stanza stanza, SessionContext sessionContext,
+            SessionStateHolder sessionStateHolder) {
+        Stanza mechanismResponse = respondToMechanism(stanza, sessionContext, sessionStateHolder);
+        if (mechanismResponse == null) {
+            // there has been no challenge
+            sessionContext.putAttribute(SESSION_ATTRIBUTE_AUTHENTICATE, null);
+            return buildSASLFailure();
+        }
+        return complete(mechanismResponse, sessionContext, sessionStateHolder);
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.modules.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * a monotonically increasing count. either incremented directly, or read from a source which counts
+ * by itself, like the bytes parsed by the XML decoders.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class Counter {
+
+    private final LongAdder count;
+
+    private final Gauge source;
+
+    public Counter() {
+        this.count = new LongAdder();
+        this.source = null;
+    }
+
+    public Counter(Gauge source) {
+        this.count = null;
+        this.source = source;
+    }
+
+    public void increment() {
+        add(1);
+    }
+
+    public void add(long delta) {
+        if (count == null) {
+            throw new IllegalStateException("counter is read from its source");
+        }
+        count.add(delta);
+    }
+
+    public long getCount() {
+        return count != null ? count.sum() : source.getValue();
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.modules.metrics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * registers every metric of a registry as an MBean, named
+ * <code>org.apache.vysper:type=Metrics,server=&lt;domain&gt;,name=&lt;metric name&gt;,&lt;labels&gt;</code>.
+ * counters and gauges have a single attribute, histograms report count, mean, max and percentiles
+ * in microseconds.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class JmxMetricsExporter implements MetricsRegistry.Listener {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JmxMetricsExporter.class);
+
+    public static final String DOMAIN = "org.apache.vysper";
+
+    private final MBeanServer mBeanServer;
+
+    private final String serverName;
+
+    private final List<ObjectName> registered = new ArrayList<ObjectName>();
+
+    private MetricsRegistry registry;
+
+    public JmxMetricsExporter(MBeanServer mBeanServer, String serverName) {
+        this.mBeanServer = mBeanServer;
+        this.serverName = serverName;
+    }
+
+    public void start(MetricsRegistry registry) {
+        this.registry = registry;
+        registry.addListener(this);
+    }
+
+    public void metricAdded(MetricName name, Object metric) {
+        try {
+            ObjectName objectName = objectName(name);
+            synchronized (registered) {
+                if (registry == null) return;
+                mBeanServer.registerMBean(new MetricMBean(name, metric), objectName);
+                registered.add(objectName);
+            }
+        } catch (JMException e) {
+            LOG.warn("failed to register metric {} with JMX: {}", name, e.toString());
+        }
+    }
+
+    ObjectName objectName(MetricName name) throws JMException {
+        StringBuilder objectName = new StringBuilder(DOMAIN).append(":type=Metrics,server=")
+                .append(ObjectName.quote(serverName)).append(",name=").append(name.getName());
+        for (int i = 0; i < name.getLabelCount(); i++) {
+            objectName.append(',').append(name.getLabelName(i)).append('=')
+                    .append(ObjectName.quote(name.getLabelValue(i)));
+        }
+        return new ObjectName(objectName.toString());
+    }
+
+    public void stop() {
+        if (registry != null) {
+            registry.removeListener(this);
+        }
+        synchronized (registered) {
+            registry = null;
+            for (ObjectName objectName : registered) {
+                try {
+                    mBeanServer.unregisterMBean(objectName);
+                } catch (JMException e) {
+                    LOG.debug("failed to unregister {}", objectName, e);
+                }
+            }
+            registered.clear();
+        }
+    }
+
+    private static class MetricMBean implements DynamicMBean {
+
+        private final MetricName name;
+
+        private final Object metric;
+
+        MetricMBean(MetricName name, Object metric) {
+            this.name = name;
+            this.metric = metric;
+        }
+
+        private Map<String, Long> values() {
+            Map<String, Long> values = new LinkedHashMap<String, Long>();
+            if (metric instanceof Counter) {
+                values.put("Count", ((Counter) metric).getCount());
+            } else if (metric instanceof Gauge) {
+                values.put("Value", ((Gauge) metric).getValue());
+            } else if (metric instanceof LatencyHistogram) {
+                LatencyHistogram histogram = (LatencyHistogram) metric;
+                values.put("Count", histogram.getCount());
+                values.put("MeanMicros", histogram.getMean() / 1000);
+                values.put("MaxMicros", histogram.getMax() / 1000);
+                values.put("P50Micros", histogram.getValueAtQuantile(0.5) / 1000);
+                values.put("P90Micros", histogram.getValueAtQuantile(0.9) / 1000);
+                values.put("P99Micros", histogram.getValueAtQuantile(0.99) / 1000);
+                values.put("P999Micros", histogram.getValueAtQuantile(0.999) / 1000);
+            }
+            return values;
+        }
+
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            Long value = values().get(attribute);
+            if (value == null) throw new AttributeNotFoundException(attribute);
+            return value;
+        }
+
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("metrics are read only");
+        }
+
+        public AttributeList getAttributes(String[] attributes) {
+            Map<String, Long> values = values();
+            AttributeList list = new AttributeList();
+            for (String attribute : attributes) {
+                Long value = values.get(attribute);
+                if (value != null) list.add(new Attribute(attribute, value));
+            }
+            return list;
+        }
+
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        public Object invoke(String actionName, Object[] params, String[] signature) {
+            throw new UnsupportedOperationException("metrics have no operations");
+        }
+
+        public MBeanInfo getMBeanInfo() {
+            List<MBeanAttributeInfo> attributes = new ArrayList<MBeanAttributeInfo>();
+            for (String attribute : values().keySet()) {
+                attributes.add(new MBeanAttributeInfo(attribute, "long", attribute, true, false, false));
+            }
+            return new MBeanInfo(metric.getClass().getName(), name.toString(),
+                    attributes.toArray(new MBeanAttributeInfo[attributes.size()]), null, null, null);
+        }
+    }
+}
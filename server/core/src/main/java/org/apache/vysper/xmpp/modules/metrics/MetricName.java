@@ -0,0 +1,131 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.modules.metrics;
+
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+/**
+ * the name of a metric, plus labels telling apart the metrics of the same name, for example the
+ * handler latencies for different namespaces. names follow the Prometheus naming rules.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class MetricName implements Comparable<MetricName> {
+
+    private static final Pattern NAME_PATTERN = Pattern.compile("[a-zA-Z_:][a-zA-Z0-9_:]*");
+
+    private static final Pattern LABEL_PATTERN = Pattern.compile("[a-zA-Z_][a-zA-Z0-9_]*");
+
+    private final String name;
+
+    private final String[] labels;
+
+    /**
+     * @param labels label names and values, alternating
+     */
+    public MetricName(String name, String... labels) {
+        if (name == null || !NAME_PATTERN.matcher(name).matches()) {
+            throw new IllegalArgumentException("invalid metric name: " + name);
+        }
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("labels must be given as name/value pairs");
+        }
+        for (int i = 0; i < labels.length; i += 2) {
+            if (labels[i] == null || !LABEL_PATTERN.matcher(labels[i]).matches()) {
+                throw new IllegalArgumentException("invalid label name: " + labels[i]);
+            }
+            if (labels[i + 1] == null) {
+                throw new IllegalArgumentException("missing value for label " + labels[i]);
+            }
+        }
+        this.name = name;
+        this.labels = labels.clone();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getLabelCount() {
+        return labels.length / 2;
+    }
+
+    public String getLabelName(int index) {
+        return labels[2 * index];
+    }
+
+    public String getLabelValue(int index) {
+        return labels[2 * index + 1];
+    }
+
+    public int compareTo(MetricName other) {
+        int result = name.compareTo(other.name);
+        if (result != 0) return result;
+        for (int i = 0; i < Math.min(labels.length, other.labels.length); i++) {
+            result = labels[i].compareTo(other.labels[i]);
+            if (result != 0) return result;
+        }
+        return labels.length - other.labels.length;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof MetricName)) return false;
+        MetricName that = (MetricName) o;
+        return name.equals(that.name) && Arrays.equals(labels, that.labels);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * name.hashCode() + Arrays.hashCode(labels);
+    }
+
+    /**
+     * @return the name in Prometheus' notation, like <code>name{label="value"}</code>
+     */
+    @Override
+    public String toString() {
+        if (labels.length == 0) return name;
+        StringBuilder builder = new StringBuilder(name).append('{');
+        appendLabels(builder);
+        return builder.append('}').toString();
+    }
+
+    void appendLabels(StringBuilder builder) {
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) builder.append(',');
+            builder.append(labels[i]).append("=\"");
+            String value = labels[i + 1];
+            for (int c = 0; c < value.length(); c++) {
+                char ch = value.charAt(c);
+                if (ch == '\\' || ch == '"') {
+                    builder.append('\\').append(ch);
+                } else if (ch == '\n') {
+                    builder.append("\\n");
+                } else {
+                    builder.append(ch);
+                }
+            }
+            builder.append('"');
+        }
+    }
+}
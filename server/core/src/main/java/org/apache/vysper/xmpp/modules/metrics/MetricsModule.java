@@ -0,0 +1,253 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.modules.metrics;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.vysper.mina.ZlibCompressionFilter;
+import org.apache.vysper.xml.decoder.XMPPDecoder;
+import org.apache.vysper.xmpp.cryptography.TLSSessionCache;
+import org.apache.vysper.xmpp.delivery.StanzaRelay;
+import org.apache.vysper.xmpp.delivery.StanzaRelayBroker;
+import org.apache.vysper.xmpp.modules.DefaultModule;
+import org.apache.vysper.xmpp.modules.ServerRuntimeContextService;
+import org.apache.vysper.xmpp.modules.bulkhead.Bulkhead;
+import org.apache.vysper.xmpp.modules.bulkhead.BulkheadService;
+import org.apache.vysper.xmpp.modules.bulkhead.ExecutionClass;
+import org.apache.vysper.xmpp.protocol.StanzaHandlerInterceptor;
+import org.apache.vysper.xmpp.server.DefaultServerRuntimeContext;
+import org.apache.vysper.xmpp.server.ServerRuntimeContext;
+import org.apache.vysper.xmpp.server.logging.StanzaLogPipeline;
+import org.apache.vysper.xmpp.server.resources.ManagedThreadPool;
+import org.apache.vysper.xmpp.server.trace.StanzaTracer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * collects metrics about the server: the time spent in stanza handlers, the number of sessions,
+ * the depth of the relay, bulkhead and stanza log queues and the bytes parsed per second. the
+ * metrics are exposed through JMX and, if a port is set, over HTTP in the Prometheus text format.
+ * <br>
+ * with a trace sample rate set, a sample of the stanzas is traced through the processing stages,
+ * see {@link StageLatencyRecorder}.
+ * <br>
+ * the registry is available to other modules as the {@link MetricsRegistry#SERVICE_NAME} service.
+ * bulkheads are only picked up if the {@link org.apache.vysper.xmpp.modules.bulkhead.BulkheadModule}
+ * has been added before this module.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class MetricsModule extends DefaultModule {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MetricsModule.class);
+
+    private final MetricsRegistry registry = new MetricsRegistry();
+
+    private final MetricsStanzaHandlerInterceptor interceptor = new MetricsStanzaHandlerInterceptor(registry);
+
+    private boolean jmxEnabled = true;
+
+    private InetSocketAddress prometheusAddress;
+
+    private JmxMetricsExporter jmxExporter;
+
+    private PrometheusHttpEndpoint prometheusEndpoint;
+
+    private int traceSampleRate;
+
+    private long slowStanzaThresholdMillis = 1000;
+
+    private StageLatencyRecorder stageLatencyRecorder;
+
+    public MetricsRegistry getRegistry() {
+        return registry;
+    }
+
+    public void setJmxEnabled(boolean jmxEnabled) {
+        this.jmxEnabled = jmxEnabled;
+    }
+
+    /**
+     * serves the metrics for Prometheus at <code>http://&lt;all interfaces&gt;:port/metrics</code>
+     */
+    public void setPrometheusPort(int port) {
+        setPrometheusAddress(new InetSocketAddress(port));
+    }
+
+    public void setPrometheusAddress(InetSocketAddress prometheusAddress) {
+        this.prometheusAddress = prometheusAddress;
+    }
+
+    public PrometheusHttpEndpoint getPrometheusEndpoint() {
+        return prometheusEndpoint;
+    }
+
+    /**
+     * traces stanzas through the processing stages and records the time spent in each stage
+     * @param traceSampleRate one in how many stanzas is traced, 0 (the default) turns tracing off
+     */
+    public void setTraceSampleRate(int traceSampleRate) {
+        this.traceSampleRate = traceSampleRate;
+    }
+
+    /**
+     * traced stanzas taking at least this long from reading to writing are logged with their stage
+     * breakdown, 0 turns logging off
+     */
+    public void setSlowStanzaThresholdMillis(long slowStanzaThresholdMillis) {
+        this.slowStanzaThresholdMillis = slowStanzaThresholdMillis;
+    }
+
+    @Override
+    public String getName() {
+        return "Metrics";
+    }
+
+    @Override
+    public String getVersion() {
+        return "1.0";
+    }
+
+    @Override
+    public List<StanzaHandlerInterceptor> getStanzaHandlerInterceptors() {
+        return Collections.singletonList(interceptor);
+    }
+
+    @Override
+    protected void addServerServices(List<ServerRuntimeContextService> serviceList) {
+        serviceList.add(registry);
+    }
+
+    @Override
+    public void initialize(ServerRuntimeContext serverRuntimeContext) {
+        registerServerMetrics(serverRuntimeContext);
+
+        if (traceSampleRate > 0) {
+            stageLatencyRecorder = new StageLatencyRecorder(registry, slowStanzaThresholdMillis);
+            StanzaTracer.install(stageLatencyRecorder, traceSampleRate);
+        }
+        if (jmxEnabled) {
+            jmxExporter = new JmxMetricsExporter(ManagementFactory.getPlatformMBeanServer(),
+                    serverRuntimeContext.getServerEntity().getDomain());
+            jmxExporter.start(registry);
+        }
+        if (prometheusAddress != null) {
+            prometheusEndpoint = new PrometheusHttpEndpoint(registry, prometheusAddress);
+            try {
+                prometheusEndpoint.start();
+                LOG.info("serving metrics at http://{}{}", prometheusEndpoint.getAddress(), PrometheusHttpEndpoint.PATH);
+            } catch (IOException e) {
+                LOG.error("failed to start metrics endpoint at " + prometheusAddress, e);
+                prometheusEndpoint = null;
+            }
+        }
+    }
+
+    protected void registerServerMetrics(ServerRuntimeContext serverRuntimeContext) {
+        registry.gauge("vysper_sessions", "number of bound sessions",
+                () -> serverRuntimeContext.getResourceRegistry().getSessionCount());
+
+        Gauge decodedBytes = XMPPDecoder::getDecodedBytes;
+        registry.counter("vysper_parser_bytes_total", "bytes parsed from XMPP streams", decodedBytes);
+        registry.gauge("vysper_parser_bytes_per_second", "bytes parsed from XMPP streams per second",
+                new RateGauge(decodedBytes));
+
+        if (serverRuntimeContext instanceof DefaultServerRuntimeContext) {
+            StanzaRelay stanzaRelay = ((DefaultServerRuntimeContext) serverRuntimeContext).getStanzaRelay();
+            if (stanzaRelay instanceof StanzaRelayBroker) {
+                StanzaRelayBroker relayBroker = (StanzaRelayBroker) stanzaRelay;
+                registerRelayQueue("internal", relayBroker.getInternalRelay());
+                registerRelayQueue("external", relayBroker.getExternalRelay());
+            }
+        }
+
+        registry.counter("vysper_compression_bytes_total", "bytes passing compressed streams",
+                ZlibCompressionFilter::getTotalRawBytesIn, "direction", "in", "form", "raw");
+        registry.counter("vysper_compression_bytes_total", "bytes passing compressed streams",
+                ZlibCompressionFilter::getTotalCompressedBytesIn, "direction", "in", "form", "compressed");
+        registry.counter("vysper_compression_bytes_total", "bytes passing compressed streams",
+                ZlibCompressionFilter::getTotalRawBytesOut, "direction", "out", "form", "raw");
+        registry.counter("vysper_compression_bytes_total", "bytes passing compressed streams",
+                ZlibCompressionFilter::getTotalCompressedBytesOut, "direction", "out", "form", "compressed");
+
+        TLSSessionCache tlsSessionCache = (TLSSessionCache) serverRuntimeContext
+                .getServerRuntimeContextService(TLSSessionCache.SERVICE_NAME);
+        if (tlsSessionCache != null) {
+            registry.counter("vysper_tls_handshakes_total", "completed TLS handshakes",
+                    tlsSessionCache::getFullHandshakes, "type", "full");
+            registry.counter("vysper_tls_handshakes_total", "completed TLS handshakes",
+                    tlsSessionCache::getResumedHandshakes, "type", "resumed");
+            registry.gauge("vysper_tls_session_cache_size", "TLS sessions cached for resumption",
+                    tlsSessionCache::getCachedSessionCount);
+        }
+
+        StanzaLogPipeline stanzaLogPipeline = StanzaLogPipeline.of(serverRuntimeContext);
+        registry.gauge("vysper_stanza_log_queue_depth", "stanzas waiting to be logged",
+                stanzaLogPipeline::getQueueDepth);
+        registry.counter("vysper_stanza_log_dropped_total", "stanzas not logged", stanzaLogPipeline::getDroppedCount,
+                "reason", "overload");
+        registry.counter("vysper_stanza_log_dropped_total", "stanzas not logged",
+                stanzaLogPipeline::getRateLimitedCount, "reason", "rate_limit");
+
+        BulkheadService bulkheadService = (BulkheadService) serverRuntimeContext
+                .getServerRuntimeContextService(BulkheadService.SERVICE_NAME);
+        if (bulkheadService != null) {
+            for (Map.Entry<ExecutionClass, Bulkhead> entry : bulkheadService.getBulkheads().entrySet()) {
+                String executionClass = entry.getKey().name().toLowerCase(Locale.US);
+                final Bulkhead bulkhead = entry.getValue();
+                registry.gauge("vysper_bulkhead_queue_depth", "requests waiting in a bulkhead",
+                        bulkhead::getQueueDepth, "class", executionClass);
+                registry.counter("vysper_bulkhead_rejected_total", "requests rejected by a full bulkhead",
+                        bulkhead::getRejectedCount, "class", executionClass);
+                registry.counter("vysper_bulkhead_completed_total", "requests completed in a bulkhead",
+                        bulkhead::getCompletedCount, "class", executionClass);
+            }
+        }
+    }
+
+    private void registerRelayQueue(String relay, StanzaRelay stanzaRelay) {
+        if (stanzaRelay instanceof ManagedThreadPool) {
+            registry.gauge("vysper_relay_queue_depth", "stanzas waiting to be relayed",
+                    ((ManagedThreadPool) stanzaRelay)::getQueueDepth, "relay", relay);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (stageLatencyRecorder != null) {
+            StanzaTracer.uninstall(stageLatencyRecorder);
+            stageLatencyRecorder = null;
+        }
+        if (jmxExporter != null) {
+            jmxExporter.stop();
+            jmxExporter = null;
+        }
+        if (prometheusEndpoint != null) {
+            prometheusEndpoint.stop();
+            prometheusEndpoint = null;
+        }
+    }
+}
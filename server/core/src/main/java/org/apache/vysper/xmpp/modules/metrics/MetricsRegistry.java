@@ -0,0 +1,132 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.modules.metrics;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+import org.apache.vysper.xmpp.modules.ServerRuntimeContextService;
+
+/**
+ * holds the {@link Counter}s, {@link Gauge}s and {@link LatencyHistogram}s of a server.
+ * <br>
+ * metrics are created on first use and live as long as the registry. asking twice for the same
+ * name and labels returns the same metric.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class MetricsRegistry implements ServerRuntimeContextService {
+
+    public static final String SERVICE_NAME = "metrics";
+
+    /**
+     * notified about every metric added to the registry, used by exporters which register each
+     * metric separately
+     */
+    public interface Listener {
+        void metricAdded(MetricName name, Object metric);
+    }
+
+    private final ConcurrentMap<MetricName, Object> metrics = new ConcurrentHashMap<MetricName, Object>();
+
+    private final ConcurrentMap<String, String> helpTexts = new ConcurrentHashMap<String, String>();
+
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+
+    public String getServiceName() {
+        return SERVICE_NAME;
+    }
+
+    public Counter counter(String name, String help, String... labels) {
+        return getOrAdd(new MetricName(name, labels), help, Counter.class, Counter::new);
+    }
+
+    /**
+     * registers a counter which reads its count from a source counting by itself
+     */
+    public Counter counter(String name, String help, final Gauge source, String... labels) {
+        return getOrAdd(new MetricName(name, labels), help, Counter.class, () -> new Counter(source));
+    }
+
+    public LatencyHistogram histogram(String name, String help, String... labels) {
+        return getOrAdd(new MetricName(name, labels), help, LatencyHistogram.class, LatencyHistogram::new);
+    }
+
+    /**
+     * registers a gauge. if there is a gauge of the same name and labels already, that one is kept
+     * and returned
+     */
+    public Gauge gauge(String name, String help, final Gauge gauge, String... labels) {
+        return getOrAdd(new MetricName(name, labels), help, Gauge.class, () -> gauge);
+    }
+
+    private <T> T getOrAdd(MetricName metricName, String help, Class<T> type, Supplier<T> factory) {
+        Object metric = metrics.get(metricName);
+        if (metric == null) {
+            if (help != null) helpTexts.putIfAbsent(metricName.getName(), help);
+            T created = factory.get();
+            metric = metrics.putIfAbsent(metricName, created);
+            if (metric == null) {
+                for (Listener listener : listeners) {
+                    listener.metricAdded(metricName, created);
+                }
+                return created;
+            }
+        }
+        if (!type.isInstance(metric)) {
+            throw new IllegalArgumentException(metricName + " is already registered as " + metric.getClass().getSimpleName());
+        }
+        return type.cast(metric);
+    }
+
+    /**
+     * @return the metrics sorted by name and labels, so that metrics of the same name follow each other
+     */
+    public SortedMap<MetricName, Object> getMetrics() {
+        return new TreeMap<MetricName, Object>(metrics);
+    }
+
+    public Object getMetric(MetricName name) {
+        return metrics.get(name);
+    }
+
+    public String getHelp(String name) {
+        return helpTexts.get(name);
+    }
+
+    /**
+     * adds a listener and notifies it about the metrics already registered
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+        for (Map.Entry<MetricName, Object> entry : getMetrics().entrySet()) {
+            listener.metricAdded(entry.getKey(), entry.getValue());
+        }
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.modules.metrics;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.vysper.xml.fragment.XMLElement;
+import org.apache.vysper.xmpp.protocol.ProtocolException;
+import org.apache.vysper.xmpp.protocol.SessionStateHolder;
+import org.apache.vysper.xmpp.protocol.StanzaBroker;
+import org.apache.vysper.xmpp.protocol.StanzaHandlerInterceptor;
+import org.apache.vysper.xmpp.protocol.StanzaHandlerInterceptorChain;
+import org.apache.vysper.xmpp.server.ServerRuntimeContext;
+import org.apache.vysper.xmpp.server.SessionContext;
+import org.apache.vysper.xmpp.stanza.Stanza;
+
+/**
+ * times the handling of every stanza, by stanza kind (the element name, like iq or message) and
+ * namespace (of the stanza's payload, like jabber:iq:roster).
+ * <br>
+ * clients can send any namespace they like, so the number of histograms is capped. namespaces coming
+ * in after the cap has been reached are counted as "other".
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class MetricsStanzaHandlerInterceptor implements StanzaHandlerInterceptor {
+
+    public static final String HANDLER_LATENCY = "vysper_stanza_handler_latency_seconds";
+
+    public static final String HANDLER_ERRORS = "vysper_stanza_handler_errors_total";
+
+    public static final String OTHER_NAMESPACE = "other";
+
+    private static final int DEFAULT_MAX_SERIES = 256;
+
+    private final MetricsRegistry registry;
+
+    private final int maxSeries;
+
+    private final ConcurrentMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<String, LatencyHistogram>();
+
+    public MetricsStanzaHandlerInterceptor(MetricsRegistry registry) {
+        this(registry, DEFAULT_MAX_SERIES);
+    }
+
+    public MetricsStanzaHandlerInterceptor(MetricsRegistry registry, int maxSeries) {
+        this.registry = registry;
+        this.maxSeries = maxSeries;
+    }
+
+    @Override
+    public void intercept(Stanza stanza, ServerRuntimeContext serverRuntimeContext, boolean isOutboundStanza,
+            SessionContext sessionContext, SessionStateHolder sessionStateHolder, StanzaBroker stanzaBroker,
+            StanzaHandlerInterceptorChain interceptorChain) throws ProtocolException {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            interceptorChain.intercept(stanza, serverRuntimeContext, isOutboundStanza, sessionContext,
+                    sessionStateHolder, stanzaBroker);
+            failed = false;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            String kind = stanza.getName();
+            String namespace = namespaceOf(stanza);
+            histogram(kind, namespace).record(elapsed);
+            if (failed) {
+                registry.counter(HANDLER_ERRORS, "stanzas whose handler threw an exception", "kind", kind).increment();
+            }
+        }
+    }
+
+    private LatencyHistogram histogram(String kind, String namespace) {
+        String key = kind + ' ' + namespace;
+        LatencyHistogram histogram = histograms.get(key);
+        if (histogram != null) return histogram;
+        if (histograms.size() >= maxSeries) {
+            namespace = OTHER_NAMESPACE;
+            key = kind + ' ' + namespace;
+        }
+        histogram = registry.histogram(HANDLER_LATENCY, "time spent in stanza handlers", "kind", kind,
+                "namespace", namespace);
+        histograms.putIfAbsent(key, histogram);
+        return histogram;
+    }
+
+    private static String namespaceOf(Stanza stanza) {
+        List<XMLElement> innerElements = stanza.getInnerElements();
+        String namespace = innerElements.isEmpty() ? stanza.getNamespaceURI()
+                : innerElements.get(0).getNamespaceURI();
+        return namespace == null ? "" : namespace;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.modules.metrics;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * serves the metrics in the Prometheus text format at <code>/metrics</code>, using the HTTP server
+ * built into the JDK, so no servlet container is needed.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class PrometheusHttpEndpoint {
+
+    public static final String PATH = "/metrics";
+
+    private final MetricsRegistry registry;
+
+    private final InetSocketAddress address;
+
+    private HttpServer httpServer;
+
+    public PrometheusHttpEndpoint(MetricsRegistry registry, InetSocketAddress address) {
+        this.registry = registry;
+        this.address = address;
+    }
+
+    public synchronized void start() throws IOException {
+        if (httpServer != null) return;
+        httpServer = HttpServer.create(address, 0);
+        httpServer.createContext(PATH, this::handle);
+        httpServer.start();
+    }
+
+    /**
+     * @return the address the endpoint listens on, with the actual port if it was started on port 0
+     */
+    public synchronized InetSocketAddress getAddress() {
+        return httpServer == null ? address : httpServer.getAddress();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            ByteArrayOutputStream body = new ByteArrayOutputStream(8192);
+            Writer writer = new OutputStreamWriter(body, StandardCharsets.UTF_8);
+            PrometheusTextFormat.write(registry, writer);
+            exchange.getResponseHeaders().set("Content-Type", PrometheusTextFormat.CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.size());
+            OutputStream out = exchange.getResponseBody();
+            body.writeTo(out);
+            out.close();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    public synchronized void stop() {
+        if (httpServer != null) {
+            httpServer.stop(0);
+            httpServer = null;
+        }
+    }
+}
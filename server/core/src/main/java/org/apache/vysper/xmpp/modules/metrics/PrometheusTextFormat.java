@@ -0,0 +1,99 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.modules.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+
+/**
+ * writes the metrics of a registry in the Prometheus text exposition format. histograms are written
+ * as summaries in seconds, with the 50th, 90th, 99th and 99.9th percentile.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class PrometheusTextFormat {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final double[] QUANTILES = { 0.5, 0.9, 0.99, 0.999 };
+
+    private static final double NANOS_PER_SECOND = 1000000000d;
+
+    public static void write(MetricsRegistry registry, Writer writer) throws IOException {
+        String currentName = null;
+        StringBuilder line = new StringBuilder(128);
+        for (Map.Entry<MetricName, Object> entry : registry.getMetrics().entrySet()) {
+            MetricName metricName = entry.getKey();
+            Object metric = entry.getValue();
+            if (!metricName.getName().equals(currentName)) {
+                currentName = metricName.getName();
+                String help = registry.getHelp(currentName);
+                if (help != null) {
+                    writer.append("# HELP ").append(currentName).append(' ')
+                            .append(help.replace("\\", "\\\\").replace("\n", "\\n")).append('\n');
+                }
+                writer.append("# TYPE ").append(currentName).append(' ').append(typeOf(metric)).append('\n');
+            }
+
+            if (metric instanceof Counter) {
+                writeSample(writer, line, metricName, "", null, Long.toString(((Counter) metric).getCount()));
+            } else if (metric instanceof Gauge) {
+                writeSample(writer, line, metricName, "", null, Long.toString(((Gauge) metric).getValue()));
+            } else if (metric instanceof LatencyHistogram) {
+                LatencyHistogram histogram = (LatencyHistogram) metric;
+                for (double quantile : QUANTILES) {
+                    writeSample(writer, line, metricName, "", Double.toString(quantile),
+                            seconds(histogram.getValueAtQuantile(quantile)));
+                }
+                writeSample(writer, line, metricName, "_sum", null, seconds(histogram.getSum()));
+                writeSample(writer, line, metricName, "_count", null, Long.toString(histogram.getCount()));
+            }
+        }
+        writer.flush();
+    }
+
+    private static String typeOf(Object metric) {
+        if (metric instanceof Counter) return "counter";
+        if (metric instanceof LatencyHistogram) return "summary";
+        return "gauge";
+    }
+
+    private static String seconds(long nanos) {
+        return Double.toString(nanos / NANOS_PER_SECOND);
+    }
+
+    private static void writeSample(Writer writer, StringBuilder line, MetricName metricName, String suffix,
+            String quantile, String value) throws IOException {
+        line.setLength(0);
+        line.append(metricName.getName()).append(suffix);
+        if (metricName.getLabelCount() > 0 || quantile != null) {
+            line.append('{');
+            metricName.appendLabels(line);
+            if (quantile != null) {
+                if (metricName.getLabelCount() > 0) line.append(',');
+                line.append("quantile=\"").append(quantile).append('"');
+            }
+            line.append('}');
+        }
+        line.append(' ').append(value).append('\n');
+        writer.append(line);
+    }
+}
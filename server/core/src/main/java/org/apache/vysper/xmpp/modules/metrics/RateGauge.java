@@ -0,0 +1,63 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.modules.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * the per second rate of an increasing value. the rate is measured between two reads at least a
+ * second apart, reads in between return the last rate measured. this keeps the rate meaningful when
+ * several exporters read it.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class RateGauge implements Gauge {
+
+    private static final long MIN_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Gauge source;
+
+    private long lastNanos;
+
+    private long lastValue;
+
+    private long rate = 0;
+
+    public RateGauge(Gauge source) {
+        this.source = source;
+        this.lastNanos = System.nanoTime();
+        this.lastValue = source.getValue();
+    }
+
+    public synchronized long getValue() {
+        return getValue(System.nanoTime());
+    }
+
+    synchronized long getValue(long nowNanos) {
+        long elapsed = nowNanos - lastNanos;
+        if (elapsed >= MIN_INTERVAL_NANOS) {
+            long value = source.getValue();
+            rate = (value - lastValue) * MIN_INTERVAL_NANOS / elapsed;
+            lastValue = value;
+            lastNanos = nowNanos;
+        }
+        return rate;
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.modules.metrics;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.vysper.xmpp.server.trace.Stage;
+import org.apache.vysper.xmpp.server.trace.StanzaTrace;
+import org.apache.vysper.xmpp.server.trace.StanzaTraceListener;
+import org.apache.vysper.xmpp.server.trace.TracePoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * records completed stanza traces into a latency histogram per stage, and logs the stage breakdown
+ * of stanzas taking longer than the slow threshold.
+ * <br>
+ * a branch only records the stages it has measured itself, the stages before the relay are recorded
+ * by the trace it has been branched from. the total is only recorded for traces ending with a write.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class StageLatencyRecorder implements StanzaTraceListener {
+
+    public static final String STAGE_LATENCY = "vysper_stage_latency_seconds";
+
+    public static final String TOTAL_LATENCY = "vysper_stanza_latency_seconds";
+
+    private static final Logger LOG = LoggerFactory.getLogger(StageLatencyRecorder.class);
+
+    private final Map<Stage, LatencyHistogram> stageHistograms = new EnumMap<Stage, LatencyHistogram>(Stage.class);
+
+    private final LatencyHistogram totalHistogram;
+
+    private final long slowThresholdNanos;
+
+    /**
+     * @param slowThresholdMillis stanzas taking at least this long are logged, 0 turns logging off
+     */
+    public StageLatencyRecorder(MetricsRegistry registry, long slowThresholdMillis) {
+        for (Stage stage : Stage.values()) {
+            stageHistograms.put(stage, registry.histogram(STAGE_LATENCY, "time spent by traced stanzas in a stage",
+                    "stage", stage.name().toLowerCase(Locale.US)));
+        }
+        totalHistogram = registry.histogram(TOTAL_LATENCY, "time from reading to writing of traced stanzas");
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMillis);
+    }
+
+    public void traceCompleted(StanzaTrace trace) {
+        for (Map.Entry<Stage, LatencyHistogram> entry : stageHistograms.entrySet()) {
+            if (!trace.owns(entry.getKey())) continue;
+            long duration = trace.getDuration(entry.getKey());
+            if (duration >= 0) entry.getValue().record(duration);
+        }
+        long total = trace.getTotal();
+        if (trace.isStamped(TracePoint.WRITTEN)) totalHistogram.record(total);
+        if (slowThresholdNanos > 0 && total >= slowThresholdNanos && LOG.isWarnEnabled()) {
+            LOG.warn("slow stanza, " + TimeUnit.NANOSECONDS.toMillis(total) + "ms: " + trace);
+        }
+    }
+}
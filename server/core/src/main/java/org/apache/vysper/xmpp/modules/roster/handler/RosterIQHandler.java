@@ -35,6 +35,7 @@ import org.apache.vysper.xmpp.addressing.Entity;
 import org.apache.vysper.xmpp.addressing.EntityImpl;
 import org.apache.vysper.xmpp.delivery.failure.DeliveryException;
 import org.apache.vysper.xmpp.delivery.failure.IgnoreFailureStrategy;
+import org.apache.vysper.xmpp.modules.bulkhead.ExecutionClass;
 import org.apache.vysper.xmpp.modules.core.base.handler.DefaultIQHandler;
 import org.apache.vysper.xmpp.modules.roster.Roster;
 import org.apache.vysper.xmpp.modules.roster.RosterBadRequestException;
@@ -81,6 +82,34 @@ public class RosterIQHandler extends DefaultIQHandler {
         return verifyInnerElementWorker(stanza, "query");
     }
 
+    @Override
+    protected ExecutionClass getExecutionClass(IQStanza stanza) {
+        return ExecutionClass.forStorageAccess(stanza);
+    }
+
+    /**
+     * a resource requesting the roster becomes interested in roster pushes. this is done before the roster is
+     * retrieved, because the presence usually following the request builds on it.
+     */
+    @Override
+    protected void beforeExecution(IQStanza stanza, ServerRuntimeContext serverRuntimeContext,
+            SessionContext sessionContext) {
+        if (stanza.getIQType() != IQStanzaType.GET
+                || serverRuntimeContext.getStorageProvider(RosterManager.class) == null) {
+            return;
+        }
+        Entity from = extractUniqueSenderJID(stanza, sessionContext);
+        if (from == null || !from.isResourceSet()) {
+            return;
+        }
+        ResourceRegistry registry = serverRuntimeContext.getResourceRegistry();
+        String resourceId = from.getResource();
+        ResourceState currentState = registry.getResourceState(resourceId);
+        if (currentState != null) {
+            registry.setResourceState(resourceId, ResourceState.makeInterested(currentState));
+        }
+    }
+
     @SpecCompliance(compliant = {
             @SpecCompliant(spec = "rfc3921bis-08", section = "2.1.2", status = FINISHED, coverage = COMPLETE),
             @SpecCompliant(spec = "rfc3921bis-08", section = "2.1.5", status = FINISHED, coverage = PARTIAL),
@@ -89,7 +118,6 @@ public class RosterIQHandler extends DefaultIQHandler {
     protected List<Stanza> handleGet(IQStanza stanza, ServerRuntimeContext serverRuntimeContext,
             SessionContext sessionContext, StanzaBroker stanzaBroker) {
 
-        ResourceRegistry registry = serverRuntimeContext.getResourceRegistry();
         RosterManager rosterManager = serverRuntimeContext.getStorageProvider(RosterManager.class);
 
         if (rosterManager == null) {
@@ -103,13 +131,6 @@ public class RosterIQHandler extends DefaultIQHandler {
                     "sender info insufficient: " + ((from == null) ? "no from" : from.getFullQualifiedName()), null,
                     null));
         }
-        String resourceId = from.getResource();
-
-        ResourceState currentState = registry.getResourceState(resourceId);
-        if (currentState != null) {
-            registry.setResourceState(resourceId, ResourceState.makeInterested(currentState));
-        }
-
         Roster roster = null;
         try {
             roster = rosterManager.retrieve(from.getBareJID());
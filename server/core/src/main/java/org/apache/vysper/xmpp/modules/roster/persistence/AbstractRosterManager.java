@@ -25,6 +25,7 @@ import org.apache.vysper.xmpp.modules.roster.MutableRoster;
 import org.apache.vysper.xmpp.modules.roster.Roster;
 import org.apache.vysper.xmpp.modules.roster.RosterException;
 import org.apache.vysper.xmpp.modules.roster.RosterItem;
+import org.apache.vysper.xmpp.server.jfr.FlightRecorderEvents;
 
 /**
  *
@@ -38,7 +39,12 @@ public abstract class AbstractRosterManager implements RosterManager, ServerRunt
 
     public Roster retrieve(Entity jid) {
         jid = jid.getBareJID();
-        return retrieveRosterInternal(jid);
+        Object jfrEvent = FlightRecorderEvents.beginStorage();
+        try {
+            return retrieveRosterInternal(jid);
+        } finally {
+            FlightRecorderEvents.endStorage(jfrEvent, "roster.retrieve", getClass());
+        }
     }
 
     public void addContact(Entity jid, RosterItem rosterItem) throws RosterException {
@@ -21,6 +21,8 @@ package org.apache.vysper.xmpp.protocol;
 
 import static java.util.Objects.requireNonNull;
 
+import java.util.Collection;
+
 import org.apache.vysper.xmpp.addressing.Entity;
 import org.apache.vysper.xmpp.delivery.OfflineStanzaReceiver;
 import org.apache.vysper.xmpp.delivery.StanzaRelay;
@@ -75,6 +77,18 @@ public class DefaultStanzaBroker implements StanzaBroker {
         offlineStanzaReceiver.receive(stanza);
     }
 
+    @Override
+    public void writeToSession(Collection<Stanza> stanzas) {
+        if (stanzas == null || stanzas.isEmpty()) {
+            return;
+        }
+        if (sessionContext != null) {
+            sessionContext.getResponseWriter().writeBatch(stanzas);
+            return;
+        }
+        StanzaBroker.super.writeToSession(stanzas);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
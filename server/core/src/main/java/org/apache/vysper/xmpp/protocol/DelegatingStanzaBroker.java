@@ -27,6 +27,9 @@ import org.apache.vysper.xmpp.delivery.failure.DeliveryFailureStrategy;
 import org.apache.vysper.xmpp.stanza.Stanza;
 
 /**
+ * batches written to the session are not passed to the delegate as a whole, but stanza by stanza
+ * through {@link #writeToSession(Stanza)}, so that subclasses see every stanza.
+ *
  * @author Réda Housni Alaoui
  */
 public abstract class DelegatingStanzaBroker implements StanzaBroker {
@@ -69,6 +69,14 @@ public class NamespaceURIs {
     public static final String URN_XMPP_PING = "urn:xmpp:ping";
 
     public static final String URN_XMPP_DELAY = "urn:xmpp:delay";
+
+    public static final String URN_XMPP_SM_3 = "urn:xmpp:sm:3";
+
+    public static final String URN_XMPP_CSI_0 = "urn:xmpp:csi:0";
+
+    public static final String URN_XMPP_SASL_2 = "urn:xmpp:sasl:2";
+
+    public static final String URN_XMPP_BIND_0 = "urn:xmpp:bind:0";
     
     public static final String URN_XMPP_XBOSH = "urn:xmpp:xbosh";
 
@@ -78,6 +86,10 @@ public class NamespaceURIs {
 
     public static final String JABBER_ORG_FEATURES_IQ_REGISTER = "http://jabber.org/features/iq-register";
 
+    public static final String JABBER_ORG_FEATURES_COMPRESS = "http://jabber.org/features/compress";
+
+    public static final String XEP0138_STREAM_COMPRESSION = "http://jabber.org/protocol/compress";
+
     public static final String XEP0030_SERVICE_DISCOVERY_ITEMS = "http://jabber.org/protocol/disco#items";
 
     public static final String XEP0030_SERVICE_DISCOVERY_INFO = "http://jabber.org/protocol/disco#info";
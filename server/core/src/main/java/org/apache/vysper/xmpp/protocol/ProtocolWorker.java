@@ -37,6 +37,7 @@ import org.apache.vysper.xmpp.protocol.worker.UnconnectedProtocolWorker;
 import org.apache.vysper.xmpp.server.ServerRuntimeContext;
 import org.apache.vysper.xmpp.server.SessionState;
 import org.apache.vysper.xmpp.server.InternalSessionContext;
+import org.apache.vysper.xmpp.server.jfr.FlightRecorderEvents;
 import org.apache.vysper.xmpp.server.response.ServerErrorResponses;
 import org.apache.vysper.xmpp.stanza.Stanza;
 import org.apache.vysper.xmpp.stanza.StanzaBuilder;
@@ -188,12 +189,15 @@ public class ProtocolWorker implements StanzaProcessor {
             }
         }
         
+        Object jfrEvent = FlightRecorderEvents.beginStanzaProcessing();
         try {
             stateAwareProtocolWorker.processStanza(serverRuntimeContext, sessionContext, sessionStateHolder, stanza, stanzaHandler);
         } catch (Exception e) {
             logger.error("error executing handler {} with stanza {}", stanzaHandler.getClass().getName(),
                     DenseStanzaLogRenderer.render(stanza));
             logger.debug("error executing handler exception: ", e);
+        } finally {
+            FlightRecorderEvents.endStanzaProcessing(jfrEvent, stanzaHandler, stanza);
         }
     }
 
@@ -25,6 +25,8 @@ import org.apache.vysper.xmpp.delivery.OfflineStanzaReceiver;
 import org.apache.vysper.xmpp.delivery.StanzaRelay;
 import org.apache.vysper.xmpp.server.InternalSessionContext;
 import org.apache.vysper.xmpp.server.ServerRuntimeContext;
+import org.apache.vysper.xmpp.server.trace.StanzaTracer;
+import org.apache.vysper.xmpp.server.trace.TracePoint;
 import org.apache.vysper.xmpp.stanza.Stanza;
 
 /**
@@ -51,8 +53,13 @@ class SimpleStanzaHandlerExecutor implements StanzaHandlerExecutor {
         StanzaHandlerInterceptorChain interceptorChain = new SimpleStanzaHandlerInterceptorChain(stanzaHandler,
                 serverRuntimeContext.getStanzaHandlerInterceptors());
 
-        interceptorChain.intercept(stanza, serverRuntimeContext, isOutboundStanza, sessionContext, sessionStateHolder,
-                new DefaultStanzaBroker(stanzaRelay, sessionContext, offlineStanzaReceiver));
+        StanzaTracer.stamp(TracePoint.HANDLER_START);
+        try {
+            interceptorChain.intercept(stanza, serverRuntimeContext, isOutboundStanza, sessionContext,
+                    sessionStateHolder, new DefaultStanzaBroker(stanzaRelay, sessionContext, offlineStanzaReceiver));
+        } finally {
+            StanzaTracer.stamp(TracePoint.HANDLER_END);
+        }
     }
 
 }
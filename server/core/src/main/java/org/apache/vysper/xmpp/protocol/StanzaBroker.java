@@ -19,6 +19,8 @@
  */
 package org.apache.vysper.xmpp.protocol;
 
+import java.util.Collection;
+
 import org.apache.vysper.xmpp.addressing.Entity;
 import org.apache.vysper.xmpp.delivery.failure.DeliveryException;
 import org.apache.vysper.xmpp.delivery.failure.DeliveryFailureStrategy;
@@ -34,4 +36,13 @@ public interface StanzaBroker {
 
     void writeToSession(Stanza stanza);
 
+    /**
+     * writes all stanzas to the session, allowing the session to send them in one batch
+     */
+    default void writeToSession(Collection<Stanza> stanzas) {
+        for (Stanza stanza : stanzas) {
+            writeToSession(stanza);
+        }
+    }
+
 }
@@ -23,6 +23,7 @@ import org.apache.vysper.xmpp.modules.core.base.handler.StreamStartHandler;
 import org.apache.vysper.xmpp.modules.core.base.handler.XMLPrologHandler;
 import org.apache.vysper.xmpp.modules.core.sasl.handler.AbstractSASLHandler;
 import org.apache.vysper.xmpp.modules.extension.xep0077_inbandreg.InBandRegistrationHandler;
+import org.apache.vysper.xmpp.modules.extension.xep0138_stream_compression.CompressHandler;
 import org.apache.vysper.xmpp.modules.extension.xep0220_server_dailback.DbResultHandler;
 import org.apache.vysper.xmpp.modules.extension.xep0220_server_dailback.DbVerifyHandler;
 import org.apache.vysper.xmpp.protocol.ResponseWriter;
@@ -65,6 +66,8 @@ public class EncryptedProtocolWorker extends AbstractStateAwareProtocolWorker {
             return true;
         } else if (sessionContext.isServerToServer() && DbVerifyHandler.class.isAssignableFrom(handlerUnwrappedType)) {
             return true;
+        } else if (sessionContext.isServerToServer() && CompressHandler.class.isAssignableFrom(handlerUnwrappedType)) {
+            return true;
         }
         ResponseWriter.writeUnsupportedStanzaError(sessionContext);
         return false;
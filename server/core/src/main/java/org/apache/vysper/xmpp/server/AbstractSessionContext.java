@@ -24,12 +24,13 @@ import java.util.HashMap;
 import java.util.Map;
 
 import org.apache.vysper.xmpp.addressing.Entity;
+import org.apache.vysper.xmpp.modules.extension.xep0352_csi.ClientStateFilter;
 import org.apache.vysper.xmpp.protocol.SessionStateHolder;
 import org.apache.vysper.xmpp.protocol.StanzaProcessor;
 import org.apache.vysper.xmpp.stanza.Stanza;
 import org.apache.vysper.xmpp.stanza.StanzaBuilder;
 import org.apache.vysper.xmpp.state.resourcebinding.BindException;
-import org.apache.vysper.xmpp.uuid.JVMBuiltinUUIDGenerator;
+import org.apache.vysper.xmpp.uuid.FastUUIDGenerator;
 import org.apache.vysper.xmpp.uuid.UUIDGenerator;
 import org.apache.vysper.xmpp.writer.StanzaWriter;
 
@@ -48,7 +49,7 @@ public abstract class AbstractSessionContext implements InternalSessionContext {
 
     protected String xmlLang;
 
-    protected UUIDGenerator sequence = new JVMBuiltinUUIDGenerator();
+    protected UUIDGenerator sequence = new FastUUIDGenerator();
 
     protected SessionStateHolder sessionStateHolder; // be secure: do not provide this via a getter or other means
 
@@ -60,6 +61,8 @@ public abstract class AbstractSessionContext implements InternalSessionContext {
 
     private Map<String, Object> attributeMap = new HashMap<>();
 
+    private volatile ClientStateFilter clientStateFilter;
+
     public AbstractSessionContext(ServerRuntimeContext serverRuntimeContext, StanzaProcessor stanzaProcessor,
             SessionStateHolder sessionStateHolder) {
         this.serverRuntimeContext = serverRuntimeContext;
@@ -161,6 +164,26 @@ public abstract class AbstractSessionContext implements InternalSessionContext {
         // TODO close underlying transport (TCP socket)
     }
 
+    /**
+     * @return the filter of the client state indication, or null if the client has never indicated its state
+     */
+    public ClientStateFilter getClientStateFilter() {
+        return clientStateFilter;
+    }
+
+    public void setClientStateFilter(ClientStateFilter clientStateFilter) {
+        this.clientStateFilter = clientStateFilter;
+    }
+
+    /**
+     * transports return their response writer through this, so that the stanzas written to an inactive
+     * client pass its client state filter
+     */
+    protected StanzaWriter filterResponseWriter(StanzaWriter transportWriter) {
+        ClientStateFilter filter = clientStateFilter;
+        return filter == null ? transportWriter : filter;
+    }
+
     public Entity getServerJID() {
         return serverEntity;
     }
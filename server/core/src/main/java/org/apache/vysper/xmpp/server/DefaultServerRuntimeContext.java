@@ -31,13 +31,14 @@ import java.util.Map;
 import javax.net.ssl.SSLContext;
 
 import org.apache.vysper.event.EventBus;
-import org.apache.vysper.event.SimpleEventBus;
+import org.apache.vysper.event.IndexedEventBus;
 import org.apache.vysper.storage.OpenStorageProviderRegistry;
 import org.apache.vysper.storage.StorageProvider;
 import org.apache.vysper.storage.StorageProviderRegistry;
 import org.apache.vysper.xmpp.addressing.Entity;
 import org.apache.vysper.xmpp.authentication.UserAuthentication;
 import org.apache.vysper.xmpp.cryptography.TLSContextFactory;
+import org.apache.vysper.xmpp.cryptography.TLSSessionCache;
 import org.apache.vysper.xmpp.delivery.OfflineStanzaReceiver;
 import org.apache.vysper.xmpp.delivery.StanzaRelay;
 import org.apache.vysper.xmpp.modules.Module;
@@ -61,7 +62,7 @@ import org.apache.vysper.xmpp.state.presence.LatestPresenceCache;
 import org.apache.vysper.xmpp.state.presence.SimplePresenceCache;
 import org.apache.vysper.xmpp.state.resourcebinding.DefaultResourceRegistry;
 import org.apache.vysper.xmpp.state.resourcebinding.ResourceRegistry;
-import org.apache.vysper.xmpp.uuid.JVMBuiltinUUIDGenerator;
+import org.apache.vysper.xmpp.uuid.SecureUUIDGenerator;
 import org.apache.vysper.xmpp.uuid.UUIDGenerator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -99,7 +100,7 @@ public class DefaultServerRuntimeContext implements InternalServerRuntimeContext
     /**
      * generates unique session ids
      */
-    private final UUIDGenerator sessionIdGenerator = new JVMBuiltinUUIDGenerator();
+    private UUIDGenerator sessionIdGenerator = new SecureUUIDGenerator();
 
     // basic services the server is using...
 
@@ -140,7 +141,7 @@ public class DefaultServerRuntimeContext implements InternalServerRuntimeContext
      */
     private final AlterableComponentRegistry componentRegistry;
 
-    private final SimpleEventBus eventBus;
+    private final IndexedEventBus eventBus;
 
     private final ComponentStanzaProcessorFactory componentStanzaProcessorFactory;
 
@@ -158,7 +159,7 @@ public class DefaultServerRuntimeContext implements InternalServerRuntimeContext
         this.serverConnectorRegistry = new DefaultXMPPServerConnectorRegistry(this, simpleStanzaHandlerExecutorFactory,
                 stanzaProcessor);
         this.stanzaHandlerLookup = new StanzaHandlerLookup(this);
-        this.eventBus = new SimpleEventBus();
+        this.eventBus = new IndexedEventBus();
         this.serverFeatures = serverFeatures;
         this.resourceRegistry = resourceRegistry;
         this.componentStanzaProcessorFactory = new ComponentStanzaProcessorFactory(simpleStanzaHandlerExecutorFactory);
@@ -189,6 +190,14 @@ public class DefaultServerRuntimeContext implements InternalServerRuntimeContext
         this.presenceCache = presenceCache;
     }
 
+    /**
+     * session ids are used as stream ids and by BOSH to identify sessions, so they must be unguessable.
+     * used at initialisation time.
+     */
+    public void setSessionIdGenerator(UUIDGenerator sessionIdGenerator) {
+        this.sessionIdGenerator = sessionIdGenerator;
+    }
+
     @Override
     public StanzaHandler getHandler(Stanza stanza) {
         return stanzaHandlerLookup.getHandler(stanza);
@@ -239,6 +248,8 @@ public class DefaultServerRuntimeContext implements InternalServerRuntimeContext
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
+        // replaces the cache of a previous context
+        serverRuntimeContextServiceMap.put(TLSSessionCache.SERVICE_NAME, new TLSSessionCache(sslContext));
     }
 
     @Override
@@ -37,8 +37,12 @@ import org.apache.vysper.xmpp.modules.extension.xep0054_vcardtemp.VcardTempModul
 import org.apache.vysper.xmpp.modules.extension.xep0077_inbandreg.InBandRegistrationModule;
 import org.apache.vysper.xmpp.modules.extension.xep0092_software_version.SoftwareVersionModule;
 import org.apache.vysper.xmpp.modules.extension.xep0133_service_administration.ServiceAdministrationModule;
+import org.apache.vysper.xmpp.modules.extension.xep0138_stream_compression.StreamCompressionModule;
+import org.apache.vysper.xmpp.modules.extension.xep0198_stream_mgmt.StreamManagementModule;
 import org.apache.vysper.xmpp.modules.extension.xep0199_xmppping.XmppPingModule;
 import org.apache.vysper.xmpp.modules.extension.xep0202_entity_time.EntityTimeModule;
+import org.apache.vysper.xmpp.modules.extension.xep0352_csi.ClientStateIndicationModule;
+import org.apache.vysper.xmpp.modules.extension.xep0388_sasl2.Sasl2Module;
 
 /**
  * starts the server as a standalone application
@@ -91,6 +95,10 @@ public class ServerMain {
         server.addModule(new EntityTimeModule());
         server.addModule(new VcardTempModule());
         server.addModule(new XmppPingModule());
+        server.addModule(new StreamManagementModule());
+        server.addModule(new ClientStateIndicationModule());
+        server.addModule(new Sasl2Module());
+        server.addModule(new StreamCompressionModule());
         server.addModule(new PrivateDataModule());
         
         // uncomment to enable in-band registrations (XEP-0077)
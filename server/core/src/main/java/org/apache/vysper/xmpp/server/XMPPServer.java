@@ -19,14 +19,20 @@
  */
 package org.apache.vysper.xmpp.server;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.commons.lang.StringUtils;
+import org.apache.vysper.event.IndexedEventBus;
+import org.apache.vysper.mina.BufferAllocation;
+import org.apache.vysper.mina.IoTopology;
+import org.apache.vysper.mina.TCPEndpoint;
 import org.apache.vysper.storage.StorageProviderRegistry;
 import org.apache.vysper.storage.logstanzas.LogStorageProvider;
 import org.apache.vysper.xmpp.addressing.EntityFormatException;
@@ -53,8 +59,11 @@ import org.apache.vysper.xmpp.protocol.StanzaHandlerExecutorFactory;
 import org.apache.vysper.xmpp.protocol.StanzaProcessor;
 import org.apache.vysper.xmpp.server.components.AlterableComponentRegistry;
 import org.apache.vysper.xmpp.server.components.SimpleComponentRegistry;
+import org.apache.vysper.xmpp.server.logging.StanzaLogPipeline;
 import org.apache.vysper.xmpp.state.resourcebinding.DefaultResourceRegistry;
 import org.apache.vysper.xmpp.state.resourcebinding.InternalResourceRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * this class is able to boot a standalone XMPP server. <code>
@@ -70,6 +79,8 @@ import org.apache.vysper.xmpp.state.resourcebinding.InternalResourceRegistry;
  */
 public class XMPPServer {
 
+    private static final Logger LOG = LoggerFactory.getLogger(XMPPServer.class);
+
     private final List<SASLMechanism> saslMechanisms = new ArrayList<SASLMechanism>();
 
     private String serverDomain;
@@ -92,10 +103,22 @@ public class XMPPServer {
 
     private final List<Module> initialModules = new ArrayList<Module>();
 
+    private int tlsSessionCacheSize = -1;
+
+    private int tlsSessionTimeout = -1;
+
+    private Boolean tlsSessionTicketsEnabled = null;
+
     private int maxInternalRelayThreads = -1;
 
     private int maxExternalRelayThreads = -1;
 
+    private boolean relayingOnVirtualThreads = false;
+
+    private BufferAllocation bufferAllocation;
+
+    private StanzaLogPipeline stanzaLogPipeline = new StanzaLogPipeline(StanzaLogPipeline.DEFAULT_CAPACITY);
+
     public XMPPServer(String domain) {
         if (StringUtils.isBlank(domain)) {
             throw new IllegalArgumentException("server domain cannot be blank, empty or NULL");
@@ -143,6 +166,27 @@ public class XMPPServer {
         tlsKeyStoreType = keyStoreType;
     }
 
+    /**
+     * @see org.apache.vysper.xmpp.cryptography.AbstractTLSContextFactory#setSessionCacheSize(int)
+     */
+    public void setTLSSessionCacheSize(int tlsSessionCacheSize) {
+        this.tlsSessionCacheSize = tlsSessionCacheSize;
+    }
+
+    /**
+     * @see org.apache.vysper.xmpp.cryptography.AbstractTLSContextFactory#setSessionTimeout(int)
+     */
+    public void setTLSSessionTimeout(int tlsSessionTimeout) {
+        this.tlsSessionTimeout = tlsSessionTimeout;
+    }
+
+    /**
+     * @see org.apache.vysper.xmpp.cryptography.AbstractTLSContextFactory#setSessionTicketsEnabled(boolean)
+     */
+    public void setTLSSessionTicketsEnabled(boolean tlsSessionTicketsEnabled) {
+        this.tlsSessionTicketsEnabled = tlsSessionTicketsEnabled;
+    }
+
     public void setMaxInternalRelayThreads(int maxInternalRelayThreads) {
         this.maxInternalRelayThreads = maxInternalRelayThreads;
     }
@@ -151,12 +195,62 @@ public class XMPPServer {
         this.maxExternalRelayThreads = maxExternalRelayThreads;
     }
 
+    /**
+     * relays stanzas on virtual threads instead of the relay thread pools, requires Java 21 or later.
+     * the maximum relay thread counts are ignored then. processing of stanzas received from clients
+     * is switched per endpoint, see {@link org.apache.vysper.mina.IoTopology.ExecutorModel#VIRTUAL_THREADS}.
+     */
+    public void setRelayingOnVirtualThreads(boolean relayingOnVirtualThreads) {
+        this.relayingOnVirtualThreads = relayingOnVirtualThreads;
+    }
+
+    /**
+     * sets the buffer allocator of MINA, null keeps the allocator already installed. the allocator
+     * is shared by all endpoints and server-to-server connectors of this JVM.
+     */
+    public void setBufferAllocation(BufferAllocation bufferAllocation) {
+        this.bufferAllocation = bufferAllocation;
+    }
+
+    /**
+     * the pipeline logging the stanzas of this server, to the stanza loggers and the
+     * {@link LogStorageProvider}. its sampler and rate limit can be configured at any time.
+     */
+    public StanzaLogPipeline getStanzaLogPipeline() {
+        return stanzaLogPipeline;
+    }
+
+    /**
+     * replaces the stanza log pipeline, like for a different queue capacity. has to be called before
+     * the server is started.
+     */
+    public void setStanzaLogPipeline(StanzaLogPipeline stanzaLogPipeline) {
+        if (serverRuntimeContext != null) {
+            throw new IllegalStateException("server started, can not set the stanza log pipeline");
+        }
+        this.stanzaLogPipeline = stanzaLogPipeline;
+    }
+
     public void addEndpoint(Endpoint endpoint) {
         endpoints.add(endpoint);
     }
 
     public void start() throws Exception {
 
+        if (bufferAllocation != null) {
+            if (bufferAllocation == BufferAllocation.POOLED) {
+                for (Endpoint endpoint : endpoints) {
+                    if (endpoint instanceof TCPEndpoint && ((TCPEndpoint) endpoint).getIoTopology()
+                            .getExecutorModel() != IoTopology.ExecutorModel.IO_THREAD) {
+                        throw new IllegalStateException(
+                                "pooled buffers can only be used with executor model IO_THREAD on all endpoints");
+                    }
+                }
+            }
+            LOG.info("using {} buffer allocation", bufferAllocation);
+            bufferAllocation.apply();
+        }
+
         ServerFeatures serverFeatures = createServerFeatures();
         serverFeatures.setAuthenticationMethods(saslMechanisms);
 
@@ -175,6 +269,11 @@ public class XMPPServer {
         if (tlsKeyStoreType != null) {
             tlsContextFactory.setKeyStoreType(tlsKeyStoreType);
         }
+        tlsContextFactory.setSessionCacheSize(tlsSessionCacheSize);
+        tlsContextFactory.setSessionTimeout(tlsSessionTimeout);
+        if (tlsSessionTicketsEnabled != null) {
+            tlsContextFactory.setSessionTicketsEnabled(tlsSessionTicketsEnabled);
+        }
 
         List<HandlerDictionary> dictionaries = new ArrayList<>();
         addCoreDictionaries(dictionaries);
@@ -192,10 +291,15 @@ public class XMPPServer {
                 serverEntity, resourceRegistry, componentRegistry, accountManagement);
         DeliveringExternalInboundStanzaRelay externalStanzaRelay = new DeliveringExternalInboundStanzaRelay();
 
-        if (maxInternalRelayThreads >= 0)
-            internalStanzaRelay.setMaxThreadCount(maxInternalRelayThreads);
-        if (maxExternalRelayThreads >= 0)
-            externalStanzaRelay.setMaxThreadCount(maxExternalRelayThreads);
+        if (relayingOnVirtualThreads) {
+            internalStanzaRelay.useVirtualThreads();
+            externalStanzaRelay.useVirtualThreads();
+        } else {
+            if (maxInternalRelayThreads >= 0)
+                internalStanzaRelay.setMaxThreadCount(maxInternalRelayThreads);
+            if (maxExternalRelayThreads >= 0)
+                externalStanzaRelay.setMaxThreadCount(maxExternalRelayThreads);
+        }
 
         stanzaRelayBroker = new StanzaRelayBroker();
         stanzaRelayBroker.setInternalRelay(internalStanzaRelay);
@@ -210,6 +314,7 @@ public class XMPPServer {
                 componentRegistry, resourceRegistry, serverFeatures, dictionaries, offlineReceiver);
         serverRuntimeContext.setStorageProviderRegistry(storageProviderRegistry);
         serverRuntimeContext.setTlsContextFactory(tlsContextFactory);
+        serverRuntimeContext.registerServerRuntimeContextService(stanzaLogPipeline);
 
         for (Module module : initialModules) {
             serverRuntimeContext.addModule(module);
@@ -217,6 +322,7 @@ public class XMPPServer {
 
         stanzaRelayBroker.setServerRuntimeContext(serverRuntimeContext);
         internalStanzaRelay.setServerRuntimeContext(serverRuntimeContext);
+        internalStanzaRelay.setStanzaLogPipeline(stanzaLogPipeline);
         internalStanzaRelay.setStanzaHandlerExecutorFactory(stanzaHandlerExecutorFactory);
         externalStanzaRelay.setServerRuntimeContext(serverRuntimeContext);
 
@@ -257,6 +363,21 @@ public class XMPPServer {
 
         stanzaRelayBroker.stop();
         serverRuntimeContext.getServerConnectorRegistry().close();
+        if (serverRuntimeContext.getEventBus() instanceof IndexedEventBus) {
+            ((IndexedEventBus) serverRuntimeContext.getEventBus()).close();
+        }
+
+        // stanzas still queued are logged, to the log storage too, before it is closed
+        stanzaLogPipeline.close();
+
+        // storages buffering writes get the chance to flush them
+        if (storageProviderRegistry instanceof Closeable) {
+            try {
+                ((Closeable) storageProviderRegistry).close();
+            } catch (IOException e) {
+                LOG.error("failed to close the storage", e);
+            }
+        }
     }
 
     public void addModule(Module module) {
@@ -0,0 +1,126 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.server.jfr;
+
+import org.apache.vysper.xmpp.addressing.Entity;
+import org.apache.vysper.xmpp.protocol.StanzaHandler;
+import org.apache.vysper.xmpp.stanza.Stanza;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * emits JDK Flight Recorder events for stanza processing, relaying, server to server connects and
+ * storage calls, so that a recording shows which stanzas and storage calls caused a latency spike.
+ * the events are in the "Vysper" category and are named <code>org.apache.vysper.*</code>.
+ * <br>
+ * every operation is wrapped in a begin and an end call. begin returns null if the event is not
+ * enabled in any recording, then end does nothing. so without a recording, an operation costs a
+ * check of a flag. on VMs without JFR, nothing is ever recorded. stanza, relay and storage events
+ * have a default threshold of 1 ms.
+ * <pre>
+ * Object event = FlightRecorderEvents.beginStorage();
+ * try {
+ *     ...
+ * } finally {
+ *     FlightRecorderEvents.endStorage(event, "roster.retrieve", getClass());
+ * }
+ * </pre>
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public final class FlightRecorderEvents {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FlightRecorderEvents.class);
+
+    private static final boolean AVAILABLE = detectFlightRecorder();
+
+    private FlightRecorderEvents() {
+        // static only
+    }
+
+    private static boolean detectFlightRecorder() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return JfrEvents.isAvailable();
+        } catch (Throwable e) {
+            LOG.debug("JDK Flight Recorder is not available, no events will be recorded");
+            return false;
+        }
+    }
+
+    public static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    public static Object beginStanzaProcessing() {
+        return AVAILABLE ? JfrEvents.beginStanzaProcessing() : null;
+    }
+
+    public static void endStanzaProcessing(Object event, StanzaHandler stanzaHandler, Stanza stanza) {
+        if (event == null) return;
+        JfrEvents.endStanzaProcessing(event, stanzaHandler.unwrapType().getName(), stanza);
+    }
+
+    /**
+     * @return true, if relay events are recorded and the time a stanza is handed to a relay should be taken
+     */
+    public static boolean isRelayDeliveryEnabled() {
+        return AVAILABLE && JfrEvents.isRelayDeliveryEnabled();
+    }
+
+    /**
+     * @param enqueuedNanos {@link System#nanoTime()} when the stanza was handed to the relay, 0 if unknown
+     */
+    public static Object beginRelayDelivery(long enqueuedNanos) {
+        if (!AVAILABLE) return null;
+        long queueWait = enqueuedNanos == 0 ? 0 : Math.max(0, System.nanoTime() - enqueuedNanos);
+        return JfrEvents.beginRelayDelivery(queueWait);
+    }
+
+    /**
+     * @param fanOut number of sessions the stanza has been delivered to
+     */
+    public static void endRelayDelivery(Object event, String relay, Stanza stanza, int fanOut) {
+        if (event == null) return;
+        JfrEvents.endRelayDelivery(event, relay, stanza, fanOut);
+    }
+
+    public static Object beginServerConnect() {
+        return AVAILABLE ? JfrEvents.beginServerConnect() : null;
+    }
+
+    public static void endServerConnect(Object event, Entity remoteServer, boolean connected) {
+        if (event == null) return;
+        JfrEvents.endServerConnect(event, remoteServer.getFullQualifiedName(), connected);
+    }
+
+    public static Object beginStorage() {
+        return AVAILABLE ? JfrEvents.beginStorage() : null;
+    }
+
+    /**
+     * @param operation like <code>roster.retrieve</code>
+     * @param provider the class of the storage provider
+     */
+    public static void endStorage(Object event, String operation, Class<?> provider) {
+        if (event == null) return;
+        JfrEvents.endStorage(event, operation, provider);
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.server.jfr;
+
+import java.util.List;
+
+import org.apache.vysper.xml.fragment.XMLElement;
+import org.apache.vysper.xmpp.stanza.Stanza;
+
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+
+/**
+ * creates and commits the events. only loaded by {@link FlightRecorderEvents} if the VM supports JFR.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+final class JfrEvents {
+
+    private static final EventType STANZA_PROCESSING = EventType.getEventType(StanzaProcessingEvent.class);
+
+    private static final EventType RELAY_DELIVERY = EventType.getEventType(RelayDeliveryEvent.class);
+
+    private static final EventType SERVER_CONNECT = EventType.getEventType(ServerConnectEvent.class);
+
+    private static final EventType STORAGE = EventType.getEventType(StorageEvent.class);
+
+    private JfrEvents() {
+        // static only
+    }
+
+    static boolean isAvailable() {
+        return FlightRecorder.isAvailable();
+    }
+
+    static Object beginStanzaProcessing() {
+        if (!STANZA_PROCESSING.isEnabled()) return null;
+        StanzaProcessingEvent event = new StanzaProcessingEvent();
+        event.begin();
+        return event;
+    }
+
+    static void endStanzaProcessing(Object begun, String handler, Stanza stanza) {
+        StanzaProcessingEvent event = (StanzaProcessingEvent) begun;
+        event.end();
+        if (!event.shouldCommit()) return;
+        event.handler = handler;
+        event.stanza = stanza.getName();
+        event.type = stanza.getAttributeValue("type");
+        event.namespace = payloadNamespace(stanza);
+        event.commit();
+    }
+
+    static boolean isRelayDeliveryEnabled() {
+        return RELAY_DELIVERY.isEnabled();
+    }
+
+    static Object beginRelayDelivery(long queueWait) {
+        if (!RELAY_DELIVERY.isEnabled()) return null;
+        RelayDeliveryEvent event = new RelayDeliveryEvent();
+        event.queueWait = queueWait;
+        event.begin();
+        return event;
+    }
+
+    static void endRelayDelivery(Object begun, String relay, Stanza stanza, int fanOut) {
+        RelayDeliveryEvent event = (RelayDeliveryEvent) begun;
+        event.end();
+        if (!event.shouldCommit()) return;
+        event.relay = relay;
+        event.stanza = stanza.getName();
+        event.type = stanza.getAttributeValue("type");
+        event.fanOut = fanOut;
+        event.commit();
+    }
+
+    static Object beginServerConnect() {
+        if (!SERVER_CONNECT.isEnabled()) return null;
+        ServerConnectEvent event = new ServerConnectEvent();
+        event.begin();
+        return event;
+    }
+
+    static void endServerConnect(Object begun, String remoteServer, boolean connected) {
+        ServerConnectEvent event = (ServerConnectEvent) begun;
+        event.end();
+        if (!event.shouldCommit()) return;
+        event.remoteServer = remoteServer;
+        event.connected = connected;
+        event.commit();
+    }
+
+    static Object beginStorage() {
+        if (!STORAGE.isEnabled()) return null;
+        StorageEvent event = new StorageEvent();
+        event.begin();
+        return event;
+    }
+
+    static void endStorage(Object begun, String operation, Class<?> provider) {
+        StorageEvent event = (StorageEvent) begun;
+        event.end();
+        if (!event.shouldCommit()) return;
+        event.operation = operation;
+        event.provider = provider.getName();
+        event.commit();
+    }
+
+    private static String payloadNamespace(Stanza stanza) {
+        List<XMLElement> innerElements = stanza.getInnerElements();
+        return innerElements.isEmpty() ? null : innerElements.get(0).getNamespaceURI();
+    }
+}
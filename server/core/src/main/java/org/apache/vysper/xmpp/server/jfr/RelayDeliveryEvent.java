@@ -0,0 +1,61 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.server.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * a stanza delivered by a relay
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+@Name(RelayDeliveryEvent.NAME)
+@Label("Relay Delivery")
+@Category({ "Vysper", "Stanza" })
+@Description("A stanza delivered by a relay, to local sessions or a remote server")
+@Threshold("1 ms")
+class RelayDeliveryEvent extends Event {
+
+    static final String NAME = "org.apache.vysper.RelayDelivery";
+
+    @Label("Relay")
+    String relay;
+
+    @Label("Stanza")
+    String stanza;
+
+    @Label("Type")
+    String type;
+
+    @Label("Queue Wait")
+    @Description("Time the stanza waited for a relay thread")
+    @Timespan(Timespan.NANOSECONDS)
+    long queueWait;
+
+    @Label("Fan-out")
+    @Description("Number of sessions the stanza has been delivered to")
+    int fanOut;
+}
@@ -0,0 +1,46 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.server.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * connecting and authenticating to a remote server
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+@Name(ServerConnectEvent.NAME)
+@Label("Server Connect")
+@Category({ "Vysper", "Server to Server" })
+@Description("Connecting and authenticating to a remote XMPP server")
+class ServerConnectEvent extends Event {
+
+    static final String NAME = "org.apache.vysper.ServerConnect";
+
+    @Label("Remote Server")
+    String remoteServer;
+
+    @Label("Connected")
+    boolean connected;
+}
@@ -0,0 +1,56 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.server.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * a stanza received from a session, processed by its handler
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+@Name(StanzaProcessingEvent.NAME)
+@Label("Stanza Processing")
+@Category({ "Vysper", "Stanza" })
+@Description("A stanza received from a session, processed by its handler")
+@Threshold("1 ms")
+class StanzaProcessingEvent extends Event {
+
+    static final String NAME = "org.apache.vysper.StanzaProcessing";
+
+    @Label("Handler")
+    String handler;
+
+    @Label("Stanza")
+    @Description("Element name of the stanza, like iq or message")
+    String stanza;
+
+    @Label("Type")
+    String type;
+
+    @Label("Namespace")
+    @Description("Namespace of the stanza payload")
+    String namespace;
+}
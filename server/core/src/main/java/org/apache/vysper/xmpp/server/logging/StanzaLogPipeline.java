@@ -0,0 +1,292 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.server.logging;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.vysper.storage.logstanzas.LogStorageProvider;
+import org.apache.vysper.xml.fragment.Renderer;
+import org.apache.vysper.xml.fragment.XMLElement;
+import org.apache.vysper.xmpp.addressing.Entity;
+import org.apache.vysper.xmpp.modules.ServerRuntimeContextService;
+import org.apache.vysper.xmpp.server.ServerRuntimeContext;
+import org.apache.vysper.xmpp.stanza.Stanza;
+import org.apache.vysper.xmpp.writer.DenseStanzaLogRenderer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * logs stanzas on a background thread, so that I/O and relay threads only pay for putting a stanza
+ * into a bounded queue. stanzas are immutable, rendering them later is safe.
+ * <br>
+ * before a stanza is queued, it has to pass the {@link StanzaLogSampler} and the rate limit. if the
+ * queue is full, the stanza is dropped and counted, logging never holds up processing.
+ * <br>
+ * the logging thread is started with the first stanza. stanzas are logged in the order they have
+ * been queued.
+ * <br>
+ * each server has its own pipeline, registered as the {@link #SERVICE_NAME} service and closed when
+ * the server stops, see {@link org.apache.vysper.xmpp.server.XMPPServer#getStanzaLogPipeline()}.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class StanzaLogPipeline implements ServerRuntimeContextService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StanzaLogPipeline.class);
+
+    public static final String SERVICE_NAME = "stanzaLogPipeline";
+
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    private static final StanzaLogPipeline DEFAULT = new StanzaLogPipeline(DEFAULT_CAPACITY);
+
+    /**
+     * @return the pipeline for stanzas logged outside of a server, it is never closed
+     */
+    public static StanzaLogPipeline getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * @return the pipeline of the server, or the default pipeline if the server has none
+     */
+    public static StanzaLogPipeline of(ServerRuntimeContext serverRuntimeContext) {
+        StanzaLogPipeline pipeline = serverRuntimeContext == null ? null
+                : (StanzaLogPipeline) serverRuntimeContext.getServerRuntimeContextService(SERVICE_NAME);
+        return pipeline != null ? pipeline : DEFAULT;
+    }
+
+    private final BlockingQueue<Entry> queue;
+
+    private final StanzaLogSampler sampler = new StanzaLogSampler();
+
+    private volatile int maxPerSecond;
+
+    private volatile long currentSecond;
+
+    private final AtomicInteger currentSecondCount = new AtomicInteger();
+
+    private final LongAdder logged = new LongAdder();
+
+    private final LongAdder dropped = new LongAdder();
+
+    private final LongAdder rateLimited = new LongAdder();
+
+    private volatile Thread thread;
+
+    private volatile boolean closed;
+
+    public StanzaLogPipeline(int capacity) {
+        this.queue = new ArrayBlockingQueue<Entry>(capacity);
+    }
+
+    public String getServiceName() {
+        return SERVICE_NAME;
+    }
+
+    public StanzaLogSampler getSampler() {
+        return sampler;
+    }
+
+    /**
+     * limits the number of stanzas logged per second, 0 (the default) for no limit
+     */
+    public void setMaxPerSecond(int maxPerSecond) {
+        this.maxPerSecond = maxPerSecond;
+    }
+
+    /**
+     * logs the element at debug level as XML, or at info level in the dense form
+     * @param prefix prepended to the XML, like the direction
+     */
+    public void log(Logger logger, String prefix, XMLElement element, boolean openElement, boolean closeElement) {
+        if (!logger.isInfoEnabled() || !sampler.sample(element)) return;
+        offer(new LoggerEntry(logger, logger.isDebugEnabled(), prefix, element, openElement, closeElement));
+    }
+
+    /**
+     * hands a relayed stanza to the log storage
+     */
+    public void log(LogStorageProvider logStorageProvider, Entity receiver, Stanza stanza) {
+        if (!sampler.sample(stanza)) return;
+        offer(new StorageEntry(logStorageProvider, receiver, stanza));
+    }
+
+    private void offer(Entry entry) {
+        if (closed) return;
+        if (!acquirePermit()) {
+            rateLimited.increment();
+            return;
+        }
+        if (thread == null) {
+            start();
+        }
+        if (!queue.offer(entry)) {
+            dropped.increment();
+        }
+    }
+
+    private boolean acquirePermit() {
+        int max = maxPerSecond;
+        if (max <= 0) return true;
+        long second = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime());
+        if (second != currentSecond) {
+            // racing threads may both reset, which lets a few more through
+            currentSecond = second;
+            currentSecondCount.set(0);
+        }
+        return currentSecondCount.incrementAndGet() <= max;
+    }
+
+    private synchronized void start() {
+        if (thread != null || closed) return;
+        thread = new Thread(this::run, "vysper-stanza-log");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void run() {
+        while (!closed || !queue.isEmpty()) {
+            Entry entry;
+            try {
+                entry = queue.poll(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                if (closed) continue;
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (entry == null) continue;
+            try {
+                entry.log();
+                logged.increment();
+            } catch (RuntimeException e) {
+                LOG.warn("failed to log stanza", e);
+            }
+        }
+    }
+
+    /**
+     * stops the logging thread, after the stanzas queued have been logged
+     */
+    public void close() {
+        Thread loggingThread;
+        synchronized (this) {
+            closed = true;
+            loggingThread = thread;
+        }
+        if (loggingThread == null) return;
+        try {
+            loggingThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getLoggedCount() {
+        return logged.sum();
+    }
+
+    /**
+     * @return number of stanzas dropped because the queue was full
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return number of stanzas not logged because of the rate limit
+     */
+    public long getRateLimitedCount() {
+        return rateLimited.sum();
+    }
+
+    private interface Entry {
+        void log();
+    }
+
+    private static class LoggerEntry implements Entry {
+
+        private final Logger logger;
+
+        private final boolean debug;
+
+        private final String prefix;
+
+        private final XMLElement element;
+
+        private final boolean openElement;
+
+        private final boolean closeElement;
+
+        LoggerEntry(Logger logger, boolean debug, String prefix, XMLElement element, boolean openElement,
+                boolean closeElement) {
+            this.logger = logger;
+            this.debug = debug;
+            this.prefix = prefix;
+            this.element = element;
+            this.openElement = openElement;
+            this.closeElement = closeElement;
+        }
+
+        public void log() {
+            if (!debug) {
+                logger.info(DenseStanzaLogRenderer.render(element));
+                return;
+            }
+            Renderer renderer = new Renderer(element);
+            StringBuilder xml = new StringBuilder(prefix);
+            if (openElement) {
+                xml.append(renderer.getOpeningElement());
+            }
+            xml.append(renderer.getElementContent());
+            if (closeElement) {
+                xml.append(renderer.getClosingElement());
+            }
+            logger.debug(xml.toString());
+        }
+    }
+
+    private static class StorageEntry implements Entry {
+
+        private final LogStorageProvider logStorageProvider;
+
+        private final Entity receiver;
+
+        private final Stanza stanza;
+
+        StorageEntry(LogStorageProvider logStorageProvider, Entity receiver, Stanza stanza) {
+            this.logStorageProvider = logStorageProvider;
+            this.receiver = receiver;
+            this.stanza = stanza;
+        }
+
+        public void log() {
+            logStorageProvider.logStanza(receiver, stanza);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.server.logging;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.apache.vysper.xml.fragment.XMLElement;
+import org.apache.vysper.xmpp.addressing.Entity;
+
+/**
+ * decides which elements are logged. sample rates are given as "one in n", 1 logs everything,
+ * 0 logs nothing.
+ * <br>
+ * the rate set for the bare JID of the sender or receiver of a stanza takes precedence over the rate
+ * for the stanza's element name (like presence), which takes precedence over the default rate. so
+ * presence can be logged at one in a hundred, while everything from or to a user under
+ * investigation is logged.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class StanzaLogSampler {
+
+    private volatile int defaultSampleRate = 1;
+
+    private final ConcurrentMap<String, Integer> nameSampleRates = new ConcurrentHashMap<String, Integer>();
+
+    private final ConcurrentMap<String, Integer> jidSampleRates = new ConcurrentHashMap<String, Integer>();
+
+    public void setDefaultSampleRate(int sampleRate) {
+        this.defaultSampleRate = checkSampleRate(sampleRate);
+    }
+
+    /**
+     * @param elementName like message, presence or iq
+     */
+    public void setSampleRate(String elementName, int sampleRate) {
+        nameSampleRates.put(elementName, checkSampleRate(sampleRate));
+    }
+
+    public void setSampleRate(Entity jid, int sampleRate) {
+        jidSampleRates.put(jid.getBareJID().getFullQualifiedName(), checkSampleRate(sampleRate));
+    }
+
+    public void removeSampleRate(Entity jid) {
+        jidSampleRates.remove(jid.getBareJID().getFullQualifiedName());
+    }
+
+    /**
+     * @return true, if the element is to be logged
+     */
+    public boolean sample(XMLElement element) {
+        return sample(getSampleRate(element));
+    }
+
+    protected int getSampleRate(XMLElement element) {
+        if (!jidSampleRates.isEmpty()) {
+            Integer rate = jidSampleRate(element.getAttributeValue("from"));
+            if (rate == null) rate = jidSampleRate(element.getAttributeValue("to"));
+            if (rate != null) return rate;
+        }
+        if (!nameSampleRates.isEmpty()) {
+            Integer rate = nameSampleRates.get(element.getName());
+            if (rate != null) return rate;
+        }
+        return defaultSampleRate;
+    }
+
+    private Integer jidSampleRate(String jid) {
+        if (jid == null) return null;
+        int slash = jid.indexOf('/');
+        return jidSampleRates.get(slash < 0 ? jid : jid.substring(0, slash));
+    }
+
+    private static boolean sample(int sampleRate) {
+        if (sampleRate == 1) return true;
+        if (sampleRate == 0) return false;
+        return ThreadLocalRandom.current().nextInt(sampleRate) == 0;
+    }
+
+    private static int checkSampleRate(int sampleRate) {
+        if (sampleRate < 0) throw new IllegalArgumentException("sample rate must not be negative");
+        return sampleRate;
+    }
+}
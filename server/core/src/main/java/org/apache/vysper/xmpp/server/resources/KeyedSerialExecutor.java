@@ -0,0 +1,147 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.server.resources;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * runs tasks on an underlying executor, tasks submitted with the same key are run one after the
+ * other in submission order, tasks with different keys run concurrently.
+ * <br>
+ * this restores the ordering an unordered executor, like one starting a virtual thread per task,
+ * does not give. the queue of a key is dropped as soon as it runs empty, so keys do not have to be
+ * unregistered.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class KeyedSerialExecutor {
+
+    private static final Logger LOG = LoggerFactory.getLogger(KeyedSerialExecutor.class);
+
+    private final Executor executor;
+
+    private final ConcurrentMap<Object, SerialQueue> queues = new ConcurrentHashMap<Object, SerialQueue>();
+
+    private final AtomicInteger pending = new AtomicInteger();
+
+    public KeyedSerialExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * @throws RejectedExecutionException if the underlying executor does not accept the task
+     */
+    public void execute(Object key, Runnable task) {
+        while (true) {
+            SerialQueue queue = queues.computeIfAbsent(key, SerialQueue::new);
+            Boolean start = queue.offer(task);
+            if (start == null) {
+                // the queue has been retired concurrently, a new one is created on the next round
+                continue;
+            }
+            pending.incrementAndGet();
+            if (start) {
+                try {
+                    executor.execute(queue);
+                } catch (RejectedExecutionException e) {
+                    pending.decrementAndGet();
+                    queue.retire();
+                    throw e;
+                }
+            }
+            return;
+        }
+    }
+
+    /**
+     * @return the number of keys having queued or running tasks
+     */
+    public int getActiveKeyCount() {
+        return queues.size();
+    }
+
+    /**
+     * @return the number of tasks waiting to be run
+     */
+    public int getPendingCount() {
+        return pending.get();
+    }
+
+    private class SerialQueue implements Runnable {
+
+        private final Object key;
+
+        private final Queue<Runnable> tasks = new ArrayDeque<Runnable>();
+
+        private boolean running = false;
+
+        private boolean retired = false;
+
+        SerialQueue(Object key) {
+            this.key = key;
+        }
+
+        /**
+         * @return TRUE, if the queue has to be started, FALSE if it is already running and null if
+         * the queue has been retired and cannot take any more tasks
+         */
+        synchronized Boolean offer(Runnable task) {
+            if (retired) return null;
+            tasks.add(task);
+            if (running) return Boolean.FALSE;
+            running = true;
+            return Boolean.TRUE;
+        }
+
+        synchronized void retire() {
+            retired = true;
+            queues.remove(key, this);
+        }
+
+        public void run() {
+            while (true) {
+                Runnable task;
+                synchronized (this) {
+                    task = tasks.poll();
+                    if (task == null) {
+                        running = false;
+                        retire();
+                        return;
+                    }
+                }
+                pending.decrementAndGet();
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    LOG.warn("task for key {} failed", key, e);
+                }
+            }
+        }
+    }
+}
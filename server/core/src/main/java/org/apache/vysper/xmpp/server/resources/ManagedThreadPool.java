@@ -31,4 +31,9 @@ public interface ManagedThreadPool {
     void setThreadTimeoutSeconds(int threadTimeoutSeconds);
 
     void dumpThreadPoolInfo(Writer writer) throws IOException;
+
+    /**
+     * @return the number of tasks waiting for a thread
+     */
+    int getQueueDepth();
 }
@@ -73,6 +73,19 @@ public class ServerErrorResponses {
         return stanzaBuilder.build();
     }
 
+    /**
+     * the see-other-host stream error, which carries the host the connecting entity is redirected to
+     *
+     * @param host domain or IP address, optionally followed by a port like 'example.org:5222'. IPv6
+     *          addresses with a port have to be enclosed in brackets.
+     */
+    public static Stanza getSeeOtherHostStreamError(String host) {
+        return new StanzaBuilder("error", NamespaceURIs.URN_IETF_PARAMS_XML_NS_XMPP_STREAMS)
+                .startInnerElement(StreamErrorCondition.SEE_OTHER_HOST.value(),
+                        NamespaceURIs.URN_IETF_PARAMS_XML_NS_XMPP_STREAMS)
+                .addText(host).endInnerElement().build();
+    }
+
     /**
      * TODO move to a more general error handling
      * @param errorCondition - corresponds to one of the defined stanza error conditions
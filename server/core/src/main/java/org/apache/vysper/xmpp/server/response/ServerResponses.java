@@ -22,11 +22,18 @@ package org.apache.vysper.xmpp.server.response;
 
 import java.util.List;
 
+import org.apache.vysper.xml.fragment.AbstractXMLElementBuilder;
 import org.apache.vysper.xml.fragment.XMLElement;
 import org.apache.vysper.xml.fragment.XMLElementBuilder;
 import org.apache.vysper.xmpp.addressing.Entity;
 import org.apache.vysper.xmpp.authentication.SASLMechanism;
 import org.apache.vysper.xmpp.modules.extension.xep0077_inbandreg.InBandRegistrationModule;
+import org.apache.vysper.xmpp.modules.extension.xep0138_stream_compression.CompressibleSession;
+import org.apache.vysper.xmpp.modules.extension.xep0138_stream_compression.StreamCompressionModule;
+import org.apache.vysper.xmpp.modules.extension.xep0198_stream_mgmt.StreamManagedSession;
+import org.apache.vysper.xmpp.modules.extension.xep0198_stream_mgmt.StreamManagementModule;
+import org.apache.vysper.xmpp.modules.extension.xep0352_csi.ClientStateIndicationModule;
+import org.apache.vysper.xmpp.modules.extension.xep0388_sasl2.Sasl2Module;
 import org.apache.vysper.xmpp.protocol.NamespaceURIs;
 import org.apache.vysper.xmpp.server.ServerFeatures;
 import org.apache.vysper.xmpp.server.SessionContext;
@@ -54,7 +61,7 @@ public class ServerResponses {
                     .getServerFeatures().getAuthenticationMethods(), sessionContext);
         else if (sessionContext.getState() == SessionState.AUTHENTICATED) {
             sessionContext.setIsReopeningXMLStream();
-            innerFeatureStanza = getFeaturesForSession();
+            innerFeatureStanza = getFeaturesForSession(sessionContext);
         } else {
             throw new IllegalStateException("unsupported state for responding with stream opener");
         }
@@ -79,6 +86,9 @@ public class ServerResponses {
                 featureBuilder.startInnerElement("dialback", NamespaceURIs.URN_XMPP_FEATURES_DIALBACK).endInnerElement();
                 
             } else if (sessionContext.getState() == SessionState.ENCRYPTED) {
+                if (isCompressionOffered(sessionContext)) {
+                    getFeatureCompression(featureBuilder);
+                }
                 featureBuilder.startInnerElement("dialback", NamespaceURIs.URN_XMPP_FEATURES_DIALBACK).endInnerElement();
             } else {
                 throw new IllegalStateException("unsupported state for responding with stream opener");
@@ -131,6 +141,7 @@ public class ServerResponses {
         if (!serverFeatures.isStartTLSRequired()) {
             // only add auth methods, if StartTLS is NOT REQUIRED (according to RFC6120.html#5.3.1
             getFeaturesSASL(serverFeatures.getAuthenticationMethods(), stanzaBuilder);
+            getFeaturesSASL2(serverFeatures.getAuthenticationMethods(), sessionContext, stanzaBuilder);
         }
 
         return stanzaBuilder.build();
@@ -149,6 +160,7 @@ public class ServerResponses {
 
         StanzaBuilder stanzaBuilder = startFeatureStanza();
         getFeaturesSASL(authenticationMethods, stanzaBuilder);
+        getFeaturesSASL2(authenticationMethods, sessionContext, stanzaBuilder);
 
         if(sessionContext.getServerRuntimeContext().getModule(InBandRegistrationModule.class) != null) {
             // In-band registration active, show as feature
@@ -168,9 +180,78 @@ public class ServerResponses {
         stanzaBuilder.endInnerElement();
     }
 
+    /**
+     * offers the SASL2 profile, along with resource binding and enabling stream management inline.
+     * only TCP client sessions are offered SASL2: the inline features enable stream management,
+     * which requires a {@link StreamManagedSession}, and only MINA backed sessions are. BOSH and
+     * websocket sessions do not support stream management, and BOSH signals the end of
+     * authentication with its own restart request. they authenticate the RFC 6120 way.
+     */
+    private void getFeaturesSASL2(List<SASLMechanism> authenticationMethods, SessionContext sessionContext,
+            StanzaBuilder stanzaBuilder) {
+        if (!(sessionContext instanceof StreamManagedSession) || sessionContext.isServerToServer()
+                || sessionContext.getServerRuntimeContext() == null
+                || sessionContext.getServerRuntimeContext().getModule(Sasl2Module.class) == null) {
+            return;
+        }
+        stanzaBuilder.startInnerElement("authentication", NamespaceURIs.URN_XMPP_SASL_2);
+        for (SASLMechanism authenticationMethod : authenticationMethods) {
+            stanzaBuilder.startInnerElement("mechanism", NamespaceURIs.URN_XMPP_SASL_2).addText(
+                    authenticationMethod.getName()).endInnerElement();
+        }
+        stanzaBuilder.startInnerElement("inline", NamespaceURIs.URN_XMPP_SASL_2);
+        stanzaBuilder.startInnerElement("bind", NamespaceURIs.URN_XMPP_BIND_0);
+        if (sessionContext.getServerRuntimeContext().getModule(StreamManagementModule.class) != null) {
+            stanzaBuilder.startInnerElement("inline", NamespaceURIs.URN_XMPP_BIND_0)
+                    .startInnerElement("feature", NamespaceURIs.URN_XMPP_BIND_0)
+                    .addAttribute("var", NamespaceURIs.URN_XMPP_SM_3).endInnerElement().endInnerElement();
+        }
+        stanzaBuilder.endInnerElement();
+        stanzaBuilder.endInnerElement();
+        stanzaBuilder.endInnerElement();
+    }
+
     public Stanza getFeaturesForSession() {
         StanzaBuilder stanzaBuilder = startFeatureStanza();
+        getFeaturesBindAndSession(stanzaBuilder);
+        return stanzaBuilder.build();
+    }
+
+    public Stanza getFeaturesForSession(SessionContext sessionContext) {
+        StanzaBuilder stanzaBuilder = startFeatureStanza();
+        if (!sessionContext.isServerToServer() && isCompressionOffered(sessionContext)) {
+            getFeatureCompression(stanzaBuilder);
+        }
+        getFeaturesBindAndSession(stanzaBuilder);
+
+        // only TCP client sessions keep state for stream management
+        if (sessionContext instanceof StreamManagedSession && !sessionContext.isServerToServer()
+                && sessionContext.getServerRuntimeContext().getModule(StreamManagementModule.class) != null) {
+            stanzaBuilder.startInnerElement("sm", NamespaceURIs.URN_XMPP_SM_3).endInnerElement();
+        }
+        if (!sessionContext.isServerToServer() && sessionContext.getServerRuntimeContext() != null
+                && sessionContext.getServerRuntimeContext().getModule(ClientStateIndicationModule.class) != null) {
+            stanzaBuilder.startInnerElement("csi", NamespaceURIs.URN_XMPP_CSI_0).endInnerElement();
+        }
+
+        return stanzaBuilder.build();
+    }
+
+    private boolean isCompressionOffered(SessionContext sessionContext) {
+        return sessionContext instanceof CompressibleSession && !((CompressibleSession) sessionContext).isCompressed()
+                && sessionContext.getServerRuntimeContext() != null
+                && sessionContext.getServerRuntimeContext().getModule(StreamCompressionModule.class) != null;
+    }
 
+    private void getFeatureCompression(AbstractXMLElementBuilder<?, ?> featureBuilder) {
+        featureBuilder.startInnerElement("compression", NamespaceURIs.JABBER_ORG_FEATURES_COMPRESS);
+        featureBuilder.startInnerElement("method", NamespaceURIs.JABBER_ORG_FEATURES_COMPRESS);
+        featureBuilder.addText(StreamCompressionModule.METHOD_ZLIB);
+        featureBuilder.endInnerElement();
+        featureBuilder.endInnerElement();
+    }
+
+    private void getFeaturesBindAndSession(StanzaBuilder stanzaBuilder) {
         stanzaBuilder.startInnerElement("bind", NamespaceURIs.URN_IETF_PARAMS_XML_NS_XMPP_BIND).startInnerElement(
                 "required", NamespaceURIs.URN_IETF_PARAMS_XML_NS_XMPP_BIND).endInnerElement();
         stanzaBuilder.endInnerElement();
@@ -179,8 +260,6 @@ public class ServerResponses {
         stanzaBuilder.startInnerElement("session", NamespaceURIs.URN_IETF_PARAMS_XML_NS_XMPP_SESSION)
                 .startInnerElement("required", NamespaceURIs.URN_IETF_PARAMS_XML_NS_XMPP_SESSION).endInnerElement();
         stanzaBuilder.endInnerElement();
-
-        return stanzaBuilder.build();
     }
 
     protected StanzaBuilder startFeatureStanza() {
@@ -0,0 +1,79 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.server.s2s;
+
+import org.apache.vysper.xmpp.modules.extension.xep0138_stream_compression.CompressibleSession;
+import org.apache.vysper.xmpp.modules.extension.xep0138_stream_compression.StreamCompressionModule;
+import org.apache.vysper.xmpp.protocol.NamespaceURIs;
+import org.apache.vysper.xmpp.protocol.SessionStateHolder;
+import org.apache.vysper.xmpp.protocol.StanzaBroker;
+import org.apache.vysper.xmpp.protocol.StanzaHandler;
+import org.apache.vysper.xmpp.server.ServerRuntimeContext;
+import org.apache.vysper.xmpp.server.SessionContext;
+import org.apache.vysper.xmpp.server.XMPPVersion;
+import org.apache.vysper.xmpp.server.response.ServerResponses;
+import org.apache.vysper.xmpp.stanza.Stanza;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * handles the answer of the remote server to &lt;compress/&gt;. on &lt;compressed/&gt; the stream
+ * is restarted compressed, on &lt;failure/&gt; the connector goes on with dialback uncompressed.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class CompressionResponseHandler implements StanzaHandler {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CompressionResponseHandler.class);
+
+    public String getName() {
+        return "compressed";
+    }
+
+    public boolean verify(Stanza stanza) {
+        if (stanza == null) return false;
+        if (!getName().equals(stanza.getName()) && !"failure".equals(stanza.getName())) return false;
+        return NamespaceURIs.XEP0138_STREAM_COMPRESSION.equals(stanza.getNamespaceURI());
+    }
+
+    public boolean isSessionRequired() {
+        return true;
+    }
+
+    public void execute(Stanza stanza, ServerRuntimeContext serverRuntimeContext, boolean isOutboundStanza,
+            SessionContext sessionContext, SessionStateHolder sessionStateHolder, StanzaBroker stanzaBroker) {
+        if (!getName().equals(stanza.getName())) {
+            LOG.info("XMPP server connector to {} could not start compression", sessionContext.getInitiatingEntity());
+            FeaturesHandler.startDialback(serverRuntimeContext, sessionContext, stanzaBroker);
+            return;
+        }
+
+        LOG.debug("XMPP server connector switching to compression");
+        StreamCompressionModule module = serverRuntimeContext.getModule(StreamCompressionModule.class);
+        int compressionLevel = module == null ? StreamCompressionModule.DEFAULT_COMPRESSION_LEVEL
+                : module.getCompressionLevel();
+        ((CompressibleSession) sessionContext).switchToCompression(false, compressionLevel);
+
+        sessionContext.setIsReopeningXMLStream();
+        Stanza opener = new ServerResponses().getStreamOpenerForServerConnector(serverRuntimeContext.getServerEntity(),
+                sessionContext.getInitiatingEntity(), XMPPVersion.VERSION_1_0, sessionContext);
+        stanzaBroker.writeToSession(opener);
+    }
+}
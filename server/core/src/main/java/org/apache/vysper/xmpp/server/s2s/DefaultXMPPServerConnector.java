@@ -33,7 +33,9 @@ import org.apache.mina.core.future.ConnectFuture;
 import org.apache.mina.core.service.IoConnector;
 import org.apache.mina.core.session.IoSession;
 import org.apache.mina.filter.codec.ProtocolCodecFilter;
+import org.apache.mina.filter.executor.ExecutorFilter;
 import org.apache.mina.transport.socket.nio.NioSocketConnector;
+import org.apache.vysper.mina.IoTopology;
 import org.apache.vysper.mina.MinaBackedSessionContext;
 import org.apache.vysper.mina.StanzaLoggingFilter;
 import org.apache.vysper.mina.codec.XMPPProtocolCodecFactory;
@@ -55,6 +57,8 @@ import org.apache.vysper.xmpp.server.ServerRuntimeContext;
 import org.apache.vysper.xmpp.server.SessionContext;
 import org.apache.vysper.xmpp.server.SessionState;
 import org.apache.vysper.xmpp.server.XMPPVersion;
+import org.apache.vysper.xmpp.server.jfr.FlightRecorderEvents;
+import org.apache.vysper.xmpp.server.logging.StanzaLogPipeline;
 import org.apache.vysper.xmpp.server.response.ServerResponses;
 import org.apache.vysper.xmpp.server.s2s.XmppEndpointResolver.ResolvedAddress;
 import org.apache.vysper.xmpp.stanza.Stanza;
@@ -72,7 +76,7 @@ public class DefaultXMPPServerConnector implements XmppPingListener, XMPPServerC
     private static final Logger LOG = LoggerFactory.getLogger(DefaultXMPPServerConnector.class);
 
     private final static List<StanzaHandler> S2S_HANDSHAKE_HANDLERS = Arrays.asList(new DbVerifyHandler(),
-            new DbResultHandler(), new TlsProceedHandler(), new FeaturesHandler());
+            new DbResultHandler(), new TlsProceedHandler(), new CompressionResponseHandler(), new FeaturesHandler());
 
     private final ServerRuntimeContext serverRuntimeContext;
 
@@ -88,6 +92,10 @@ public class DefaultXMPPServerConnector implements XmppPingListener, XMPPServerC
 
     private IoConnector connector;
 
+    private IoTopology ioTopology;
+
+    private ExecutorFilter executorFilter;
+
     private int connectTimeout = 30000;
 
     private int xmppHandshakeTimeout = 30000;
@@ -119,10 +127,29 @@ public class DefaultXMPPServerConnector implements XmppPingListener, XMPPServerC
         this.dialbackSessionStateHolder = dialbackSessionStateHolder;
     }
 
+    /**
+     * Sets the I/O topology of the connection to the remote server. Without topology, the connector
+     * uses MINA defaults and processes stanzas on the I/O thread.
+     */
+    public void setIoTopology(IoTopology ioTopology) {
+        this.ioTopology = ioTopology;
+    }
+
     /**
      * Connect and authenticate the XMPP server connector
      */
     public synchronized void start() throws RemoteServerNotFoundException, RemoteServerTimeoutException {
+        Object jfrEvent = FlightRecorderEvents.beginServerConnect();
+        boolean connected = false;
+        try {
+            connectAndAuthenticate();
+            connected = true;
+        } finally {
+            FlightRecorderEvents.endServerConnect(jfrEvent, remoteServer, connected);
+        }
+    }
+
+    private void connectAndAuthenticate() throws RemoteServerNotFoundException, RemoteServerTimeoutException {
         LOG.info("Starting XMPP server connector to {}", remoteServer);
 
         boolean successfullyConnected = false;
@@ -186,13 +213,24 @@ public class DefaultXMPPServerConnector implements XmppPingListener, XMPPServerC
             return;
         localConnector.dispose();
         connector = null;
+        if (executorFilter != null) {
+            executorFilter.destroy();
+            executorFilter = null;
+        }
     }
 
     private NioSocketConnector createConnector() {
-        NioSocketConnector connector = new NioSocketConnector();
+        NioSocketConnector connector = ioTopology != null ? ioTopology.createConnector() : new NioSocketConnector();
         DefaultIoFilterChainBuilder filterChainBuilder = new DefaultIoFilterChainBuilder();
         filterChainBuilder.addLast("xmppCodec", new ProtocolCodecFilter(new XMPPProtocolCodecFactory()));
-        filterChainBuilder.addLast("loggingFilter", new StanzaLoggingFilter());
+        filterChainBuilder.addLast("loggingFilter", new StanzaLoggingFilter(StanzaLogPipeline.of(serverRuntimeContext)));
+        if (ioTopology != null) {
+            // a failed attempt might have left its executor behind
+            if (executorFilter != null) {
+                executorFilter.destroy();
+            }
+            executorFilter = ioTopology.addExecutorFilter(filterChainBuilder);
+        }
         connector.setFilterChainBuilder(filterChainBuilder);
         serverConnectorIoHandler = new ServerConnectorIoHandler(remoteServer, this);
         connector.setHandler(serverConnectorIoHandler);
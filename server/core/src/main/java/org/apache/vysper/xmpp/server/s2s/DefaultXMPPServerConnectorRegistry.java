@@ -23,6 +23,7 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.vysper.compliance.SpecCompliant;
+import org.apache.vysper.mina.IoTopology;
 import org.apache.vysper.xmpp.addressing.Entity;
 import org.apache.vysper.xmpp.delivery.failure.RemoteServerNotFoundException;
 import org.apache.vysper.xmpp.delivery.failure.RemoteServerTimeoutException;
@@ -51,6 +52,8 @@ public class DefaultXMPPServerConnectorRegistry implements XMPPServerConnectorRe
 
     private final StanzaProcessor stanzaProcessor;
 
+    private IoTopology ioTopology;
+
     public DefaultXMPPServerConnectorRegistry(ServerRuntimeContext serverRuntimeContext,
             StanzaHandlerExecutorFactory stanzaHandlerExecutorFactory,
             StanzaProcessor stanzaProcessor) {
@@ -59,6 +62,13 @@ public class DefaultXMPPServerConnectorRegistry implements XMPPServerConnectorRe
         this.stanzaProcessor = stanzaProcessor;
     }
 
+    /**
+     * Sets the I/O topology for connectors created from now on, null for MINA defaults
+     */
+    public void setIoTopology(IoTopology ioTopology) {
+        this.ioTopology = ioTopology;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -104,8 +114,10 @@ public class DefaultXMPPServerConnectorRegistry implements XMPPServerConnectorRe
 
     protected XMPPServerConnector createConnector(Entity otherServer, ServerRuntimeContext serverRuntimeContext,
             SessionContext dialbackSessionContext, SessionStateHolder dialbackSessionStateHolder) {
-        return new DefaultXMPPServerConnector(otherServer, serverRuntimeContext, stanzaHandlerExecutorFactory,
-                stanzaProcessor, dialbackSessionContext, dialbackSessionStateHolder);
+        DefaultXMPPServerConnector connector = new DefaultXMPPServerConnector(otherServer, serverRuntimeContext,
+                stanzaHandlerExecutorFactory, stanzaProcessor, dialbackSessionContext, dialbackSessionStateHolder);
+        connector.setIoTopology(ioTopology);
+        return connector;
     }
 
     /*
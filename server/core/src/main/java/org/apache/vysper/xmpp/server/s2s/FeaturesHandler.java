@@ -20,7 +20,11 @@
 
 package org.apache.vysper.xmpp.server.s2s;
 
+import org.apache.vysper.xml.fragment.XMLElement;
+import org.apache.vysper.xml.fragment.XMLText;
 import org.apache.vysper.xmpp.addressing.Entity;
+import org.apache.vysper.xmpp.modules.extension.xep0138_stream_compression.CompressibleSession;
+import org.apache.vysper.xmpp.modules.extension.xep0138_stream_compression.StreamCompressionModule;
 import org.apache.vysper.xmpp.modules.extension.xep0220_server_dailback.DialbackIdGenerator;
 import org.apache.vysper.xmpp.protocol.NamespaceURIs;
 import org.apache.vysper.xmpp.protocol.SessionStateHolder;
@@ -71,17 +75,17 @@ public class FeaturesHandler implements StanzaHandler {
                         .build();
 
                 stanzaBroker.writeToSession(startTlsStanza);
+            } else if (compressionSupported(stanza) && sessionContext instanceof CompressibleSession
+                    && !((CompressibleSession) sessionContext).isCompressed()
+                    && serverRuntimeContext.getModule(StreamCompressionModule.class) != null) {
+                LOG.info("XMPP server connector to {} is starting compression", otherServer);
+                Stanza compressStanza = new StanzaBuilder("compress", NamespaceURIs.XEP0138_STREAM_COMPRESSION)
+                        .startInnerElement("method", NamespaceURIs.XEP0138_STREAM_COMPRESSION)
+                        .addText(StreamCompressionModule.METHOD_ZLIB).endInnerElement().build();
+
+                stanzaBroker.writeToSession(compressStanza);
             } else if (dialbackSupported(stanza)) {
-                Entity originating = serverRuntimeContext.getServerEntity();
-
-                String dailbackId = new DialbackIdGenerator().generate(otherServer, originating,
-                        sessionContext.getSessionId());
-
-                Stanza dbResult = new StanzaBuilder("result", NamespaceURIs.JABBER_SERVER_DIALBACK, "db")
-                        .addAttribute("from", originating.getDomain()).addAttribute("to", otherServer.getDomain())
-                        .addText(dailbackId).build();
-
-                stanzaBroker.writeToSession(dbResult);
+                startDialback(serverRuntimeContext, sessionContext, stanzaBroker);
             } else {
                 // TODO how to handle
                 throw new RuntimeException("Unsupported features");
@@ -89,10 +93,37 @@ public class FeaturesHandler implements StanzaHandler {
         }
     }
 
+    static void startDialback(ServerRuntimeContext serverRuntimeContext, SessionContext sessionContext,
+            StanzaBroker stanzaBroker) {
+        Entity otherServer = sessionContext.getInitiatingEntity();
+        Entity originating = serverRuntimeContext.getServerEntity();
+
+        String dailbackId = new DialbackIdGenerator().generate(otherServer, originating,
+                sessionContext.getSessionId());
+
+        Stanza dbResult = new StanzaBuilder("result", NamespaceURIs.JABBER_SERVER_DIALBACK, "db")
+                .addAttribute("from", originating.getDomain()).addAttribute("to", otherServer.getDomain())
+                .addText(dailbackId).build();
+
+        stanzaBroker.writeToSession(dbResult);
+    }
+
     private boolean startTlsSupported(Stanza stanza) {
         return !stanza.getInnerElementsNamed("starttls", NamespaceURIs.URN_IETF_PARAMS_XML_NS_XMPP_TLS).isEmpty();
     }
 
+    private boolean compressionSupported(Stanza stanza) {
+        for (XMLElement compression : stanza.getInnerElementsNamed("compression",
+                NamespaceURIs.JABBER_ORG_FEATURES_COMPRESS)) {
+            for (XMLElement method : compression.getInnerElementsNamed("method",
+                    NamespaceURIs.JABBER_ORG_FEATURES_COMPRESS)) {
+                XMLText name = method.getInnerText();
+                if (name != null && StreamCompressionModule.METHOD_ZLIB.equals(name.getText().trim())) return true;
+            }
+        }
+        return false;
+    }
+
     private boolean dialbackSupported(Stanza stanza) {
         return !stanza.getInnerElementsNamed("dialback", NamespaceURIs.URN_XMPP_FEATURES_DIALBACK).isEmpty();
     }
@@ -0,0 +1,67 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.server.trace;
+
+/**
+ * a stage of stanza processing, the time between two {@link TracePoint}s
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public enum Stage {
+
+    /**
+     * XML tokenizing of the last chunk read
+     */
+    PARSE(TracePoint.READ, TracePoint.DECODED),
+
+    /**
+     * waiting for a thread of the session's executor
+     */
+    SESSION_QUEUE(TracePoint.DECODED, TracePoint.HANDLER_START),
+
+    HANDLER(TracePoint.HANDLER_START, TracePoint.HANDLER_END),
+
+    /**
+     * waiting for a relay thread
+     */
+    RELAY_QUEUE(TracePoint.RELAY_ENQUEUED, TracePoint.RELAY_DEQUEUED),
+
+    /**
+     * finding the receiving sessions, running their inbound handlers and encoding
+     */
+    DELIVERY(TracePoint.RELAY_DEQUEUED, TracePoint.WRITTEN);
+
+    private final TracePoint from;
+
+    private final TracePoint to;
+
+    Stage(TracePoint from, TracePoint to) {
+        this.from = from;
+        this.to = to;
+    }
+
+    public TracePoint getFrom() {
+        return from;
+    }
+
+    public TracePoint getTo() {
+        return to;
+    }
+}
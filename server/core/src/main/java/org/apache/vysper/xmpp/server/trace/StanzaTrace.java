@@ -0,0 +1,139 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.server.trace;
+
+import java.util.Locale;
+
+/**
+ * the time stamps of one stanza passing the processing stages.
+ * <br>
+ * a stanza received from a session gets a trace. every relay of the stanza, or of a stanza
+ * its handler sends, gets a branch, which starts with a copy of the stamps taken so far. so the
+ * branch of a message tells the time from reading the message to writing it to the receiver.
+ * <br>
+ * only the first stamp of each point counts, later ones, like those of the receiver's inbound
+ * handler, are ignored. a trace is used by one thread at a time.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class StanzaTrace {
+
+    private static final TracePoint[] POINTS = TracePoint.values();
+
+    private final String description;
+
+    private final long[] stamps = new long[POINTS.length];
+
+    private final boolean[] stamped = new boolean[POINTS.length];
+
+    private final TracePoint firstOwnPoint;
+
+    public StanzaTrace(String description) {
+        this.description = description;
+        this.firstOwnPoint = POINTS[0];
+    }
+
+    private StanzaTrace(StanzaTrace parent) {
+        this.description = parent.description;
+        this.firstOwnPoint = TracePoint.RELAY_ENQUEUED;
+        for (int i = 0; i < firstOwnPoint.ordinal(); i++) {
+            this.stamps[i] = parent.stamps[i];
+            this.stamped[i] = parent.stamped[i];
+        }
+    }
+
+    /**
+     * @return a trace for relaying the stanza, sharing the stamps taken so far
+     */
+    public StanzaTrace branch() {
+        return new StanzaTrace(this);
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void stamp(TracePoint point) {
+        stamp(point, System.nanoTime());
+    }
+
+    public void stamp(TracePoint point, long nanos) {
+        int index = point.ordinal();
+        if (!stamped[index]) {
+            stamps[index] = nanos;
+            stamped[index] = true;
+        }
+    }
+
+    public boolean isStamped(TracePoint point) {
+        return stamped[point.ordinal()];
+    }
+
+    /**
+     * @return the duration of the stage in nanoseconds, or -1 if the stage has not been passed
+     */
+    public long getDuration(Stage stage) {
+        int from = stage.getFrom().ordinal();
+        int to = stage.getTo().ordinal();
+        if (!stamped[from] || !stamped[to]) return -1;
+        return Math.max(0, stamps[to] - stamps[from]);
+    }
+
+    /**
+     * @return true, if the stage is measured by this trace and not by the trace it has been branched from
+     */
+    public boolean owns(Stage stage) {
+        return stage.getFrom().ordinal() >= firstOwnPoint.ordinal();
+    }
+
+    /**
+     * @return nanoseconds from the first to the last stamp
+     */
+    public long getTotal() {
+        long first = Long.MAX_VALUE;
+        long last = Long.MIN_VALUE;
+        for (int i = 0; i < POINTS.length; i++) {
+            if (!stamped[i]) continue;
+            first = Math.min(first, stamps[i]);
+            last = Math.max(last, stamps[i]);
+        }
+        return first == Long.MAX_VALUE ? 0 : last - first;
+    }
+
+    /**
+     * @return the durations of the stages passed, like <code>session_queue=0.120ms handler=3.410ms</code>
+     */
+    public String getBreakdown() {
+        StringBuilder breakdown = new StringBuilder();
+        for (Stage stage : Stage.values()) {
+            long duration = getDuration(stage);
+            if (duration < 0) continue;
+            if (breakdown.length() > 0) breakdown.append(' ');
+            breakdown.append(stage.name().toLowerCase(Locale.US)).append('=')
+                    .append(String.format(Locale.US, "%.3fms", duration / 1000000d));
+        }
+        return breakdown.toString();
+    }
+
+    @Override
+    public String toString() {
+        return description + " " + getBreakdown();
+    }
+}
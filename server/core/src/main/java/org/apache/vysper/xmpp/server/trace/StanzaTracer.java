@@ -0,0 +1,161 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.server.trace;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.apache.vysper.xml.fragment.XMLElement;
+import org.apache.vysper.xmpp.stanza.Stanza;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * traces stanzas through the processing stages, if a {@link StanzaTraceListener} is installed.
+ * <br>
+ * the trace of the stanza being processed is bound to the processing thread between
+ * {@link #begin(StanzaTrace)} and {@link #end(StanzaTrace, StanzaTrace)}, so that code down the stack
+ * can stamp it without passing it around. without a listener, tracing costs a volatile read per
+ * trace point.
+ * <br>
+ * tracing is VM wide, like the profilers it is meant to make unnecessary.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public final class StanzaTracer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StanzaTracer.class);
+
+    private static final ThreadLocal<StanzaTrace> CURRENT = new ThreadLocal<StanzaTrace>();
+
+    private static volatile StanzaTraceListener listener;
+
+    private static volatile int sampleRate = 1;
+
+    private StanzaTracer() {
+        // static only
+    }
+
+    /**
+     * starts tracing
+     * @param sampleRate one in how many stanzas is traced
+     */
+    public static synchronized void install(StanzaTraceListener traceListener, int sampleRate) {
+        if (sampleRate < 1) throw new IllegalArgumentException("sample rate must be at least 1");
+        StanzaTracer.sampleRate = sampleRate;
+        StanzaTracer.listener = traceListener;
+    }
+
+    /**
+     * stops tracing, if the listener is still the installed one
+     */
+    public static synchronized void uninstall(StanzaTraceListener traceListener) {
+        if (listener == traceListener) {
+            listener = null;
+        }
+    }
+
+    public static boolean isEnabled() {
+        return listener != null;
+    }
+
+    /**
+     * @return a new trace for a stanza received, or null if tracing is off or the stanza is not sampled
+     */
+    public static StanzaTrace newTrace(Stanza stanza) {
+        if (listener == null) return null;
+        int rate = sampleRate;
+        if (rate > 1 && ThreadLocalRandom.current().nextInt(rate) != 0) return null;
+        return new StanzaTrace(describe(stanza));
+    }
+
+    /**
+     * binds the trace to the current thread
+     * @param trace may be null, then nothing is bound
+     * @return the trace bound before, to be passed to {@link #end(StanzaTrace, StanzaTrace)}
+     */
+    public static StanzaTrace begin(StanzaTrace trace) {
+        if (trace == null) return null;
+        StanzaTrace previous = CURRENT.get();
+        CURRENT.set(trace);
+        return previous;
+    }
+
+    /**
+     * unbinds the trace from the current thread and reports it as completed
+     */
+    public static void end(StanzaTrace trace, StanzaTrace previous) {
+        if (trace == null) return;
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+        StanzaTraceListener traceListener = listener;
+        if (traceListener == null) return;
+        try {
+            traceListener.traceCompleted(trace);
+        } catch (RuntimeException e) {
+            LOG.warn("stanza trace listener failed", e);
+        }
+    }
+
+    /**
+     * @return the trace bound to the current thread, or null
+     */
+    public static StanzaTrace current() {
+        if (listener == null) return null;
+        return CURRENT.get();
+    }
+
+    /**
+     * stamps the trace bound to the current thread, if any
+     */
+    public static void stamp(TracePoint point) {
+        if (listener == null) return;
+        StanzaTrace trace = CURRENT.get();
+        if (trace != null) trace.stamp(point);
+    }
+
+    /**
+     * @return a branch of the trace bound to the current thread, stamped as handed to a relay, or null
+     */
+    public static StanzaTrace branchForRelay() {
+        if (listener == null) return null;
+        StanzaTrace trace = CURRENT.get();
+        if (trace == null) return null;
+        StanzaTrace branch = trace.branch();
+        branch.stamp(TracePoint.RELAY_ENQUEUED);
+        return branch;
+    }
+
+    static String describe(Stanza stanza) {
+        StringBuilder description = new StringBuilder(stanza.getName());
+        List<XMLElement> innerElements = stanza.getInnerElements();
+        if (!innerElements.isEmpty() && innerElements.get(0).getNamespaceURI() != null) {
+            description.append(" (").append(innerElements.get(0).getNamespaceURI()).append(')');
+        }
+        String id = stanza.getAttributeValue("id");
+        if (id != null) {
+            description.append(" id=").append(id);
+        }
+        return description.toString();
+    }
+}
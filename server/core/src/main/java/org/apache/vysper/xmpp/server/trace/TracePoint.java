@@ -0,0 +1,58 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.server.trace;
+
+/**
+ * the points in the life of a stanza which are stamped in its {@link StanzaTrace}, in the order they
+ * are passed
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public enum TracePoint {
+
+    /**
+     * the last bytes of the stanza have been read from the socket
+     */
+    READ,
+
+    /**
+     * the XML decoder has emitted the stanza
+     */
+    DECODED,
+
+    HANDLER_START,
+
+    HANDLER_END,
+
+    /**
+     * the stanza has been handed to a relay for delivery
+     */
+    RELAY_ENQUEUED,
+
+    /**
+     * a relay thread has picked up the stanza
+     */
+    RELAY_DEQUEUED,
+
+    /**
+     * the stanza has been encoded and handed to the receiver's connection
+     */
+    WRITTEN
+}
@@ -32,7 +32,7 @@ import java.util.Map;
 import org.apache.vysper.xmpp.addressing.Entity;
 import org.apache.vysper.xmpp.server.SessionContext;
 import org.apache.vysper.xmpp.server.InternalSessionContext;
-import org.apache.vysper.xmpp.uuid.JVMBuiltinUUIDGenerator;
+import org.apache.vysper.xmpp.uuid.FastUUIDGenerator;
 import org.apache.vysper.xmpp.uuid.UUIDGenerator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -62,7 +62,7 @@ public class DefaultResourceRegistry implements InternalResourceRegistry {
 
     }
 
-    private UUIDGenerator resourceIdGenerator = new JVMBuiltinUUIDGenerator();
+    private UUIDGenerator resourceIdGenerator = new FastUUIDGenerator();
 
     /**
      * maps resource id to session. note: two resources may point to the same session, but often this
@@ -83,6 +83,13 @@ public class DefaultResourceRegistry implements InternalResourceRegistry {
      */
     protected final Map<SessionContext, List<String>> sessionResources = new HashMap<SessionContext, List<String>>();
 
+    /**
+     * resource ids are visible to other entities, but do not grant access, so they only need to be unique
+     */
+    public void setResourceIdGenerator(UUIDGenerator resourceIdGenerator) {
+        this.resourceIdGenerator = resourceIdGenerator;
+    }
+
     /**
      * allocates new resource ID for the given session and binds it to the session
      * @param sessionContext
@@ -0,0 +1,40 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.uuid;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * creates ids from {@link ThreadLocalRandom}, for ids which only need to be unique, like resource,
+ * stanza and item ids. the ids have 128 random bits, in 32 hex digits, but they are predictable:
+ * never use them where knowing an id grants access.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class FastUUIDGenerator implements UUIDGenerator {
+
+    public String create() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        StringBuilder id = new StringBuilder(32);
+        Hex.append(id, random.nextLong(), 16);
+        Hex.append(id, random.nextLong(), 16);
+        return id.toString();
+    }
+}
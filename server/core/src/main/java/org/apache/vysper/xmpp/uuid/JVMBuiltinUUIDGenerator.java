@@ -22,7 +22,8 @@ package org.apache.vysper.xmpp.uuid;
 import java.util.UUID;
 
 /**
- * utilize the JVM's UUID generator
+ * utilize the JVM's UUID generator. all threads share one {@link java.security.SecureRandom}, prefer
+ * {@link SecureUUIDGenerator} for unguessable and {@link FastUUIDGenerator} for merely unique ids.
  *
  * @author The Apache MINA Project (dev@mina.apache.org)
  */
@@ -0,0 +1,53 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.uuid;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+/**
+ * creates unguessable ids, for ids which grant access, like session ids.
+ * <br>
+ * unlike {@link JVMBuiltinUUIDGenerator}, every thread draws from its own {@link SecureRandom}, so
+ * threads creating ids at the same time, like during a login storm, do not contend for the one
+ * instance behind {@link java.util.UUID#randomUUID()}. the ids have 128 random bits, in 32 hex
+ * digits.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class SecureUUIDGenerator implements UUIDGenerator {
+
+    private static final ThreadLocal<SecureRandom> RANDOM = ThreadLocal.withInitial(SecureUUIDGenerator::newRandom);
+
+    private static SecureRandom newRandom() {
+        try {
+            // seeded once from the system, then without a lock shared by all instances
+            return SecureRandom.getInstance("SHA1PRNG");
+        } catch (NoSuchAlgorithmException e) {
+            return new SecureRandom();
+        }
+    }
+
+    public String create() {
+        byte[] bytes = new byte[16];
+        RANDOM.get().nextBytes(bytes);
+        return Hex.toString(bytes);
+    }
+}
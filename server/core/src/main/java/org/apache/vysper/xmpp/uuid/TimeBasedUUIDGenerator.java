@@ -0,0 +1,79 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.uuid;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * creates ids which sort in the order they have been created, like archive ids. an id consists of
+ * 32 hex digits:
+ * <ul>
+ * <li>12 digits of milliseconds since the epoch</li>
+ * <li>6 digits identifying the generator, random per instance</li>
+ * <li>6 digits identifying the thread</li>
+ * <li>8 digits counting up per thread within the millisecond</li>
+ * </ul>
+ * ids created by one thread are strictly increasing, even if the clock goes back. ids created by
+ * different threads are ordered by the millisecond. the state is kept per thread, creating ids
+ * takes no locks. the ids are predictable.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class TimeBasedUUIDGenerator implements UUIDGenerator {
+
+    private final long generatorId = ThreadLocalRandom.current().nextInt(1 << 24);
+
+    private final AtomicInteger threadIds = new AtomicInteger();
+
+    private final ThreadLocal<ThreadState> state = ThreadLocal
+            .withInitial(() -> new ThreadState(threadIds.getAndIncrement()));
+
+    public String create() {
+        ThreadState threadState = state.get();
+        long millis = System.currentTimeMillis();
+        if (millis > threadState.lastMillis) {
+            threadState.lastMillis = millis;
+            threadState.counter = 0;
+        } else if (++threadState.counter == 0) {
+            // counter overflow, borrow the next millisecond
+            threadState.lastMillis++;
+        }
+        StringBuilder id = new StringBuilder(32);
+        Hex.append(id, threadState.lastMillis, 12);
+        Hex.append(id, generatorId, 6);
+        Hex.append(id, threadState.threadId, 6);
+        Hex.append(id, threadState.counter, 8);
+        return id.toString();
+    }
+
+    private static final class ThreadState {
+
+        private final int threadId;
+
+        private long lastMillis;
+
+        private int counter;
+
+        private ThreadState(int threadId) {
+            this.threadId = threadId;
+        }
+    }
+}
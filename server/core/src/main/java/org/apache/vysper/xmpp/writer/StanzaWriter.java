@@ -20,6 +20,8 @@
 
 package org.apache.vysper.xmpp.writer;
 
+import java.util.Collection;
+
 import org.apache.vysper.xmpp.stanza.Stanza;
 
 /**
@@ -34,5 +36,15 @@ public interface StanzaWriter {
 
     void write(Stanza stanza);
 
+    /**
+     * writes all stanzas in the given order. writers backed by a network connection
+     * should override this to coalesce the stanzas into as few network writes as possible.
+     */
+    default void writeBatch(Collection<Stanza> stanzas) {
+        for (Stanza stanza : stanzas) {
+            write(stanza);
+        }
+    }
+
     void close();
 }
@@ -43,6 +43,10 @@ public class EventListenerMock<T> implements EventListener<T> {
         Assert.assertEquals(Arrays.asList(events), receivedEventsSequence);
     }
 
+    public int getReceivedEventsCount() {
+        return receivedEventsSequence.size();
+    }
+
     public void assertNoEventReceived() {
         Assert.assertTrue(receivedEventsSequence.isEmpty());
     }
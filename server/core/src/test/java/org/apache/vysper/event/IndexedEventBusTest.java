@@ -0,0 +1,194 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.event;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class IndexedEventBusTest {
+
+    private EventListenerMock<FooEvent> fooListener;
+
+    private EventListenerMock<BarEvent> barListener;
+
+    private IndexedEventBus tested;
+
+    @Before
+    public void before() {
+        tested = new IndexedEventBus(1, 4);
+        fooListener = new EventListenerMock<>();
+        barListener = new EventListenerMock<>();
+    }
+
+    @After
+    public void after() {
+        tested.close();
+    }
+
+    @Test
+    public void publishEventGivenTwoDictionaries() {
+        tested.addDictionary(SimpleEventListenerDictionary.builder().register(FooEvent.class, fooListener).build())
+                .addDictionary(SimpleEventListenerDictionary.builder().register(BarEvent.class, barListener)
+                        .register(FooEvent.class, fooListener).build());
+
+        FooEvent fooEvent = new FooEvent();
+        tested.publish(FooEvent.class, fooEvent);
+        BarEvent barEvent = new BarEvent();
+        tested.publish(BarEvent.class, barEvent);
+
+        fooListener.assertReceivedEventsSequence(fooEvent);
+        barListener.assertReceivedEventsSequence(barEvent);
+    }
+
+    @Test
+    public void publishEventGivenDictionaryAddedAfterFirstPublish() {
+        tested.addDictionary(SimpleEventListenerDictionary.builder().register(FooEvent.class, fooListener).build());
+        FooEvent first = new FooEvent();
+        tested.publish(FooEvent.class, first);
+
+        EventListenerMock<FooEvent> lateListener = new EventListenerMock<>();
+        tested.addDictionary(SimpleEventListenerDictionary.builder().register(FooEvent.class, lateListener).build());
+        FooEvent second = new FooEvent();
+        tested.publish(FooEvent.class, second);
+
+        fooListener.assertReceivedEventsSequence(first, second);
+        lateListener.assertReceivedEventsSequence(second);
+    }
+
+    @Test
+    public void publishOnTwoListenersGivenOneFailingListener() {
+        EventListenerMock<FooEvent> failingListener = new EventListenerMock<FooEvent>().failOnReceivedEvent();
+        tested.addDictionary(SimpleEventListenerDictionary.builder().register(FooEvent.class, failingListener)
+                .register(FooEvent.class, fooListener).build());
+
+        FooEvent event = new FooEvent();
+        tested.publish(FooEvent.class, event);
+
+        failingListener.assertReceivedEventsSequence(event);
+        fooListener.assertReceivedEventsSequence(event);
+    }
+
+    @Test
+    public void deliverToAsyncListenerInOrderOnOtherThread() throws InterruptedException {
+        RecordingAsyncListener asyncListener = new RecordingAsyncListener(10);
+        tested.addDictionary(SimpleEventListenerDictionary.builder().register(FooEvent.class, asyncListener).build());
+
+        List<FooEvent> published = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            FooEvent event = new FooEvent();
+            published.add(event);
+            tested.publish(FooEvent.class, event);
+            // keep below the queue capacity
+            if (i % 3 == 2) {
+                asyncListener.awaitReceived(i + 1);
+            }
+        }
+
+        assertTrue(asyncListener.received.await(5, TimeUnit.SECONDS));
+        assertEquals(published, asyncListener.events);
+        assertNotSame(Thread.currentThread(), asyncListener.thread);
+        assertEquals(0, tested.getDroppedCount());
+    }
+
+    @Test
+    public void dropEventsGivenFullQueue() throws InterruptedException {
+        BlockingAsyncListener blockingListener = new BlockingAsyncListener();
+        tested.addDictionary(SimpleEventListenerDictionary.builder().register(FooEvent.class, blockingListener)
+                .register(FooEvent.class, fooListener).build());
+
+        tested.publish(FooEvent.class, new FooEvent());
+        assertTrue(blockingListener.entered.await(5, TimeUnit.SECONDS));
+        // the listener is blocked, its queue takes four more
+        for (int i = 0; i < 6; i++) {
+            tested.publish(FooEvent.class, new FooEvent());
+        }
+        assertEquals(2, tested.getDroppedCount());
+
+        blockingListener.release.countDown();
+        // the synchronous listener got all of them
+        assertEquals(7, fooListener.getReceivedEventsCount());
+    }
+
+    private static class RecordingAsyncListener implements AsyncEventListener<FooEvent> {
+
+        private final List<FooEvent> events = Collections.synchronizedList(new ArrayList<>());
+
+        private final CountDownLatch received;
+
+        private volatile Thread thread;
+
+        private RecordingAsyncListener(int expected) {
+            this.received = new CountDownLatch(expected);
+        }
+
+        private void awaitReceived(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (events.size() < count && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+        }
+
+        @Override
+        public void onEvent(FooEvent event) {
+            thread = Thread.currentThread();
+            events.add(event);
+            received.countDown();
+        }
+    }
+
+    private static class BlockingAsyncListener implements AsyncEventListener<FooEvent> {
+
+        private final CountDownLatch entered = new CountDownLatch(1);
+
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public void onEvent(FooEvent event) {
+            entered.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static class FooEvent {
+
+    }
+
+    private static class BarEvent {
+
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.mina;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.vysper.xmpp.addressing.EntityImpl;
+import org.apache.vysper.xmpp.delivery.StanzaReceiverRelay;
+import org.apache.vysper.xmpp.protocol.ProtocolWorker;
+import org.apache.vysper.xmpp.protocol.SimpleStanzaHandlerExecutorFactory;
+import org.apache.vysper.xmpp.server.DefaultServerRuntimeContext;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class AdmissionControlFilterTestCase {
+
+    private C2SEndpoint endpoint;
+
+    private AdmissionControlFilter admissionControl;
+
+    @Before
+    public void before() {
+        StanzaReceiverRelay relay = new StanzaReceiverRelay();
+        DefaultServerRuntimeContext serverContext = new DefaultServerRuntimeContext(
+                new EntityImpl(null, "vysper.org", null), relay);
+        relay.setServerRuntimeContext(serverContext);
+
+        endpoint = new C2SEndpoint();
+        endpoint.setPort(0);
+        endpoint.setServerRuntimeContext(serverContext);
+        endpoint.setStanzaProcessor(new ProtocolWorker(new SimpleStanzaHandlerExecutorFactory(relay)));
+        admissionControl = new AdmissionControlFilter();
+        endpoint.setAdmissionControl(admissionControl);
+    }
+
+    @After
+    public void after() {
+        endpoint.stop();
+    }
+
+    @Test
+    public void rejectsBeyondUnauthenticatedLimit() throws Exception {
+        admissionControl.setMaxUnauthenticatedSessions(1);
+        endpoint.start();
+
+        try (Socket admitted = connect(); Socket rejected = connect()) {
+            String stream = readToEnd(rejected);
+            Assert.assertTrue(stream, stream.startsWith("<?xml"));
+            Assert.assertTrue(stream, stream.contains("<system-shutdown"));
+            Assert.assertTrue(stream, stream.endsWith("</stream:stream>"));
+            Assert.assertEquals(1, admissionControl.getAdmittedSessions());
+            Assert.assertEquals(1, admissionControl.getRejectedSessions());
+            Assert.assertEquals(1, admissionControl.getUnauthenticatedSessions());
+        }
+    }
+
+    @Test
+    public void redirectsRejectedConnections() throws Exception {
+        admissionControl.setMaxUnauthenticatedSessions(1);
+        admissionControl.setRedirectHost("xmpp2.vysper.org:5222");
+        endpoint.start();
+
+        try (Socket admitted = connect(); Socket rejected = connect()) {
+            String stream = readToEnd(rejected);
+            Assert.assertTrue(stream, stream.contains(">xmpp2.vysper.org:5222</see-other-host>"));
+        }
+    }
+
+    @Test
+    public void closedConnectionsAreNotCounted() throws Exception {
+        admissionControl.setMaxUnauthenticatedSessions(1);
+        endpoint.start();
+
+        connect().close();
+        waitForUnauthenticated(0);
+
+        try (Socket admitted = connect()) {
+            waitForUnauthenticated(1);
+            Assert.assertEquals(0, admissionControl.getRejectedSessions());
+        }
+    }
+
+    @Test
+    public void limitsAcceptRate() throws Exception {
+        admissionControl.setAcceptRate(0.001, 2);
+        endpoint.start();
+
+        try (Socket first = connect(); Socket second = connect(); Socket third = connect()) {
+            Assert.assertTrue(readToEnd(third).contains("<system-shutdown"));
+            Assert.assertEquals(2, admissionControl.getAdmittedSessions());
+            Assert.assertEquals(1, admissionControl.getRejectedSessions());
+        }
+    }
+
+    @Test
+    public void closesConnectionsNotAuthenticatedInTime() throws Exception {
+        admissionControl.setAuthenticationTimeoutSeconds(1);
+        endpoint.start();
+
+        try (Socket socket = connect()) {
+            String stream = readToEnd(socket);
+            Assert.assertTrue(stream, stream.contains("<stream:stream"));
+            Assert.assertTrue(stream, stream.contains("<connection-timeout"));
+            Assert.assertEquals(1, admissionControl.getTimedOutSessions());
+            Assert.assertEquals(0, admissionControl.getUnauthenticatedSessions());
+        }
+    }
+
+    /**
+     * connects, and waits until the endpoint has decided on the connection
+     */
+    private Socket connect() throws Exception {
+        long decided = admissionControl.getAdmittedSessions() + admissionControl.getRejectedSessions();
+        Socket socket = new Socket("localhost", endpoint.getPort());
+        socket.setSoTimeout(5000);
+        for (int i = 0; i < 100; i++) {
+            if (admissionControl.getAdmittedSessions() + admissionControl.getRejectedSessions() > decided) break;
+            Thread.sleep(20);
+        }
+        return socket;
+    }
+
+    private String readToEnd(Socket socket) throws IOException {
+        ByteArrayOutputStream read = new ByteArrayOutputStream();
+        InputStream in = socket.getInputStream();
+        byte[] buffer = new byte[1024];
+        int count;
+        while ((count = in.read(buffer)) != -1) {
+            read.write(buffer, 0, count);
+        }
+        return new String(read.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private void waitForUnauthenticated(int expected) throws InterruptedException {
+        for (int i = 0; i < 100 && admissionControl.getUnauthenticatedSessions() != expected; i++) {
+            Thread.sleep(20);
+        }
+        Assert.assertEquals(expected, admissionControl.getUnauthenticatedSessions());
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.mina;
+
+import org.apache.mina.core.buffer.IoBuffer;
+import org.apache.mina.core.buffer.SimpleBufferAllocator;
+import org.apache.mina.core.filterchain.DefaultIoFilterChainBuilder;
+import org.apache.mina.filter.executor.ExecutorFilter;
+import org.apache.mina.transport.socket.nio.NioSocketAcceptor;
+import org.apache.vysper.xmpp.server.resources.VirtualThreads;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class IoTopologyTestCase {
+
+    @After
+    public void resetAllocator() {
+        IoBuffer.setUseDirectBuffer(false);
+        IoBuffer.setAllocator(new SimpleBufferAllocator());
+    }
+
+    @Test
+    public void defaultsKeepSocketOptions() {
+        NioSocketAcceptor acceptor = new IoTopology().createAcceptor();
+        NioSocketAcceptor plain = new NioSocketAcceptor();
+        try {
+            Assert.assertTrue(acceptor.isReuseAddress());
+            Assert.assertEquals(plain.getSessionConfig().getReadBufferSize(),
+                    acceptor.getSessionConfig().getReadBufferSize());
+            Assert.assertEquals(plain.getSessionConfig().isTcpNoDelay(), acceptor.getSessionConfig().isTcpNoDelay());
+        } finally {
+            acceptor.dispose();
+            plain.dispose();
+        }
+    }
+
+    @Test
+    public void manyIdleConnectionsPreset() {
+        NioSocketAcceptor acceptor = IoTopology.manyIdleConnections().createAcceptor();
+        try {
+            Assert.assertEquals(1024, acceptor.getBacklog());
+            Assert.assertEquals(512, acceptor.getSessionConfig().getReadBufferSize());
+            Assert.assertEquals(64, acceptor.getSessionConfig().getMinReadBufferSize());
+            Assert.assertTrue(acceptor.getSessionConfig().isTcpNoDelay());
+            Assert.assertTrue(acceptor.getSessionConfig().isKeepAlive());
+        } finally {
+            acceptor.dispose();
+        }
+    }
+
+    @Test
+    public void fewHighThroughputConnectionsPreset() {
+        NioSocketAcceptor acceptor = IoTopology.fewHighThroughputConnections().createAcceptor();
+        try {
+            Assert.assertEquals(64 * 1024, acceptor.getSessionConfig().getReadBufferSize());
+            Assert.assertEquals(256 * 1024, acceptor.getSessionConfig().getMaxReadBufferSize());
+        } finally {
+            acceptor.dispose();
+        }
+    }
+
+    @Test
+    public void presetsKeepAllocator() {
+        BufferAllocation.DIRECT.apply();
+        IoTopology.manyIdleConnections().createAcceptor().dispose();
+        IoTopology.fewHighThroughputConnections().createAcceptor().dispose();
+        Assert.assertTrue(IoBuffer.isUseDirectBuffer());
+        Assert.assertFalse(BufferAllocation.isPooledInstalled());
+    }
+
+    @Test
+    public void pooledBuffersRequireIoThread() {
+        BufferAllocation.POOLED.apply();
+        try {
+            new IoTopology().createAcceptor();
+            Assert.fail("pooled buffers require executor model IO_THREAD");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        IoTopology topology = new IoTopology();
+        topology.setExecutorModel(IoTopology.ExecutorModel.IO_THREAD);
+        topology.createConnector().dispose();
+    }
+
+    @Test
+    public void executorModel() {
+        IoTopology topology = new IoTopology();
+        DefaultIoFilterChainBuilder builder = new DefaultIoFilterChainBuilder();
+        ExecutorFilter executorFilter = topology.addExecutorFilter(builder);
+        Assert.assertNotNull(executorFilter);
+        Assert.assertSame(executorFilter, builder.get("executorFilter"));
+        executorFilter.destroy();
+
+        topology.setExecutorModel(IoTopology.ExecutorModel.IO_THREAD);
+        builder = new DefaultIoFilterChainBuilder();
+        Assert.assertNull(topology.addExecutorFilter(builder));
+        Assert.assertNull(builder.get("executorFilter"));
+    }
+
+    @Test
+    public void virtualThreadsExecutorModel() {
+        IoTopology topology = new IoTopology();
+        topology.setExecutorModel(IoTopology.ExecutorModel.VIRTUAL_THREADS);
+        DefaultIoFilterChainBuilder builder = new DefaultIoFilterChainBuilder();
+        if (!VirtualThreads.isAvailable()) {
+            try {
+                topology.addExecutorFilter(builder);
+                Assert.fail("virtual threads are not available");
+            } catch (UnsupportedOperationException e) {
+                Assert.assertNull(builder.get("executorFilter"));
+            }
+            return;
+        }
+        ExecutorFilter executorFilter = topology.addExecutorFilter(builder);
+        Assert.assertTrue(executorFilter instanceof VirtualThreadExecutorFilter);
+        executorFilter.destroy();
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.mina;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.vysper.xmpp.addressing.EntityImpl;
+import org.apache.vysper.xmpp.delivery.StanzaReceiverRelay;
+import org.apache.vysper.xmpp.protocol.ProtocolWorker;
+import org.apache.vysper.xmpp.protocol.SessionStateHolder;
+import org.apache.vysper.xmpp.protocol.SimpleStanzaHandlerExecutorFactory;
+import org.apache.vysper.xmpp.server.DefaultServerRuntimeContext;
+import org.apache.vysper.xmpp.server.SessionState;
+import org.apache.vysper.xmpp.server.TestSessionContext;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * two nodes on loopback, new clients of the first one are sent to the second one while the first one is
+ * overloaded
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class LoadSheddingPolicyTestCase {
+
+    private static final Pattern SEE_OTHER_HOST = Pattern.compile(">([^<]+):(\\d+)</see-other-host>");
+
+    private static final String STREAM_HEADER = "<?xml version='1.0'?><stream:stream to='vysper.org' "
+            + "xmlns='jabber:client' xmlns:stream='http://etherx.jabber.org/streams' version='1.0'>";
+
+    private DefaultServerRuntimeContext nodeContext;
+
+    private C2SEndpoint node;
+
+    private C2SEndpoint peer;
+
+    private LoadSheddingPolicy policy;
+
+    private AdmissionControlFilter admissionControl;
+
+    @Before
+    public void before() throws IOException {
+        peer = createEndpoint(createServerRuntimeContext());
+        peer.start();
+
+        nodeContext = createServerRuntimeContext();
+        node = createEndpoint(nodeContext);
+        policy = new LoadSheddingPolicy("localhost:" + peer.getPort());
+        policy.setEvaluationIntervalMillis(0);
+        admissionControl = new AdmissionControlFilter();
+        admissionControl.setLoadSheddingPolicy(policy);
+        node.setAdmissionControl(admissionControl);
+    }
+
+    @After
+    public void after() {
+        node.stop();
+        peer.stop();
+    }
+
+    private DefaultServerRuntimeContext createServerRuntimeContext() {
+        StanzaReceiverRelay relay = new StanzaReceiverRelay();
+        DefaultServerRuntimeContext serverContext = new DefaultServerRuntimeContext(
+                new EntityImpl(null, "vysper.org", null), relay);
+        relay.setServerRuntimeContext(serverContext);
+        return serverContext;
+    }
+
+    private C2SEndpoint createEndpoint(DefaultServerRuntimeContext serverContext) {
+        C2SEndpoint endpoint = new C2SEndpoint();
+        endpoint.setPort(0);
+        endpoint.setServerRuntimeContext(serverContext);
+        endpoint.setStanzaProcessor(
+                new ProtocolWorker(new SimpleStanzaHandlerExecutorFactory(serverContext.getStanzaRelay())));
+        return endpoint;
+    }
+
+    @Test
+    public void redirectsToPeerOnceSessionsReachLimit() throws Exception {
+        policy.setMaxSessions(1);
+        node.start();
+
+        try (Socket accepted = new Socket("localhost", node.getPort())) {
+            Assert.assertTrue(openStream(accepted).contains("<stream:features"));
+        }
+
+        bindSession("user@vysper.org");
+
+        try (Socket redirected = new Socket("localhost", node.getPort())) {
+            redirected.setSoTimeout(5000);
+            Matcher seeOtherHost = SEE_OTHER_HOST.matcher(readToEnd(redirected));
+            Assert.assertTrue(seeOtherHost.find());
+            Assert.assertEquals(peer.getPort(), Integer.parseInt(seeOtherHost.group(2)));
+
+            try (Socket followed = new Socket(seeOtherHost.group(1), Integer.parseInt(seeOtherHost.group(2)))) {
+                Assert.assertTrue(openStream(followed).contains("<stream:features"));
+            }
+        }
+        Assert.assertEquals(1, admissionControl.getRedirectedSessions());
+        Assert.assertEquals(1, admissionControl.getAdmittedSessions());
+    }
+
+    @Test
+    public void redirectsWhileHeapUsageExceeded() throws Exception {
+        policy.setMaxHeapUsage(Double.MIN_VALUE);
+        node.start();
+
+        try (Socket redirected = new Socket("localhost", node.getPort())) {
+            redirected.setSoTimeout(5000);
+            Assert.assertTrue(SEE_OTHER_HOST.matcher(readToEnd(redirected)).find());
+        }
+        Assert.assertEquals(1, admissionControl.getRedirectedSessions());
+    }
+
+    @Test
+    public void evaluationIsKeptForInterval() throws Exception {
+        policy.setMaxSessions(1);
+        policy.setEvaluationIntervalMillis(60 * 60 * 1000);
+        node.start();
+
+        Assert.assertFalse(policy.isOverloaded());
+        bindSession("user@vysper.org");
+        Assert.assertFalse(policy.isOverloaded());
+
+        policy.setEvaluationIntervalMillis(0);
+        Assert.assertTrue(policy.isOverloaded());
+    }
+
+    @Test
+    public void notOverloadedWithoutThresholds() throws Exception {
+        node.start();
+        bindSession("user@vysper.org");
+        Assert.assertFalse(policy.isOverloaded());
+    }
+
+    private void bindSession(String jid) throws Exception {
+        SessionStateHolder stateHolder = new SessionStateHolder();
+        stateHolder.setState(SessionState.AUTHENTICATED);
+        TestSessionContext sessionContext = new TestSessionContext(nodeContext, stateHolder,
+                nodeContext.getStanzaRelay());
+        sessionContext.setInitiatingEntity(EntityImpl.parse(jid));
+        sessionContext.bindResource();
+    }
+
+    private String openStream(Socket socket) throws IOException {
+        socket.setSoTimeout(5000);
+        socket.getOutputStream().write(STREAM_HEADER.getBytes(StandardCharsets.UTF_8));
+        ByteArrayOutputStream read = new ByteArrayOutputStream();
+        InputStream in = socket.getInputStream();
+        byte[] buffer = new byte[1024];
+        int count;
+        while (!read.toString("UTF-8").contains("</stream:features>") && (count = in.read(buffer)) != -1) {
+            read.write(buffer, 0, count);
+        }
+        return read.toString("UTF-8");
+    }
+
+    private String readToEnd(Socket socket) throws IOException {
+        ByteArrayOutputStream read = new ByteArrayOutputStream();
+        InputStream in = socket.getInputStream();
+        byte[] buffer = new byte[1024];
+        int count;
+        while ((count = in.read(buffer)) != -1) {
+            read.write(buffer, 0, count);
+        }
+        return new String(read.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.mina;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.apache.vysper.mina.RateLimitFilter.TrafficClass;
+import org.apache.vysper.xmpp.addressing.Entity;
+import org.apache.vysper.xmpp.addressing.EntityImpl;
+import org.apache.vysper.xmpp.delivery.StanzaReceiverRelay;
+import org.apache.vysper.xmpp.protocol.SessionStateHolder;
+import org.apache.vysper.xmpp.protocol.StanzaProcessor;
+import org.apache.vysper.xmpp.server.DefaultServerRuntimeContext;
+import org.apache.vysper.xmpp.server.InternalSessionContext;
+import org.apache.vysper.xmpp.server.ServerRuntimeContext;
+import org.apache.vysper.xmpp.server.SessionState;
+import org.apache.vysper.xmpp.stanza.Stanza;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class RateLimitFilterTestCase {
+
+    private static final String STREAM_HEADER = "<?xml version='1.0'?><stream:stream to='vysper.org' "
+            + "xmlns='jabber:client' xmlns:stream='http://etherx.jabber.org/streams' version='1.0'>";
+
+    private static final String MESSAGE = "<message to='other@vysper.org'><body>hello</body></message>";
+
+    private C2SEndpoint endpoint;
+
+    private RateLimitFilter rateLimit;
+
+    private RecordingStanzaProcessor stanzaProcessor;
+
+    @Before
+    public void before() {
+        StanzaReceiverRelay relay = new StanzaReceiverRelay();
+        DefaultServerRuntimeContext serverContext = new DefaultServerRuntimeContext(
+                new EntityImpl(null, "vysper.org", null), relay);
+        relay.setServerRuntimeContext(serverContext);
+
+        stanzaProcessor = new RecordingStanzaProcessor();
+        endpoint = new C2SEndpoint();
+        endpoint.setPort(0);
+        endpoint.setServerRuntimeContext(serverContext);
+        endpoint.setStanzaProcessor(stanzaProcessor);
+        rateLimit = new RateLimitFilter();
+        endpoint.setRateLimit(rateLimit);
+    }
+
+    @After
+    public void after() {
+        endpoint.stop();
+    }
+
+    @Test
+    public void throttlesSessionExceedingStanzaRate() throws Exception {
+        rateLimit.setSessionLimit(TrafficClass.USER, RateLimit.stanzas(10, 5));
+        endpoint.start();
+
+        try (Socket socket = connect()) {
+            // stanzas read at once are passed on, none is dropped
+            send(socket, STREAM_HEADER + repeat(MESSAGE, 14));
+            awaitReceived(15);
+            Assert.assertEquals(1, rateLimit.getThrottledSessions());
+
+            // 10 stanzas beyond the burst take a second at 10 per second to be paid off
+            long start = System.nanoTime();
+            send(socket, MESSAGE);
+            awaitReceived(16);
+            Assert.assertTrue(elapsedMillis(start) >= 700);
+        }
+        Assert.assertTrue(rateLimit.getThrottleCount(TrafficClass.USER) >= 1);
+        awaitNotThrottled();
+    }
+
+    @Test
+    public void throttlesSessionExceedingByteRate() throws Exception {
+        rateLimit.setSessionLimit(TrafficClass.USER, RateLimit.bytes(4000, 1000));
+        endpoint.start();
+
+        String message = "<message to='other@vysper.org'><body>" + repeat("x", 450) + "</body></message>";
+        try (Socket socket = connect()) {
+            send(socket, STREAM_HEADER);
+            awaitReceived(1);
+            long start = System.nanoTime();
+            send(socket, repeat(message, 10));
+            send(socket, MESSAGE);
+            awaitReceived(12);
+            // 5000 bytes at 4000 per second, beyond a burst of 1000
+            Assert.assertTrue(elapsedMillis(start) >= 700);
+        }
+        Assert.assertTrue(rateLimit.getThrottleCount(TrafficClass.USER) >= 1);
+    }
+
+    @Test
+    public void sessionsOfJidShareLimit() throws Exception {
+        stanzaProcessor.authenticateAs = EntityImpl.parse("user@vysper.org");
+        rateLimit.setJidLimit(TrafficClass.USER, RateLimit.stanzas(10, 5));
+        endpoint.start();
+
+        try (Socket first = connect(); Socket second = connect()) {
+            send(first, STREAM_HEADER);
+            send(second, STREAM_HEADER);
+            awaitReceived(2);
+            long start = System.nanoTime();
+            send(first, repeat(MESSAGE, 4));
+            awaitReceived(6);
+            send(second, repeat(MESSAGE, 10));
+            awaitReceived(16);
+
+            // each session alone stays within the burst, together they are 9 stanzas beyond it. the first
+            // session is suspended after its next read.
+            send(first, MESSAGE);
+            awaitReceived(17);
+            send(first, MESSAGE);
+            awaitReceived(18);
+            Assert.assertTrue(elapsedMillis(start) >= 700);
+        }
+        Assert.assertTrue(rateLimit.getThrottleCount(TrafficClass.USER) >= 1);
+    }
+
+    @Test
+    public void componentsAreLimitedByTheirOwnClass() throws Exception {
+        stanzaProcessor.authenticateAs = EntityImpl.parse("chat.vysper.org");
+        rateLimit.setSessionLimit(TrafficClass.USER, RateLimit.stanzas(1, 1));
+        endpoint.start();
+
+        try (Socket socket = connect()) {
+            send(socket, STREAM_HEADER);
+            awaitReceived(1);
+            send(socket, repeat(MESSAGE, 10));
+            awaitReceived(11);
+        }
+        Assert.assertEquals(0, rateLimit.getThrottleCount(TrafficClass.USER));
+        Assert.assertEquals(0, rateLimit.getThrottleCount(TrafficClass.COMPONENT));
+    }
+
+    private Socket connect() throws IOException {
+        Socket socket = new Socket("localhost", endpoint.getPort());
+        socket.setSoTimeout(5000);
+        return socket;
+    }
+
+    private void send(Socket socket, String xml) throws IOException {
+        OutputStream out = socket.getOutputStream();
+        out.write(xml.getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private void awaitReceived(int count) throws InterruptedException {
+        for (int i = 0; i < 250 && stanzaProcessor.received.size() < count; i++) {
+            Thread.sleep(20);
+        }
+        Assert.assertEquals(count, stanzaProcessor.received.size());
+    }
+
+    private void awaitNotThrottled() throws InterruptedException {
+        for (int i = 0; i < 100 && rateLimit.getThrottledSessions() > 0; i++) {
+            Thread.sleep(20);
+        }
+        Assert.assertEquals(0, rateLimit.getThrottledSessions());
+    }
+
+    private static long elapsedMillis(long start) {
+        return (System.nanoTime() - start) / 1000000;
+    }
+
+    private static String repeat(String text, int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.append(text);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * records the stanzas received, and authenticates the session with the first one if asked to
+     */
+    private static class RecordingStanzaProcessor implements StanzaProcessor {
+
+        private final BlockingQueue<Stanza> received = new LinkedBlockingQueue<Stanza>();
+
+        private volatile Entity authenticateAs;
+
+        public void processStanza(ServerRuntimeContext serverRuntimeContext, InternalSessionContext sessionContext,
+                Stanza stanza, SessionStateHolder sessionStateHolder) {
+            if (authenticateAs != null && sessionStateHolder.getState() != SessionState.AUTHENTICATED) {
+                sessionContext.setInitiatingEntity(authenticateAs);
+                sessionStateHolder.setState(SessionState.AUTHENTICATED);
+            }
+            received.add(stanza);
+        }
+
+        public void processTLSEstablished(InternalSessionContext sessionContext,
+                SessionStateHolder sessionStateHolder) {
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.mina;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class TokenBucketTestCase {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void startsFull() {
+        TokenBucket bucket = new TokenBucket(1, 3, 0);
+        Assert.assertTrue(bucket.tryTake(1, 0));
+        Assert.assertTrue(bucket.tryTake(2, 0));
+        Assert.assertFalse(bucket.tryTake(1, 0));
+    }
+
+    @Test
+    public void refillsAtRate() {
+        TokenBucket bucket = new TokenBucket(10, 10, 0);
+        Assert.assertTrue(bucket.tryTake(10, 0));
+        Assert.assertFalse(bucket.tryTake(1, SECOND / 20));
+        Assert.assertTrue(bucket.tryTake(1, SECOND / 10));
+        Assert.assertTrue(bucket.tryTake(5, SECOND / 10 + SECOND / 2));
+        Assert.assertFalse(bucket.tryTake(1, SECOND / 10 + SECOND / 2));
+    }
+
+    @Test
+    public void refillsUpToCapacity() {
+        TokenBucket bucket = new TokenBucket(100, 5, 0);
+        Assert.assertTrue(bucket.tryTake(5, 0));
+        Assert.assertFalse(bucket.tryTake(6, 60 * SECOND));
+        Assert.assertTrue(bucket.tryTake(5, 60 * SECOND));
+    }
+
+    @Test
+    public void takeGoesIntoDebt() {
+        TokenBucket bucket = new TokenBucket(1000, 1000, 0);
+        Assert.assertEquals(0, bucket.take(1000, 0));
+        Assert.assertEquals(SECOND / 2, bucket.take(500, 0), 1000);
+        Assert.assertFalse(bucket.tryTake(1, SECOND / 4));
+        // paid off after half a second, one token after another millisecond
+        Assert.assertFalse(bucket.tryTake(1, SECOND / 2));
+        Assert.assertTrue(bucket.tryTake(1, SECOND / 2 + TimeUnit.MILLISECONDS.toNanos(1)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rateMustBePositive() {
+        new TokenBucket(0, 1);
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.mina;
+
+import java.nio.charset.StandardCharsets;
+
+import org.apache.mina.core.buffer.IoBuffer;
+import org.apache.mina.core.filterchain.IoFilter.NextFilter;
+import org.apache.mina.core.session.DummySession;
+import org.apache.mina.core.session.IoSession;
+import org.apache.mina.filter.codec.AbstractProtocolDecoderOutput;
+import org.apache.vysper.xml.decoder.XMPPDecoder;
+import org.apache.vysper.xmpp.addressing.EntityImpl;
+import org.apache.vysper.xmpp.delivery.StanzaReceiverRelay;
+import org.apache.vysper.xmpp.modules.extension.xep0198_stream_mgmt.StreamManagement;
+import org.apache.vysper.xmpp.modules.extension.xep0198_stream_mgmt.StreamManagementModule;
+import org.apache.vysper.xmpp.modules.extension.xep0198_stream_mgmt.TestStreamManagedSession;
+import org.apache.vysper.xmpp.protocol.NamespaceURIs;
+import org.apache.vysper.xmpp.protocol.ProtocolWorker;
+import org.apache.vysper.xmpp.protocol.SessionStateHolder;
+import org.apache.vysper.xmpp.protocol.SimpleStanzaHandlerExecutorFactory;
+import org.apache.vysper.xmpp.server.DefaultServerRuntimeContext;
+import org.apache.vysper.xmpp.server.SessionContext.SessionTerminationCause;
+import org.apache.vysper.xmpp.server.SessionState;
+import org.apache.vysper.xmpp.stanza.StanzaBuilder;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class XmppIoHandlerAdapterTestCase {
+
+    private StreamManagementModule streamManagementModule;
+
+    private XmppIoHandlerAdapter handler;
+
+    private TestStreamManagedSession session;
+
+    private DummySession ioSession;
+
+    @Before
+    public void before() throws Exception {
+        StanzaReceiverRelay relay = new StanzaReceiverRelay();
+        DefaultServerRuntimeContext serverContext = new DefaultServerRuntimeContext(
+                new EntityImpl(null, "vysper.org", null), relay);
+        relay.setServerRuntimeContext(serverContext);
+        streamManagementModule = new StreamManagementModule();
+        streamManagementModule.initialize(serverContext);
+        handler = new XmppIoHandlerAdapter(serverContext,
+                new ProtocolWorker(new SimpleStanzaHandlerExecutorFactory(relay)));
+
+        SessionStateHolder stateHolder = new SessionStateHolder();
+        stateHolder.setState(SessionState.AUTHENTICATED);
+        session = new TestStreamManagedSession(serverContext, stateHolder, relay);
+        session.setInitiatingEntity(EntityImpl.parse("tester@vysper.org"));
+        session.bindResource();
+        streamManagementModule.enableInline(session,
+                new StanzaBuilder("enable", NamespaceURIs.URN_XMPP_SM_3).addAttribute("resume", "true").build());
+
+        ioSession = new DummySession();
+        ioSession.setAttribute(XmppIoHandlerAdapter.ATTRIBUTE_VYSPER_SESSION, session);
+        ioSession.setAttribute(XmppIoHandlerAdapter.ATTRIBUTE_VYSPER_TERMINATE_REASON,
+                SessionTerminationCause.CLIENT_BYEBYE);
+    }
+
+    @After
+    public void after() {
+        streamManagementModule.close();
+    }
+
+    @Test
+    public void lostConnectionDetachesResumableSession() throws Exception {
+        StreamManagement streamManagement = session.getStreamManagement();
+
+        handler.sessionClosed(ioSession);
+
+        Assert.assertFalse(session.isEnded());
+        Assert.assertTrue(streamManagement.isDetached());
+    }
+
+    @Test
+    public void closedStreamEndsResumableSession() throws Exception {
+        StreamManagement streamManagement = session.getStreamManagement();
+        decode("<stream:stream xmlns='jabber:client' xmlns:stream='http://etherx.jabber.org/streams' "
+                + "version='1.0'></stream:stream>");
+
+        handler.sessionClosed(ioSession);
+
+        Assert.assertTrue(session.isEnded());
+        Assert.assertFalse(streamManagement.isDetached());
+        Assert.assertEquals(0, streamManagementModule.getDetachedCount());
+    }
+
+    private void decode(String xml) throws Exception {
+        new XMPPDecoder().decode(ioSession, IoBuffer.wrap(xml.getBytes(StandardCharsets.UTF_8)),
+                new AbstractProtocolDecoderOutput() {
+                    public void flush(NextFilter nextFilter, IoSession session) {
+                    }
+                });
+    }
+}
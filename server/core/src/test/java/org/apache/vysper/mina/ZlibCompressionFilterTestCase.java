@@ -0,0 +1,168 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.mina;
+
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.apache.mina.core.buffer.IoBuffer;
+import org.apache.mina.core.filterchain.IoFilter.NextFilter;
+import org.apache.mina.core.session.DummySession;
+import org.apache.mina.core.session.IoSession;
+import org.apache.mina.core.write.DefaultWriteRequest;
+import org.apache.mina.core.write.WriteRequest;
+import org.apache.mina.filter.codec.ProtocolDecoderException;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Matchers;
+
+/**
+ */
+public class ZlibCompressionFilterTestCase {
+
+    private static final String STANZA = "<message to='juliet@capulet.lit' type='chat'><body>wherefore art thou"
+            + "</body></message>";
+
+    private final NextFilter nextFilter = mock(NextFilter.class);
+
+    private final IoSession session = new DummySession();
+
+    private final ZlibCompressionFilter filter = new ZlibCompressionFilter(6);
+
+    @Test
+    public void writtenStanzasAreReadableAfterEachFlush() throws Exception {
+        Inflater inflater = new Inflater();
+        for (int i = 0; i < 3; i++) {
+            byte[] compressed = write(STANZA);
+            // a sync flush makes each write readable on its own
+            Assert.assertEquals(STANZA, inflate(inflater, compressed));
+        }
+        inflater.end();
+
+        Assert.assertEquals(3 * STANZA.length(), filter.getRawBytesOut());
+        Assert.assertTrue(filter.getCompressedBytesOut() < filter.getRawBytesOut());
+        Assert.assertTrue(filter.getCompressionRatio() < 1.0);
+    }
+
+    @Test
+    public void disableOnceLetsOneBufferPass() throws Exception {
+        session.setAttribute(ZlibCompressionFilter.DISABLE_COMPRESSION_ONCE, Boolean.TRUE);
+
+        byte[] plain = write("<compressed xmlns='http://jabber.org/protocol/compress'/>");
+        Assert.assertEquals("<compressed xmlns='http://jabber.org/protocol/compress'/>",
+                new String(plain, StandardCharsets.UTF_8));
+        Assert.assertFalse(session.containsAttribute(ZlibCompressionFilter.DISABLE_COMPRESSION_ONCE));
+
+        Inflater inflater = new Inflater();
+        Assert.assertEquals(STANZA, inflate(inflater, write(STANZA)));
+        inflater.end();
+    }
+
+    @Test
+    public void receivedDataIsInflated() throws Exception {
+        Deflater deflater = new Deflater();
+        filter.messageReceived(nextFilter, session, IoBuffer.wrap(deflate(deflater, STANZA)));
+        filter.messageReceived(nextFilter, session, IoBuffer.wrap(deflate(deflater, STANZA)));
+        deflater.end();
+
+        ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+        verify(nextFilter, times(2)).messageReceived(Matchers.eq(session), captor.capture());
+        Assert.assertEquals(STANZA + STANZA, concat(captor.getAllValues()));
+        Assert.assertEquals(2 * STANZA.length(), filter.getRawBytesIn());
+    }
+
+    @Test
+    public void largeInputIsInflatedInChunks() throws Exception {
+        StringBuilder roster = new StringBuilder();
+        while (roster.length() < 100000) {
+            roster.append("<item jid='romeo@montague.lit' subscription='both'/>");
+        }
+        Deflater deflater = new Deflater();
+        filter.messageReceived(nextFilter, session, IoBuffer.wrap(deflate(deflater, roster.toString())));
+        deflater.end();
+
+        ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+        verify(nextFilter, atLeastOnce()).messageReceived(Matchers.eq(session), captor.capture());
+        Assert.assertTrue(captor.getAllValues().size() > 1);
+        Assert.assertEquals(roster.toString(), concat(captor.getAllValues()));
+    }
+
+    @Test(expected = ProtocolDecoderException.class)
+    public void corruptInputIsRejected() throws Exception {
+        filter.messageReceived(nextFilter, session, IoBuffer.wrap("<stream:stream>".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidLevelIsRejected() {
+        new ZlibCompressionFilter(10);
+    }
+
+    private byte[] write(String data) throws Exception {
+        WriteRequest writeRequest = new DefaultWriteRequest(IoBuffer.wrap(data.getBytes(StandardCharsets.UTF_8)));
+        filter.filterWrite(nextFilter, session, writeRequest);
+        IoBuffer written = (IoBuffer) writeRequest.getMessage();
+        byte[] bytes = new byte[written.remaining()];
+        written.get(bytes);
+        return bytes;
+    }
+
+    private static String inflate(Inflater inflater, byte[] compressed) throws Exception {
+        inflater.setInput(compressed);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int length;
+        while ((length = inflater.inflate(buffer)) > 0) {
+            out.write(buffer, 0, length);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] deflate(Deflater deflater, String data) {
+        deflater.setInput(data.getBytes(StandardCharsets.UTF_8));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int length;
+        do {
+            length = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+            out.write(buffer, 0, length);
+        } while (length == buffer.length);
+        return out.toByteArray();
+    }
+
+    private static String concat(List<Object> buffers) {
+        StringBuilder data = new StringBuilder();
+        for (Object buffer : buffers) {
+            IoBuffer ioBuffer = (IoBuffer) buffer;
+            byte[] bytes = new byte[ioBuffer.remaining()];
+            ioBuffer.get(bytes);
+            data.append(new String(bytes, StandardCharsets.UTF_8));
+        }
+        return data.toString();
+    }
+}
@@ -19,6 +19,8 @@
  */
 package org.apache.vysper.mina.codec;
 
+import java.util.Arrays;
+
 import org.apache.mina.core.buffer.IoBuffer;
 import org.apache.mina.core.session.IoSession;
 import org.apache.mina.filter.codec.ProtocolEncoderOutput;
@@ -93,4 +95,21 @@ public class StanzaWriterProtocolEncoderTestCase {
         Assert.assertEquals(prolog + opening + content, actual);
     }
 
+    @Test
+    public void encodeBatch() throws Exception {
+        StanzaWriteBatch batch = new StanzaWriteBatch(Arrays.asList(new StanzaWriteInfo(stanza, true),
+                new StanzaWriteInfo(stanza, false)));
+
+        encoder.encode(ioSession, batch, output);
+
+        ArgumentCaptor<IoBuffer> bufferCaptor = ArgumentCaptor.forClass(IoBuffer.class);
+
+        Mockito.verify(output).write(bufferCaptor.capture());
+
+        IoBuffer buffer = bufferCaptor.getValue();
+        String actual = buffer.getString(CharsetUtil.getDecoder());
+
+        Assert.assertEquals(prolog + opening + content + opening + content + closing, actual);
+    }
+
 }
@@ -22,6 +22,7 @@ package org.apache.vysper.mina.codec;
 import java.io.IOException;
 
 import org.apache.vysper.mina.C2SEndpoint;
+import org.apache.vysper.mina.IoTopology;
 import org.apache.vysper.mina.TCPEndpoint;
 import org.junit.After;
 import org.junit.Assert;
@@ -56,6 +57,27 @@ public abstract class TCPEndpointTestTemplate {
         endpoint.setPort(12345);
     }
     
+    @Test(expected=IllegalStateException.class)
+    public void setIoTopologyAfterStarted() throws IOException {
+        endpoint.setPort(0);
+        endpoint.start();
+        
+        endpoint.setIoTopology(IoTopology.manyIdleConnections());
+    }
+    
+    @Test
+    public void startWithoutExecutor() throws IOException {
+        IoTopology topology = new IoTopology();
+        topology.setExecutorModel(IoTopology.ExecutorModel.IO_THREAD);
+        topology.setTcpNoDelay(true);
+        endpoint.setIoTopology(topology);
+        endpoint.setPort(0);
+        
+        endpoint.start();
+        
+        Assert.assertTrue(0 != endpoint.getPort());
+    }
+    
     @After
     public void tearDown() {
         endpoint.stop();
@@ -0,0 +1,201 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.mina.perf;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.mina.core.buffer.IoBuffer;
+import org.apache.mina.core.filterchain.DefaultIoFilterChainBuilder;
+import org.apache.mina.core.service.IoHandlerAdapter;
+import org.apache.mina.core.session.IoSession;
+import org.apache.mina.filter.executor.ExecutorFilter;
+import org.apache.mina.transport.socket.nio.NioSocketAcceptor;
+import org.apache.vysper.mina.IoTopology;
+
+/**
+ * compares {@link IoTopology} presets on an echo server, outside of the XMPP stack.
+ * <ul>
+ * <li>idle: opens many connections, then measures the heap they occupy and the round trip
+ * of a small message on each of them</li>
+ * <li>throughput: a few connections each push a large amount of data through the echo server</li>
+ * </ul>
+ * run with <code>[idle|throughput] [connections]</code>, every scenario runs against the default
+ * topology and both presets.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class IoTopologyPerfRunner {
+
+    private static class EchoHandler extends IoHandlerAdapter {
+        @Override
+        public void messageReceived(IoSession session, Object message) {
+            IoBuffer received = (IoBuffer) message;
+            IoBuffer echo = IoBuffer.allocate(received.remaining());
+            echo.put(received).flip();
+            session.write(echo);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        String scenario = args.length > 0 ? args[0] : "idle";
+        String[] names = { "default", "manyIdleConnections", "fewHighThroughputConnections" };
+        IoTopology[] topologies = { new IoTopology(), IoTopology.manyIdleConnections(),
+                IoTopology.fewHighThroughputConnections() };
+
+        for (int i = 0; i < topologies.length; i++) {
+            if ("throughput".equals(scenario)) {
+                int connections = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+                runThroughput(names[i], topologies[i], connections, 64 * 1024 * 1024);
+            } else {
+                int connections = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+                runIdle(names[i], topologies[i], connections);
+            }
+        }
+    }
+
+    private static NioSocketAcceptor start(IoTopology topology) throws Exception {
+        NioSocketAcceptor acceptor = topology.createAcceptor();
+        DefaultIoFilterChainBuilder filterChainBuilder = new DefaultIoFilterChainBuilder();
+        topology.addExecutorFilter(filterChainBuilder);
+        acceptor.setFilterChainBuilder(filterChainBuilder);
+        acceptor.setHandler(new EchoHandler());
+        acceptor.bind(new InetSocketAddress("127.0.0.1", 0));
+        return acceptor;
+    }
+
+    private static void stop(NioSocketAcceptor acceptor) {
+        DefaultIoFilterChainBuilder filterChainBuilder = (DefaultIoFilterChainBuilder) acceptor.getFilterChainBuilder();
+        ExecutorFilter executorFilter = (ExecutorFilter) filterChainBuilder.get("executorFilter");
+        acceptor.unbind();
+        acceptor.dispose();
+        if (executorFilter != null) {
+            executorFilter.destroy();
+        }
+    }
+
+    private static void runIdle(String name, IoTopology topology, int connections) throws Exception {
+        NioSocketAcceptor acceptor = start(topology);
+        InetSocketAddress address = acceptor.getLocalAddress();
+
+        long heapBefore = usedHeap();
+        long connectStart = System.nanoTime();
+        List<Socket> sockets = new ArrayList<Socket>(connections);
+        for (int i = 0; i < connections; i++) {
+            sockets.add(new Socket(address.getAddress(), address.getPort()));
+        }
+        while (acceptor.getManagedSessionCount() < connections) {
+            Thread.sleep(10);
+        }
+        long connectMillis = (System.nanoTime() - connectStart) / 1000000;
+        long heapPerConnection = (usedHeap() - heapBefore) / connections;
+
+        byte[] ping = "<iq type='get' id='p'><ping xmlns='urn:xmpp:ping'/></iq>".getBytes("UTF-8");
+        byte[] pong = new byte[ping.length];
+        long roundTripStart = System.nanoTime();
+        for (Socket socket : sockets) {
+            socket.getOutputStream().write(ping);
+            readFully(socket.getInputStream(), pong);
+        }
+        long averageRoundTripMicros = (System.nanoTime() - roundTripStart) / 1000 / connections;
+
+        for (Socket socket : sockets) {
+            socket.close();
+        }
+        stop(acceptor);
+
+        System.out.println(String.format("%-30s idle: %d connections in %d ms, ~%d heap bytes/connection, %d us avg round trip",
+                name, connections, connectMillis, heapPerConnection, averageRoundTripMicros));
+    }
+
+    private static void runThroughput(String name, IoTopology topology, int connections, final int bytesPerConnection)
+            throws Exception {
+        NioSocketAcceptor acceptor = start(topology);
+        InetSocketAddress address = acceptor.getLocalAddress();
+
+        List<Thread> threads = new ArrayList<Thread>();
+        long start = System.nanoTime();
+        for (int i = 0; i < connections; i++) {
+            final Socket socket = new Socket(address.getAddress(), address.getPort());
+            Thread reader = new Thread(() -> {
+                try {
+                    byte[] buffer = new byte[64 * 1024];
+                    InputStream in = socket.getInputStream();
+                    int total = 0;
+                    while (total < bytesPerConnection) {
+                        int read = in.read(buffer);
+                        if (read < 0) break;
+                        total += read;
+                    }
+                    socket.close();
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            });
+            Thread writer = new Thread(() -> {
+                try {
+                    byte[] chunk = new byte[16 * 1024];
+                    OutputStream out = socket.getOutputStream();
+                    for (int written = 0; written < bytesPerConnection; written += chunk.length) {
+                        out.write(chunk);
+                    }
+                    out.flush();
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            });
+            threads.add(reader);
+            threads.add(writer);
+            reader.start();
+            writer.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        stop(acceptor);
+
+        double megabytes = (double) connections * bytesPerConnection / (1024 * 1024);
+        System.out.println(String.format("%-30s throughput: %d connections, %.1f MB echoed at %.1f MB/s", name,
+                connections, megabytes, megabytes * 1000000000d / elapsedNanos));
+    }
+
+    private static void readFully(InputStream in, byte[] buffer) throws Exception {
+        int total = 0;
+        while (total < buffer.length) {
+            int read = in.read(buffer, total, buffer.length - total);
+            if (read < 0) throw new IllegalStateException("connection closed");
+            total += read;
+        }
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.mina.perf;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.log4j.Level;
+import org.apache.mina.core.filterchain.DefaultIoFilterChainBuilder;
+import org.apache.mina.core.service.IoHandlerAdapter;
+import org.apache.mina.core.session.IoSession;
+import org.apache.mina.filter.codec.ProtocolCodecFilter;
+import org.apache.mina.filter.codec.textline.TextLineCodecFactory;
+import org.apache.mina.filter.executor.ExecutorFilter;
+import org.apache.mina.transport.socket.nio.NioSocketAcceptor;
+import org.apache.vysper.mina.IoTopology;
+import org.apache.vysper.xmpp.addressing.Entity;
+import org.apache.vysper.xmpp.addressing.EntityImpl;
+import org.apache.vysper.xmpp.authentication.SimpleUserAuthentication;
+import org.apache.vysper.xmpp.delivery.failure.DeliveryFailureStrategy;
+import org.apache.vysper.xmpp.delivery.inbound.DeliveringInternalInboundStanzaRelay;
+import org.apache.vysper.xmpp.server.components.SimpleComponentRegistry;
+import org.apache.vysper.xmpp.server.resources.VirtualThreads;
+import org.apache.vysper.xmpp.stanza.Stanza;
+import org.apache.vysper.xmpp.stanza.StanzaBuilder;
+import org.apache.vysper.xmpp.state.resourcebinding.DefaultResourceRegistry;
+
+/**
+ * compares processing on the current thread pools with processing on virtual threads, while every
+ * stanza waits for a slow storage lookup.
+ * <ul>
+ * <li>sessions: connections send sequenced lines through a MINA acceptor, the handler looks up the
+ * account before echoing the line. compares {@link IoTopology.ExecutorModel#ORDERED_THREAD_POOL}
+ * with {@link IoTopology.ExecutorModel#VIRTUAL_THREADS}.</li>
+ * <li>relay: messages to offline receivers go through the {@link DeliveringInternalInboundStanzaRelay},
+ * which looks up every receiver's account. compares the relay's thread pool with
+ * {@link DeliveringInternalInboundStanzaRelay#useVirtualThreads()}.</li>
+ * </ul>
+ * run on Java 21 or later with <code>[sessions|relay] [connections|receivers] [stanzas each] [latency millis]</code>.
+ * both scenarios verify that the stanzas of each session or receiver are processed in order.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class VirtualThreadPerfRunner {
+
+    /**
+     * in-memory account store with the latency of a remote storage backend
+     */
+    private static class SlowAccountManagement extends SimpleUserAuthentication {
+
+        private final long latencyMillis;
+
+        SlowAccountManagement(long latencyMillis) {
+            this.latencyMillis = latencyMillis;
+        }
+
+        @Override
+        public boolean verifyAccountExists(Entity jid) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return super.verifyAccountExists(jid);
+        }
+    }
+
+    private static class LookupEchoHandler extends IoHandlerAdapter {
+
+        private final SlowAccountManagement accounts;
+
+        LookupEchoHandler(SlowAccountManagement accounts) {
+            this.accounts = accounts;
+        }
+
+        @Override
+        public void messageReceived(IoSession session, Object message) {
+            accounts.verifyAccountExists(EntityImpl.parseUnchecked("user" + session.getId() + "@vysper.org"));
+            session.write(message);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (!VirtualThreads.isAvailable()) {
+            System.err.println("virtual threads require Java 21 or later");
+            return;
+        }
+        String scenario = args.length > 0 ? args[0] : "sessions";
+        int latencyMillis = args.length > 3 ? Integer.parseInt(args[3]) : 2;
+        SlowAccountManagement accounts = new SlowAccountManagement(latencyMillis);
+
+        if ("relay".equals(scenario)) {
+            int receivers = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+            int messages = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+            // every message goes to an unknown receiver, which is logged as a warning
+            org.apache.log4j.Logger.getLogger(DeliveringInternalInboundStanzaRelay.class).setLevel(Level.ERROR);
+            runRelay("thread pool", false, accounts, receivers, messages);
+            runRelay("virtual threads", true, accounts, receivers, messages);
+        } else {
+            int connections = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+            int messages = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+            IoTopology pool = new IoTopology();
+            pool.setBacklog(connections);
+            IoTopology virtual = new IoTopology();
+            virtual.setBacklog(connections);
+            virtual.setExecutorModel(IoTopology.ExecutorModel.VIRTUAL_THREADS);
+            runSessions("ordered thread pool", pool, accounts, connections, messages);
+            runSessions("virtual threads", virtual, accounts, connections, messages);
+        }
+    }
+
+    private static void runSessions(String name, IoTopology topology, SlowAccountManagement accounts,
+            int connections, final int messages) throws Exception {
+        NioSocketAcceptor acceptor = topology.createAcceptor();
+        DefaultIoFilterChainBuilder filterChainBuilder = new DefaultIoFilterChainBuilder();
+        filterChainBuilder.addLast("codec",
+                new ProtocolCodecFilter(new TextLineCodecFactory(StandardCharsets.UTF_8)));
+        ExecutorFilter executorFilter = topology.addExecutorFilter(filterChainBuilder);
+        acceptor.setFilterChainBuilder(filterChainBuilder);
+        acceptor.setHandler(new LookupEchoHandler(accounts));
+        acceptor.bind(new InetSocketAddress("127.0.0.1", 0));
+        InetSocketAddress address = acceptor.getLocalAddress();
+
+        List<Socket> sockets = new ArrayList<Socket>(connections);
+        for (int i = 0; i < connections; i++) {
+            sockets.add(new Socket(address.getAddress(), address.getPort()));
+        }
+        while (acceptor.getManagedSessionCount() < connections) {
+            Thread.sleep(10);
+        }
+
+        final AtomicBoolean inOrder = new AtomicBoolean(true);
+        List<Thread> clients = new ArrayList<Thread>(connections);
+        long start = System.nanoTime();
+        for (final Socket socket : sockets) {
+            Thread client = new Thread(() -> {
+                try {
+                    OutputStream out = socket.getOutputStream();
+                    StringBuilder lines = new StringBuilder();
+                    for (int i = 0; i < messages; i++) {
+                        lines.append(i).append('\n');
+                    }
+                    out.write(lines.toString().getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                    BufferedReader in = new BufferedReader(
+                            new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                    for (int i = 0; i < messages; i++) {
+                        if (Integer.parseInt(in.readLine()) != i) inOrder.set(false);
+                    }
+                    socket.close();
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            });
+            clients.add(client);
+            client.start();
+        }
+        for (Thread client : clients) {
+            client.join();
+        }
+        long elapsedNanos = System.nanoTime() - start;
+
+        acceptor.unbind();
+        acceptor.dispose();
+        if (executorFilter != null) {
+            executorFilter.destroy();
+        }
+
+        long stanzas = (long) connections * messages;
+        System.out.println(String.format("%-20s sessions: %d stanzas on %d connections in %d ms, %.0f stanzas/s, in order: %s",
+                name, stanzas, connections, elapsedNanos / 1000000, stanzas * 1000000000d / elapsedNanos, inOrder.get()));
+    }
+
+    private static void runRelay(String name, boolean virtualThreads, SlowAccountManagement accounts,
+            int receivers, int messages) throws Exception {
+        EntityImpl serverEntity = EntityImpl.parse("vysper.org");
+        DeliveringInternalInboundStanzaRelay relay = new DeliveringInternalInboundStanzaRelay(serverEntity,
+                new DefaultResourceRegistry(), new SimpleComponentRegistry(serverEntity), accounts);
+        if (virtualThreads) {
+            relay.useVirtualThreads();
+        }
+
+        final CountDownLatch delivered = new CountDownLatch(receivers * messages);
+        final ConcurrentMap<String, Integer> lastSequence = new ConcurrentHashMap<String, Integer>();
+        final AtomicBoolean inOrder = new AtomicBoolean(true);
+        DeliveryFailureStrategy recordingStrategy = (stanza, deliveryExceptions) -> {
+            String[] id = stanza.getAttributeValue("id").split("-");
+            Integer previous = lastSequence.put(id[0], Integer.valueOf(id[1]));
+            if (previous != null && previous > Integer.parseInt(id[1])) inOrder.set(false);
+            delivered.countDown();
+        };
+
+        EntityImpl from = EntityImpl.parse("sender@vysper.org/perf");
+        long start = System.nanoTime();
+        for (int i = 0; i < messages; i++) {
+            for (int r = 0; r < receivers; r++) {
+                EntityImpl to = EntityImpl.parse("receiver" + r + "@vysper.org/perf");
+                Stanza stanza = new StanzaBuilder("message").addAttribute("from", from.getFullQualifiedName())
+                        .addAttribute("to", to.getFullQualifiedName()).addAttribute("type", "chat")
+                        .addAttribute("id", r + "-" + i).build();
+                relay.relay(null, to, stanza, recordingStrategy);
+            }
+        }
+        if (!delivered.await(10, TimeUnit.MINUTES)) {
+            throw new IllegalStateException("relay did not complete");
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        relay.stop();
+
+        long stanzas = (long) receivers * messages;
+        System.out.println(String.format("%-20s relay: %d stanzas to %d receivers in %d ms, %.0f stanzas/s, in order: %s",
+                name, stanzas, receivers, elapsedNanos / 1000000, stanzas * 1000000000d / elapsedNanos, inOrder.get()));
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.authentication;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.vysper.xmpp.addressing.Entity;
+import org.apache.vysper.xmpp.addressing.EntityImpl;
+import org.junit.Test;
+
+/**
+ */
+public class ScramCredentialsCacheTestCase {
+
+    private static final Entity USER = EntityImpl.parseUnchecked("user@vysper.org");
+
+    private static class CountingLoader implements ScramCredentialsCache.Loader {
+
+        private final AtomicInteger loads = new AtomicInteger();
+
+        private final ScramCredentials credentials = ScramCredentials.create(ScramAlgorithm.SHA_256, "pencil", 1024);
+
+        public ScramCredentials load(Entity jid, ScramAlgorithm algorithm) {
+            loads.incrementAndGet();
+            return algorithm == credentials.getAlgorithm() ? credentials : null;
+        }
+    }
+
+    @Test
+    public void rfc5802ClientProof() {
+        assertClientProof(ScramAlgorithm.SHA_1, "QSXCR+Q6sek8bf92",
+                "n=user,r=fyko+d2lbbFgONRv9qkxdawL,r=fyko+d2lbbFgONRv9qkxdawL3rfcNHYJY1ZVvWVs7j,"
+                        + "s=QSXCR+Q6sek8bf92,i=4096,c=biws,r=fyko+d2lbbFgONRv9qkxdawL3rfcNHYJY1ZVvWVs7j",
+                "v0X8v3Bz2T0CJGbJQyF0X+HI4Ts=", "rmF9pqV8S7suAoZWja4dJRkFsKQ=");
+    }
+
+    @Test
+    public void rfc7677ClientProof() {
+        assertClientProof(ScramAlgorithm.SHA_256, "W22ZaJ0SNY7soEsUEjb6gQ==",
+                "n=user,r=rOprNGfwEbeRWgbNEkqO,r=rOprNGfwEbeRWgbNEkqO%hvYDpWUa2RaTCAfuxFIlj)hNlF$k0,"
+                        + "s=W22ZaJ0SNY7soEsUEjb6gQ==,i=4096,c=biws,r=rOprNGfwEbeRWgbNEkqO%hvYDpWUa2RaTCAfuxFIlj)hNlF$k0",
+                "dHzbZapWIk4jUhN+Ute9ytag9zjfMHgsqmmiz7AndVQ=", "6rriTRBi23WpRR/wtup+mMhUZUn/dB5nLTJRsjl95G4=");
+    }
+
+    private void assertClientProof(ScramAlgorithm algorithm, String salt, String authMessage, String proof,
+            String serverSignature) {
+        ScramCredentials credentials = ScramCredentials.derive(algorithm, "pencil", decode(salt), 4096);
+
+        // the server recovers the client key from the proof and checks it against the stored key
+        byte[] clientKey = decode(proof);
+        byte[] clientSignature = algorithm.hmac(credentials.getStoredKey(), authMessage);
+        for (int i = 0; i < clientKey.length; i++) {
+            clientKey[i] ^= clientSignature[i];
+        }
+        assertArrayEquals(credentials.getStoredKey(), algorithm.hash(clientKey));
+        assertArrayEquals(decode(serverSignature), algorithm.hmac(credentials.getServerKey(), authMessage));
+    }
+
+    @Test
+    public void encodeDecode() {
+        ScramCredentials credentials = ScramCredentials.create(ScramAlgorithm.SHA_1, "pencil", 4096);
+        String encoded = credentials.encode();
+        assertTrue(encoded.startsWith("SCRAM-SHA-1$4096:"));
+        assertFalse(encoded.contains("pencil"));
+
+        ScramCredentials decoded = ScramCredentials.decode(encoded);
+        assertEquals(ScramAlgorithm.SHA_1, decoded.getAlgorithm());
+        assertEquals(4096, decoded.getIterations());
+        assertArrayEquals(credentials.getSalt(), decoded.getSalt());
+        assertArrayEquals(credentials.getStoredKey(), decoded.getStoredKey());
+        assertArrayEquals(credentials.getServerKey(), decoded.getServerKey());
+        assertTrue(decoded.verifyPassword("pencil"));
+        assertFalse(decoded.verifyPassword("pen"));
+    }
+
+    @Test
+    public void credentialsAreCached() {
+        ScramCredentialsCache cache = new ScramCredentialsCache(10);
+        CountingLoader loader = new CountingLoader();
+
+        ScramCredentials credentials = cache.getCredentials(USER, ScramAlgorithm.SHA_256, loader);
+        assertSame(loader.credentials, credentials);
+        assertSame(credentials,
+                cache.getCredentials(EntityImpl.parseUnchecked("user@vysper.org/laptop"), ScramAlgorithm.SHA_256, loader));
+        assertTrue(cache.verifyPassword(USER, ScramAlgorithm.SHA_256, "pencil", loader));
+        assertTrue(cache.verifyPassword(USER, ScramAlgorithm.SHA_256, "pencil", loader));
+        assertFalse(cache.verifyPassword(USER, ScramAlgorithm.SHA_256, "pen", loader));
+        assertEquals(1, loader.loads.get());
+        assertEquals(1, cache.size());
+
+        // unknown credentials are loaded again
+        assertNull(cache.getCredentials(USER, ScramAlgorithm.SHA_1, loader));
+        assertNull(cache.getCredentials(USER, ScramAlgorithm.SHA_1, loader));
+        assertEquals(3, loader.loads.get());
+    }
+
+    @Test
+    public void invalidate() {
+        ScramCredentialsCache cache = new ScramCredentialsCache(10);
+        CountingLoader loader = new CountingLoader();
+
+        assertTrue(cache.verifyPassword(USER, ScramAlgorithm.SHA_256, "pencil", loader));
+        cache.invalidate(USER);
+        assertEquals(0, cache.size());
+        assertTrue(cache.verifyPassword(USER, ScramAlgorithm.SHA_256, "pencil", loader));
+        assertEquals(2, loader.loads.get());
+    }
+
+    @Test
+    public void leastRecentlyUsedAreEvicted() {
+        ScramCredentialsCache cache = new ScramCredentialsCache(2);
+        CountingLoader loader = new CountingLoader();
+        Entity other = EntityImpl.parseUnchecked("other@vysper.org");
+        Entity third = EntityImpl.parseUnchecked("third@vysper.org");
+
+        cache.getCredentials(USER, ScramAlgorithm.SHA_256, loader);
+        cache.getCredentials(other, ScramAlgorithm.SHA_256, loader);
+        cache.getCredentials(USER, ScramAlgorithm.SHA_256, loader);
+        cache.getCredentials(third, ScramAlgorithm.SHA_256, loader);
+        assertEquals(2, cache.size());
+        assertEquals(3, loader.loads.get());
+
+        cache.getCredentials(USER, ScramAlgorithm.SHA_256, loader);
+        assertEquals(3, loader.loads.get());
+        cache.getCredentials(other, ScramAlgorithm.SHA_256, loader);
+        assertEquals(4, loader.loads.get());
+    }
+
+    @Test
+    public void expiredCredentialsAreLoadedAgain() {
+        final AtomicLong now = new AtomicLong(1000);
+        ScramCredentialsCache cache = new TestClockCache(10, 50, now);
+        CountingLoader loader = new CountingLoader();
+
+        assertTrue(cache.verifyPassword(USER, ScramAlgorithm.SHA_256, "pencil", loader));
+        assertTrue(cache.verifyPassword(USER, ScramAlgorithm.SHA_256, "pencil", loader));
+        assertEquals(1, loader.loads.get());
+
+        now.addAndGet(100);
+        assertTrue(cache.verifyPassword(USER, ScramAlgorithm.SHA_256, "pencil", loader));
+        assertEquals(2, loader.loads.get());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void passwordChangedElsewhereIsSeenAfterExpiry() {
+        final AtomicLong now = new AtomicLong(1000);
+        ScramCredentialsCache cache = new TestClockCache(10, 50, now);
+        final ScramCredentials[] stored = { ScramCredentials.create(ScramAlgorithm.SHA_256, "pencil", 1024) };
+        ScramCredentialsCache.Loader loader = (jid, algorithm) -> stored[0];
+
+        assertTrue(cache.verifyPassword(USER, ScramAlgorithm.SHA_256, "pencil", loader));
+        // another server changes the password without invalidating this cache
+        stored[0] = ScramCredentials.create(ScramAlgorithm.SHA_256, "eraser", 1024);
+        assertTrue(cache.verifyPassword(USER, ScramAlgorithm.SHA_256, "pencil", loader));
+
+        now.addAndGet(100);
+        assertFalse(cache.verifyPassword(USER, ScramAlgorithm.SHA_256, "pencil", loader));
+        assertTrue(cache.verifyPassword(USER, ScramAlgorithm.SHA_256, "eraser", loader));
+    }
+
+    @Test
+    public void cachingDisabled() {
+        ScramCredentialsCache cache = new ScramCredentialsCache(0);
+        CountingLoader loader = new CountingLoader();
+
+        assertTrue(cache.verifyPassword(USER, ScramAlgorithm.SHA_256, "pencil", loader));
+        assertTrue(cache.verifyPassword(USER, ScramAlgorithm.SHA_256, "pencil", loader));
+        assertEquals(2, loader.loads.get());
+        assertEquals(0, cache.size());
+    }
+
+    private static class TestClockCache extends ScramCredentialsCache {
+
+        private final AtomicLong now;
+
+        TestClockCache(int maxSize, long maxAgeMillis, AtomicLong now) {
+            super(maxSize, maxAgeMillis);
+            this.now = now;
+        }
+
+        @Override
+        protected long currentTimeMillis() {
+            return now.get();
+        }
+    }
+
+    private static byte[] decode(String base64) {
+        return Base64.decodeBase64(base64.getBytes(StandardCharsets.UTF_8));
+    }
+}
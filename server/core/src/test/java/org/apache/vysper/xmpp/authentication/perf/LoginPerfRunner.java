@@ -0,0 +1,196 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.authentication.perf;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.vysper.storage.OpenStorageProviderRegistry;
+import org.apache.vysper.xmpp.addressing.EntityImpl;
+import org.apache.vysper.xmpp.authentication.Plain;
+import org.apache.vysper.xmpp.authentication.ScramAlgorithm;
+import org.apache.vysper.xmpp.authentication.ScramCredentials;
+import org.apache.vysper.xmpp.authentication.ScramCredentialsProvider;
+import org.apache.vysper.xmpp.authentication.ScramSha256;
+import org.apache.vysper.xmpp.authentication.SimpleUserAuthentication;
+import org.apache.vysper.xmpp.delivery.RecordingStanzaRelay;
+import org.apache.vysper.xmpp.protocol.NamespaceURIs;
+import org.apache.vysper.xmpp.protocol.SessionStateHolder;
+import org.apache.vysper.xmpp.server.DefaultServerRuntimeContext;
+import org.apache.vysper.xmpp.server.SessionState;
+import org.apache.vysper.xmpp.server.TestSessionContext;
+import org.apache.vysper.xmpp.stanza.Stanza;
+import org.apache.vysper.xmpp.stanza.StanzaBuilder;
+
+/**
+ * measures the server side cost of logins for a range of iteration counts, to help tuning
+ * {@link SimpleUserAuthentication#setIterations(int)} and the credentials cache size.
+ * <ul>
+ * <li>plain: PLAIN logins, with and without the credentials cache. without the cache, every login
+ * derives the salted password again.</li>
+ * <li>scram: SCRAM-SHA-256 logins. the server does no key derivation, the clients' salted passwords
+ * are computed up front, as clients cache them too. with the cache, credentials are not read again.</li>
+ * </ul>
+ * every user logs in a number of times, like after a server restart or a network outage.
+ * run with <code>[users] [logins per user] [threads]</code>.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class LoginPerfRunner {
+
+    private static final int[] ITERATIONS = { 1024, 4096, 16384 };
+
+    private interface Login {
+        boolean login(int user) throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int loginsPerUser = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int iterations : ITERATIONS) {
+                run("plain, uncached", iterations, users, loginsPerUser, executor,
+                        plain(createContext(users, iterations, 0)));
+                run("plain, cached", iterations, users, loginsPerUser, executor,
+                        plain(createContext(users, iterations, users * 2)));
+                run("scram-sha-256, uncached", iterations, users, loginsPerUser, executor,
+                        scram(createContext(users, iterations, 0), users));
+                run("scram-sha-256, cached", iterations, users, loginsPerUser, executor,
+                        scram(createContext(users, iterations, users * 2), users));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static DefaultServerRuntimeContext createContext(int users, int iterations, int cacheSize) {
+        SimpleUserAuthentication userAuthentication = new SimpleUserAuthentication();
+        userAuthentication.setIterations(iterations);
+        userAuthentication.setCredentialsCacheSize(cacheSize);
+        for (int i = 0; i < users; i++) {
+            userAuthentication.addUser(EntityImpl.parseUnchecked("user" + i + "@test"), "password" + i);
+        }
+        OpenStorageProviderRegistry providerRegistry = new OpenStorageProviderRegistry();
+        providerRegistry.add(userAuthentication);
+        DefaultServerRuntimeContext serverRuntimeContext = new DefaultServerRuntimeContext(
+                EntityImpl.parseUnchecked("test"), new RecordingStanzaRelay());
+        serverRuntimeContext.setStorageProviderRegistry(providerRegistry);
+        return serverRuntimeContext;
+    }
+
+    private static Login plain(final DefaultServerRuntimeContext serverRuntimeContext) {
+        final Plain plain = new Plain();
+        return user -> {
+            SessionStateHolder sessionStateHolder = new SessionStateHolder();
+            TestSessionContext sessionContext = createSession(serverRuntimeContext, sessionStateHolder);
+            plain.started(sessionContext, sessionStateHolder,
+                    auth("PLAIN", "\0user" + user + "\0password" + user));
+            return sessionStateHolder.getState() == SessionState.AUTHENTICATED;
+        };
+    }
+
+    private static Login scram(final DefaultServerRuntimeContext serverRuntimeContext, int users) {
+        final ScramAlgorithm algorithm = ScramAlgorithm.SHA_256;
+        final ScramSha256 scram = new ScramSha256();
+        // the clients' part of the key derivation
+        ScramCredentialsProvider credentialsProvider = serverRuntimeContext
+                .getStorageProvider(ScramCredentialsProvider.class);
+        final byte[][] saltedPasswords = new byte[users][];
+        for (int i = 0; i < users; i++) {
+            ScramCredentials credentials = credentialsProvider
+                    .getScramCredentials(EntityImpl.parseUnchecked("user" + i + "@test"), algorithm);
+            saltedPasswords[i] = algorithm.saltPassword("password" + i, credentials.getSalt(),
+                    credentials.getIterations());
+        }
+        return user -> {
+            SessionStateHolder sessionStateHolder = new SessionStateHolder();
+            TestSessionContext sessionContext = createSession(serverRuntimeContext, sessionStateHolder);
+            String clientFirstBare = "n=user" + user + ",r=" + user + "clientnonce";
+            Stanza challenge = scram.started(sessionContext, sessionStateHolder,
+                    auth(algorithm.getMechanismName(), "n,," + clientFirstBare));
+            String serverFirst = decode(challenge);
+            String clientFinalWithoutProof = "c=biws," + serverFirst.substring(0, serverFirst.indexOf(','));
+            String authMessage = clientFirstBare + "," + serverFirst + "," + clientFinalWithoutProof;
+            byte[] clientKey = algorithm.hmac(saltedPasswords[user], "Client Key");
+            byte[] clientSignature = algorithm.hmac(algorithm.hash(clientKey), authMessage);
+            for (int i = 0; i < clientKey.length; i++) {
+                clientKey[i] ^= clientSignature[i];
+            }
+            scram.responded(sessionContext, sessionStateHolder, response(clientFinalWithoutProof + ",p="
+                    + new String(Base64.encodeBase64(clientKey), StandardCharsets.UTF_8)));
+            return sessionStateHolder.getState() == SessionState.AUTHENTICATED;
+        };
+    }
+
+    private static void run(String name, int iterations, final int users, final int loginsPerUser,
+            ExecutorService executor, final Login login) throws Exception {
+        long start = System.nanoTime();
+        List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+        for (int round = 0; round < loginsPerUser; round++) {
+            for (int i = 0; i < users; i++) {
+                final int user = i;
+                results.add(executor.submit(() -> login.login(user) ? 0 : 1));
+            }
+        }
+        int failed = 0;
+        for (Future<Integer> result : results) {
+            failed += result.get();
+        }
+        long elapsedNanos = System.nanoTime() - start;
+
+        System.out.println(String.format("%-25s %6d iterations: %d logins in %d ms, %.0f logins/s, %d failed", name,
+                iterations, results.size(), elapsedNanos / 1000000, results.size() * 1000000000d / elapsedNanos,
+                failed));
+    }
+
+    private static TestSessionContext createSession(DefaultServerRuntimeContext serverRuntimeContext,
+            SessionStateHolder sessionStateHolder) {
+        sessionStateHolder.setState(SessionState.ENCRYPTED);
+        return new TestSessionContext(serverRuntimeContext, sessionStateHolder, new RecordingStanzaRelay());
+    }
+
+    private static Stanza auth(String mechanism, String initialResponse) {
+        StanzaBuilder stanzaBuilder = new StanzaBuilder("auth", NamespaceURIs.URN_IETF_PARAMS_XML_NS_XMPP_SASL);
+        stanzaBuilder.addAttribute("mechanism", mechanism);
+        stanzaBuilder.addText(new String(Base64.encodeBase64(initialResponse.getBytes(StandardCharsets.UTF_8)),
+                StandardCharsets.UTF_8));
+        return stanzaBuilder.build();
+    }
+
+    private static Stanza response(String clientFinal) {
+        StanzaBuilder stanzaBuilder = new StanzaBuilder("response", NamespaceURIs.URN_IETF_PARAMS_XML_NS_XMPP_SASL);
+        stanzaBuilder.addText(new String(Base64.encodeBase64(clientFinal.getBytes(StandardCharsets.UTF_8)),
+                StandardCharsets.UTF_8));
+        return stanzaBuilder.build();
+    }
+
+    private static String decode(Stanza stanza) {
+        return new String(Base64.decodeBase64(stanza.getInnerTexts().get(0).getText().getBytes(StandardCharsets.UTF_8)),
+                StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.cryptography;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.net.Socket;
+import java.security.cert.X509Certificate;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509ExtendedTrustManager;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/**
+ */
+public class TLSSessionCacheTestCase {
+
+    private ExecutorService executor;
+
+    private SSLServerSocket serverSocket;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+        if (serverSocket != null) serverSocket.close();
+    }
+
+    private AbstractTLSContextFactory createTLSContextFactory() {
+        FileBasedTLSContextFactory contextFactory = new FileBasedTLSContextFactory(
+                new File("src/main/config/bogus_mina_tls.cert"));
+        contextFactory.setPassword("boguspw");
+        return contextFactory;
+    }
+
+    @Test
+    public void configuresSessionContext() throws Exception {
+        AbstractTLSContextFactory contextFactory = createTLSContextFactory();
+        contextFactory.setSessionCacheSize(1000);
+        contextFactory.setSessionTimeout(600);
+
+        TLSSessionCache sessionCache = new TLSSessionCache(contextFactory.getSSLContext());
+        assertEquals(1000, sessionCache.getSessionCacheSize());
+        assertEquals(600, sessionCache.getSessionTimeout());
+
+        sessionCache.setSessionTimeout(60);
+        assertEquals(60, contextFactory.getSSLContext().getServerSessionContext().getSessionTimeout());
+    }
+
+    @Test
+    public void isResumed() {
+        SSLSession session = Mockito.mock(SSLSession.class);
+        Mockito.when(session.getCreationTime()).thenReturn(1000L);
+
+        assertTrue(TLSSessionCache.isResumed(session, 1001L));
+        assertFalse(TLSSessionCache.isResumed(session, 1000L));
+        assertFalse(TLSSessionCache.isResumed(session, 999L));
+    }
+
+    @Test
+    public void countsResumedHandshakes() throws Exception {
+        final TLSSessionCache sessionCache = new TLSSessionCache(createTLSContextFactory().getSSLContext());
+        serverSocket = (SSLServerSocket) sessionCache.getSslContext().getServerSocketFactory().createServerSocket(0);
+
+        // the test certificate's key is too weak to sign TLS 1.3 handshakes
+        SSLContext clientContext = SSLContext.getInstance("TLSv1.2");
+        clientContext.init(null, new TrustManager[] { new TrustingTrustManager() }, null);
+
+        assertFalse(handshake(sessionCache, clientContext));
+        assertTrue(handshake(sessionCache, clientContext));
+
+        assertEquals(1, sessionCache.getFullHandshakes());
+        assertEquals(1, sessionCache.getResumedHandshakes());
+
+        sessionCache.invalidateAll();
+        assertFalse(handshake(sessionCache, clientContext));
+        assertEquals(2, sessionCache.getFullHandshakes());
+    }
+
+    /**
+     * a plain X509TrustManager would still reject the weak key of the test certificate
+     */
+    private static class TrustingTrustManager extends X509ExtendedTrustManager {
+
+        public void checkClientTrusted(X509Certificate[] chain, String authType, Socket socket) {
+        }
+
+        public void checkServerTrusted(X509Certificate[] chain, String authType, Socket socket) {
+        }
+
+        public void checkClientTrusted(X509Certificate[] chain, String authType, SSLEngine engine) {
+        }
+
+        public void checkServerTrusted(X509Certificate[] chain, String authType, SSLEngine engine) {
+        }
+
+        public void checkClientTrusted(X509Certificate[] chain, String authType) {
+        }
+
+        public void checkServerTrusted(X509Certificate[] chain, String authType) {
+        }
+
+        public X509Certificate[] getAcceptedIssuers() {
+            return new X509Certificate[0];
+        }
+    }
+
+    private boolean handshake(final TLSSessionCache sessionCache, SSLContext clientContext) throws Exception {
+        Future<Boolean> resumed = executor.submit(() -> {
+            try (SSLSocket socket = (SSLSocket) serverSocket.accept()) {
+                long started = System.currentTimeMillis();
+                socket.startHandshake();
+                // lets the client receive its session ticket
+                socket.getOutputStream().write(1);
+                socket.getOutputStream().flush();
+                return sessionCache.handshakeCompleted(socket.getSession(), started);
+            }
+        });
+        try (SSLSocket socket = (SSLSocket) clientContext.getSocketFactory().createSocket("localhost",
+                serverSocket.getLocalPort())) {
+            socket.startHandshake();
+            assertEquals(1, socket.getInputStream().read());
+        }
+        return resumed.get();
+    }
+}
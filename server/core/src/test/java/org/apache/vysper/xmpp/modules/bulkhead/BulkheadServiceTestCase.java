@@ -0,0 +1,154 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.modules.bulkhead;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class BulkheadServiceTestCase {
+
+    private BulkheadService bulkheadService;
+
+    @Before
+    public void setUp() {
+        Map<ExecutionClass, Bulkhead> bulkheads = new EnumMap<ExecutionClass, Bulkhead>(ExecutionClass.class);
+        bulkheads.put(ExecutionClass.STORAGE_READ, new Bulkhead(ExecutionClass.STORAGE_READ, 4, 100));
+        bulkheads.put(ExecutionClass.STORAGE_WRITE, new Bulkhead(ExecutionClass.STORAGE_WRITE, 1, 2));
+        bulkheadService = new BulkheadService(bulkheads);
+    }
+
+    @After
+    public void tearDown() {
+        bulkheadService.shutdown();
+    }
+
+    @Test
+    public void runsClassesWithoutBulkheadDirectly() {
+        final List<Thread> threads = new CopyOnWriteArrayList<Thread>();
+        Assert.assertTrue(bulkheadService.execute(ExecutionClass.ROUTING, "session",
+                () -> threads.add(Thread.currentThread())));
+        Assert.assertEquals(Collections.singletonList(Thread.currentThread()), threads);
+    }
+
+    @Test
+    public void keepsOrderOfKeyAcrossBulkheads() throws Exception {
+        final List<Integer> order = new CopyOnWriteArrayList<Integer>();
+        final CountDownLatch done = new CountDownLatch(50);
+        for (int i = 0; i < 50; i++) {
+            final int sequence = i;
+            boolean write = i % 25 == 0;
+            Assert.assertTrue(bulkheadService.execute(write ? ExecutionClass.STORAGE_WRITE : ExecutionClass.STORAGE_READ,
+                    "session", () -> {
+                        if (write) {
+                            // a slow write must not be overtaken by the reads following it
+                            sleep(20);
+                        }
+                        order.add(sequence);
+                        done.countDown();
+                    }));
+        }
+        Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < 50; i++) {
+            Assert.assertEquals(Integer.valueOf(i), order.get(i));
+        }
+    }
+
+    @Test
+    public void rejectsWhenQueueIsFull() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        Runnable blocking = () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        Bulkhead writes = bulkheadService.getBulkhead(ExecutionClass.STORAGE_WRITE);
+        // the first task occupies the only thread, the next two fill the queue
+        Assert.assertTrue(bulkheadService.execute(ExecutionClass.STORAGE_WRITE, "a", blocking));
+        waitFor(() -> writes.getQueueDepth() == 0);
+        Assert.assertTrue(bulkheadService.execute(ExecutionClass.STORAGE_WRITE, "b", blocking));
+        Assert.assertTrue(bulkheadService.execute(ExecutionClass.STORAGE_WRITE, "c", blocking));
+        Assert.assertFalse(bulkheadService.execute(ExecutionClass.STORAGE_WRITE, "d", blocking));
+        Assert.assertEquals(2, writes.getQueueDepth());
+        Assert.assertEquals(1, writes.getRejectedCount());
+
+        // reads are not held up by the writes piling up
+        final CountDownLatch read = new CountDownLatch(1);
+        Assert.assertTrue(bulkheadService.execute(ExecutionClass.STORAGE_READ, "d", read::countDown));
+        Assert.assertTrue(read.await(5, TimeUnit.SECONDS));
+
+        release.countDown();
+        waitFor(() -> writes.getCompletedCount() == 3);
+        Assert.assertEquals(0, writes.getQueueDepth());
+        Assert.assertTrue(writes.getMaxLatencyMicros() >= writes.getAverageLatencyMicros());
+    }
+
+    @Test
+    public void keepsRunningAfterFailingTask() throws Exception {
+        final CountDownLatch done = new CountDownLatch(1);
+        Assert.assertTrue(bulkheadService.execute(ExecutionClass.STORAGE_READ, "session", () -> {
+            throw new IllegalStateException("failing on purpose");
+        }));
+        Assert.assertTrue(bulkheadService.execute(ExecutionClass.STORAGE_READ, "session", done::countDown));
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void rejectsAfterShutdown() {
+        bulkheadService.shutdown();
+        Assert.assertFalse(bulkheadService.execute(ExecutionClass.STORAGE_READ, "session", () -> {
+            Assert.fail("must not run");
+        }));
+    }
+
+    private interface Condition {
+        boolean holds();
+    }
+
+    private static void waitFor(Condition condition) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.holds()) {
+            Assert.assertTrue("timed out", System.currentTimeMillis() < deadline);
+            sleep(5);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
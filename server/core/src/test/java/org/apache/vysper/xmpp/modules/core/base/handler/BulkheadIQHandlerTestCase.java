@@ -0,0 +1,167 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.modules.core.base.handler;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.vysper.xmpp.addressing.EntityImpl;
+import org.apache.vysper.xmpp.modules.bulkhead.Bulkhead;
+import org.apache.vysper.xmpp.modules.bulkhead.BulkheadModule;
+import org.apache.vysper.xmpp.modules.bulkhead.ExecutionClass;
+import org.apache.vysper.xmpp.protocol.NamespaceURIs;
+import org.apache.vysper.xmpp.protocol.RecordingStanzaBroker;
+import org.apache.vysper.xmpp.protocol.SessionStateHolder;
+import org.apache.vysper.xmpp.protocol.StanzaBroker;
+import org.apache.vysper.xmpp.server.ServerRuntimeContext;
+import org.apache.vysper.xmpp.server.SessionContext;
+import org.apache.vysper.xmpp.server.TestSessionContext;
+import org.apache.vysper.xmpp.stanza.IQStanza;
+import org.apache.vysper.xmpp.stanza.IQStanzaType;
+import org.apache.vysper.xmpp.stanza.Stanza;
+import org.apache.vysper.xmpp.stanza.StanzaBuilder;
+import org.apache.vysper.xmpp.stanza.StanzaErrorCondition;
+import org.apache.vysper.xmpp.stanza.XMPPCoreStanza;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class BulkheadIQHandlerTestCase {
+
+    private static class StorageIQHandler extends DefaultIQHandler {
+
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        private volatile Thread handlingThread;
+
+        @Override
+        protected boolean verifyNamespace(Stanza stanza) {
+            return true;
+        }
+
+        @Override
+        protected ExecutionClass getExecutionClass(IQStanza stanza) {
+            return ExecutionClass.forStorageAccess(stanza);
+        }
+
+        @Override
+        protected List<Stanza> handleSet(IQStanza stanza, ServerRuntimeContext serverRuntimeContext,
+                SessionContext sessionContext, StanzaBroker stanzaBroker) {
+            handlingThread = Thread.currentThread();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return Collections.singletonList(StanzaBuilder.createIQStanza(stanza.getTo(), stanza.getFrom(),
+                    IQStanzaType.RESULT, stanza.getID()).build());
+        }
+    }
+
+    private BulkheadModule bulkheadModule;
+
+    private TestSessionContext sessionContext;
+
+    @Before
+    public void setUp() {
+        sessionContext = new TestSessionContext(new SessionStateHolder());
+        bulkheadModule = new BulkheadModule();
+        bulkheadModule.setBulkhead(ExecutionClass.STORAGE_WRITE, 1, 1);
+        sessionContext.getServerRuntimeContext().addModule(bulkheadModule);
+    }
+
+    @After
+    public void tearDown() {
+        bulkheadModule.close();
+    }
+
+    private IQStanza createSet(String id) {
+        return (IQStanza) XMPPCoreStanza.getWrapper(StanzaBuilder
+                .createIQStanza(EntityImpl.parseUnchecked("user@vysper.org/res"),
+                        EntityImpl.parseUnchecked("vysper.org"), IQStanzaType.SET, id)
+                .startInnerElement("query", NamespaceURIs.JABBER_CLIENT).endInnerElement().build());
+    }
+
+    @Test
+    public void writesResponseWhenBulkheadIsDone() {
+        StorageIQHandler iqHandler = new StorageIQHandler();
+        StanzaBroker stanzaBroker = mock(StanzaBroker.class);
+        iqHandler.execute(createSet("1"), sessionContext.getServerRuntimeContext(), true, sessionContext, null,
+                stanzaBroker);
+
+        verify(stanzaBroker, never()).writeToSession(any(Stanza.class));
+        iqHandler.release.countDown();
+        verify(stanzaBroker, timeout(5000)).writeToSession(any(Stanza.class));
+        Assert.assertNotSame(Thread.currentThread(), iqHandler.handlingThread);
+    }
+
+    @Test
+    public void rejectsWhenBulkheadIsFull() throws Exception {
+        StorageIQHandler iqHandler = new StorageIQHandler();
+        RecordingStanzaBroker stanzaBroker = new RecordingStanzaBroker();
+        ServerRuntimeContext serverRuntimeContext = sessionContext.getServerRuntimeContext();
+        // one request is handled, one waits, the third is rejected
+        iqHandler.execute(createSet("1"), serverRuntimeContext, true, sessionContext, null, mock(StanzaBroker.class));
+        Bulkhead writes = bulkheadModule.getBulkheadService().getBulkhead(ExecutionClass.STORAGE_WRITE);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (writes.getQueueDepth() > 0) {
+            Assert.assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+        iqHandler.execute(createSet("2"), serverRuntimeContext, true, sessionContext, null, mock(StanzaBroker.class));
+        iqHandler.execute(createSet("3"), serverRuntimeContext, true, sessionContext, null, stanzaBroker);
+
+        Stanza error = stanzaBroker.getUniqueStanzaWrittenToSession();
+        Assert.assertEquals("error", error.getAttributeValue("type"));
+        Assert.assertEquals("3", error.getAttributeValue("id"));
+        Assert.assertNotNull(error.getSingleInnerElementsNamed("error").getSingleInnerElementsNamed(
+                StanzaErrorCondition.RESOURCE_CONSTRAINT.value()));
+        iqHandler.release.countDown();
+    }
+
+    @Test
+    public void handlesDirectlyWithoutExecutionClass() {
+        StorageIQHandler iqHandler = new StorageIQHandler() {
+            @Override
+            protected ExecutionClass getExecutionClass(IQStanza stanza) {
+                return null;
+            }
+        };
+        iqHandler.release.countDown();
+        RecordingStanzaBroker stanzaBroker = new RecordingStanzaBroker();
+        iqHandler.execute(createSet("1"), sessionContext.getServerRuntimeContext(), true, sessionContext, null,
+                stanzaBroker);
+
+        Assert.assertEquals("result", stanzaBroker.getUniqueStanzaWrittenToSession().getAttributeValue("type"));
+        Assert.assertSame(Thread.currentThread(), iqHandler.handlingThread);
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.modules.core.sasl.handler;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.vysper.storage.OpenStorageProviderRegistry;
+import org.apache.vysper.xmpp.addressing.EntityImpl;
+import org.apache.vysper.xmpp.authentication.SASLMechanism;
+import org.apache.vysper.xmpp.authentication.ScramAlgorithm;
+import org.apache.vysper.xmpp.authentication.ScramSha1;
+import org.apache.vysper.xmpp.authentication.ScramSha256;
+import org.apache.vysper.xmpp.authentication.SimpleUserAuthentication;
+import org.apache.vysper.xmpp.modules.core.sasl.AuthorizationRetriesCounter;
+import org.apache.vysper.xmpp.protocol.NamespaceURIs;
+import org.apache.vysper.xmpp.protocol.RecordingStanzaBroker;
+import org.apache.vysper.xmpp.protocol.SessionStateHolder;
+import org.apache.vysper.xmpp.protocol.exception.AuthenticationFailedException;
+import org.apache.vysper.xmpp.server.DefaultServerRuntimeContext;
+import org.apache.vysper.xmpp.server.SessionState;
+import org.apache.vysper.xmpp.server.TestSessionContext;
+import org.apache.vysper.xmpp.stanza.Stanza;
+import org.apache.vysper.xmpp.stanza.StanzaBuilder;
+
+import junit.framework.TestCase;
+
+/**
+ */
+public class AuthHandlerScramMechanismTestCase extends TestCase {
+
+    private static final String CLIENT_NONCE = "fyko+d2lbbFgONRv9qkxdawL";
+
+    private TestSessionContext sessionContext;
+
+    private SessionStateHolder sessionStateHolder = new SessionStateHolder();
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        sessionContext = new TestSessionContext(sessionStateHolder);
+        sessionContext.setSessionState(SessionState.ENCRYPTED);
+
+        List<SASLMechanism> methods = new ArrayList<>();
+        methods.add(new ScramSha1());
+        methods.add(new ScramSha256());
+
+        sessionContext.getServerRuntimeContext().getServerFeatures().setAuthenticationMethods(methods);
+        SimpleUserAuthentication users = new SimpleUserAuthentication();
+        users.addUser(EntityImpl.parseUnchecked("user007@test"), "pass007");
+        OpenStorageProviderRegistry providerRegistry = new OpenStorageProviderRegistry();
+        providerRegistry.add(users);
+        ((DefaultServerRuntimeContext) sessionContext.getServerRuntimeContext())
+                .setStorageProviderRegistry(providerRegistry);
+    }
+
+    public void testScramSha256() throws AuthenticationFailedException {
+        assertAuthenticated(ScramAlgorithm.SHA_256);
+    }
+
+    public void testScramSha1() throws AuthenticationFailedException {
+        assertAuthenticated(ScramAlgorithm.SHA_1);
+    }
+
+    private void assertAuthenticated(ScramAlgorithm algorithm) throws AuthenticationFailedException {
+        Stanza challenge = execute(new AuthHandler(), createAuth(algorithm, "n,,n=user007,r=" + CLIENT_NONCE));
+        assertTrue(challenge.getVerifier().nameEquals("challenge"));
+        assertEquals(3, AuthorizationRetriesCounter.getFromSession(sessionContext).getTriesLeft());
+
+        String serverFirst = decode(challenge);
+        String clientFinalWithoutProof = "c=biws,r=" + attribute(serverFirst, "r");
+        String authMessage = "n=user007,r=" + CLIENT_NONCE + "," + serverFirst + "," + clientFinalWithoutProof;
+        byte[] saltedPassword = algorithm.saltPassword("pass007", Base64.decodeBase64(attribute(serverFirst, "s")
+                .getBytes(StandardCharsets.UTF_8)), Integer.parseInt(attribute(serverFirst, "i")));
+
+        Stanza success = execute(new ResponseHandler(),
+                createResponse(clientFinalWithoutProof + ",p=" + proof(algorithm, saltedPassword, authMessage)));
+        assertTrue(success.getVerifier().nameEquals("success"));
+        assertEquals(SessionState.AUTHENTICATED, sessionStateHolder.getState());
+        assertEquals(EntityImpl.parseUnchecked("user007@test"), sessionContext.getInitiatingEntity());
+        assertNull(sessionContext.getAttribute(AuthorizationRetriesCounter.SESSION_ATTRIBUTE_ABORTION_COUNTER));
+
+        // the server proves it knows the credentials
+        byte[] serverKey = algorithm.hmac(saltedPassword, "Server Key");
+        String serverSignature = new String(Base64.encodeBase64(algorithm.hmac(serverKey, authMessage)),
+                StandardCharsets.UTF_8);
+        assertEquals("v=" + serverSignature, decode(success));
+    }
+
+    public void testWrongPassword() throws AuthenticationFailedException {
+        Stanza failure = authenticate("user007", "pass008");
+        assertTrue(failure.getVerifier().nameEquals("failure"));
+        assertEquals(SessionState.ENCRYPTED, sessionStateHolder.getState());
+        assertEquals(2, AuthorizationRetriesCounter.getFromSession(sessionContext).getTriesLeft());
+    }
+
+    public void testUnknownUser() throws AuthenticationFailedException {
+        Stanza failure = authenticate("user008", "pass007");
+        assertTrue(failure.getVerifier().nameEquals("failure"));
+        assertEquals(SessionState.ENCRYPTED, sessionStateHolder.getState());
+    }
+
+    public void testWrongNonce() throws AuthenticationFailedException {
+        Stanza challenge = execute(new AuthHandler(),
+                createAuth(ScramAlgorithm.SHA_256, "n,,n=user007,r=" + CLIENT_NONCE));
+        assertTrue(challenge.getVerifier().nameEquals("challenge"));
+
+        Stanza failure = execute(new ResponseHandler(),
+                createResponse("c=biws,r=" + CLIENT_NONCE + "other,p=dHzbZapWIk4jUhN+Ute9ytag9zjfMHgsqmmiz7AndVQ="));
+        assertTrue(failure.getVerifier().nameEquals("failure"));
+        assertEquals(SessionState.ENCRYPTED, sessionStateHolder.getState());
+    }
+
+    public void testChannelBindingNotSupported() throws AuthenticationFailedException {
+        Stanza failure = execute(new AuthHandler(),
+                createAuth(ScramAlgorithm.SHA_256, "p=tls-unique,,n=user007,r=" + CLIENT_NONCE));
+        assertTrue(failure.getVerifier().nameEquals("failure"));
+    }
+
+    public void testResponseWithoutChallenge() throws AuthenticationFailedException {
+        Stanza failure = execute(new ResponseHandler(), createResponse("c=biws,r=" + CLIENT_NONCE + ",p=AAAA"));
+        assertTrue(failure.getVerifier().nameEquals("failure"));
+        assertEquals(2, AuthorizationRetriesCounter.getFromSession(sessionContext).getTriesLeft());
+    }
+
+    public void testAbortedExchange() throws AuthenticationFailedException {
+        execute(new AuthHandler(), createAuth(ScramAlgorithm.SHA_256, "n,,n=user007,r=" + CLIENT_NONCE));
+        Stanza aborted = execute(new AbortHandler(),
+                new StanzaBuilder("abort", NamespaceURIs.URN_IETF_PARAMS_XML_NS_XMPP_SASL).build());
+        assertTrue(aborted.getVerifier().nameEquals("aborted"));
+
+        // the exchange has ended, there is nothing to respond to
+        Stanza failure = execute(new ResponseHandler(), createResponse("c=biws,r=" + CLIENT_NONCE + ",p=AAAA"));
+        assertTrue(failure.getVerifier().nameEquals("failure"));
+    }
+
+    private Stanza authenticate(String username, String password) throws AuthenticationFailedException {
+        ScramAlgorithm algorithm = ScramAlgorithm.SHA_256;
+        Stanza challenge = execute(new AuthHandler(), createAuth(algorithm, "n,,n=" + username + ",r=" + CLIENT_NONCE));
+        assertTrue(challenge.getVerifier().nameEquals("challenge"));
+
+        String serverFirst = decode(challenge);
+        String clientFinalWithoutProof = "c=biws,r=" + attribute(serverFirst, "r");
+        String authMessage = "n=" + username + ",r=" + CLIENT_NONCE + "," + serverFirst + ","
+                + clientFinalWithoutProof;
+        byte[] saltedPassword = algorithm.saltPassword(password, Base64.decodeBase64(attribute(serverFirst, "s")
+                .getBytes(StandardCharsets.UTF_8)), Integer.parseInt(attribute(serverFirst, "i")));
+        return execute(new ResponseHandler(),
+                createResponse(clientFinalWithoutProof + ",p=" + proof(algorithm, saltedPassword, authMessage)));
+    }
+
+    private String proof(ScramAlgorithm algorithm, byte[] saltedPassword, String authMessage) {
+        byte[] clientKey = algorithm.hmac(saltedPassword, "Client Key");
+        byte[] clientSignature = algorithm.hmac(algorithm.hash(clientKey), authMessage);
+        for (int i = 0; i < clientKey.length; i++) {
+            clientKey[i] ^= clientSignature[i];
+        }
+        return new String(Base64.encodeBase64(clientKey), StandardCharsets.UTF_8);
+    }
+
+    private String attribute(String message, String name) {
+        for (String attribute : message.split(",")) {
+            if (attribute.startsWith(name + "=")) return attribute.substring(name.length() + 1);
+        }
+        return null;
+    }
+
+    private String decode(Stanza stanza) {
+        return new String(Base64.decodeBase64(stanza.getInnerTexts().get(0).getText().getBytes(StandardCharsets.UTF_8)),
+                StandardCharsets.UTF_8);
+    }
+
+    private Stanza execute(AbstractSASLHandler handler, Stanza stanza) throws AuthenticationFailedException {
+        RecordingStanzaBroker stanzaBroker = new RecordingStanzaBroker();
+        handler.execute(stanza, sessionContext.getServerRuntimeContext(), true, sessionContext, sessionStateHolder,
+                stanzaBroker);
+        return stanzaBroker.getUniqueStanzaWrittenToSession();
+    }
+
+    private Stanza createAuth(ScramAlgorithm algorithm, String clientFirst) {
+        StanzaBuilder stanzaBuilder = new StanzaBuilder("auth", NamespaceURIs.URN_IETF_PARAMS_XML_NS_XMPP_SASL);
+        stanzaBuilder.addAttribute("mechanism", algorithm.getMechanismName());
+        stanzaBuilder.addText(new String(Base64.encodeBase64(clientFirst.getBytes(StandardCharsets.UTF_8)),
+                StandardCharsets.UTF_8));
+        return stanzaBuilder.build();
+    }
+
+    private Stanza createResponse(String clientFinal) {
+        StanzaBuilder stanzaBuilder = new StanzaBuilder("response", NamespaceURIs.URN_IETF_PARAMS_XML_NS_XMPP_SASL);
+        stanzaBuilder.addText(new String(Base64.encodeBase64(clientFinal.getBytes(StandardCharsets.UTF_8)),
+                StandardCharsets.UTF_8));
+        return stanzaBuilder.build();
+    }
+}
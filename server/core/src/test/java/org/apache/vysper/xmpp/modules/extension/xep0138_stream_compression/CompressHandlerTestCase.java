@@ -0,0 +1,179 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.modules.extension.xep0138_stream_compression;
+
+import org.apache.vysper.xmpp.addressing.EntityImpl;
+import org.apache.vysper.xmpp.protocol.NamespaceURIs;
+import org.apache.vysper.xmpp.protocol.RecordingStanzaBroker;
+import org.apache.vysper.xmpp.protocol.SessionStateHolder;
+import org.apache.vysper.xmpp.server.SessionState;
+import org.apache.vysper.xmpp.server.TestSessionContext;
+import org.apache.vysper.xmpp.stanza.Stanza;
+import org.apache.vysper.xmpp.stanza.StanzaBuilder;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class CompressHandlerTestCase {
+
+    private final StreamCompressionModule module = new StreamCompressionModule();
+
+    private final CompressHandler handler = new CompressHandler(module);
+
+    private final SessionStateHolder sessionStateHolder = new SessionStateHolder();
+
+    private CompressibleTestSession session;
+
+    @Before
+    public void before() {
+        module.setCompressionLevel(4);
+        session = new CompressibleTestSession(sessionStateHolder);
+        session.setInitiatingEntity(EntityImpl.parseUnchecked("user@vysper.org"));
+        sessionStateHolder.setState(SessionState.AUTHENTICATED);
+    }
+
+    private static Stanza compress(String method) {
+        return new StanzaBuilder("compress", NamespaceURIs.XEP0138_STREAM_COMPRESSION)
+                .startInnerElement("method", NamespaceURIs.XEP0138_STREAM_COMPRESSION).addText(method)
+                .endInnerElement().build();
+    }
+
+    private Stanza execute(Stanza stanza, TestSessionContext sessionContext) {
+        RecordingStanzaBroker stanzaBroker = new RecordingStanzaBroker();
+        handler.execute(stanza, sessionContext.getServerRuntimeContext(), true, sessionContext, sessionStateHolder,
+                stanzaBroker);
+        return stanzaBroker.getUniqueStanzaWrittenToSession();
+    }
+
+    private static void assertFailure(String condition, Stanza response) {
+        Assert.assertEquals("failure", response.getName());
+        Assert.assertEquals(NamespaceURIs.XEP0138_STREAM_COMPRESSION, response.getNamespaceURI());
+        Assert.assertNotNull(response.getFirstInnerElement());
+        Assert.assertEquals(condition, response.getFirstInnerElement().getName());
+    }
+
+    @Test
+    public void verify() {
+        Assert.assertTrue(handler.verify(compress("zlib")));
+        Assert.assertFalse(handler.verify(new StanzaBuilder("compress", NamespaceURIs.JABBER_ORG_FEATURES_COMPRESS)
+                .build()));
+        Assert.assertFalse(handler.verify(null));
+        Assert.assertTrue(handler.isSessionRequired());
+    }
+
+    @Test
+    public void compressesAuthenticatedClient() {
+        Stanza response = execute(compress("zlib"), session);
+
+        Assert.assertEquals("compressed", response.getName());
+        Assert.assertEquals(NamespaceURIs.XEP0138_STREAM_COMPRESSION, response.getNamespaceURI());
+        Assert.assertTrue(session.compressed);
+        Assert.assertTrue(session.delayed);
+        Assert.assertEquals(4, session.compressionLevel);
+        Assert.assertTrue(session.reopening);
+    }
+
+    @Test
+    public void unsupportedMethod() {
+        assertFailure("unsupported-method", execute(compress("lzw"), session));
+        Assert.assertFalse(session.compressed);
+    }
+
+    @Test
+    public void alreadyCompressed() {
+        session.compressed = true;
+        assertFailure("setup-failed", execute(compress("zlib"), session));
+        Assert.assertFalse(session.reopening);
+    }
+
+    @Test
+    public void clientBeforeAuthentication() {
+        sessionStateHolder.setState(SessionState.ENCRYPTED);
+        assertFailure("setup-failed", execute(compress("zlib"), session));
+        Assert.assertFalse(session.compressed);
+    }
+
+    @Test
+    public void clientAfterResourceBinding() throws Exception {
+        session.bindResource();
+        assertFailure("setup-failed", execute(compress("zlib"), session));
+        Assert.assertFalse(session.compressed);
+    }
+
+    @Test
+    public void serverBeforeTLS() {
+        session.setServerToServer();
+        sessionStateHolder.setState(SessionState.STARTED);
+        assertFailure("setup-failed", execute(compress("zlib"), session));
+        Assert.assertFalse(session.compressed);
+    }
+
+    @Test
+    public void serverAfterTLS() {
+        session.setServerToServer();
+        sessionStateHolder.setState(SessionState.ENCRYPTED);
+        Assert.assertEquals("compressed", execute(compress("zlib"), session).getName());
+        Assert.assertTrue(session.compressed);
+    }
+
+    @Test
+    public void transportWithoutCompression() {
+        TestSessionContext plain = new TestSessionContext(sessionStateHolder);
+        assertFailure("setup-failed", execute(compress("zlib"), plain));
+    }
+
+    private static class CompressibleTestSession extends TestSessionContext implements CompressibleSession {
+
+        private boolean compressed;
+
+        private boolean delayed;
+
+        private int compressionLevel;
+
+        private boolean reopening;
+
+        CompressibleTestSession(SessionStateHolder sessionStateHolder) {
+            super(sessionStateHolder);
+        }
+
+        public boolean isCompressed() {
+            return compressed;
+        }
+
+        public void switchToCompression(boolean delayed, int compressionLevel) {
+            this.compressed = true;
+            this.delayed = delayed;
+            this.compressionLevel = compressionLevel;
+        }
+
+        public double getCompressionRatio() {
+            return 1;
+        }
+
+        @Override
+        public void setIsReopeningXMLStream() {
+            super.setIsReopeningXMLStream();
+            reopening = true;
+        }
+    }
+}
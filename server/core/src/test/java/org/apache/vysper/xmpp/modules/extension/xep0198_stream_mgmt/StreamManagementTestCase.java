@@ -0,0 +1,369 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.modules.extension.xep0198_stream_mgmt;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.vysper.xmpp.addressing.Entity;
+import org.apache.vysper.xmpp.addressing.EntityImpl;
+import org.apache.vysper.xmpp.authentication.AccountManagement;
+import org.apache.vysper.xmpp.delivery.StanzaReceiverQueue;
+import org.apache.vysper.xmpp.delivery.StanzaReceiverRelay;
+import org.apache.vysper.xmpp.delivery.inbound.DeliveringInternalInboundStanzaRelay;
+import org.apache.vysper.xmpp.modules.extension.xep0160_offline_storage.MemoryOfflineStorageProvider;
+import org.apache.vysper.xmpp.protocol.NamespaceURIs;
+import org.apache.vysper.xmpp.protocol.ProtocolWorker;
+import org.apache.vysper.xmpp.protocol.RecordingStanzaBroker;
+import org.apache.vysper.xmpp.protocol.SessionStateHolder;
+import org.apache.vysper.xmpp.protocol.SimpleStanzaHandlerExecutorFactory;
+import org.apache.vysper.xmpp.server.DefaultServerRuntimeContext;
+import org.apache.vysper.xmpp.server.ServerFeatures;
+import org.apache.vysper.xmpp.server.SessionState;
+import org.apache.vysper.xmpp.server.components.SimpleComponentRegistry;
+import org.apache.vysper.xmpp.stanza.Stanza;
+import org.apache.vysper.xmpp.stanza.StanzaBuilder;
+import org.apache.vysper.xmpp.state.resourcebinding.DefaultResourceRegistry;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ */
+public class StreamManagementTestCase {
+
+    private static final Entity CLIENT = EntityImpl.parseUnchecked("tester@vysper.org");
+
+    private static final Entity OTHER_CLIENT = EntityImpl.parseUnchecked("other@vysper.org");
+
+    private StreamManagementModule module;
+
+    private DefaultServerRuntimeContext serverContext;
+
+    private StanzaReceiverRelay relay;
+
+    private TestStreamManagedSession session;
+
+    @Before
+    public void before() throws Exception {
+        relay = new StanzaReceiverRelay();
+        serverContext = new DefaultServerRuntimeContext(new EntityImpl(null, "vysper.org", null), relay);
+        relay.setServerRuntimeContext(serverContext);
+
+        module = new StreamManagementModule();
+        module.setAckRequestThreshold(3);
+        module.initialize(serverContext);
+
+        session = createSession(CLIENT);
+        session.bindResource();
+    }
+
+    @After
+    public void after() {
+        module.close();
+    }
+
+    private TestStreamManagedSession createSession(Entity user) {
+        SessionStateHolder stateHolder = new SessionStateHolder();
+        stateHolder.setState(SessionState.AUTHENTICATED);
+        TestStreamManagedSession streamManagedSession = new TestStreamManagedSession(serverContext, stateHolder, relay);
+        streamManagedSession.setInitiatingEntity(user);
+        return streamManagedSession;
+    }
+
+    private Stanza execute(AbstractStreamManagementHandler handler, Stanza stanza, TestStreamManagedSession target) {
+        RecordingStanzaBroker stanzaBroker = new RecordingStanzaBroker();
+        SessionStateHolder stateHolder = new SessionStateHolder();
+        stateHolder.setState(target.getState());
+        handler.execute(stanza, serverContext, true, target, stateHolder, stanzaBroker);
+        return stanzaBroker.getUniqueStanzaWrittenToSession();
+    }
+
+    private Stanza enable(boolean resume) {
+        StanzaBuilder enable = new StanzaBuilder("enable", NamespaceURIs.URN_XMPP_SM_3);
+        if (resume) enable.addAttribute("resume", "true");
+        Assert.assertNull(execute(new EnableHandler(module), enable.build(), session));
+        Stanza enabled = session.getNextRecordedResponse();
+        session.reset();
+        return enabled;
+    }
+
+    private Stanza resume(TestStreamManagedSession connection, String previd, long h) {
+        Stanza resume = new StanzaBuilder("resume", NamespaceURIs.URN_XMPP_SM_3).addAttribute("previd", previd)
+                .addAttribute("h", Long.toString(h)).build();
+        return execute(new ResumeHandler(module), resume, connection);
+    }
+
+    private static Stanza message(int number) {
+        return StanzaBuilder.createMessageStanza(OTHER_CLIENT, CLIENT, null, "message " + number).build();
+    }
+
+    @Test
+    public void enableRequiresBoundResource() {
+        TestStreamManagedSession unbound = createSession(CLIENT);
+        Stanza failed = execute(new EnableHandler(module), new StanzaBuilder("enable", NamespaceURIs.URN_XMPP_SM_3)
+                .build(), unbound);
+        Assert.assertEquals("failed", failed.getName());
+        Assert.assertNull(unbound.getStreamManagement());
+    }
+
+    @Test
+    public void enableWithoutResumption() {
+        Stanza enabled = enable(false);
+        Assert.assertEquals("enabled", enabled.getName());
+        Assert.assertNull(enabled.getAttributeValue("id"));
+        Assert.assertNotNull(session.getStreamManagement());
+        Assert.assertFalse(session.getStreamManagement().isResumable());
+    }
+
+    @Test
+    public void enableWithResumption() {
+        Stanza enabled = enable(true);
+        Assert.assertEquals("true", enabled.getAttributeValue("resume"));
+        Assert.assertEquals("300", enabled.getAttributeValue("max"));
+        Assert.assertSame(session.getStreamManagement(), module.getResumable(enabled.getAttributeValue("id")));
+    }
+
+    @Test
+    public void countsAndAcknowledgesOutboundStanzas() {
+        enable(false);
+        StreamManagement streamManagement = session.getStreamManagement();
+        session.write(message(1));
+        session.write(message(2));
+        session.write(new StanzaBuilder("a", NamespaceURIs.URN_XMPP_SM_3).build());
+        Assert.assertEquals(2, streamManagement.getUnacknowledgedCount());
+
+        session.write(message(3));
+        Assert.assertEquals(3, streamManagement.getUnacknowledgedCount());
+        // three messages, the <a/> and the ack request
+        Assert.assertEquals(5, session.getRecordedResponsesTotal());
+
+        Assert.assertNull(execute(new AckHandler(), new StanzaBuilder("a", NamespaceURIs.URN_XMPP_SM_3)
+                .addAttribute("h", "2").build(), session));
+        Assert.assertEquals(1, streamManagement.getUnacknowledgedCount());
+    }
+
+    @Test
+    public void requestsAcknowledgementOnce() {
+        enable(false);
+        for (int i = 0; i < 5; i++) {
+            session.write(message(i));
+        }
+        int ackRequests = 0;
+        Stanza stanza;
+        while ((stanza = session.getNextRecordedResponse()) != null) {
+            if ("r".equals(stanza.getName())) ackRequests++;
+        }
+        Assert.assertEquals(1, ackRequests);
+    }
+
+    @Test
+    public void batchIsCountedAndWrittenAtOnce() {
+        enable(true);
+        StreamManagement streamManagement = session.getStreamManagement();
+        session.writeBatch(Arrays.asList(message(1), message(2),
+                new StanzaBuilder("a", NamespaceURIs.URN_XMPP_SM_3).build(), message(3)));
+        Assert.assertEquals(3, streamManagement.getUnacknowledgedCount());
+        // the three messages, the <a/> and the ack request in one write
+        Assert.assertEquals(Arrays.asList(5), session.getConnectionBatchSizes());
+        for (String name : new String[] { "message", "message", "a", "message", "r" }) {
+            Assert.assertEquals(name, session.getNextRecordedResponse().getName());
+        }
+    }
+
+    @Test
+    public void answersAckRequestWithInboundCount() {
+        enable(false);
+        StreamManagement streamManagement = session.getStreamManagement();
+        streamManagement.received(message(1));
+        streamManagement.received(message(2));
+        streamManagement.received(new StanzaBuilder("r", NamespaceURIs.URN_XMPP_SM_3).build());
+
+        Stanza ack = execute(new AckRequestHandler(), new StanzaBuilder("r", NamespaceURIs.URN_XMPP_SM_3).build(),
+                session);
+        Assert.assertEquals("a", ack.getName());
+        Assert.assertEquals("2", ack.getAttributeValue("h"));
+    }
+
+    @Test
+    public void countersWrapAround() {
+        enable(false);
+        StreamManagement streamManagement = session.getStreamManagement();
+        streamManagement.acknowledge(0);
+        session.write(message(1));
+        streamManagement.acknowledge(1);
+        Assert.assertEquals(0, streamManagement.getUnacknowledgedCount());
+        // acknowledging more than has been sent is tolerated
+        streamManagement.acknowledge(StreamManagement.COUNTER_MASK);
+        Assert.assertEquals(0, streamManagement.getUnacknowledgedCount());
+    }
+
+    @Test
+    public void detachedSessionQueuesAndResumes() throws Exception {
+        String id = enable(true).getAttributeValue("id");
+        StreamManagement streamManagement = session.getStreamManagement();
+        streamManagement.received(message(1));
+        session.write(message(1));
+        session.write(message(2));
+        session.reset();
+
+        Assert.assertTrue(streamManagement.detach());
+        Assert.assertEquals(1, module.getDetachedCount());
+        session.write(message(3));
+        Assert.assertEquals(0, session.getRecordedResponsesTotal());
+
+        TestStreamManagedSession connection = createSession(CLIENT);
+        Assert.assertNull(resume(connection, id, 1));
+        Assert.assertSame(connection, session.getTakenOverConnection());
+        Assert.assertFalse(streamManagement.isDetached());
+
+        Stanza resumed = session.getNextRecordedResponse();
+        Assert.assertEquals("resumed", resumed.getName());
+        Assert.assertEquals(id, resumed.getAttributeValue("previd"));
+        Assert.assertEquals("1", resumed.getAttributeValue("h"));
+        Assert.assertEquals("message 2", session.getNextRecordedResponse().getSingleInnerElementsNamed("body")
+                .getInnerText().getText());
+        Assert.assertEquals("message 3", session.getNextRecordedResponse().getSingleInnerElementsNamed("body")
+                .getInnerText().getText());
+        Assert.assertEquals(2, streamManagement.getUnacknowledgedCount());
+    }
+
+    @Test
+    public void resumeByOtherUserFails() throws Exception {
+        String id = enable(true).getAttributeValue("id");
+        session.getStreamManagement().detach();
+
+        Stanza failed = resume(createSession(OTHER_CLIENT), id, 0);
+        Assert.assertEquals("failed", failed.getName());
+        Assert.assertNotNull(failed.getSingleInnerElementsNamed("item-not-found"));
+        Assert.assertTrue(session.getStreamManagement().isDetached());
+    }
+
+    @Test
+    public void resumeUnknownSessionFails() {
+        Stanza failed = resume(createSession(CLIENT), "unknown", 0);
+        Assert.assertEquals("failed", failed.getName());
+    }
+
+    @Test
+    public void expiredSessionEnds() {
+        String id = enable(true).getAttributeValue("id");
+        StreamManagement streamManagement = session.getStreamManagement();
+        streamManagement.detach();
+        streamManagement.expire();
+
+        Assert.assertTrue(session.isEnded());
+        Assert.assertNull(module.getResumable(id));
+        Assert.assertEquals("failed", resume(createSession(CLIENT), id, 0).getName());
+    }
+
+    @Test
+    public void nonResumableSessionIsNotDetached() {
+        enable(false);
+        Assert.assertFalse(session.getStreamManagement().detach());
+    }
+
+    @Test
+    public void tooManyUnacknowledgedStanzasEndResumption() {
+        module.setMaxUnackedStanzas(2);
+        String id = enable(true).getAttributeValue("id");
+        for (int i = 0; i < 3; i++) {
+            session.write(message(i));
+        }
+        Assert.assertFalse(session.getStreamManagement().isResumable());
+        Assert.assertNull(module.getResumable(id));
+    }
+
+    @Test
+    public void overflowingDetachedSessionDeliversAllUnacknowledgedMessagesAgain() throws Exception {
+        // the session is expired by the expiry thread
+        final BlockingQueue<Stanza> delivered = new LinkedBlockingQueue<Stanza>();
+        relay.add(CLIENT, new StanzaReceiverQueue() {
+            @Override
+            public void deliver(Stanza stanza) {
+                delivered.add(stanza);
+            }
+        });
+        module.setMaxUnackedStanzas(2);
+        enable(true);
+        session.getStreamManagement().detach();
+        for (int i = 0; i < 3; i++) {
+            session.write(message(i));
+        }
+
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals("message " + i, bodyOf(delivered.poll(5, TimeUnit.SECONDS)));
+        }
+        Assert.assertTrue(session.isEnded());
+        Assert.assertNull(delivered.poll(50, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void messageQueuedWhileDetachedReachesOfflineStorageAfterExpiry() throws Exception {
+        Entity serverEntity = new EntityImpl(null, "vysper.org", null);
+        DefaultResourceRegistry resourceRegistry = new DefaultResourceRegistry();
+        MemoryOfflineStorageProvider offlineStorage = new MemoryOfflineStorageProvider();
+        AccountManagement accountManagement = mock(AccountManagement.class);
+        when(accountManagement.verifyAccountExists(CLIENT)).thenReturn(true);
+
+        SimpleComponentRegistry componentRegistry = new SimpleComponentRegistry(serverEntity);
+        DeliveringInternalInboundStanzaRelay inboundRelay = new DeliveringInternalInboundStanzaRelay(serverEntity,
+                resourceRegistry, componentRegistry, accountManagement);
+        SimpleStanzaHandlerExecutorFactory executorFactory = new SimpleStanzaHandlerExecutorFactory(inboundRelay,
+                offlineStorage);
+        inboundRelay.setStanzaHandlerExecutorFactory(executorFactory);
+        serverContext = new DefaultServerRuntimeContext(serverEntity, inboundRelay, new ProtocolWorker(executorFactory),
+                componentRegistry, resourceRegistry, new ServerFeatures(), Collections.emptyList(), offlineStorage);
+        inboundRelay.setServerRuntimeContext(serverContext);
+        module.close();
+        module = new StreamManagementModule();
+        module.initialize(serverContext);
+
+        session = createSession(CLIENT);
+        session.bindResource();
+        enable(true);
+        session.getStreamManagement().detach();
+        session.write(message(1));
+        session.getStreamManagement().expire();
+        Assert.assertTrue(session.isEnded());
+
+        Collection<Stanza> stored = Collections.emptyList();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (stored.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            stored = offlineStorage.getStanzasFor(CLIENT);
+        }
+        inboundRelay.stop();
+        Assert.assertEquals(1, stored.size());
+        Assert.assertEquals("message 1", bodyOf(stored.iterator().next()));
+    }
+
+    private static String bodyOf(Stanza stanza) throws Exception {
+        return stanza.getSingleInnerElementsNamed("body").getSingleInnerText().getText();
+    }
+}
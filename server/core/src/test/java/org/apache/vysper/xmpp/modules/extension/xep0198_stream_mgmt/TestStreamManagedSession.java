@@ -0,0 +1,116 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.modules.extension.xep0198_stream_mgmt;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.vysper.xmpp.delivery.StanzaRelay;
+import org.apache.vysper.xmpp.protocol.SessionStateHolder;
+import org.apache.vysper.xmpp.server.ServerRuntimeContext;
+import org.apache.vysper.xmpp.server.TestSessionContext;
+import org.apache.vysper.xmpp.stanza.Stanza;
+
+/**
+ * records the stanzas written to the connection, after they have passed stream management
+ */
+public class TestStreamManagedSession extends TestSessionContext implements StreamManagedSession {
+
+    private StreamManagement streamManagement;
+
+    private StreamManagedSession connection;
+
+    private boolean ended;
+
+    private final List<Integer> connectionBatchSizes = new ArrayList<Integer>();
+
+    public TestStreamManagedSession(ServerRuntimeContext serverRuntimeContext, SessionStateHolder sessionStateHolder,
+            StanzaRelay relay) {
+        super(serverRuntimeContext, sessionStateHolder, relay);
+    }
+
+    @Override
+    public void write(Stanza stanza) {
+        if (streamManagement != null) {
+            streamManagement.write(stanza);
+        } else {
+            writeToConnection(stanza);
+        }
+    }
+
+    @Override
+    public void writeBatch(Collection<Stanza> stanzas) {
+        if (streamManagement != null) {
+            streamManagement.writeBatch(stanzas);
+        } else {
+            writeToConnection(new ArrayList<Stanza>(stanzas));
+        }
+    }
+
+    public void writeToConnection(Stanza stanza) {
+        super.write(stanza);
+    }
+
+    public void writeToConnection(List<Stanza> stanzas) {
+        connectionBatchSizes.add(stanzas.size());
+        for (Stanza stanza : stanzas) {
+            super.write(stanza);
+        }
+    }
+
+    /**
+     * @return the sizes of the batches written to the connection
+     */
+    public List<Integer> getConnectionBatchSizes() {
+        return connectionBatchSizes;
+    }
+
+    public StreamManagement getStreamManagement() {
+        return streamManagement;
+    }
+
+    public void setStreamManagement(StreamManagement streamManagement) {
+        this.streamManagement = streamManagement;
+    }
+
+    public void takeOverConnection(StreamManagedSession connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * @return the session whose connection has been taken over, or null
+     */
+    public StreamManagedSession getTakenOverConnection() {
+        return connection;
+    }
+
+    @Override
+    public void endSession(SessionTerminationCause terminationCause) {
+        ended = true;
+        if (streamManagement != null) streamManagement.end();
+        getServerRuntimeContext().getResourceRegistry().unbindSession(this);
+        if (streamManagement != null) streamManagement.redeliverUnacknowledged();
+    }
+
+    public boolean isEnded() {
+        return ended;
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.modules.extension.xep0352_csi;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.vysper.xmpp.addressing.Entity;
+import org.apache.vysper.xmpp.addressing.EntityImpl;
+import org.apache.vysper.xmpp.protocol.NamespaceURIs;
+import org.apache.vysper.xmpp.protocol.RecordingStanzaBroker;
+import org.apache.vysper.xmpp.protocol.SessionStateHolder;
+import org.apache.vysper.xmpp.server.SessionState;
+import org.apache.vysper.xmpp.server.TestSessionContext;
+import org.apache.vysper.xmpp.stanza.PresenceStanzaType;
+import org.apache.vysper.xmpp.stanza.Stanza;
+import org.apache.vysper.xmpp.stanza.StanzaBuilder;
+import org.apache.vysper.xmpp.writer.StanzaWriter;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ */
+public class ClientStateFilterTestCase {
+
+    private static final Entity CLIENT = EntityImpl.parseUnchecked("tester@vysper.org/phone");
+
+    private static final Entity CONTACT1 = EntityImpl.parseUnchecked("contact1@vysper.org/desktop");
+
+    private static final Entity CONTACT2 = EntityImpl.parseUnchecked("contact2@vysper.org/desktop");
+
+    private final List<Stanza> written = new ArrayList<Stanza>();
+
+    private final StanzaWriter transportWriter = new StanzaWriter() {
+        public void write(Stanza stanza) {
+            written.add(stanza);
+        }
+
+        public void close() {
+            // nothing to close
+        }
+    };
+
+    private final ClientStateFilter filter = new ClientStateFilter(transportWriter, 10);
+
+    private static Stanza presence(Entity from, String status) {
+        return StanzaBuilder.createPresenceStanza(from, CLIENT, null, null, null, status).build();
+    }
+
+    private static Stanza presence(Entity from, PresenceStanzaType type) {
+        return StanzaBuilder.createPresenceStanza(from, CLIENT, null, type, null, null).build();
+    }
+
+    private static Stanza message(Entity from, String body) {
+        return StanzaBuilder.createMessageStanza(from, CLIENT, null, body).build();
+    }
+
+    @Test
+    public void activeClientReceivesEverything() {
+        filter.write(presence(CONTACT1, "one"));
+        filter.write(presence(CONTACT1, "two"));
+        Assert.assertEquals(2, written.size());
+    }
+
+    @Test
+    public void inactiveClientReceivesLatestPresencePerContact() {
+        filter.setActive(false);
+        Stanza second = presence(CONTACT2, "second");
+        filter.write(presence(CONTACT1, "one"));
+        filter.write(second);
+        Stanza latest = presence(CONTACT1, PresenceStanzaType.UNAVAILABLE);
+        filter.write(latest);
+        Assert.assertTrue(written.isEmpty());
+        Assert.assertEquals(2, filter.getBufferedCount());
+        Assert.assertEquals(1, filter.getCoalescedCount());
+
+        filter.setActive(true);
+        Assert.assertEquals(2, written.size());
+        Assert.assertSame(second, written.get(0));
+        Assert.assertSame(latest, written.get(1));
+    }
+
+    @Test
+    public void messageFlushesPresences() {
+        filter.setActive(false);
+        Stanza presence = presence(CONTACT1, "away");
+        Stanza message = message(CONTACT1, "hello");
+        filter.write(presence);
+        filter.write(message);
+        Assert.assertEquals(2, written.size());
+        Assert.assertSame(presence, written.get(0));
+        Assert.assertSame(message, written.get(1));
+        Assert.assertFalse(filter.isActive());
+    }
+
+    @Test
+    public void subscriptionsAndBodylessMessagesPassThrough() {
+        filter.setActive(false);
+        filter.write(presence(CONTACT1, "away"));
+        filter.write(presence(CONTACT2, PresenceStanzaType.SUBSCRIBE));
+        filter.write(new StanzaBuilder("message", NamespaceURIs.JABBER_CLIENT).addAttribute("from",
+                CONTACT1.getFullQualifiedName()).build());
+        Assert.assertEquals(2, written.size());
+        Assert.assertEquals(1, filter.getBufferedCount());
+    }
+
+    @Test
+    public void fullBufferIsFlushed() {
+        filter.setActive(false);
+        for (int i = 0; i < 11; i++) {
+            filter.write(presence(EntityImpl.parseUnchecked("contact" + i + "@vysper.org"), "online"));
+        }
+        Assert.assertEquals(11, written.size());
+        Assert.assertEquals(0, filter.getBufferedCount());
+    }
+
+    @Test
+    public void handlerInstallsFilter() {
+        SessionStateHolder stateHolder = new SessionStateHolder();
+        stateHolder.setState(SessionState.AUTHENTICATED);
+        TestSessionContext sessionContext = TestSessionContext.createWithStanzaReceiverRelay(stateHolder);
+        ClientStateIndicationModule module = new ClientStateIndicationModule();
+        RecordingStanzaBroker stanzaBroker = new RecordingStanzaBroker();
+
+        ClientStateHandler active = new ClientStateHandler(true, module);
+        ClientStateHandler inactive = new ClientStateHandler(false, module);
+        Stanza activeStanza = new StanzaBuilder("active", NamespaceURIs.URN_XMPP_CSI_0).build();
+        Stanza inactiveStanza = new StanzaBuilder("inactive", NamespaceURIs.URN_XMPP_CSI_0).build();
+        Assert.assertTrue(active.verify(activeStanza));
+        Assert.assertFalse(active.verify(inactiveStanza));
+
+        active.execute(activeStanza, null, true, sessionContext, stateHolder, stanzaBroker);
+        Assert.assertNull(sessionContext.getClientStateFilter());
+
+        inactive.execute(inactiveStanza, null, true, sessionContext, stateHolder, stanzaBroker);
+        Assert.assertFalse(sessionContext.getClientStateFilter().isActive());
+
+        active.execute(activeStanza, null, true, sessionContext, stateHolder, stanzaBroker);
+        Assert.assertTrue(sessionContext.getClientStateFilter().isActive());
+        Assert.assertFalse(stanzaBroker.hasStanzaWrittenToSession());
+    }
+}
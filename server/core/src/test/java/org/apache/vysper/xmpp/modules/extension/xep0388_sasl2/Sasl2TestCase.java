@@ -0,0 +1,282 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.modules.extension.xep0388_sasl2;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.vysper.storage.OpenStorageProviderRegistry;
+import org.apache.vysper.xml.fragment.XMLElement;
+import org.apache.vysper.xmpp.addressing.Entity;
+import org.apache.vysper.xmpp.addressing.EntityImpl;
+import org.apache.vysper.xmpp.authentication.Plain;
+import org.apache.vysper.xmpp.authentication.SASLMechanism;
+import org.apache.vysper.xmpp.authentication.ScramAlgorithm;
+import org.apache.vysper.xmpp.authentication.ScramSha256;
+import org.apache.vysper.xmpp.authentication.SimpleUserAuthentication;
+import org.apache.vysper.xmpp.delivery.StanzaReceiverRelay;
+import org.apache.vysper.xmpp.modules.extension.xep0198_stream_mgmt.StreamManagementModule;
+import org.apache.vysper.xmpp.modules.extension.xep0198_stream_mgmt.TestStreamManagedSession;
+import org.apache.vysper.xmpp.protocol.NamespaceURIs;
+import org.apache.vysper.xmpp.protocol.RecordingStanzaBroker;
+import org.apache.vysper.xmpp.protocol.SessionStateHolder;
+import org.apache.vysper.xmpp.protocol.exception.AuthenticationFailedException;
+import org.apache.vysper.xmpp.server.DefaultServerRuntimeContext;
+import org.apache.vysper.xmpp.server.SessionState;
+import org.apache.vysper.xmpp.server.TestSessionContext;
+import org.apache.vysper.xmpp.server.response.ServerResponses;
+import org.apache.vysper.xmpp.stanza.Stanza;
+import org.apache.vysper.xmpp.stanza.StanzaBuilder;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ */
+public class Sasl2TestCase {
+
+    private static final Entity CLIENT = EntityImpl.parseUnchecked("tester@vysper.org");
+
+    private static final String CLIENT_NONCE = "rOprNGfwEbeRWgbNEkqO";
+
+    private DefaultServerRuntimeContext serverContext;
+
+    private StreamManagementModule streamManagementModule;
+
+    private SessionStateHolder sessionStateHolder;
+
+    private TestStreamManagedSession session;
+
+    @Before
+    public void before() {
+        StanzaReceiverRelay relay = new StanzaReceiverRelay();
+        serverContext = new DefaultServerRuntimeContext(new EntityImpl(null, "vysper.org", null), relay);
+        relay.setServerRuntimeContext(serverContext);
+
+        SimpleUserAuthentication users = new SimpleUserAuthentication();
+        users.addUser(CLIENT, "password");
+        OpenStorageProviderRegistry providerRegistry = new OpenStorageProviderRegistry();
+        providerRegistry.add(users);
+        serverContext.setStorageProviderRegistry(providerRegistry);
+        serverContext.getServerFeatures()
+                .setAuthenticationMethods(Arrays.<SASLMechanism> asList(new Plain(), new ScramSha256()));
+
+        streamManagementModule = new StreamManagementModule();
+        serverContext.addModule(streamManagementModule);
+        serverContext.addModule(new Sasl2Module());
+
+        sessionStateHolder = new SessionStateHolder();
+        sessionStateHolder.setState(SessionState.ENCRYPTED);
+        session = new TestStreamManagedSession(serverContext, sessionStateHolder, relay);
+    }
+
+    @After
+    public void after() {
+        streamManagementModule.close();
+    }
+
+    @Test
+    public void featuresOfferInlineBind() {
+        Stanza features = new ServerResponses().getFeaturesForAuthentication(
+                serverContext.getServerFeatures().getAuthenticationMethods(), session);
+
+        XMLElement authentication = features.getInnerElementsNamed("authentication", NamespaceURIs.URN_XMPP_SASL_2)
+                .get(0);
+        List<XMLElement> mechanisms = authentication.getInnerElementsNamed("mechanism", NamespaceURIs.URN_XMPP_SASL_2);
+        Assert.assertEquals(2, mechanisms.size());
+        Assert.assertEquals("PLAIN", mechanisms.get(0).getInnerText().getText());
+        Assert.assertEquals("SCRAM-SHA-256", mechanisms.get(1).getInnerText().getText());
+
+        XMLElement bind = authentication.getInnerElementsNamed("inline", NamespaceURIs.URN_XMPP_SASL_2).get(0)
+                .getInnerElementsNamed("bind", NamespaceURIs.URN_XMPP_BIND_0).get(0);
+        XMLElement feature = bind.getInnerElementsNamed("inline", NamespaceURIs.URN_XMPP_BIND_0).get(0)
+                .getInnerElementsNamed("feature", NamespaceURIs.URN_XMPP_BIND_0).get(0);
+        Assert.assertEquals(NamespaceURIs.URN_XMPP_SM_3, feature.getAttributeValue("var"));
+    }
+
+    @Test
+    public void featuresNotOfferedWithoutStreamRestart() {
+        // like BOSH sessions, which do not restart the stream the TCP way
+        TestSessionContext boshLikeSession = new TestSessionContext(serverContext, sessionStateHolder,
+                serverContext.getStanzaRelay());
+
+        Stanza features = new ServerResponses().getFeaturesForAuthentication(
+                serverContext.getServerFeatures().getAuthenticationMethods(), boshLikeSession);
+
+        Assert.assertTrue(features.getInnerElementsNamed("authentication", NamespaceURIs.URN_XMPP_SASL_2).isEmpty());
+        Assert.assertEquals(1,
+                features.getInnerElementsNamed("mechanisms", NamespaceURIs.URN_IETF_PARAMS_XML_NS_XMPP_SASL).size());
+    }
+
+    @Test
+    public void plainWithInlineBindAndStreamManagement() throws AuthenticationFailedException {
+        StanzaBuilder authenticate = authenticate("PLAIN", "\0tester\0password");
+        authenticate.startInnerElement("bind", NamespaceURIs.URN_XMPP_BIND_0)
+                .startInnerElement("tag", NamespaceURIs.URN_XMPP_BIND_0).addText("vysper-test").endInnerElement()
+                .startInnerElement("enable", NamespaceURIs.URN_XMPP_SM_3).addAttribute("resume", "true")
+                .endInnerElement().endInnerElement();
+
+        RecordingStanzaBroker stanzaBroker = execute(new AuthenticateHandler(), authenticate.build());
+
+        Stanza success = stanzaBroker.getUniqueStanzaWrittenToSession();
+        Assert.assertTrue(success.getVerifier().nameEquals("success"));
+        Assert.assertEquals(NamespaceURIs.URN_XMPP_SASL_2, success.getNamespaceURI());
+        Assert.assertEquals(SessionState.AUTHENTICATED, sessionStateHolder.getState());
+
+        List<String> resources = serverContext.getResourceRegistry().getResourcesForSession(session);
+        Assert.assertEquals(1, resources.size());
+        Assert.assertEquals(new EntityImpl(CLIENT, resources.get(0)).getFullQualifiedName(),
+                success.getInnerElementsNamed("authorization-identifier", NamespaceURIs.URN_XMPP_SASL_2).get(0)
+                        .getInnerText().getText());
+
+        XMLElement enabled = success.getInnerElementsNamed("bound", NamespaceURIs.URN_XMPP_BIND_0).get(0)
+                .getInnerElementsNamed("enabled", NamespaceURIs.URN_XMPP_SM_3).get(0);
+        Assert.assertNotNull(session.getStreamManagement());
+        Assert.assertEquals(session.getStreamManagement().getId(), enabled.getAttributeValue("id"));
+        Assert.assertEquals("true", enabled.getAttributeValue("resume"));
+    }
+
+    @Test
+    public void plainWithoutBindIsFollowedByFeatures() throws AuthenticationFailedException {
+        RecordingStanzaBroker stanzaBroker = execute(new AuthenticateHandler(),
+                authenticate("PLAIN", "\0tester\0password").build());
+
+        List<Stanza> written = stanzaBroker.getStanzasWrittenToSession();
+        Assert.assertEquals(2, written.size());
+        Stanza success = written.get(0);
+        Assert.assertTrue(success.getVerifier().nameEquals("success"));
+        Assert.assertEquals(CLIENT.getFullQualifiedName(),
+                success.getInnerElementsNamed("authorization-identifier", NamespaceURIs.URN_XMPP_SASL_2).get(0)
+                        .getInnerText().getText());
+        Assert.assertTrue(success.getInnerElementsNamed("bound", NamespaceURIs.URN_XMPP_BIND_0).isEmpty());
+
+        // the stream is not restarted, the client continues with the bind IQ
+        Stanza features = written.get(1);
+        Assert.assertTrue(features.getVerifier().nameEquals("features"));
+        Assert.assertTrue(features.getVerifier().subElementPresent("bind"));
+        Assert.assertTrue(serverContext.getResourceRegistry().getResourcesForSession(session).isEmpty());
+        Assert.assertNull(session.getStreamManagement());
+    }
+
+    @Test
+    public void scramWithInlineBind() throws AuthenticationFailedException {
+        ScramAlgorithm algorithm = ScramAlgorithm.SHA_256;
+        String clientFirstBare = "n=tester,r=" + CLIENT_NONCE;
+        StanzaBuilder authenticate = authenticate(algorithm.getMechanismName(), "n,," + clientFirstBare);
+        authenticate.startInnerElement("bind", NamespaceURIs.URN_XMPP_BIND_0).endInnerElement();
+
+        Stanza challenge = execute(new AuthenticateHandler(), authenticate.build()).getUniqueStanzaWrittenToSession();
+        Assert.assertTrue(challenge.getVerifier().nameEquals("challenge"));
+        Assert.assertEquals(NamespaceURIs.URN_XMPP_SASL_2, challenge.getNamespaceURI());
+        Assert.assertEquals(SessionState.ENCRYPTED, sessionStateHolder.getState());
+
+        String serverFirst = decode(challenge.getInnerText().getText());
+        String[] attributes = serverFirst.split(",");
+        byte[] saltedPassword = algorithm.saltPassword("password",
+                Base64.decodeBase64(attributes[1].substring(2).getBytes(StandardCharsets.UTF_8)),
+                Integer.parseInt(attributes[2].substring(2)));
+        String clientFinalWithoutProof = "c=biws," + attributes[0];
+        String authMessage = clientFirstBare + "," + serverFirst + "," + clientFinalWithoutProof;
+        byte[] clientKey = algorithm.hmac(saltedPassword, "Client Key");
+        byte[] clientSignature = algorithm.hmac(algorithm.hash(clientKey), authMessage);
+        for (int i = 0; i < clientKey.length; i++) {
+            clientKey[i] ^= clientSignature[i];
+        }
+        Stanza response = new StanzaBuilder("response", NamespaceURIs.URN_XMPP_SASL_2)
+                .addText(encode(clientFinalWithoutProof + ",p=" + encode(clientKey))).build();
+
+        Stanza success = execute(new Sasl2ResponseHandler(), response).getUniqueStanzaWrittenToSession();
+        Assert.assertTrue(success.getVerifier().nameEquals("success"));
+        byte[] serverSignature = algorithm.hmac(algorithm.hmac(saltedPassword, "Server Key"), authMessage);
+        Assert.assertEquals("v=" + encode(serverSignature),
+                decode(success.getInnerElementsNamed("additional-data", NamespaceURIs.URN_XMPP_SASL_2).get(0)
+                        .getInnerText().getText()));
+        Assert.assertEquals(1, success.getInnerElementsNamed("bound", NamespaceURIs.URN_XMPP_BIND_0).size());
+        Assert.assertEquals(1, serverContext.getResourceRegistry().getResourcesForSession(session).size());
+        // stream management has not been asked for
+        Assert.assertNull(session.getStreamManagement());
+    }
+
+    @Test
+    public void wrongPassword() throws AuthenticationFailedException {
+        StanzaBuilder authenticate = authenticate("PLAIN", "\0tester\0wrong");
+        authenticate.startInnerElement("bind", NamespaceURIs.URN_XMPP_BIND_0).endInnerElement();
+
+        Stanza failure = execute(new AuthenticateHandler(), authenticate.build()).getUniqueStanzaWrittenToSession();
+        Assert.assertTrue(failure.getVerifier().nameEquals("failure"));
+        Assert.assertEquals(NamespaceURIs.URN_XMPP_SASL_2, failure.getNamespaceURI());
+        Assert.assertTrue(failure.getVerifier().subElementPresent("not-authorized"));
+        Assert.assertEquals(SessionState.ENCRYPTED, sessionStateHolder.getState());
+        Assert.assertTrue(serverContext.getResourceRegistry().getResourcesForSession(session).isEmpty());
+    }
+
+    @Test
+    public void unknownMechanism() throws AuthenticationFailedException {
+        Stanza failure = execute(new AuthenticateHandler(), authenticate("DIGEST-MD5", "").build())
+                .getUniqueStanzaWrittenToSession();
+        Assert.assertTrue(failure.getVerifier().nameEquals("failure"));
+        Assert.assertTrue(failure.getVerifier().subElementPresent("invalid-mechanism"));
+    }
+
+    @Test
+    public void abort() throws AuthenticationFailedException {
+        execute(new AuthenticateHandler(),
+                authenticate(ScramAlgorithm.SHA_256.getMechanismName(), "n,,n=tester,r=" + CLIENT_NONCE).build());
+        Stanza failure = execute(new Sasl2AbortHandler(),
+                new StanzaBuilder("abort", NamespaceURIs.URN_XMPP_SASL_2).build()).getUniqueStanzaWrittenToSession();
+        Assert.assertTrue(failure.getVerifier().subElementPresent("aborted"));
+        Assert.assertNull(session.getAttribute(AbstractSasl2Handler.SESSION_ATTRIBUTE_AUTHENTICATE));
+
+        // the exchange has ended, there is nothing to respond to
+        Stanza response = new StanzaBuilder("response", NamespaceURIs.URN_XMPP_SASL_2).addText("AAAA").build();
+        failure = execute(new Sasl2ResponseHandler(), response).getUniqueStanzaWrittenToSession();
+        Assert.assertTrue(failure.getVerifier().subElementPresent("malformed-request"));
+    }
+
+    private RecordingStanzaBroker execute(AbstractSasl2Handler handler, Stanza stanza)
+            throws AuthenticationFailedException {
+        RecordingStanzaBroker stanzaBroker = new RecordingStanzaBroker();
+        handler.execute(stanza, serverContext, true, session, sessionStateHolder, stanzaBroker);
+        return stanzaBroker;
+    }
+
+    private static StanzaBuilder authenticate(String mechanism, String initialResponse) {
+        StanzaBuilder authenticate = new StanzaBuilder("authenticate", NamespaceURIs.URN_XMPP_SASL_2)
+                .addAttribute("mechanism", mechanism);
+        authenticate.startInnerElement("initial-response", NamespaceURIs.URN_XMPP_SASL_2)
+                .addText(encode(initialResponse)).endInnerElement();
+        return authenticate;
+    }
+
+    private static String encode(String data) {
+        return encode(data.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String encode(byte[] data) {
+        return new String(Base64.encodeBase64(data), StandardCharsets.UTF_8);
+    }
+
+    private static String decode(String base64) {
+        return new String(Base64.decodeBase64(base64.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.modules.metrics;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class LatencyHistogramTestCase {
+
+    @Test
+    public void bucketsCoverValues() {
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            long value = random.nextLong() >>> (1 + random.nextInt(63));
+            int index = LatencyHistogram.bucketIndex(value);
+            Assert.assertTrue(value + " below bucket", LatencyHistogram.lowestValueInBucket(index) <= value);
+            Assert.assertTrue(value + " above bucket", LatencyHistogram.highestValueInBucket(index) >= value);
+        }
+        Assert.assertEquals(Long.MAX_VALUE,
+                LatencyHistogram.highestValueInBucket(LatencyHistogram.bucketIndex(Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void emptyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Assert.assertEquals(0, histogram.getCount());
+        Assert.assertEquals(0, histogram.getMean());
+        Assert.assertEquals(0, histogram.getValueAtQuantile(0.99));
+    }
+
+    @Test
+    public void quantilesWithinPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 10000; micros++) {
+            histogram.record(micros * 1000);
+        }
+        Assert.assertEquals(10000, histogram.getCount());
+        Assert.assertEquals(10000000, histogram.getMax());
+        Assert.assertEquals(5000500, histogram.getMean());
+        assertWithin(5000000, histogram.getValueAtQuantile(0.5));
+        assertWithin(9900000, histogram.getValueAtQuantile(0.99));
+        Assert.assertEquals(10000000, histogram.getValueAtQuantile(1.0));
+    }
+
+    @Test
+    public void smallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(3);
+        histogram.record(63);
+        Assert.assertEquals(0, histogram.getValueAtQuantile(0.3));
+        Assert.assertEquals(3, histogram.getValueAtQuantile(0.5));
+        Assert.assertEquals(63, histogram.getValueAtQuantile(0.9));
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        Assert.assertTrue("expected " + expected + " but was " + actual,
+                Math.abs(actual - expected) <= expected * 0.035);
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.modules.metrics;
+
+import static org.mockito.Mockito.mock;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.vysper.xmpp.addressing.EntityImpl;
+import org.apache.vysper.xmpp.protocol.NamespaceURIs;
+import org.apache.vysper.xmpp.protocol.ProtocolException;
+import org.apache.vysper.xmpp.protocol.SessionStateHolder;
+import org.apache.vysper.xmpp.protocol.StanzaBroker;
+import org.apache.vysper.xmpp.protocol.StanzaHandlerInterceptorChain;
+import org.apache.vysper.xmpp.server.ServerRuntimeContext;
+import org.apache.vysper.xmpp.server.TestSessionContext;
+import org.apache.vysper.xmpp.stanza.IQStanzaType;
+import org.apache.vysper.xmpp.stanza.Stanza;
+import org.apache.vysper.xmpp.stanza.StanzaBuilder;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class MetricsModuleTestCase {
+
+    private TestSessionContext sessionContext;
+
+    private MetricsModule metricsModule;
+
+    @Before
+    public void setUp() {
+        sessionContext = new TestSessionContext(new SessionStateHolder());
+        metricsModule = new MetricsModule();
+        metricsModule.setPrometheusAddress(new InetSocketAddress("127.0.0.1", 0));
+        sessionContext.getServerRuntimeContext().addModule(metricsModule);
+    }
+
+    @After
+    public void tearDown() {
+        metricsModule.close();
+    }
+
+    private Stanza createRosterGet() {
+        return StanzaBuilder.createIQStanza(EntityImpl.parseUnchecked("user@test/res"), null, IQStanzaType.GET, "1")
+                .startInnerElement("query", NamespaceURIs.JABBER_IQ_ROSTER).endInnerElement().build();
+    }
+
+    private void intercept(Stanza stanza, StanzaHandlerInterceptorChain chain) throws ProtocolException {
+        ServerRuntimeContext serverRuntimeContext = sessionContext.getServerRuntimeContext();
+        Assert.assertTrue(serverRuntimeContext.getStanzaHandlerInterceptors().size() > 0);
+        serverRuntimeContext.getStanzaHandlerInterceptors().get(0).intercept(stanza, serverRuntimeContext, false,
+                sessionContext, null, mock(StanzaBroker.class), chain);
+    }
+
+    @Test
+    public void timesHandlersByKindAndNamespace() throws Exception {
+        intercept(createRosterGet(), mock(StanzaHandlerInterceptorChain.class));
+
+        LatencyHistogram histogram = (LatencyHistogram) metricsModule.getRegistry().getMetric(new MetricName(
+                MetricsStanzaHandlerInterceptor.HANDLER_LATENCY, "kind", "iq", "namespace", NamespaceURIs.JABBER_IQ_ROSTER));
+        Assert.assertEquals(1, histogram.getCount());
+    }
+
+    @Test
+    public void countsFailingHandlers() throws Exception {
+        try {
+            intercept(createRosterGet(), (stanza, serverRuntimeContext, isOutboundStanza, sessionContext,
+                    sessionStateHolder, stanzaBroker) -> {
+                throw new IllegalStateException("failing on purpose");
+            });
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        Counter errors = metricsModule.getRegistry().counter(MetricsStanzaHandlerInterceptor.HANDLER_ERRORS, null,
+                "kind", "iq");
+        Assert.assertEquals(1, errors.getCount());
+    }
+
+    @Test
+    public void capsNamespaces() throws Exception {
+        MetricsRegistry registry = new MetricsRegistry();
+        MetricsStanzaHandlerInterceptor interceptor = new MetricsStanzaHandlerInterceptor(registry, 2);
+        for (int i = 0; i < 5; i++) {
+            Stanza stanza = StanzaBuilder.createIQStanza(null, null, IQStanzaType.GET, "1")
+                    .startInnerElement("query", "urn:test:" + i).endInnerElement().build();
+            interceptor.intercept(stanza, sessionContext.getServerRuntimeContext(), false, sessionContext, null,
+                    mock(StanzaBroker.class), mock(StanzaHandlerInterceptorChain.class));
+        }
+        Assert.assertEquals(3, registry.getMetrics().size());
+        LatencyHistogram other = registry.histogram(MetricsStanzaHandlerInterceptor.HANDLER_LATENCY, null, "kind",
+                "iq", "namespace", MetricsStanzaHandlerInterceptor.OTHER_NAMESPACE);
+        Assert.assertEquals(3, other.getCount());
+    }
+
+    @Test
+    public void exportsServerMetrics() throws Exception {
+        intercept(createRosterGet(), mock(StanzaHandlerInterceptorChain.class));
+
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        ObjectName sessions = new ObjectName("org.apache.vysper:type=Metrics,server=\"test\",name=vysper_sessions");
+        Assert.assertEquals(0L, mBeanServer.getAttribute(sessions, "Value"));
+
+        InetSocketAddress address = metricsModule.getPrometheusEndpoint().getAddress();
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + address.getPort()
+                + PrometheusHttpEndpoint.PATH).openConnection();
+        Assert.assertEquals(200, connection.getResponseCode());
+        Assert.assertEquals(PrometheusTextFormat.CONTENT_TYPE, connection.getContentType());
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (InputStream in = connection.getInputStream()) {
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                body.write(buffer, 0, read);
+            }
+        }
+        String text = new String(body.toByteArray(), StandardCharsets.UTF_8);
+        Assert.assertTrue(text, text.contains("vysper_sessions 0\n"));
+        Assert.assertTrue(text, text.contains("# TYPE vysper_parser_bytes_total counter\n"));
+        Assert.assertTrue(text, text.contains(MetricsStanzaHandlerInterceptor.HANDLER_LATENCY + "_count{kind=\"iq\",namespace=\""
+                + NamespaceURIs.JABBER_IQ_ROSTER + "\"} 1\n"));
+
+        metricsModule.close();
+        Assert.assertFalse(mBeanServer.isRegistered(sessions));
+    }
+}
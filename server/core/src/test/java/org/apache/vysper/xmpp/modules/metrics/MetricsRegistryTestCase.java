@@ -0,0 +1,104 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.modules.metrics;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class MetricsRegistryTestCase {
+
+    private final MetricsRegistry registry = new MetricsRegistry();
+
+    @Test
+    public void returnsSameMetricForSameNameAndLabels() {
+        Counter counter = registry.counter("requests_total", "requests", "kind", "iq");
+        Assert.assertSame(counter, registry.counter("requests_total", "requests", "kind", "iq"));
+        Assert.assertNotSame(counter, registry.counter("requests_total", "requests", "kind", "message"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTypeConflict() {
+        registry.counter("requests_total", "requests");
+        registry.histogram("requests_total", "requests");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsInvalidName() {
+        registry.counter("requests-total", "requests");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsOddLabels() {
+        registry.counter("requests_total", "requests", "kind");
+    }
+
+    @Test
+    public void notifiesListeners() {
+        registry.counter("first_total", null);
+        final List<MetricName> added = new ArrayList<MetricName>();
+        registry.addListener((name, metric) -> added.add(name));
+        registry.gauge("second", null, () -> 1);
+        Assert.assertEquals(2, added.size());
+        Assert.assertEquals("first_total", added.get(0).getName());
+        Assert.assertEquals("second", added.get(1).getName());
+    }
+
+    @Test
+    public void writesPrometheusText() throws Exception {
+        registry.counter("vysper_requests_total", "requests handled", "kind", "iq").add(3);
+        registry.gauge("vysper_sessions", "sessions", () -> 7);
+        registry.histogram("vysper_latency_seconds", "latency", "namespace", "jabber:iq:\"roster\"").record(
+                TimeUnit.MILLISECONDS.toNanos(2));
+
+        StringWriter writer = new StringWriter();
+        PrometheusTextFormat.write(registry, writer);
+        String text = writer.toString();
+
+        Assert.assertTrue(text, text.contains("# HELP vysper_requests_total requests handled\n"
+                + "# TYPE vysper_requests_total counter\n" + "vysper_requests_total{kind=\"iq\"} 3\n"));
+        Assert.assertTrue(text, text.contains("# TYPE vysper_sessions gauge\nvysper_sessions 7\n"));
+        Assert.assertTrue(text, text.contains("# TYPE vysper_latency_seconds summary\n"));
+        Assert.assertTrue(text, text.contains("vysper_latency_seconds{namespace=\"jabber:iq:\\\"roster\\\"\",quantile=\"0.99\"} 0.00"));
+        Assert.assertTrue(text, text.contains("vysper_latency_seconds_sum{namespace=\"jabber:iq:\\\"roster\\\"\"} 0.002\n"));
+        Assert.assertTrue(text, text.contains("vysper_latency_seconds_count{namespace=\"jabber:iq:\\\"roster\\\"\"} 1\n"));
+    }
+
+    @Test
+    public void measuresRate() {
+        final AtomicLong bytes = new AtomicLong();
+        RateGauge rate = new RateGauge(bytes::get);
+        long start = System.nanoTime();
+        bytes.set(5000);
+        Assert.assertEquals(0, rate.getValue(start + TimeUnit.MILLISECONDS.toNanos(500)));
+        Assert.assertEquals(2500, rate.getValue(start + TimeUnit.SECONDS.toNanos(2)), 10);
+        // the rate is kept until the next second has passed
+        bytes.set(6000);
+        Assert.assertEquals(2500, rate.getValue(start + TimeUnit.MILLISECONDS.toNanos(2500)), 10);
+    }
+}
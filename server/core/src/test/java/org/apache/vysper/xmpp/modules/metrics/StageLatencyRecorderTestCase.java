@@ -0,0 +1,67 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.modules.metrics;
+
+import org.apache.vysper.xmpp.server.trace.StanzaTrace;
+import org.apache.vysper.xmpp.server.trace.TracePoint;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class StageLatencyRecorderTestCase {
+
+    private final MetricsRegistry registry = new MetricsRegistry();
+
+    private final StageLatencyRecorder recorder = new StageLatencyRecorder(registry, 0);
+
+    private LatencyHistogram stage(String stage) {
+        return registry.histogram(StageLatencyRecorder.STAGE_LATENCY, null, "stage", stage);
+    }
+
+    @Test
+    public void recordsOwnStagesOnly() {
+        StanzaTrace trace = new StanzaTrace("message");
+        trace.stamp(TracePoint.READ, 0);
+        trace.stamp(TracePoint.DECODED, 1000);
+        trace.stamp(TracePoint.HANDLER_START, 2000);
+        StanzaTrace branch = trace.branch();
+        trace.stamp(TracePoint.HANDLER_END, 5000);
+        branch.stamp(TracePoint.RELAY_ENQUEUED, 3000);
+        branch.stamp(TracePoint.RELAY_DEQUEUED, 4000);
+        branch.stamp(TracePoint.WRITTEN, 9000);
+
+        recorder.traceCompleted(branch);
+        recorder.traceCompleted(trace);
+
+        Assert.assertEquals(1, stage("parse").getCount());
+        Assert.assertEquals(1, stage("session_queue").getCount());
+        Assert.assertEquals(1, stage("handler").getCount());
+        Assert.assertEquals(3000, stage("handler").getSum());
+        Assert.assertEquals(1, stage("relay_queue").getCount());
+        Assert.assertEquals(1, stage("delivery").getCount());
+        Assert.assertEquals(5000, stage("delivery").getSum());
+
+        LatencyHistogram total = registry.histogram(StageLatencyRecorder.TOTAL_LATENCY, null);
+        Assert.assertEquals(1, total.getCount());
+        Assert.assertEquals(9000, total.getSum());
+    }
+}
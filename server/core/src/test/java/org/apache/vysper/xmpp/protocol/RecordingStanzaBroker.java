@@ -51,6 +51,10 @@ public class RecordingStanzaBroker implements StanzaBroker {
         return stanzasWrittenToSession.stream().findFirst().orElse(null);
     }
 
+    public List<Stanza> getStanzasWrittenToSession() {
+        return stanzasWrittenToSession;
+    }
+
     public boolean hasStanzaWrittenToSession() {
         return !stanzasWrittenToSession.isEmpty();
     }
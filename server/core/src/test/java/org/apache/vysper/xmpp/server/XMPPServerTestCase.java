@@ -1,5 +1,8 @@
 package org.apache.vysper.xmpp.server;
 
+import org.apache.vysper.mina.BufferAllocation;
+import org.apache.vysper.mina.C2SEndpoint;
+
 import junit.framework.TestCase;
 
 /**
@@ -13,6 +16,19 @@ public class XMPPServerTestCase extends TestCase {
         expectConstructorIAE("vYsper.org");
     }
 
+    public void testPooledBuffersRequireIoThreadEndpoints() throws Exception {
+        XMPPServer server = new XMPPServer("vysper.org");
+        server.addEndpoint(new C2SEndpoint());
+        server.setBufferAllocation(BufferAllocation.POOLED);
+        try {
+            server.start();
+            fail("expected IllegalStateException");
+        } catch (IllegalStateException e) {
+            // the allocator is left alone
+            assertFalse(BufferAllocation.isPooledInstalled());
+        }
+    }
+
     private void expectConstructorIAE(String domain) {
         try {
             new XMPPServer(domain);
@@ -0,0 +1,117 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.server.jfr;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.List;
+
+import org.apache.vysper.xmpp.addressing.EntityImpl;
+import org.apache.vysper.xmpp.modules.core.base.handler.MessageHandler;
+import org.apache.vysper.xmpp.protocol.NamespaceURIs;
+import org.apache.vysper.xmpp.stanza.Stanza;
+import org.apache.vysper.xmpp.stanza.StanzaBuilder;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class FlightRecorderEventsTestCase {
+
+    private final Stanza stanza = new StanzaBuilder("message", NamespaceURIs.JABBER_CLIENT)
+            .addAttribute("type", "chat").startInnerElement("body", NamespaceURIs.JABBER_CLIENT).endInnerElement()
+            .build();
+
+    @Before
+    public void assumeFlightRecorder() {
+        Assume.assumeTrue(FlightRecorderEvents.isAvailable());
+    }
+
+    @Test
+    public void noEventsWithoutRecording() {
+        Assert.assertNull(FlightRecorderEvents.beginStanzaProcessing());
+        Assert.assertNull(FlightRecorderEvents.beginStorage());
+        Assert.assertFalse(FlightRecorderEvents.isRelayDeliveryEnabled());
+        // ending a null event is fine
+        FlightRecorderEvents.endStanzaProcessing(null, new MessageHandler(), stanza);
+    }
+
+    @Test
+    public void recordsEvents() throws Exception {
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            recording.enable(StanzaProcessingEvent.NAME).withThreshold(Duration.ZERO);
+            recording.enable(RelayDeliveryEvent.NAME).withThreshold(Duration.ZERO);
+            recording.enable(ServerConnectEvent.NAME).withThreshold(Duration.ZERO);
+            recording.disable(StorageEvent.NAME);
+            recording.start();
+
+            Object event = FlightRecorderEvents.beginStanzaProcessing();
+            Assert.assertNotNull(event);
+            FlightRecorderEvents.endStanzaProcessing(event, new MessageHandler(), stanza);
+
+            Assert.assertTrue(FlightRecorderEvents.isRelayDeliveryEnabled());
+            event = FlightRecorderEvents.beginRelayDelivery(System.nanoTime() - 5000000);
+            FlightRecorderEvents.endRelayDelivery(event, "internal", stanza, 2);
+
+            event = FlightRecorderEvents.beginServerConnect();
+            FlightRecorderEvents.endServerConnect(event, EntityImpl.parseUnchecked("example.com"), false);
+
+            // disabled in this recording
+            Assert.assertNull(FlightRecorderEvents.beginStorage());
+
+            recording.stop();
+            File file = File.createTempFile("vysper", ".jfr");
+            file.deleteOnExit();
+            recording.dump(file.toPath());
+            events = RecordingFile.readAllEvents(file.toPath());
+        }
+
+        RecordedEvent processing = find(events, StanzaProcessingEvent.NAME);
+        Assert.assertEquals(MessageHandler.class.getName(), processing.getString("handler"));
+        Assert.assertEquals("message", processing.getString("stanza"));
+        Assert.assertEquals("chat", processing.getString("type"));
+        Assert.assertEquals(NamespaceURIs.JABBER_CLIENT, processing.getString("namespace"));
+
+        RecordedEvent relay = find(events, RelayDeliveryEvent.NAME);
+        Assert.assertEquals("internal", relay.getString("relay"));
+        Assert.assertEquals(2, relay.getInt("fanOut"));
+        Assert.assertTrue(relay.getDuration("queueWait").toMillis() >= 5);
+
+        RecordedEvent connect = find(events, ServerConnectEvent.NAME);
+        Assert.assertEquals("example.com", connect.getString("remoteServer"));
+        Assert.assertFalse(connect.getBoolean("connected"));
+    }
+
+    private static RecordedEvent find(List<RecordedEvent> events, String name) {
+        for (RecordedEvent event : events) {
+            if (event.getEventType().getName().equals(name)) return event;
+        }
+        Assert.fail("no event " + name);
+        return null;
+    }
+}
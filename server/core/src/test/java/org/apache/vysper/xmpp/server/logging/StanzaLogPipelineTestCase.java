@@ -0,0 +1,137 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.server.logging;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.vysper.storage.logstanzas.LogStorageProvider;
+import org.apache.vysper.xmpp.addressing.Entity;
+import org.apache.vysper.xmpp.addressing.EntityImpl;
+import org.apache.vysper.xmpp.delivery.StanzaReceiverRelay;
+import org.apache.vysper.xmpp.server.DefaultServerRuntimeContext;
+import org.apache.vysper.xmpp.stanza.Stanza;
+import org.apache.vysper.xmpp.stanza.StanzaBuilder;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class StanzaLogPipelineTestCase {
+
+    private static final Entity RECEIVER = EntityImpl.parseUnchecked("user@vysper.org");
+
+    private final Stanza stanza = StanzaBuilder.createMessageStanza(null, RECEIVER, null, "hello").build();
+
+    private final StanzaLogPipeline pipeline = new StanzaLogPipeline(2);
+
+    private final BlockingLogStorage logStorage = new BlockingLogStorage();
+
+    @After
+    public void tearDown() {
+        logStorage.release.countDown();
+        pipeline.close();
+    }
+
+    @Test
+    public void logsOnBackgroundThread() throws Exception {
+        logStorage.release.countDown();
+        pipeline.log(logStorage, RECEIVER, stanza);
+        pipeline.close();
+        Assert.assertEquals(1, logStorage.logged.size());
+        Assert.assertNotSame(Thread.currentThread(), logStorage.threads.get(0));
+        Assert.assertEquals(1, pipeline.getLoggedCount());
+    }
+
+    @Test
+    public void dropsWhenFull() throws Exception {
+        pipeline.log(logStorage, RECEIVER, stanza);
+        Assert.assertTrue(logStorage.entered.await(5, TimeUnit.SECONDS));
+        // the logging thread is blocked, the queue takes two more
+        for (int i = 0; i < 5; i++) {
+            pipeline.log(logStorage, RECEIVER, stanza);
+        }
+        Assert.assertEquals(2, pipeline.getQueueDepth());
+        Assert.assertEquals(3, pipeline.getDroppedCount());
+
+        logStorage.release.countDown();
+        pipeline.close();
+        Assert.assertEquals(3, logStorage.logged.size());
+    }
+
+    @Test
+    public void limitsRate() {
+        StanzaLogPipeline limited = new StanzaLogPipeline(100);
+        limited.setMaxPerSecond(3);
+        logStorage.release.countDown();
+        try {
+            for (int i = 0; i < 5; i++) {
+                limited.log(logStorage, RECEIVER, stanza);
+            }
+            Assert.assertEquals(2, limited.getRateLimitedCount());
+        } finally {
+            limited.close();
+        }
+    }
+
+    @Test
+    public void skipsUnsampled() {
+        pipeline.getSampler().setSampleRate("message", 0);
+        pipeline.log(logStorage, RECEIVER, stanza);
+        Assert.assertEquals(0, pipeline.getQueueDepth());
+        Assert.assertEquals(0, pipeline.getDroppedCount());
+    }
+
+    @Test
+    public void serverPipeline() {
+        DefaultServerRuntimeContext serverContext = new DefaultServerRuntimeContext(
+                new EntityImpl(null, "vysper.org", null), new StanzaReceiverRelay());
+        Assert.assertSame(StanzaLogPipeline.getDefault(), StanzaLogPipeline.of(serverContext));
+        serverContext.registerServerRuntimeContextService(pipeline);
+        Assert.assertSame(pipeline, StanzaLogPipeline.of(serverContext));
+    }
+
+    private static class BlockingLogStorage implements LogStorageProvider {
+
+        private final CountDownLatch entered = new CountDownLatch(1);
+
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        private final List<Stanza> logged = Collections.synchronizedList(new ArrayList<Stanza>());
+
+        private final List<Thread> threads = Collections.synchronizedList(new ArrayList<Thread>());
+
+        public void logStanza(Entity receiver, Stanza stanza) {
+            entered.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            logged.add(stanza);
+            threads.add(Thread.currentThread());
+        }
+    }
+}
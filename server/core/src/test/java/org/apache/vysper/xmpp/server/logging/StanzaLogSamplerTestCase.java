@@ -0,0 +1,83 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.server.logging;
+
+import org.apache.vysper.xmpp.addressing.EntityImpl;
+import org.apache.vysper.xmpp.stanza.Stanza;
+import org.apache.vysper.xmpp.stanza.StanzaBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class StanzaLogSamplerTestCase {
+
+    private final StanzaLogSampler sampler = new StanzaLogSampler();
+
+    private final Stanza presence = StanzaBuilder
+            .createPresenceStanza(EntityImpl.parseUnchecked("user@vysper.org/res"), null, null, null, null, null).build();
+
+    private final Stanza message = StanzaBuilder
+            .createMessageStanza(EntityImpl.parseUnchecked("other@vysper.org/res"),
+                    EntityImpl.parseUnchecked("user@vysper.org"), null, "hello")
+            .build();
+
+    @Test
+    public void logsEverythingByDefault() {
+        Assert.assertTrue(sampler.sample(presence));
+        Assert.assertTrue(sampler.sample(message));
+    }
+
+    @Test
+    public void samplesByElementName() {
+        sampler.setSampleRate("presence", 0);
+        Assert.assertFalse(sampler.sample(presence));
+        Assert.assertTrue(sampler.sample(message));
+    }
+
+    @Test
+    public void jidRateTakesPrecedence() {
+        sampler.setDefaultSampleRate(0);
+        Assert.assertFalse(sampler.sample(message));
+
+        sampler.setSampleRate(EntityImpl.parseUnchecked("user@vysper.org/other"), 1);
+        Assert.assertTrue(sampler.sample(presence));
+        Assert.assertTrue(sampler.sample(message));
+
+        sampler.removeSampleRate(EntityImpl.parseUnchecked("user@vysper.org"));
+        Assert.assertFalse(sampler.sample(message));
+    }
+
+    @Test
+    public void samplesOneInN() {
+        sampler.setDefaultSampleRate(10);
+        int sampled = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (sampler.sample(message)) sampled++;
+        }
+        Assert.assertTrue(sampled > 700 && sampled < 1300);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativeRate() {
+        sampler.setSampleRate("iq", -1);
+    }
+}
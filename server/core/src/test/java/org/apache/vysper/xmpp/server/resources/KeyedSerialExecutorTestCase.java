@@ -0,0 +1,121 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.server.resources;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class KeyedSerialExecutorTestCase {
+
+    private final ExecutorService pool = Executors.newFixedThreadPool(8);
+
+    private final KeyedSerialExecutor executor = new KeyedSerialExecutor(pool);
+
+    @After
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void keepsOrderPerKey() throws Exception {
+        int keys = 4;
+        int tasksPerKey = 2000;
+        final List<List<Integer>> executed = new ArrayList<List<Integer>>();
+        for (int key = 0; key < keys; key++) {
+            executed.add(Collections.synchronizedList(new ArrayList<Integer>()));
+        }
+        final CountDownLatch done = new CountDownLatch(keys * tasksPerKey);
+        for (int i = 0; i < tasksPerKey; i++) {
+            for (int key = 0; key < keys; key++) {
+                final List<Integer> keyExecuted = executed.get(key);
+                final int sequence = i;
+                executor.execute("key" + key, () -> {
+                    keyExecuted.add(sequence);
+                    done.countDown();
+                });
+            }
+        }
+        Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+        for (List<Integer> keyExecuted : executed) {
+            Assert.assertEquals(tasksPerKey, keyExecuted.size());
+            for (int i = 0; i < tasksPerKey; i++) {
+                Assert.assertEquals(i, keyExecuted.get(i).intValue());
+            }
+        }
+    }
+
+    @Test
+    public void runsDifferentKeysConcurrently() throws Exception {
+        final CountDownLatch bothRunning = new CountDownLatch(2);
+        final CountDownLatch done = new CountDownLatch(2);
+        Runnable task = () -> {
+            bothRunning.countDown();
+            try {
+                if (bothRunning.await(5, TimeUnit.SECONDS)) done.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        executor.execute("a", task);
+        executor.execute("b", task);
+        Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void dropsDrainedKeysAndSurvivesFailingTasks() throws Exception {
+        final CountDownLatch done = new CountDownLatch(1);
+        executor.execute("a", () -> {
+            throw new IllegalStateException("failing task");
+        });
+        executor.execute("a", done::countDown);
+        Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        long timeout = System.currentTimeMillis() + 5000;
+        while (executor.getActiveKeyCount() > 0 && System.currentTimeMillis() < timeout) {
+            Thread.sleep(5);
+        }
+        Assert.assertEquals(0, executor.getActiveKeyCount());
+    }
+
+    @Test
+    public void rejectsWhenShutdown() {
+        pool.shutdown();
+        try {
+            executor.execute("a", () -> {
+            });
+            Assert.fail("executor is shut down");
+        } catch (RejectedExecutionException e) {
+            Assert.assertEquals(0, executor.getActiveKeyCount());
+        }
+    }
+}
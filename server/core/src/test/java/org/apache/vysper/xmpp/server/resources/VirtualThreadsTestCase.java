@@ -0,0 +1,55 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.server.resources;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class VirtualThreadsTestCase {
+
+    @Test
+    public void runsTasksOnVirtualThreadsWhenAvailable() throws Exception {
+        if (!VirtualThreads.isAvailable()) {
+            try {
+                VirtualThreads.newThreadPerTaskExecutor("test-");
+                Assert.fail("virtual threads are not available");
+            } catch (UnsupportedOperationException e) {
+                // expected
+            }
+            return;
+        }
+        ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("test-");
+        try {
+            Future<Thread> thread = executor.submit(Thread::currentThread);
+            Thread taskThread = thread.get(5, TimeUnit.SECONDS);
+            Assert.assertTrue((Boolean) Thread.class.getMethod("isVirtual").invoke(taskThread));
+            Assert.assertTrue(taskThread.getName().startsWith("test-"));
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -30,6 +30,8 @@ import org.apache.vysper.xmpp.authentication.Anonymous;
 import org.apache.vysper.xmpp.authentication.External;
 import org.apache.vysper.xmpp.authentication.Plain;
 import org.apache.vysper.xmpp.authentication.SASLMechanism;
+import org.apache.vysper.xmpp.modules.extension.xep0138_stream_compression.CompressibleSession;
+import org.apache.vysper.xmpp.modules.extension.xep0138_stream_compression.StreamCompressionModule;
 import org.apache.vysper.xmpp.parser.ParsingException;
 import org.apache.vysper.xmpp.protocol.NamespaceURIs;
 import org.apache.vysper.xmpp.server.ServerRuntimeContext;
@@ -142,6 +144,64 @@ public class ServerResponsesTestCase {
         Assert.assertEquals(expected, actual);
     }
 
+    @Test
+    public void getStreamOpenerForServerAcceptorEncryptedCompressionOffered() throws ParsingException {
+        CompressibleSession compressibleSession = compressibleSession(false);
+        Mockito.when(compressibleSession.getState()).thenReturn(SessionState.ENCRYPTED);
+
+        Stanza expected = new StanzaBuilder("stream", NamespaceURIs.HTTP_ETHERX_JABBER_ORG_STREAMS, "stream")
+            .addAttribute("from", FROM.getFullQualifiedName())
+            .addAttribute("version", "1.0")
+            .declareNamespace("db", NamespaceURIs.JABBER_SERVER_DIALBACK)
+            .declareNamespace("", NamespaceURIs.JABBER_SERVER)
+            .startInnerElement("features", NamespaceURIs.HTTP_ETHERX_JABBER_ORG_STREAMS)
+                .startInnerElement("compression", NamespaceURIs.JABBER_ORG_FEATURES_COMPRESS)
+                    .startInnerElement("method", NamespaceURIs.JABBER_ORG_FEATURES_COMPRESS).addText("zlib").endInnerElement()
+                .endInnerElement()
+                .startInnerElement("dialback", NamespaceURIs.URN_XMPP_FEATURES_DIALBACK).endInnerElement()
+            .endInnerElement()
+            .build();
+
+        Stanza actual = new ServerResponses().getStreamOpenerForServerAcceptor(FROM, VERSION, compressibleSession, true);
+        Assert.assertEquals(expected, actual);
+    }
+
+    @Test
+    public void featuresForSessionOfferCompression() {
+        Stanza features = new ServerResponses().getFeaturesForSession(compressibleSession(false));
+        Assert.assertEquals(1, features.getInnerElementsNamed("compression",
+                NamespaceURIs.JABBER_ORG_FEATURES_COMPRESS).size());
+        Assert.assertEquals("zlib", features.getInnerElementsNamed("compression",
+                NamespaceURIs.JABBER_ORG_FEATURES_COMPRESS).get(0).getFirstInnerElement().getInnerText().getText());
+    }
+
+    @Test
+    public void featuresForCompressedSession() {
+        Stanza features = new ServerResponses().getFeaturesForSession(compressibleSession(true));
+        Assert.assertTrue(features.getInnerElementsNamed("compression",
+                NamespaceURIs.JABBER_ORG_FEATURES_COMPRESS).isEmpty());
+    }
+
+    @Test
+    public void featuresForSessionWithoutCompressionModule() {
+        CompressibleSession compressibleSession = compressibleSession(false);
+        ServerRuntimeContext withoutModule = Mockito.mock(ServerRuntimeContext.class);
+        Mockito.when(compressibleSession.getServerRuntimeContext()).thenReturn(withoutModule);
+        Stanza features = new ServerResponses().getFeaturesForSession(compressibleSession);
+        Assert.assertTrue(features.getInnerElementsNamed("compression",
+                NamespaceURIs.JABBER_ORG_FEATURES_COMPRESS).isEmpty());
+    }
+
+    private CompressibleSession compressibleSession(boolean compressed) {
+        ServerRuntimeContext serverRuntimeContext = Mockito.mock(ServerRuntimeContext.class);
+        Mockito.when(serverRuntimeContext.getModule(StreamCompressionModule.class))
+                .thenReturn(new StreamCompressionModule());
+        CompressibleSession compressibleSession = Mockito.mock(CompressibleSession.class);
+        Mockito.when(compressibleSession.getServerRuntimeContext()).thenReturn(serverRuntimeContext);
+        Mockito.when(compressibleSession.isCompressed()).thenReturn(compressed);
+        return compressibleSession;
+    }
+
     @Test
     public void getStreamOpenerForServerConnector() throws ParsingException {
         Mockito.when(sessionContext.getXMLLang()).thenReturn("sv");
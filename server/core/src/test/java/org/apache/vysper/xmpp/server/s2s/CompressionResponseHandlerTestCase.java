@@ -0,0 +1,113 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.server.s2s;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.apache.vysper.xmpp.addressing.Entity;
+import org.apache.vysper.xmpp.addressing.EntityImpl;
+import org.apache.vysper.xmpp.modules.extension.xep0138_stream_compression.CompressibleSession;
+import org.apache.vysper.xmpp.modules.extension.xep0138_stream_compression.StreamCompressionModule;
+import org.apache.vysper.xmpp.protocol.NamespaceURIs;
+import org.apache.vysper.xmpp.protocol.RecordingStanzaBroker;
+import org.apache.vysper.xmpp.protocol.SessionStateHolder;
+import org.apache.vysper.xmpp.server.ServerRuntimeContext;
+import org.apache.vysper.xmpp.server.SessionState;
+import org.apache.vysper.xmpp.stanza.Stanza;
+import org.apache.vysper.xmpp.stanza.StanzaBuilder;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class CompressionResponseHandlerTestCase {
+
+    private static final Entity FROM = EntityImpl.parseUnchecked("other.org");
+
+    private static final Entity TO = EntityImpl.parseUnchecked("vysper.org");
+
+    private CompressionResponseHandler handler = new CompressionResponseHandler();
+
+    private ServerRuntimeContext serverRuntimeContext = mock(ServerRuntimeContext.class);
+
+    private CompressibleSession sessionContext = mock(CompressibleSession.class);
+
+    private SessionStateHolder sessionStateHolder = new SessionStateHolder();
+
+    private RecordingStanzaBroker stanzaBroker = new RecordingStanzaBroker();
+
+    @Before
+    public void before() {
+        StreamCompressionModule module = new StreamCompressionModule();
+        module.setCompressionLevel(4);
+        when(serverRuntimeContext.getModule(StreamCompressionModule.class)).thenReturn(module);
+        when(serverRuntimeContext.getServerEntity()).thenReturn(TO);
+
+        when(sessionContext.getInitiatingEntity()).thenReturn(FROM);
+        when(sessionContext.getSessionId()).thenReturn("session-id");
+
+        sessionStateHolder.setState(SessionState.ENCRYPTED);
+    }
+
+    @Test
+    public void verifyStanza() {
+        Assert.assertTrue(handler.verify(new StanzaBuilder("compressed", NamespaceURIs.XEP0138_STREAM_COMPRESSION)
+                .build()));
+        Assert.assertTrue(handler.verify(new StanzaBuilder("failure", NamespaceURIs.XEP0138_STREAM_COMPRESSION)
+                .build()));
+        Assert.assertFalse(handler.verify(new StanzaBuilder("failure", NamespaceURIs.URN_IETF_PARAMS_XML_NS_XMPP_TLS)
+                .build()));
+        Assert.assertFalse(handler.verify(null));
+    }
+
+    @Test
+    public void compressedRestartsStream() {
+        Stanza compressed = new StanzaBuilder("compressed", NamespaceURIs.XEP0138_STREAM_COMPRESSION).build();
+
+        handler.execute(compressed, serverRuntimeContext, false, sessionContext, sessionStateHolder, stanzaBroker);
+
+        // the connector has received <compressed/>, so everything it sends from now on is compressed
+        verify(sessionContext).switchToCompression(false, 4);
+        verify(sessionContext).setIsReopeningXMLStream();
+        Stanza opener = stanzaBroker.getUniqueStanzaWrittenToSession();
+        Assert.assertEquals("stream", opener.getName());
+        Assert.assertEquals(TO.getFullQualifiedName(), opener.getAttributeValue("from"));
+        Assert.assertEquals(FROM.getDomain(), opener.getAttributeValue("to"));
+    }
+
+    @Test
+    public void failureContinuesWithDialback() {
+        Stanza failure = new StanzaBuilder("failure", NamespaceURIs.XEP0138_STREAM_COMPRESSION)
+                .startInnerElement("setup-failed", NamespaceURIs.XEP0138_STREAM_COMPRESSION).endInnerElement().build();
+
+        handler.execute(failure, serverRuntimeContext, false, sessionContext, sessionStateHolder, stanzaBroker);
+
+        verify(sessionContext, never()).switchToCompression(false, 4);
+        Stanza dbResult = stanzaBroker.getUniqueStanzaWrittenToSession();
+        Assert.assertEquals("result", dbResult.getName());
+        Assert.assertEquals(NamespaceURIs.JABBER_SERVER_DIALBACK, dbResult.getNamespaceURI());
+        Assert.assertEquals(FROM.getDomain(), dbResult.getAttributeValue("to"));
+    }
+}
@@ -26,6 +26,8 @@ import javax.net.ssl.SSLContext;
 import org.apache.vysper.StanzaAssert;
 import org.apache.vysper.xmpp.addressing.Entity;
 import org.apache.vysper.xmpp.addressing.EntityImpl;
+import org.apache.vysper.xmpp.modules.extension.xep0138_stream_compression.CompressibleSession;
+import org.apache.vysper.xmpp.modules.extension.xep0138_stream_compression.StreamCompressionModule;
 import org.apache.vysper.xmpp.protocol.NamespaceURIs;
 import org.apache.vysper.xmpp.protocol.RecordingStanzaBroker;
 import org.apache.vysper.xmpp.protocol.SessionStateHolder;
@@ -147,6 +149,62 @@ public class FeaturesHandlerTestCase {
         assertDialbackStanza(stanzaBroker.getUniqueStanzaWrittenToSession());
     }
 
+    @Test
+    public void executeCompression() {
+        CompressibleSession compressibleSession = compressibleSession();
+        Mockito.when(serverRuntimeContext.getModule(StreamCompressionModule.class))
+                .thenReturn(new StreamCompressionModule());
+        sessionStateHolder.setState(SessionState.ENCRYPTED);
+
+        handler.execute(compressionFeatures(), serverRuntimeContext, true, compressibleSession, sessionStateHolder,
+                stanzaBroker);
+
+        Stanza expectedResponse = new StanzaBuilder("compress", NamespaceURIs.XEP0138_STREAM_COMPRESSION)
+                .startInnerElement("method", NamespaceURIs.XEP0138_STREAM_COMPRESSION).addText("zlib")
+                .endInnerElement().build();
+        StanzaAssert.assertEquals(expectedResponse, stanzaBroker.getUniqueStanzaWrittenToSession());
+    }
+
+    @Test
+    public void executeCompressionAlreadyCompressed() {
+        CompressibleSession compressibleSession = compressibleSession();
+        Mockito.when(compressibleSession.isCompressed()).thenReturn(true);
+        Mockito.when(serverRuntimeContext.getModule(StreamCompressionModule.class))
+                .thenReturn(new StreamCompressionModule());
+        sessionStateHolder.setState(SessionState.ENCRYPTED);
+
+        handler.execute(compressionFeatures(), serverRuntimeContext, true, compressibleSession, sessionStateHolder,
+                stanzaBroker);
+
+        assertDialbackStanza(stanzaBroker.getUniqueStanzaWrittenToSession());
+    }
+
+    @Test
+    public void executeCompressionWithoutModule() {
+        CompressibleSession compressibleSession = compressibleSession();
+        sessionStateHolder.setState(SessionState.ENCRYPTED);
+
+        handler.execute(compressionFeatures(), serverRuntimeContext, true, compressibleSession, sessionStateHolder,
+                stanzaBroker);
+
+        assertDialbackStanza(stanzaBroker.getUniqueStanzaWrittenToSession());
+    }
+
+    private CompressibleSession compressibleSession() {
+        CompressibleSession compressibleSession = mock(CompressibleSession.class);
+        Mockito.when(compressibleSession.getInitiatingEntity()).thenReturn(FROM);
+        Mockito.when(compressibleSession.getSessionId()).thenReturn("session-id");
+        return compressibleSession;
+    }
+
+    private Stanza compressionFeatures() {
+        return new StanzaBuilder("features", NamespaceURIs.HTTP_ETHERX_JABBER_ORG_STREAMS)
+                .startInnerElement("compression", NamespaceURIs.JABBER_ORG_FEATURES_COMPRESS)
+                .startInnerElement("method", NamespaceURIs.JABBER_ORG_FEATURES_COMPRESS).addText("zlib")
+                .endInnerElement().endInnerElement()
+                .startInnerElement("dialback", NamespaceURIs.URN_XMPP_FEATURES_DIALBACK).endInnerElement().build();
+    }
+
     @Test
     public void executeWhenAuthenticated() {
         sessionStateHolder.setState(SessionState.AUTHENTICATED);
@@ -0,0 +1,144 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.server.trace;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.vysper.xmpp.protocol.NamespaceURIs;
+import org.apache.vysper.xmpp.stanza.Stanza;
+import org.apache.vysper.xmpp.stanza.StanzaBuilder;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class StanzaTracerTestCase {
+
+    private final List<StanzaTrace> completed = new ArrayList<StanzaTrace>();
+
+    private final StanzaTraceListener listener = completed::add;
+
+    private final Stanza stanza = new StanzaBuilder("iq", NamespaceURIs.JABBER_CLIENT).addAttribute("id", "q1")
+            .startInnerElement("query", NamespaceURIs.JABBER_IQ_ROSTER).endInnerElement().build();
+
+    @After
+    public void tearDown() {
+        StanzaTracer.uninstall(listener);
+    }
+
+    @Test
+    public void disabledWithoutListener() {
+        Assert.assertFalse(StanzaTracer.isEnabled());
+        Assert.assertNull(StanzaTracer.newTrace(stanza));
+        Assert.assertNull(StanzaTracer.branchForRelay());
+    }
+
+    @Test
+    public void tracesStagesOfCurrentThread() {
+        StanzaTracer.install(listener, 1);
+        StanzaTrace trace = StanzaTracer.newTrace(stanza);
+        Assert.assertEquals("iq (jabber:iq:roster) id=q1", trace.getDescription());
+        trace.stamp(TracePoint.READ, 1000);
+        trace.stamp(TracePoint.DECODED, 3000);
+
+        StanzaTrace previous = StanzaTracer.begin(trace);
+        Assert.assertNull(previous);
+        Assert.assertSame(trace, StanzaTracer.current());
+        StanzaTracer.stamp(TracePoint.HANDLER_START);
+        StanzaTracer.stamp(TracePoint.HANDLER_END);
+        StanzaTracer.end(trace, previous);
+
+        Assert.assertNull(StanzaTracer.current());
+        Assert.assertEquals(1, completed.size());
+        Assert.assertEquals(2000, trace.getDuration(Stage.PARSE));
+        Assert.assertTrue(trace.getDuration(Stage.HANDLER) >= 0);
+        Assert.assertEquals(-1, trace.getDuration(Stage.DELIVERY));
+        Assert.assertTrue(trace.getBreakdown().startsWith("parse=0.002ms session_queue="));
+    }
+
+    @Test
+    public void firstStampWins() {
+        StanzaTrace trace = new StanzaTrace("test");
+        trace.stamp(TracePoint.HANDLER_START, 10);
+        trace.stamp(TracePoint.HANDLER_START, 20);
+        trace.stamp(TracePoint.HANDLER_END, 50);
+        Assert.assertEquals(40, trace.getDuration(Stage.HANDLER));
+    }
+
+    @Test
+    public void branchSharesStampsBeforeRelay() {
+        StanzaTracer.install(listener, 1);
+        StanzaTrace trace = new StanzaTrace("test");
+        trace.stamp(TracePoint.DECODED, 100);
+        trace.stamp(TracePoint.HANDLER_START, 200);
+
+        StanzaTrace previous = StanzaTracer.begin(trace);
+        StanzaTrace branch = StanzaTracer.branchForRelay();
+        StanzaTracer.end(trace, previous);
+
+        Assert.assertTrue(branch.isStamped(TracePoint.RELAY_ENQUEUED));
+        Assert.assertFalse(trace.isStamped(TracePoint.RELAY_ENQUEUED));
+        Assert.assertEquals(100, branch.getDuration(Stage.SESSION_QUEUE));
+        Assert.assertFalse(branch.owns(Stage.SESSION_QUEUE));
+        Assert.assertTrue(branch.owns(Stage.RELAY_QUEUE));
+        Assert.assertTrue(trace.owns(Stage.SESSION_QUEUE));
+    }
+
+    @Test
+    public void nestedTraceRestoresPrevious() {
+        StanzaTracer.install(listener, 1);
+        StanzaTrace outer = new StanzaTrace("outer");
+        StanzaTrace inner = new StanzaTrace("inner");
+        StanzaTrace outerPrevious = StanzaTracer.begin(outer);
+        StanzaTrace innerPrevious = StanzaTracer.begin(inner);
+        Assert.assertSame(outer, innerPrevious);
+        StanzaTracer.end(inner, innerPrevious);
+        Assert.assertSame(outer, StanzaTracer.current());
+        StanzaTracer.end(outer, outerPrevious);
+        Assert.assertNull(StanzaTracer.current());
+    }
+
+    @Test
+    public void nullTraceIsNoop() {
+        StanzaTracer.install(listener, 1);
+        Assert.assertNull(StanzaTracer.begin(null));
+        StanzaTracer.stamp(TracePoint.HANDLER_START);
+        StanzaTracer.end(null, null);
+        Assert.assertTrue(completed.isEmpty());
+    }
+
+    @Test
+    public void samplesStanzas() {
+        StanzaTracer.install(listener, 4);
+        int traced = 0;
+        for (int i = 0; i < 4000; i++) {
+            if (StanzaTracer.newTrace(stanza) != null) traced++;
+        }
+        Assert.assertTrue(traced > 700 && traced < 1300);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsInvalidSampleRate() {
+        StanzaTracer.install(listener, 0);
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.uuid;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class UUIDGeneratorTestCase {
+
+    private static final int THREADS = 4;
+
+    private static final int IDS_PER_THREAD = 20000;
+
+    @Test
+    public void secureIdsAreUnique() throws Exception {
+        assertUniqueHexIds(new SecureUUIDGenerator());
+    }
+
+    @Test
+    public void fastIdsAreUnique() throws Exception {
+        assertUniqueHexIds(new FastUUIDGenerator());
+    }
+
+    @Test
+    public void timeBasedIdsAreUnique() throws Exception {
+        assertUniqueHexIds(new TimeBasedUUIDGenerator());
+    }
+
+    @Test
+    public void timeBasedIdsIncreasePerThread() {
+        TimeBasedUUIDGenerator generator = new TimeBasedUUIDGenerator();
+        String previous = generator.create();
+        for (int i = 0; i < 100000; i++) {
+            String id = generator.create();
+            Assert.assertTrue(id + " after " + previous, id.compareTo(previous) > 0);
+            previous = id;
+        }
+    }
+
+    @Test
+    public void timeBasedIdsSortByTime() throws Exception {
+        TimeBasedUUIDGenerator generator = new TimeBasedUUIDGenerator();
+        String first = generator.create();
+        Thread.sleep(5);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            String later = executor.submit(generator::create).get();
+            Assert.assertTrue(later.compareTo(first) > 0);
+        } finally {
+            executor.shutdown();
+        }
+        long millis = Long.parseLong(first.substring(0, 12), 16);
+        Assert.assertTrue(Math.abs(System.currentTimeMillis() - millis) < 60000);
+    }
+
+    private void assertUniqueHexIds(final UUIDGenerator generator) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<List<String>>> futures = new ArrayList<Future<List<String>>>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(new Callable<List<String>>() {
+                    public List<String> call() {
+                        List<String> ids = new ArrayList<String>(IDS_PER_THREAD);
+                        for (int i = 0; i < IDS_PER_THREAD; i++) {
+                            ids.add(generator.create());
+                        }
+                        return ids;
+                    }
+                }));
+            }
+            Set<String> ids = Collections.synchronizedSet(new HashSet<String>());
+            for (Future<List<String>> future : futures) {
+                for (String id : future.get()) {
+                    Assert.assertTrue(id, id.matches("[0-9a-f]{32}"));
+                    Assert.assertTrue("duplicate " + id, ids.add(id));
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -33,7 +33,8 @@ import org.slf4j.LoggerFactory;
  *
  * @author The Apache MINA Project (dev@mina.apache.org)
  */
-public class JettyXmppWebSocket implements WebSocket, WebSocket.OnTextMessage, Outbound {
+public class JettyXmppWebSocket implements WebSocket, WebSocket.OnTextMessage, WebSocket.OnBinaryMessage,
+        Outbound {
 
     private final static Logger LOG = LoggerFactory.getLogger(JettyXmppWebSocket.class);
 
@@ -60,6 +61,11 @@ public class JettyXmppWebSocket implements WebSocket, WebSocket.OnTextMessage, O
         sessionContext.onMessage(data);
     }
 
+    public void onMessage(byte[] data, int offset, int length) {
+        LOG.info("< {} bytes", length);
+        sessionContext.onMessage(data, offset, length);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -30,4 +30,12 @@ import java.io.IOException;
 public interface Outbound {
 
   void write(String data) throws IOException;
+
+  /**
+   * writes one text frame. the frame buffer is reused by the caller once this method returns,
+   * implementations must not keep a reference to it.
+   */
+  default void writeFrame(CharSequence frame) throws IOException {
+    write(frame.toString());
+  }
 }
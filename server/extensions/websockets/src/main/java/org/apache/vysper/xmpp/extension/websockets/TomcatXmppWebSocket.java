@@ -59,15 +59,14 @@ public class TomcatXmppWebSocket extends MessageInbound implements Outbound {
 
     @Override
     protected void onBinaryMessage(ByteBuffer message) throws IOException {
-      throw new UnsupportedOperationException(
-          "Binary message not supported.");
+        LOG.info("< {} bytes", message.remaining());
+        sessionContext.onMessage(message);
     }
 
     @Override
     protected void onTextMessage(CharBuffer message) throws IOException {
-        String data = message.toString();
-        LOG.info("< " + data);
-        sessionContext.onMessage(data);
+        LOG.info("< {}", message);
+        sessionContext.onMessage(message);
     }
 
     /**
@@ -84,4 +83,11 @@ public class TomcatXmppWebSocket extends MessageInbound implements Outbound {
         CharBuffer buffer = CharBuffer.wrap(xml);
         outbound.writeTextMessage(buffer);
     }
+
+    @Override
+    public void writeFrame(CharSequence frame) throws IOException {
+        LOG.info("> {}", frame);
+        // the frame is encoded before writeTextMessage returns, no need to copy it into a String
+        outbound.writeTextMessage(CharBuffer.wrap(frame));
+    }
 }
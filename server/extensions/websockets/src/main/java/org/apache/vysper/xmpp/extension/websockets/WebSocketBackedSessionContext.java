@@ -20,9 +20,15 @@
 package org.apache.vysper.xmpp.extension.websockets;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
 import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 import org.apache.mina.core.buffer.IoBuffer;
 import org.apache.vysper.mina.codec.StanzaBuilderFactory;
@@ -47,6 +53,10 @@ import org.xml.sax.SAXException;
 
 /**
  * Specialized {@link SessionContext} for Websocket endpoints.
+ * <br>
+ * binary frames are parsed straight from the container's buffer, text frames are encoded into a
+ * pooled buffer. outbound stanzas are rendered into pooled frame buffers, which are handed to the
+ * {@link Outbound} as a {@link CharSequence}.
  *
  * @author The Apache MINA Project (dev@mina.apache.org)
  */
@@ -54,7 +64,24 @@ public class WebSocketBackedSessionContext extends AbstractSessionContext implem
 
     private final static Charset CHARSET = StandardCharsets.UTF_8;
 
-    private final static CharsetDecoder CHARSET_DECODER = CHARSET.newDecoder();
+    /**
+     * frame buffers larger than this are not returned to the pools, so that one huge stanza does not
+     * pin its buffer for the lifetime of the server
+     */
+    private final static int MAX_POOLED_BUFFER_SIZE = 16 * 1024;
+
+    private final static int FRAME_BUFFER_POOL_SIZE = 64;
+
+    private final static BlockingQueue<StringBuilder> OUTBOUND_FRAME_BUFFERS = new ArrayBlockingQueue<StringBuilder>(
+            FRAME_BUFFER_POOL_SIZE);
+
+    private final static BlockingQueue<IoBuffer> INBOUND_FRAME_BUFFERS = new ArrayBlockingQueue<IoBuffer>(
+            FRAME_BUFFER_POOL_SIZE);
+
+    // decoders and encoders are stateful and must not be shared between sessions
+    private final CharsetDecoder charsetDecoder = CHARSET.newDecoder();
+
+    private final CharsetEncoder charsetEncoder = CHARSET.newEncoder();
 
     private NonBlockingXMLReader xmlReader = new DefaultNonBlockingXMLReader();
     
@@ -90,7 +117,7 @@ public class WebSocketBackedSessionContext extends AbstractSessionContext implem
      * {@inheritDoc}
      */
     public StanzaWriter getResponseWriter() {
-        return this;
+        return filterResponseWriter(this);
     }
 
     /**
@@ -121,20 +148,59 @@ public class WebSocketBackedSessionContext extends AbstractSessionContext implem
         sessionStateHolder.setState(SessionState.ENCRYPTED);
     }
 
-    public void onMessage(String data) {
+    /**
+     * parses a text frame
+     */
+    public void onMessage(CharSequence data) {
+        IoBuffer buffer = acquireInboundBuffer();
+        try {
+            charsetEncoder.reset();
+            buffer.putString(data, charsetEncoder);
+            buffer.flip();
+        } catch (CharacterCodingException e) {
+            releaseInboundBuffer(buffer);
+            onNotWellFormed();
+            return;
+        }
+        try {
+            parse(buffer);
+        } finally {
+            releaseInboundBuffer(buffer);
+        }
+    }
+
+    /**
+     * parses a binary frame without copying it, the parser does not keep a reference to the data
+     */
+    public void onMessage(byte[] data, int offset, int length) {
+        parse(IoBuffer.wrap(data, offset, length));
+    }
+
+    /**
+     * parses a binary frame without copying it, the parser does not keep a reference to the data
+     */
+    public void onMessage(ByteBuffer data) {
+        parse(IoBuffer.wrap(data));
+    }
+
+    private void parse(IoBuffer buffer) {
         try {
-            xmlReader.parse(IoBuffer.wrap(data.getBytes(CHARSET.name())), CHARSET_DECODER);
+            xmlReader.parse(buffer, charsetDecoder);
         } catch (IOException e) {
-            // should never happen since we read from a string
+            // should never happen since we read from memory
             throw new RuntimeException(e);
         } catch (SAXException e) {
-            Stanza errorStanza = ServerErrorResponses.getStreamError(StreamErrorCondition.XML_NOT_WELL_FORMED,
-                    getXMLLang(), "Stanza not well-formed", null);
-            write(errorStanza);
-            endSession(SessionTerminationCause.STREAM_ERROR);
+            onNotWellFormed();
         }
     }
 
+    private void onNotWellFormed() {
+        Stanza errorStanza = ServerErrorResponses.getStreamError(StreamErrorCondition.XML_NOT_WELL_FORMED,
+                getXMLLang(), "Stanza not well-formed", null);
+        write(errorStanza);
+        endSession(SessionTerminationCause.STREAM_ERROR);
+    }
+
     public void onClose() {
         endSession(SessionTerminationCause.CONNECTION_ABORT);
     }
@@ -143,27 +209,76 @@ public class WebSocketBackedSessionContext extends AbstractSessionContext implem
      * {@inheritDoc}
      */
     public void write(Stanza stanza) {
-        // handle stream open
+        StringBuilder frame = acquireOutboundBuffer();
+        try {
+            write(stanza, frame);
+        } finally {
+            releaseOutboundBuffer(frame);
+        }
+    }
+
+    /**
+     * renders all stanzas through one pooled frame buffer. every stanza still gets its own frame,
+     * since a WebSocket message must carry exactly one complete XML element (RFC 7395).
+     */
+    @Override
+    public void writeBatch(Collection<Stanza> stanzas) {
+        StringBuilder frame = acquireOutboundBuffer();
+        try {
+            for (Stanza stanza : stanzas) {
+                write(stanza, frame);
+                frame.setLength(0);
+            }
+        } finally {
+            releaseOutboundBuffer(frame);
+        }
+    }
+
+    private void write(Stanza stanza, StringBuilder frame) {
         Renderer renderer = new Renderer(stanza);
+        // handle stream open
         if ("stream".equals(stanza.getName())
                 && NamespaceURIs.HTTP_ETHERX_JABBER_ORG_STREAMS.equals(stanza.getNamespaceURI())) {
             // stream:stream and stream:features comes at the same time, split them
-            write(renderer.getOpeningElement());
-            write(renderer.getElementContent());
+            writeFrame(renderer.appendOpeningElement(frame));
+            frame.setLength(0);
+            writeFrame(renderer.appendElementContent(frame));
         } else {
-            write(renderer.getComplete());
+            writeFrame(renderer.appendComplete(frame));
         }
     }
 
-    private void write(String xml) {
+    private void writeFrame(CharSequence frame) {
         try {
-            outbound.write(xml);
+            outbound.writeFrame(frame);
         } catch (IOException e) {
             // communication with client broken, close session
             endSession(SessionTerminationCause.CONNECTION_ABORT);
         }
     }
 
+    private static StringBuilder acquireOutboundBuffer() {
+        StringBuilder buffer = OUTBOUND_FRAME_BUFFERS.poll();
+        return buffer != null ? buffer : new StringBuilder(1024);
+    }
+
+    private static void releaseOutboundBuffer(StringBuilder buffer) {
+        if (buffer.capacity() > MAX_POOLED_BUFFER_SIZE) return;
+        buffer.setLength(0);
+        OUTBOUND_FRAME_BUFFERS.offer(buffer);
+    }
+
+    private static IoBuffer acquireInboundBuffer() {
+        IoBuffer buffer = INBOUND_FRAME_BUFFERS.poll();
+        return buffer != null ? buffer : IoBuffer.allocate(1024).setAutoExpand(true);
+    }
+
+    private static void releaseInboundBuffer(IoBuffer buffer) {
+        if (buffer.capacity() > MAX_POOLED_BUFFER_SIZE) return;
+        buffer.clear();
+        INBOUND_FRAME_BUFFERS.offer(buffer);
+    }
+
     /**
      * {@inheritDoc}
      */
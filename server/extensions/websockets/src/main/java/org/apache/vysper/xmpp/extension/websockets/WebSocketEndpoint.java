@@ -20,12 +20,19 @@
 package org.apache.vysper.xmpp.extension.websockets;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
 
+import org.apache.vysper.xmpp.cryptography.TLSSessionCache;
 import org.apache.vysper.xmpp.protocol.StanzaProcessor;
 import org.apache.vysper.xmpp.server.Endpoint;
 import org.apache.vysper.xmpp.server.ServerRuntimeContext;
+import org.eclipse.jetty.io.EndPoint;
+import org.eclipse.jetty.io.nio.SslConnection;
 import org.eclipse.jetty.server.Connector;
 import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.Request;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.server.handler.HandlerCollection;
 import org.eclipse.jetty.server.nio.SelectChannelConnector;
@@ -100,6 +107,8 @@ public class WebSocketEndpoint implements Endpoint {
      * <p>
      * If SSL is enabled it requires SSL certificate information that can be
      * configured with {@link #setSSLCertificateKeystore(String, String)}
+     * Without a keystore, the server's certificate is used, and TLS sessions
+     * are resumed from the same cache as on the XMPP endpoints.
      * @param value
      */
     public void setSSLEnabled(boolean value) {
@@ -126,10 +135,21 @@ public class WebSocketEndpoint implements Endpoint {
 
         Connector connector;
         if (isSSLEnabled) {
-            SslSelectChannelConnector sslConnector = new SslSelectChannelConnector();
-            sslConnector.setKeystore(sslKeystorePath);
-            sslConnector.setPassword(sslKeystorePassword);
-            sslConnector.setKeyPassword(sslKeystorePassword);
+            TLSSessionCache tlsSessionCache = (TLSSessionCache) serverRuntimeContext
+                    .getServerRuntimeContextService(TLSSessionCache.SERVICE_NAME);
+            SslSelectChannelConnector sslConnector = new HandshakeCountingConnector(tlsSessionCache);
+            if (sslKeystorePath == null && tlsSessionCache != null) {
+                // use the server's certificate, and share its TLS session cache
+                sslConnector.getSslContextFactory().setSslContext(tlsSessionCache.getSslContext());
+            } else {
+                sslConnector.setKeystore(sslKeystorePath);
+                sslConnector.setPassword(sslKeystorePassword);
+                sslConnector.setKeyPassword(sslKeystorePassword);
+                if (tlsSessionCache != null) {
+                    sslConnector.getSslContextFactory().setSslSessionCacheSize(tlsSessionCache.getSessionCacheSize());
+                    sslConnector.getSslContextFactory().setSslSessionTimeout(tlsSessionCache.getSessionTimeout());
+                }
+            }
             connector = sslConnector;
         } else {
             connector = new SelectChannelConnector();
@@ -190,4 +210,29 @@ public class WebSocketEndpoint implements Endpoint {
         }
     }
 
+    /**
+     * counts the TLS handshake of each connection with its first request
+     */
+    private static class HandshakeCountingConnector extends SslSelectChannelConnector {
+
+        private final TLSSessionCache tlsSessionCache;
+
+        private final Set<EndPoint> counted = Collections
+                .synchronizedSet(Collections.newSetFromMap(new WeakHashMap<EndPoint, Boolean>()));
+
+        HandshakeCountingConnector(TLSSessionCache tlsSessionCache) {
+            this.tlsSessionCache = tlsSessionCache;
+        }
+
+        @Override
+        public void customize(EndPoint endpoint, Request request) throws IOException {
+            super.customize(endpoint, request);
+            if (tlsSessionCache != null && endpoint instanceof SslConnection.SslEndPoint && counted.add(endpoint)) {
+                SslConnection.SslEndPoint sslEndPoint = (SslConnection.SslEndPoint) endpoint;
+                // the handshake starts right after the connection has been accepted
+                tlsSessionCache.handshakeCompleted(sslEndPoint.getSslEngine().getSession(),
+                        sslEndPoint.getConnection().getTimeStamp());
+            }
+        }
+    }
 }
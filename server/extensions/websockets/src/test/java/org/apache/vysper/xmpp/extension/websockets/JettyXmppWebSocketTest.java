@@ -53,6 +53,17 @@ public class JettyXmppWebSocketTest {
                 Mockito.any(InternalSessionContext.class), Mockito.eq(expected), Mockito.any(SessionStateHolder.class));
     }
 
+    @Test
+    public void onBinaryMessage() throws Exception {
+        JettyXmppWebSocket context = new JettyXmppWebSocket(serverRuntimeContext, stanzaProcessor);
+        byte[] frame = "xx<test></test>xx".getBytes("UTF-8");
+        context.onMessage(frame, 2, frame.length - 4);
+
+        Stanza expected = new StanzaBuilder("test").build();
+        Mockito.verify(stanzaProcessor).processStanza(Mockito.eq(serverRuntimeContext),
+                Mockito.any(InternalSessionContext.class), Mockito.eq(expected), Mockito.any(SessionStateHolder.class));
+    }
+
     @Test
     public void write() throws IOException {
         JettyXmppWebSocket context = new JettyXmppWebSocket(serverRuntimeContext, stanzaProcessor);
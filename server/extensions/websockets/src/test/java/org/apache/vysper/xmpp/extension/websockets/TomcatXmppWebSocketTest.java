@@ -20,6 +20,7 @@
 package org.apache.vysper.xmpp.extension.websockets;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
 
 import org.apache.catalina.websocket.WsOutbound;
@@ -54,6 +55,16 @@ public class TomcatXmppWebSocketTest {
                 Mockito.any(InternalSessionContext.class), Mockito.eq(expected), Mockito.any(SessionStateHolder.class));
     }
 
+    @Test
+    public void onBinaryMessage() throws IOException {
+        TomcatXmppWebSocket context = new TomcatXmppWebSocket(serverRuntimeContext, stanzaProcessor);
+        context.onBinaryMessage(ByteBuffer.wrap("<test></test>".getBytes("UTF-8")));
+
+        Stanza expected = new StanzaBuilder("test").build();
+        Mockito.verify(stanzaProcessor).processStanza(Mockito.eq(serverRuntimeContext),
+                Mockito.any(InternalSessionContext.class), Mockito.eq(expected), Mockito.any(SessionStateHolder.class));
+    }
+
     @Test
     public void write() throws IOException {
         TomcatXmppWebSocket context = new TomcatXmppWebSocket(serverRuntimeContext, stanzaProcessor);
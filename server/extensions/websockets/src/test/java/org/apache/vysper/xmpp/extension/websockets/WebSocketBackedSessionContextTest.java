@@ -0,0 +1,79 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.extension.websockets;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.vysper.xmpp.protocol.StanzaProcessor;
+import org.apache.vysper.xmpp.server.ServerRuntimeContext;
+import org.apache.vysper.xmpp.stanza.StanzaBuilder;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/**
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class WebSocketBackedSessionContextTest {
+
+    private StanzaProcessor stanzaProcessor = Mockito.mock(StanzaProcessor.class);
+
+    private ServerRuntimeContext serverRuntimeContext = Mockito.mock(ServerRuntimeContext.class);
+
+    private List<String> frames = new ArrayList<String>();
+
+    @Test
+    public void writeReusesFrameBuffers() {
+        WebSocketBackedSessionContext context = new WebSocketBackedSessionContext(serverRuntimeContext,
+                stanzaProcessor, frames::add);
+
+        context.write(new StanzaBuilder("test").build());
+        context.write(new StanzaBuilder("other").build());
+
+        assertEquals(Arrays.asList("<test></test>", "<other></other>"), frames);
+    }
+
+    @Test
+    public void writeBatchSendsOneFramePerStanza() {
+        WebSocketBackedSessionContext context = new WebSocketBackedSessionContext(serverRuntimeContext,
+                stanzaProcessor, frames::add);
+
+        context.writeBatch(Arrays.asList(new StanzaBuilder("test").build(), new StanzaBuilder("other").build()));
+
+        assertEquals(Arrays.asList("<test></test>", "<other></other>"), frames);
+    }
+
+    @Test
+    public void writeSplitsStreamOpening() {
+        WebSocketBackedSessionContext context = new WebSocketBackedSessionContext(serverRuntimeContext,
+                stanzaProcessor, frames::add);
+
+        context.write(new StanzaBuilder("stream", "http://etherx.jabber.org/streams", "stream")
+                .startInnerElement("features", "http://etherx.jabber.org/streams").endInnerElement().build());
+
+        assertEquals(2, frames.size());
+        assertEquals("<stream:stream xmlns:stream=\"http://etherx.jabber.org/streams\">", frames.get(0));
+        assertEquals("<stream:features></stream:features>", frames.get(1));
+    }
+}
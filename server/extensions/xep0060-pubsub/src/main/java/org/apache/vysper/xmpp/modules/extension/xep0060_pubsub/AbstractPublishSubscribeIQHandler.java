@@ -24,7 +24,7 @@ import org.apache.vysper.xmpp.modules.core.base.handler.DefaultIQHandler;
 import org.apache.vysper.xmpp.modules.extension.xep0060_pubsub.handler.ErrorStanzaGenerator;
 import org.apache.vysper.xmpp.stanza.IQStanza;
 import org.apache.vysper.xmpp.stanza.Stanza;
-import org.apache.vysper.xmpp.uuid.JVMBuiltinUUIDGenerator;
+import org.apache.vysper.xmpp.uuid.FastUUIDGenerator;
 import org.apache.vysper.xmpp.uuid.UUIDGenerator;
 
 /**
@@ -51,7 +51,7 @@ public abstract class AbstractPublishSubscribeIQHandler extends DefaultIQHandler
      */
     public AbstractPublishSubscribeIQHandler(PubSubServiceConfiguration serviceConfiguration) {
         this.serviceConfiguration = serviceConfiguration;
-        this.idGenerator = new JVMBuiltinUUIDGenerator();
+        this.idGenerator = new FastUUIDGenerator();
         errorStanzaGenerator = new ErrorStanzaGenerator();
     }
 
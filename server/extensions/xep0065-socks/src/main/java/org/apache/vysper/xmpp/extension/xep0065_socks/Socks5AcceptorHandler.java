@@ -23,6 +23,9 @@ import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.mina.core.buffer.IoBuffer;
 import org.apache.mina.core.service.IoHandler;
@@ -44,6 +47,18 @@ public class Socks5AcceptorHandler extends IoHandlerAdapter {
 
     public static final AttributeKey PAIR_KEY = new AttributeKey(Socks5AcceptorHandler.class, "pair");
 
+    /**
+     * set while reading is suspended because the peer has too many bytes queued for writing
+     */
+    public static final AttributeKey BACKLOG_SUSPENDED_KEY = new AttributeKey(Socks5AcceptorHandler.class, "backlogSuspended");
+
+    /**
+     * set while reading is suspended because a bandwidth limit was reached
+     */
+    public static final AttributeKey THROTTLE_SUSPENDED_KEY = new AttributeKey(Socks5AcceptorHandler.class, "throttleSuspended");
+
+    public static final int DEFAULT_MAX_WRITE_BACKLOG_BYTES = 256 * 1024;
+
     private static final byte SOCKS_VERSION = 5;
 
     private static final byte AUTH_NO_AUTH = 0;
@@ -60,6 +75,16 @@ public class Socks5AcceptorHandler extends IoHandlerAdapter {
 
     private Socks5ConnectionsRegistry connections;
 
+    private final int maxWriteBacklogBytes;
+
+    private final long pairBytesPerSecond;
+
+    private final Socks5BandwidthLimiter globalBandwidthLimiter;
+
+    private final Socks5RelayStatistics statistics;
+
+    private ScheduledExecutorService throttleScheduler;
+
     public enum Socks5AuthType {
         NO_AUTH, USERNAME_PASSWORD
     }
@@ -191,7 +216,44 @@ public class Socks5AcceptorHandler extends IoHandlerAdapter {
     }
 
     public Socks5AcceptorHandler(Socks5ConnectionsRegistry connections) {
+        this(connections, DEFAULT_MAX_WRITE_BACKLOG_BYTES, 0, 0, new Socks5RelayStatistics());
+    }
+
+    /**
+     * @param connections the registry pairing the sessions
+     * @param maxWriteBacklogBytes the number of bytes queued for writing to a peer, above which reading from
+     *  the source is suspended. reading resumes once the backlog has drained to half this size.
+     * @param pairBytesPerSecond bandwidth limit for each pair, 0 for no limit
+     * @param globalBytesPerSecond bandwidth limit for all pairs together, 0 for no limit
+     * @param statistics counters to update while relaying
+     */
+    public Socks5AcceptorHandler(Socks5ConnectionsRegistry connections, int maxWriteBacklogBytes,
+            long pairBytesPerSecond, long globalBytesPerSecond, Socks5RelayStatistics statistics) {
         this.connections = connections;
+        this.maxWriteBacklogBytes = maxWriteBacklogBytes;
+        this.pairBytesPerSecond = pairBytesPerSecond;
+        this.globalBandwidthLimiter = globalBytesPerSecond > 0 ? new Socks5BandwidthLimiter(globalBytesPerSecond) : null;
+        this.statistics = statistics;
+        if (pairBytesPerSecond > 0 || globalBytesPerSecond > 0) {
+            throttleScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "socks5-throttle");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public Socks5RelayStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Stops the timer resuming throttled sessions
+     */
+    public void close() {
+        if (throttleScheduler != null) {
+            throttleScheduler.shutdownNow();
+        }
     }
 
     /**
@@ -250,7 +312,7 @@ public class Socks5AcceptorHandler extends IoHandlerAdapter {
             } else {
                 Socks5Pair pair = getPair(session);
                 if (pair != null && pair.isActivated()) {
-                    pair.getOther(session).write(message);
+                    relay(session, pair, buffer);
                 } else {
                     // writing before activated, close
                     pair.close();
@@ -262,6 +324,97 @@ public class Socks5AcceptorHandler extends IoHandlerAdapter {
         }
     }
 
+    /**
+     * Forwards a buffer to the other session of the pair. Suspends reading from the source if the
+     * other session cannot keep up, or if a bandwidth limit is exceeded.
+     */
+    private void relay(final IoSession source, final Socks5Pair pair, IoBuffer buffer) {
+        IoSession destination = pair.getOther(source);
+        int bytes = buffer.remaining();
+        destination.write(buffer);
+        pair.relayed(bytes);
+        statistics.relayed(bytes);
+
+        if (destination.getScheduledWriteBytes() > maxWriteBacklogBytes) {
+            suspendRead(source, pair, BACKLOG_SUSPENDED_KEY);
+            statistics.backlogSuspended();
+            // the backlog might have drained before reading was suspended, messageSent would not resume then
+            if (isBacklogDrained(destination)) {
+                resumeRead(source, pair, BACKLOG_SUSPENDED_KEY);
+            }
+        }
+
+        long pauseNanos = throttle(pair, bytes);
+        if (pauseNanos > 0) {
+            suspendRead(source, pair, THROTTLE_SUSPENDED_KEY);
+            statistics.throttleSuspended();
+            throttleScheduler.schedule(() -> resumeRead(source, pair, THROTTLE_SUSPENDED_KEY), pauseNanos,
+                    TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private long throttle(Socks5Pair pair, int bytes) {
+        long pauseNanos = 0;
+        if (pairBytesPerSecond > 0) {
+            Socks5BandwidthLimiter pairLimiter;
+            synchronized (pair) {
+                pairLimiter = pair.getBandwidthLimiter();
+                if (pairLimiter == null) {
+                    pairLimiter = new Socks5BandwidthLimiter(pairBytesPerSecond);
+                    pair.setBandwidthLimiter(pairLimiter);
+                }
+            }
+            pauseNanos = pairLimiter.relayed(bytes);
+        }
+        if (globalBandwidthLimiter != null) {
+            pauseNanos = Math.max(pauseNanos, globalBandwidthLimiter.relayed(bytes));
+        }
+        return pauseNanos;
+    }
+
+    private boolean isBacklogDrained(IoSession session) {
+        return session.getScheduledWriteBytes() <= maxWriteBacklogBytes / 2;
+    }
+
+    private void suspendRead(IoSession session, Socks5Pair pair, AttributeKey reason) {
+        synchronized (pair) {
+            boolean suspended = isReadSuspended(session);
+            session.setAttribute(reason, Boolean.TRUE);
+            if (!suspended) {
+                session.suspendRead();
+            }
+        }
+    }
+
+    private void resumeRead(IoSession session, Socks5Pair pair, AttributeKey reason) {
+        synchronized (pair) {
+            if (session.removeAttribute(reason) == null) {
+                return;
+            }
+            if (!isReadSuspended(session)) {
+                session.resumeRead();
+            }
+        }
+    }
+
+    private boolean isReadSuspended(IoSession session) {
+        return session.containsAttribute(BACKLOG_SUSPENDED_KEY) || session.containsAttribute(THROTTLE_SUSPENDED_KEY);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void messageSent(IoSession session, Object message) throws Exception {
+        Socks5Pair pair = getPair(session);
+        if (pair == null || !pair.isActivated()) {
+            return;
+        }
+        // written data has left this session, resume the source once enough of the backlog is drained
+        if (isBacklogDrained(session)) {
+            resumeRead(pair.getOther(session), pair, BACKLOG_SUSPENDED_KEY);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
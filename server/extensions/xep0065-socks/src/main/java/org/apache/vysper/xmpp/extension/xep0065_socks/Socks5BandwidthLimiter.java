@@ -0,0 +1,68 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.extension.xep0065_socks;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the throughput of relayed data to a number of bytes per second. Relayed bytes
+ * are accounted after the fact, the limiter answers with how long the source has to
+ * pause reading to get back under the limit. Unused bandwidth of up to one second is
+ * kept as a burst allowance.
+ * 
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class Socks5BandwidthLimiter {
+
+    private static final long ONE_SECOND_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final long bytesPerSecond;
+
+    /**
+     * the point in time at which all bytes accounted so far have been sent at the configured rate,
+     * starts with a full burst allowance
+     */
+    private long drainedAtNanos = System.nanoTime() - ONE_SECOND_NANOS;
+
+    public Socks5BandwidthLimiter(long bytesPerSecond) {
+        if (bytesPerSecond <= 0) {
+            throw new IllegalArgumentException("bytesPerSecond must be positive");
+        }
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    public long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    /**
+     * Accounts for relayed bytes
+     * @param bytes the number of bytes relayed
+     * @return the number of nanoseconds the source must pause, 0 if it may continue immediately
+     */
+    public synchronized long relayed(long bytes) {
+        long now = System.nanoTime();
+        if (drainedAtNanos < now - ONE_SECOND_NANOS) {
+            drainedAtNanos = now - ONE_SECOND_NANOS;
+        }
+        drainedAtNanos += bytes * ONE_SECOND_NANOS / bytesPerSecond;
+        return Math.max(0, drainedAtNanos - now);
+    }
+}
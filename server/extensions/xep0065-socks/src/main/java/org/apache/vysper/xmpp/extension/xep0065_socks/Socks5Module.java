@@ -69,6 +69,10 @@ public class Socks5Module extends DefaultDiscoAwareModule implements Component,
     private Entity fullDomain;
     private InetSocketAddress proxyAddress = new InetSocketAddress(DEFAULT_PORT);
     private int idleTimeInSeconds = DEFAULT_IDLE_TIME;
+    private int maxWriteBacklogBytes = Socks5AcceptorHandler.DEFAULT_MAX_WRITE_BACKLOG_BYTES;
+    private long pairBytesPerSecond = 0;
+    private long globalBytesPerSecond = 0;
+    private Socks5RelayStatistics relayStatistics = new Socks5RelayStatistics();
     
     private Socks5ConnectionsRegistry connectionsRegistry = new DefaultSocks5ConnectionsRegistry();
     
@@ -83,6 +87,7 @@ public class Socks5Module extends DefaultDiscoAwareModule implements Component,
             new Feature(NamespaceURIs.XEP0065_SOCKS5_BYTESTREAMS));
     
     private NioSocketAcceptor acceptor;
+    private Socks5AcceptorHandler acceptorHandler;
     
     /**
      * Constructs a SOCK5 module
@@ -135,11 +140,16 @@ public class Socks5Module extends DefaultDiscoAwareModule implements Component,
             acceptor.unbind();
             acceptor.dispose();
         }
+        if(acceptorHandler != null) {
+            acceptorHandler.close();
+        }
     }
 
     private void startProxy() throws Exception {
         acceptor = new NioSocketAcceptor();
-        acceptor.setHandler(new Socks5AcceptorHandler(connectionsRegistry));
+        acceptorHandler = new Socks5AcceptorHandler(connectionsRegistry, maxWriteBacklogBytes, pairBytesPerSecond,
+                globalBytesPerSecond, relayStatistics);
+        acceptor.setHandler(acceptorHandler);
         acceptor.getSessionConfig().setBothIdleTime(idleTimeInSeconds);
         acceptor.bind(proxyAddress);
     }
@@ -212,4 +222,37 @@ public class Socks5Module extends DefaultDiscoAwareModule implements Component,
     public void setConnectionsRegistry(Socks5ConnectionsRegistry connectionsRegistry) {
         this.connectionsRegistry = connectionsRegistry;
     }
+
+    /**
+     * Sets the number of bytes queued for writing to one side of a pair above which the proxy stops
+     * reading from the other side. Must be set before the module is initialized.
+     */
+    public void setMaxWriteBacklogBytes(int maxWriteBacklogBytes) {
+        Validate.isTrue(maxWriteBacklogBytes > 0, "maxWriteBacklogBytes must be positive");
+        this.maxWriteBacklogBytes = maxWriteBacklogBytes;
+    }
+
+    /**
+     * Limits the bandwidth of each pair, 0 (the default) for no limit. Must be set before the module is initialized.
+     */
+    public void setPairBandwidthLimit(long bytesPerSecond) {
+        Validate.isTrue(bytesPerSecond >= 0, "bytesPerSecond must not be negative");
+        this.pairBytesPerSecond = bytesPerSecond;
+    }
+
+    /**
+     * Limits the bandwidth of all pairs together, 0 (the default) for no limit. Must be set before the module is
+     * initialized.
+     */
+    public void setGlobalBandwidthLimit(long bytesPerSecond) {
+        Validate.isTrue(bytesPerSecond >= 0, "bytesPerSecond must not be negative");
+        this.globalBytesPerSecond = bytesPerSecond;
+    }
+
+    /**
+     * @return the throughput counters of the proxy
+     */
+    public Socks5RelayStatistics getRelayStatistics() {
+        return relayStatistics;
+    }
 }
@@ -20,6 +20,7 @@
 package org.apache.vysper.xmpp.extension.xep0065_socks;
 
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.mina.core.session.IoSession;
 
@@ -36,6 +37,8 @@ public class Socks5Pair {
     private IoSession requester;
     private IoSession target;
     private AtomicBoolean activated = new AtomicBoolean(false);
+    private AtomicLong relayedBytes = new AtomicLong();
+    private Socks5BandwidthLimiter bandwidthLimiter;
     
     public Socks5Pair(IoSession target, Socks5ConnectionsRegistry registry, String hash) {
         this.target = target;
@@ -71,6 +74,28 @@ public class Socks5Pair {
         activated.set(true);
     }
     
+    /**
+     * @return the number of bytes relayed in both directions
+     */
+    public long getRelayedBytes() {
+        return relayedBytes.get();
+    }
+    
+    void relayed(long bytes) {
+        relayedBytes.addAndGet(bytes);
+    }
+    
+    /**
+     * @return the limiter shared by both directions of this pair, or null if the pair is not limited
+     */
+    public synchronized Socks5BandwidthLimiter getBandwidthLimiter() {
+        return bandwidthLimiter;
+    }
+
+    public synchronized void setBandwidthLimiter(Socks5BandwidthLimiter bandwidthLimiter) {
+        this.bandwidthLimiter = bandwidthLimiter;
+    }
+    
     public void close() {
         if(requester != null) {
             requester.close(false);
@@ -0,0 +1,89 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.extension.xep0065_socks;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters for the data relayed by the SOCKS5 proxy.
+ * 
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class Socks5RelayStatistics {
+
+    private final long startedAt = System.currentTimeMillis();
+
+    private final AtomicLong relayedBytes = new AtomicLong();
+
+    private final AtomicLong relayedMessages = new AtomicLong();
+
+    private final AtomicLong backlogSuspensions = new AtomicLong();
+
+    private final AtomicLong throttleSuspensions = new AtomicLong();
+
+    void relayed(long bytes) {
+        relayedBytes.addAndGet(bytes);
+        relayedMessages.incrementAndGet();
+    }
+
+    void backlogSuspended() {
+        backlogSuspensions.incrementAndGet();
+    }
+
+    void throttleSuspended() {
+        throttleSuspensions.incrementAndGet();
+    }
+
+    /**
+     * @return the total number of bytes relayed between paired sessions
+     */
+    public long getRelayedBytes() {
+        return relayedBytes.get();
+    }
+
+    /**
+     * @return the total number of buffers relayed between paired sessions
+     */
+    public long getRelayedMessages() {
+        return relayedMessages.get();
+    }
+
+    /**
+     * @return how often a source stopped reading because its peer could not keep up
+     */
+    public long getBacklogSuspensions() {
+        return backlogSuspensions.get();
+    }
+
+    /**
+     * @return how often a source stopped reading because a bandwidth limit was reached
+     */
+    public long getThrottleSuspensions() {
+        return throttleSuspensions.get();
+    }
+
+    /**
+     * @return the average number of bytes relayed per second since the proxy started
+     */
+    public long getAverageBytesPerSecond() {
+        long elapsed = System.currentTimeMillis() - startedAt;
+        return elapsed > 0 ? relayedBytes.get() * 1000 / elapsed : 0;
+    }
+}
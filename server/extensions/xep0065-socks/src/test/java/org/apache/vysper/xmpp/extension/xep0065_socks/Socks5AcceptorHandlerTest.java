@@ -23,6 +23,7 @@ import org.apache.mina.core.buffer.IoBuffer;
 import org.apache.mina.core.session.IdleStatus;
 import org.apache.mina.core.session.IoSession;
 import org.apache.vysper.xmpp.extension.xep0065_socks.Socks5AcceptorHandler.ProxyState;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
@@ -121,6 +122,62 @@ public class Socks5AcceptorHandlerTest extends Mockito {
         verify(other).write(buffer);
     }
 
+    @Test
+    public void messageReceivedSuspendsOnBacklog() throws Exception {
+        IoSession other = mock(IoSession.class);
+        
+        when(session.getAttribute(Socks5AcceptorHandler.STATE_KEY)).thenReturn(ProxyState.CONNECTED);
+        Socks5Pair pair = new Socks5Pair(session, connectionsRegistry, "foo");
+        pair.setRequester(other);
+        pair.activate();
+        when(session.getAttribute(Socks5AcceptorHandler.PAIR_KEY)).thenReturn(pair);
+        when(other.getScheduledWriteBytes()).thenReturn(Socks5AcceptorHandler.DEFAULT_MAX_WRITE_BACKLOG_BYTES + 1L);
+        
+        handler.messageReceived(session, IoBuffer.wrap(new byte[]{0x6C, 0x6F, 0x63}));
+        
+        verify(session).setAttribute(Socks5AcceptorHandler.BACKLOG_SUSPENDED_KEY, Boolean.TRUE);
+        verify(session).suspendRead();
+        verify(session, never()).resumeRead();
+        Assert.assertEquals(3, pair.getRelayedBytes());
+        Assert.assertEquals(3, handler.getStatistics().getRelayedBytes());
+        Assert.assertEquals(1, handler.getStatistics().getBacklogSuspensions());
+    }
+
+    @Test
+    public void messageSentResumesSource() throws Exception {
+        IoSession other = mock(IoSession.class);
+        
+        Socks5Pair pair = new Socks5Pair(session, connectionsRegistry, "foo");
+        pair.setRequester(other);
+        pair.activate();
+        when(other.getAttribute(Socks5AcceptorHandler.PAIR_KEY)).thenReturn(pair);
+        when(session.removeAttribute(Socks5AcceptorHandler.BACKLOG_SUSPENDED_KEY)).thenReturn(Boolean.TRUE);
+        
+        handler.messageSent(other, IoBuffer.wrap(new byte[]{0x6C, 0x6F, 0x63}));
+        
+        verify(session).resumeRead();
+    }
+
+    @Test
+    public void messageReceivedThrottled() throws Exception {
+        Socks5AcceptorHandler throttlingHandler = new Socks5AcceptorHandler(connectionsRegistry,
+                Socks5AcceptorHandler.DEFAULT_MAX_WRITE_BACKLOG_BYTES, 1, 0, new Socks5RelayStatistics());
+        IoSession other = mock(IoSession.class);
+        
+        when(session.getAttribute(Socks5AcceptorHandler.STATE_KEY)).thenReturn(ProxyState.CONNECTED);
+        Socks5Pair pair = new Socks5Pair(session, connectionsRegistry, "foo");
+        pair.setRequester(other);
+        pair.activate();
+        when(session.getAttribute(Socks5AcceptorHandler.PAIR_KEY)).thenReturn(pair);
+        
+        throttlingHandler.messageReceived(session, IoBuffer.wrap(new byte[]{0x6C, 0x6F, 0x63}));
+        throttlingHandler.close();
+        
+        verify(session).setAttribute(Socks5AcceptorHandler.THROTTLE_SUSPENDED_KEY, Boolean.TRUE);
+        verify(session).suspendRead();
+        Assert.assertEquals(1, throttlingHandler.getStatistics().getThrottleSuspensions());
+    }
+
     @Test
     public void messageReceivedNotActivated() throws Exception {
         IoSession other = mock(IoSession.class);
@@ -0,0 +1,52 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.xmpp.extension.xep0065_socks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class Socks5BandwidthLimiterTest {
+
+    @Test
+    public void burstWithinOneSecondIsNotThrottled() {
+        Socks5BandwidthLimiter limiter = new Socks5BandwidthLimiter(1000);
+        Assert.assertEquals(0, limiter.relayed(500));
+        Assert.assertEquals(0, limiter.relayed(500));
+    }
+
+    @Test
+    public void exceedingTheLimitRequiresPause() {
+        Socks5BandwidthLimiter limiter = new Socks5BandwidthLimiter(1000);
+        long pauseNanos = limiter.relayed(3000);
+        Assert.assertTrue(pauseNanos > TimeUnit.MILLISECONDS.toNanos(1900));
+        Assert.assertTrue(pauseNanos <= TimeUnit.SECONDS.toNanos(2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidLimit() {
+        new Socks5BandwidthLimiter(0);
+    }
+}
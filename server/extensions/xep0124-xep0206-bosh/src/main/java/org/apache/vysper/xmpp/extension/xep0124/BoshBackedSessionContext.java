@@ -21,9 +21,10 @@ package org.apache.vysper.xmpp.extension.xep0124;
 
 import java.io.IOException;
 import java.nio.charset.Charset;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.Queue;
 import java.util.SortedMap;
 import java.util.TreeMap;
@@ -51,6 +52,10 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Keeps the session state of a BOSH client
+ * <p>
+ * All state of the session (requests window, delayed and sent responses, inactivity tracking) is guarded 
+ * by one lock, the monitor of the session object itself. {@link BoshHandler} holds it while inserting 
+ * requests and processing their payload.
  *
  * @author The Apache MINA Project (dev@mina.apache.org)
  */
@@ -84,19 +89,25 @@ public class BoshBackedSessionContext extends AbstractSessionContext implements
      * to send to the client. (Comet HTTP Long Polling technique - described in XEP-0124)
      * 
      * The BOSH requests are sorted by their RIDs.
+     * 
+     * guarded by the session lock
      */
     protected final RequestsWindow requestsWindow;
 
     /*
      * Keeps the asynchronous messages sent from server that cannot be delivered to the client because there are
      * no available HTTP requests to respond to (requestsWindow is empty).
+     * 
+     * guarded by the session lock
      */
-    private final Queue<Stanza> delayedResponseQueue = new LinkedList<Stanza>();
+    private final Queue<Stanza> delayedResponseQueue = new ArrayDeque<Stanza>();
     
     /*
      * A cache of sent responses to the BOSH client, kept in the event of delivery failure and retransmission requests.
      * these sent responses are moved to the sentResponsesBacklog when the client acks their receival.
      * See Broken Connections in XEP-0124.
+     * 
+     * guarded by the session lock
      */
     private final SortedMap<Long, BoshResponse> sentResponses = new TreeMap<Long, BoshResponse>();
 
@@ -118,9 +129,9 @@ public class BoshBackedSessionContext extends AbstractSessionContext implements
     private int currentInactivitySeconds = inactivitySeconds;
     
     /**
-     * must be synchronized along with requestsWindow 
+     * guarded by the session lock
      */
-    private Long latestEmptyPollingRequestTimestamp = 0L;
+    private long latestEmptyPollingRequestTimestamp = 0L;
     
     /*
      * Indicate if the BOSH client will use acknowledgements throughout the session and that the absence of an 'ack'
@@ -182,7 +193,7 @@ public class BoshBackedSessionContext extends AbstractSessionContext implements
     }
 
     public StanzaWriter getResponseWriter() {
-        return this;
+        return filterResponseWriter(this);
     }
 
     public void setIsReopeningXMLStream() {
@@ -207,6 +218,16 @@ public class BoshBackedSessionContext extends AbstractSessionContext implements
         writeBoshResponse(BoshStanzaUtils.wrapStanza(stanza));
     }
 
+    /**
+     * wraps all stanzas into one &lt;body/&gt; element, so that they are sent with one HTTP response
+     */
+    @Override
+    synchronized public void writeBatch(Collection<Stanza> stanzas) {
+        if (stanzas.isEmpty()) return;
+        LOGGER.debug("SID = " + getSessionId() + " - adding {} server stanzas for writing to BOSH client", stanzas.size());
+        writeBoshResponse(BoshStanzaUtils.wrapStanzas(stanzas));
+    }
+
     /**
      * Writes a server-to-client XMPP stanza as a BOSH response (wrapped in a &lt;body/&gt; element) if there are 
      * available HTTP requests to respond to, otherwise the response is queued to be sent later 
@@ -216,68 +237,62 @@ public class BoshBackedSessionContext extends AbstractSessionContext implements
      * 
      * @param responseStanza The BOSH response to write
      */
-    /*package*/ void writeBoshResponse(Stanza responseStanza) {
+    /*package*/ synchronized void writeBoshResponse(Stanza responseStanza) {
         if (responseStanza == null) throw new IllegalArgumentException();
         final boolean isEmtpyResponse = responseStanza == BoshStanzaUtils.EMPTY_BOSH_RESPONSE;
         
         final ArrayList<BoshRequest> boshRequestsForRID = new ArrayList<BoshRequest>(1);
         BoshResponse boshResponse;
         final Long rid;
-        synchronized (requestsWindow) {
-            BoshRequest req = requestsWindow.pollNext();
-            if (req == null) {
-                if (isEmtpyResponse) return; // do not delay empty responses, everything's good.
-                // delay sending until request comes available
-                final boolean accepted = delayedResponseQueue.offer(responseStanza);
-                if (!accepted) {
-                    LOGGER.debug("SID = " + getSessionId() + " - stanza not queued. BOSH delayedResponseQueue is full: {}", 
-                            delayedResponseQueue.size());
-                    // TODO do not silently drop this stanza
-                }
-                return;            
+        BoshRequest req = requestsWindow.pollNext();
+        if (req == null) {
+            if (isEmtpyResponse) return; // do not delay empty responses, everything's good.
+            // delay sending until request comes available
+            final boolean accepted = delayedResponseQueue.offer(responseStanza);
+            if (!accepted) {
+                LOGGER.debug("SID = " + getSessionId() + " - stanza not queued. BOSH delayedResponseQueue is full: {}", 
+                        delayedResponseQueue.size());
+                // TODO do not silently drop this stanza
             }
+            return;            
+        }
 
-            rid = req.getRid();
-            // in rare cases, we have same RID in two separate requests
-            boshRequestsForRID.add(req);
-            
-            // collect more requests for this RID
-            while (rid.equals(requestsWindow.firstRid())) {
-                final BoshRequest sameRidRequest = requestsWindow.pollNext();
-                boshRequestsForRID.add(sameRidRequest);
-                LOGGER.warn("SID = " + getSessionId() + " - rid = {} - multi requests ({}) per RID.", rid, boshRequestsForRID.size());
-            }
-            
-            long highestContinuousRid = requestsWindow.getHighestContinuousRid();
-            final Long ack = rid.equals(highestContinuousRid) ? null : highestContinuousRid;
-            boshResponse = getBoshResponse(responseStanza, ack);
-            if (LOGGER.isDebugEnabled()) {
-                String emptyHint = isEmtpyResponse ? "empty " : StringUtils.EMPTY;
-                LOGGER.debug("SID = " + getSessionId() + " - rid = " + rid + " - BOSH writing {}response: {}", emptyHint, new String(boshResponse.getContent()));
-            }
+        rid = req.getRid();
+        // in rare cases, we have same RID in two separate requests
+        boshRequestsForRID.add(req);
+        
+        // collect more requests for this RID
+        while (rid.equals(requestsWindow.firstRid())) {
+            final BoshRequest sameRidRequest = requestsWindow.pollNext();
+            boshRequestsForRID.add(sameRidRequest);
+            LOGGER.warn("SID = " + getSessionId() + " - rid = {} - multi requests ({}) per RID.", rid, boshRequestsForRID.size());
+        }
+        
+        long highestContinuousRid = requestsWindow.getHighestContinuousRid();
+        final Long ack = rid.equals(highestContinuousRid) ? null : highestContinuousRid;
+        boshResponse = getBoshResponse(responseStanza, ack);
+        if (LOGGER.isDebugEnabled()) {
+            String emptyHint = isEmtpyResponse ? "empty " : StringUtils.EMPTY;
+            LOGGER.debug("SID = " + getSessionId() + " - rid = " + rid + " - BOSH writing {}response: {}", emptyHint, new String(boshResponse.getContent()));
         }
 
-        synchronized (sentResponses) {
-            if (isResponseSavable(boshRequestsForRID.get(0), responseStanza)) {
-                sentResponses.put(rid, boshResponse);
-                // The number of responses to non-pause requests kept in the buffer SHOULD be either the same as the maximum
-                // number of simultaneous requests allowed or, if Acknowledgements are being used, the number of responses
-                // that have not yet been acknowledged (this part is handled in insertRequest(BoshRequest)), or 
-                // the hard limit maximumSentResponses (not in the specification) that prevents excessive memory consumption.
-                if (sentResponses.size() > maximumSentResponses || (!isClientAcknowledgements() && sentResponses.size() > parallelRequestsCount)) {
-                    final Long key = sentResponses.firstKey();
-                    sentResponsesBacklog.add(key, sentResponses.remove(key));
-                }
+        if (isResponseSavable(boshRequestsForRID.get(0), responseStanza)) {
+            sentResponses.put(rid, boshResponse);
+            // The number of responses to non-pause requests kept in the buffer SHOULD be either the same as the maximum
+            // number of simultaneous requests allowed or, if Acknowledgements are being used, the number of responses
+            // that have not yet been acknowledged (this part is handled in insertRequest(BoshRequest)), or 
+            // the hard limit maximumSentResponses (not in the specification) that prevents excessive memory consumption.
+            if (sentResponses.size() > maximumSentResponses || (!isClientAcknowledgements() && sentResponses.size() > parallelRequestsCount)) {
+                final Long key = sentResponses.firstKey();
+                sentResponsesBacklog.add(key, sentResponses.remove(key));
             }
         }
         
         if (sentResponses.size() > maximumSentResponses + 10) {
-            synchronized (sentResponses) {
-                LOGGER.warn("stored sent responses ({}) exeeds maximum ({}). purging.", sentResponses.size(), maximumSentResponses);
-                while (sentResponses.size() > maximumSentResponses) {
-                    final Long key = sentResponses.firstKey();
-                    sentResponsesBacklog.add(key, sentResponses.remove(key));
-                }
+            LOGGER.warn("stored sent responses ({}) exeeds maximum ({}). purging.", sentResponses.size(), maximumSentResponses);
+            while (sentResponses.size() > maximumSentResponses) {
+                final Long key = sentResponses.firstKey();
+                sentResponsesBacklog.add(key, sentResponses.remove(key));
             }
         }
 
@@ -328,7 +343,7 @@ public class BoshBackedSessionContext extends AbstractSessionContext implements
      * Writes an error to the client and closes the connection
      * @param condition the error condition
      */
-    protected void sendError(BoshRequest req, String condition) {
+    protected synchronized void sendError(BoshRequest req, String condition) {
         req = req == null ? requestsWindow.pollNext() : req;
         if (req == null) {
             LOGGER.warn("SID = " + getSessionId() + " - no request for sending BOSH error " + condition);
@@ -354,29 +369,27 @@ public class BoshBackedSessionContext extends AbstractSessionContext implements
     /*
      * Terminates the BOSH session
      */
-    public void close() {
+    public synchronized void close() {
         // respond to all the queued HTTP requests with termination responses
-        synchronized (requestsWindow) {
-            BoshRequest next;
-            while ((next = requestsWindow.pollNext()) != null) {
-                Stanza body = BoshStanzaUtils.TERMINATE_BOSH_RESPONSE;
-                BoshResponse boshResponse = getBoshResponse(body, null);
-                if (LOGGER.isDebugEnabled()) {
-                    LOGGER.debug("SID = " + getSessionId() + " - rid = {} - BOSH writing response: {}", next.getRid(), new String(boshResponse.getContent()));
-                }
-    
-                try {
-                    final AsyncContext asyncContext = saveResponse(next, boshResponse);
-                    asyncContext.dispatch();
-                } catch (Exception e) {
-                    LOGGER.warn("SID = " + getSessionId() + " - exception in async processing", e);
-                }
+        BoshRequest next;
+        while ((next = requestsWindow.pollNext()) != null) {
+            Stanza body = BoshStanzaUtils.TERMINATE_BOSH_RESPONSE;
+            BoshResponse boshResponse = getBoshResponse(body, null);
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("SID = " + getSessionId() + " - rid = {} - BOSH writing response: {}", next.getRid(), new String(boshResponse.getContent()));
             }
 
-            inactivityChecker.updateExpireTime(this, lastInactivityExpireTime, null);
-            lastInactivityExpireTime = null;
+            try {
+                final AsyncContext asyncContext = saveResponse(next, boshResponse);
+                asyncContext.dispatch();
+            } catch (Exception e) {
+                LOGGER.warn("SID = " + getSessionId() + " - exception in async processing", e);
+            }
         }
 
+        inactivityChecker.updateExpireTime(this, lastInactivityExpireTime, null);
+        lastInactivityExpireTime = null;
+
         LOGGER.info("SID = " + getSessionId() + " - session closed");
     }
 
@@ -526,7 +539,7 @@ public class BoshBackedSessionContext extends AbstractSessionContext implements
      * The synchronization on the session object ensures that there will be no concurrent writes or other concurrent
      * expirations for the BOSH client while the current request expires.
      */
-    private void requestExpired(final AsyncContext context) {
+    private synchronized void requestExpired(final AsyncContext context) {
         final BoshRequest req =
                 (BoshRequest) context.getRequest().getAttribute(BOSH_REQUEST_ATTRIBUTE);
         if (req == null) {
@@ -546,7 +559,7 @@ public class BoshBackedSessionContext extends AbstractSessionContext implements
      * 
      * @param br the HTTP request
      */
-    public void insertRequest(final BoshRequest br) {
+    public synchronized void insertRequest(final BoshRequest br) {
 
         final Stanza boshOuterBody = br.getBody();
         final Long rid = br.getRid();
@@ -563,114 +576,106 @@ public class BoshBackedSessionContext extends AbstractSessionContext implements
 
         // allow two more parallel request, be generous in what you receive
         final int maxToleratedParallelRequests = parallelRequestsCount + 2;
-        synchronized (requestsWindow) {
-
-            // only allow 'parallelRequestsCount' request to be queued
-            final long highestContinuousRid = requestsWindow.getHighestContinuousRid();
-            if (highestContinuousRid != -1 && rid > highestContinuousRid + maxToleratedParallelRequests) {
-                LOGGER.warn("SID = " + getSessionId() + " - rid = {} - received RID >= the permitted window of concurrent requests ({})",
-                        rid, highestContinuousRid);
-                // don't queue // queueRequest(br);
-                sendError(br, "item-not-found");
-                return;
-            }
-            
-            // resend missed responses
-            final boolean resend = rid <= requestsWindow.getCurrentProcessingRequest();
-            if (resend) {
+        // only allow 'parallelRequestsCount' request to be queued
+        final long highestContinuousRid = requestsWindow.getHighestContinuousRid();
+        if (highestContinuousRid != -1 && rid > highestContinuousRid + maxToleratedParallelRequests) {
+            LOGGER.warn("SID = " + getSessionId() + " - rid = {} - received RID >= the permitted window of concurrent requests ({})",
+                    rid, highestContinuousRid);
+            // don't queue // queueRequest(br);
+            sendError(br, "item-not-found");
+            return;
+        }
+        
+        // resend missed responses
+        final boolean resend = rid <= requestsWindow.getCurrentProcessingRequest();
+        if (resend) {
             // OLD: if (highestContinuousRid != null && rid <= highestContinuousRid) {                
-                synchronized (sentResponses) {
-                    if (LOGGER.isInfoEnabled()) {
-                        final String pendingRids = requestsWindow.logRequestWindow();
+            if (LOGGER.isInfoEnabled()) {
+                final String pendingRids = requestsWindow.logRequestWindow();
+                final String sentRids = logSentResponsesBuffer();
+                LOGGER.info("SID = " + getSessionId() + " - rid = {} - resend request. sent buffer: {} - req.win.: " + pendingRids, rid, sentRids);
+            }
+            if (sentResponses.containsKey(rid)) {
+                LOGGER.info("SID = " + getSessionId() + " - rid = {} (re-sending)", rid);
+                // Resending the old response
+                resendResponse(br);
+            } else {
+                // not in sent responses, try alternatives: backlog and requestWindow
+                
+                final BoshResponse response = sentResponsesBacklog.lookup(rid);
+                if (response != null) {
+                    LOGGER.warn("SID = " + getSessionId() + " - rid = {} - BOSH response retrieved from sentResponsesBacklog", rid);
+                    resendResponse(br, rid, response);
+                    return; // no error
+                }
+
+                // rid not in sent responses, nor backlog. check to see if rid is still in requests window
+                boolean inRequestsWindow = requestsWindow.containsRid(rid);
+                if (!inRequestsWindow) {
+                    if (LOGGER.isWarnEnabled()) {
                         final String sentRids = logSentResponsesBuffer();
-                        LOGGER.info("SID = " + getSessionId() + " - rid = {} - resend request. sent buffer: {} - req.win.: " + pendingRids, rid, sentRids);
+                        LOGGER.warn("SID = " + getSessionId() + " - rid = {} - BOSH response not in buffer error - " + sentRids, rid);
                     }
-                    if (sentResponses.containsKey(rid)) {
-                        LOGGER.info("SID = " + getSessionId() + " - rid = {} (re-sending)", rid);
-                        // Resending the old response
-                        resendResponse(br);
-                    } else {
-                        // not in sent responses, try alternatives: backlog and requestWindow
-                        
-                        final BoshResponse response = sentResponsesBacklog.lookup(rid);
-                        if (response != null) {
-                            LOGGER.warn("SID = " + getSessionId() + " - rid = {} - BOSH response retrieved from sentResponsesBacklog", rid);
-                            resendResponse(br, rid, response);
-                            return; // no error
-                        }
-
-                        // rid not in sent responses, nor backlog. check to see if rid is still in requests window
-                        boolean inRequestsWindow = requestsWindow.containsRid(rid);
-                        if (!inRequestsWindow) {
-                            if (LOGGER.isWarnEnabled()) {
-                                final String sentRids = logSentResponsesBuffer();
-                                LOGGER.warn("SID = " + getSessionId() + " - rid = {} - BOSH response not in buffer error - " + sentRids, rid);
-                            }
-                        } else {
-                            if (LOGGER.isWarnEnabled()) {
-                                final String sentRids = logSentResponsesBuffer();
-                                LOGGER.warn("SID = " + getSessionId() + " - rid = {} - BOSH response still in requests window - " + sentRids, rid);
-                            }
-                        }
-                        sendError(br, "item-not-found");
+                } else {
+                    if (LOGGER.isWarnEnabled()) {
+                        final String sentRids = logSentResponsesBuffer();
+                        LOGGER.warn("SID = " + getSessionId() + " - rid = {} - BOSH response still in requests window - " + sentRids, rid);
                     }
                 }
-                return;
+                sendError(br, "item-not-found");
             }
-            // check for too many parallel requests
-            final boolean terminate = "terminate".equals(boshOuterBody.getAttributeValue("type"));
-            final boolean pause = boshOuterBody.getAttributeValue("pause") != null;
-            final boolean bodyIsEmpty = boshOuterBody.getInnerElements().isEmpty();
-            final int distinctRIDs = requestsWindow.getDistinctRIDs();
-            
-            if (distinctRIDs >= maxToleratedParallelRequests && !terminate && !pause) {
-                LOGGER.warn("SID = " + getSessionId() + " - rid = {} - BOSH Overactivity: Too many simultaneous requests, max = {} " + logRIDSequence(), rid, maxToleratedParallelRequests);
+            return;
+        }
+        // check for too many parallel requests
+        final boolean terminate = "terminate".equals(boshOuterBody.getAttributeValue("type"));
+        final boolean pause = boshOuterBody.getAttributeValue("pause") != null;
+        final boolean bodyIsEmpty = boshOuterBody.getInnerElements().isEmpty();
+        final int distinctRIDs = requestsWindow.getDistinctRIDs();
+        
+        if (distinctRIDs >= maxToleratedParallelRequests && !terminate && !pause) {
+            LOGGER.warn("SID = " + getSessionId() + " - rid = {} - BOSH Overactivity: Too many simultaneous requests, max = {} " + logRIDSequence(), rid, maxToleratedParallelRequests);
+            sendError(br, "policy-violation");
+            return;
+        }
+        // check for new request comes early
+        if (distinctRIDs + 1 == maxToleratedParallelRequests && !terminate && !pause && bodyIsEmpty) {
+            final long millisSinceLastCalls = Math.abs(br.getTimestamp() - requestsWindow.getLatestAddionTimestamp());
+            if (millisSinceLastCalls < pollingSeconds * 1000 && !rid.equals(requestsWindow.getLatestRID())) {
+                LOGGER.warn("SID = " + getSessionId() + " - rid = {} - BOSH Overactivity: Too frequent requests, millis since requests = {}, " + logRIDSequence(), rid, millisSinceLastCalls);
                 sendError(br, "policy-violation");
                 return;
             }
-            // check for new request comes early
-            if (distinctRIDs + 1 == maxToleratedParallelRequests && !terminate && !pause && bodyIsEmpty) {
-                final long millisSinceLastCalls = Math.abs(br.getTimestamp() - requestsWindow.getLatestAddionTimestamp());
-                if (millisSinceLastCalls < pollingSeconds * 1000 && !rid.equals(requestsWindow.getLatestRID())) {
-                    LOGGER.warn("SID = " + getSessionId() + " - rid = {} - BOSH Overactivity: Too frequent requests, millis since requests = {}, " + logRIDSequence(), rid, millisSinceLastCalls);
-                    sendError(br, "policy-violation");
-                    return;
-                }
-            }
-            // check 
-            if ((wait == 0 || hold == 0) && bodyIsEmpty) {
-                final long millisBetweenEmptyReqs = Math.abs(br.getTimestamp() - latestEmptyPollingRequestTimestamp);
-                if (millisBetweenEmptyReqs < pollingSeconds * 1000 && !rid.equals(requestsWindow.getLatestRID())) {
-                    LOGGER.warn("SID = " + getSessionId() + " - rid = {} - BOSH Overactivity for polling: Too frequent requests, millis since requests = {}, " + logRIDSequence(), rid, millisBetweenEmptyReqs);
-                    sendError(br, "policy-violation");
-                    return;
-                }
-                latestEmptyPollingRequestTimestamp = br.getTimestamp();
+        }
+        // check 
+        if ((wait == 0 || hold == 0) && bodyIsEmpty) {
+            final long millisBetweenEmptyReqs = Math.abs(br.getTimestamp() - latestEmptyPollingRequestTimestamp);
+            if (millisBetweenEmptyReqs < pollingSeconds * 1000 && !rid.equals(requestsWindow.getLatestRID())) {
+                LOGGER.warn("SID = " + getSessionId() + " - rid = {} - BOSH Overactivity for polling: Too frequent requests, millis since requests = {}, " + logRIDSequence(), rid, millisBetweenEmptyReqs);
+                sendError(br, "policy-violation");
+                return;
             }
-
-            queueRequest(br);
+            latestEmptyPollingRequestTimestamp = br.getTimestamp();
         }
 
+        queueRequest(br);
 
         if (isClientAcknowledgements()) {
-            synchronized (sentResponses) {
-                if (boshOuterBody.getAttribute("ack") == null) {
-                    // if there is no ack attribute present then the client confirmed it received all the responses to all the previous requests
-                    // and we clear the cache
-                    sentResponsesBacklog.addAll(sentResponses);
-                    sentResponses.clear();
-                } else if (!sentResponses.isEmpty()) {
-                    // After receiving a request with an 'ack' value less than the 'rid' of the last request that it has already responded to,
-                    // the connection manager MAY inform the client of the situation. In this case it SHOULD include a 'report' attribute set
-                    // to one greater than the 'ack' attribute it received from the client, and a 'time' attribute set to the number of milliseconds
-                    // since it sent the response associated with the 'report' attribute.
-                    long ack = Long.parseLong(boshOuterBody.getAttributeValue("ack"));
-                    if (ack < sentResponses.lastKey() && sentResponses.containsKey(ack + 1)) {
-                        long delta = System.currentTimeMillis() - sentResponses.get(ack + 1).getTimestamp();
-                        if (delta >= brokenConnectionReportTimeoutMillis) {
-                            sendBrokenConnectionReport(ack + 1, delta);
-                            return;
-                        }
+            if (boshOuterBody.getAttribute("ack") == null) {
+                // if there is no ack attribute present then the client confirmed it received all the responses to all the previous requests
+                // and we clear the cache
+                sentResponsesBacklog.addAll(sentResponses);
+                sentResponses.clear();
+            } else if (!sentResponses.isEmpty()) {
+                // After receiving a request with an 'ack' value less than the 'rid' of the last request that it has already responded to,
+                // the connection manager MAY inform the client of the situation. In this case it SHOULD include a 'report' attribute set
+                // to one greater than the 'ack' attribute it received from the client, and a 'time' attribute set to the number of milliseconds
+                // since it sent the response associated with the 'report' attribute.
+                long ack = Long.parseLong(boshOuterBody.getAttributeValue("ack"));
+                if (ack < sentResponses.lastKey() && sentResponses.containsKey(ack + 1)) {
+                    long delta = System.currentTimeMillis() - sentResponses.get(ack + 1).getTimestamp();
+                    if (delta >= brokenConnectionReportTimeoutMillis) {
+                        sendBrokenConnectionReport(ack + 1, delta);
+                        return;
                     }
                 }
             }
@@ -678,24 +683,22 @@ public class BoshBackedSessionContext extends AbstractSessionContext implements
         
         // we cannot pause if there are missing requests, this is tested with
         // br.getRid().equals(requestsWindow.lastKey()) && highestContinuousRid.equals(br.getRid())
-        synchronized (requestsWindow) {
-            final String pauseAttribute = boshOuterBody.getAttributeValue("pause");
-            if (pauseAttribute != null && 
-                    rid.equals(requestsWindow.getLatestRID()) && 
-                    rid.equals(requestsWindow.getHighestContinuousRid())) {
-                int pause;
-                try {
-                    pause = Integer.parseInt(pauseAttribute);
-                } catch (NumberFormatException e) {
-                    queueRequest(br);
-                    sendError("bad-request");
-                    return;
-                }
-                pause = Math.max(0, pause);
-                pause = Math.min(pause, maxpauseSeconds);
-                respondToPause(pause);
+        final String pauseAttribute = boshOuterBody.getAttributeValue("pause");
+        if (pauseAttribute != null && 
+                rid.equals(requestsWindow.getLatestRID()) && 
+                rid.equals(requestsWindow.getHighestContinuousRid())) {
+            int pauseSeconds;
+            try {
+                pauseSeconds = Integer.parseInt(pauseAttribute);
+            } catch (NumberFormatException e) {
+                queueRequest(br);
+                sendError("bad-request");
                 return;
             }
+            pauseSeconds = Math.max(0, pauseSeconds);
+            pauseSeconds = Math.min(pauseSeconds, maxpauseSeconds);
+            respondToPause(pauseSeconds);
+            return;
         }
 
         // If there are delayed responses waiting to be sent to the BOSH client, then we wrap them all in
@@ -720,7 +723,7 @@ public class BoshBackedSessionContext extends AbstractSessionContext implements
         }
     }
 
-    public String logSentResponsesBuffer() {
+    public synchronized String logSentResponsesBuffer() {
         final StringBuffer logMsg = new StringBuffer("sent = [");
         for (Iterator<Long> iterator = sentResponses.keySet().iterator(); iterator.hasNext(); ) {
             Long sentRid = iterator.next();
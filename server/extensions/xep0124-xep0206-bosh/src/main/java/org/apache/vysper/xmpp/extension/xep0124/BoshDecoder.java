@@ -26,25 +26,47 @@ import javax.servlet.http.HttpServletRequest;
 
 import org.apache.mina.core.buffer.IoBuffer;
 import org.apache.vysper.charset.CharsetUtil;
-import org.apache.vysper.xml.sax.NonBlockingXMLReader;
 import org.apache.vysper.xml.sax.impl.DefaultNonBlockingXMLReader;
-import org.xml.sax.ContentHandler;
 import org.xml.sax.SAXException;
 
 /**
  * Decodes bytes into BOSH requests
  * <p>
  * Uses nbxml for XML processing.
- * For every HTTP request there is a BoshDecoder instance
- * to ensure that parsing errors (e.g. malformed XML) do not affect other requests.
+ * The request body is fed to the non-blocking parser chunk by chunk as it is read from the 
+ * {@link InputStream}, so the body is never buffered as a whole.
+ * <p>
+ * A decoder processes one HTTP request at a time, but can be reused for subsequent requests by calling
+ * {@link #decode(HttpServletRequest)}. Parsing state is reset before every request, so that parsing 
+ * errors (e.g. malformed XML) do not affect other requests.
  * 
  * @author The Apache MINA Project (dev@mina.apache.org)
  */
 public class BoshDecoder {
 
-    private final NonBlockingXMLReader reader;
+    private static final int CHUNK_SIZE = 4096;
+
+    private final DefaultNonBlockingXMLReader reader;
+
+    private final BoshSaxContentHandler contentHandler;
+
+    private final byte[] chunk = new byte[CHUNK_SIZE];
+
+    private final IoBuffer chunkBuffer = IoBuffer.wrap(chunk);
+
+    private HttpServletRequest request;
+
+    private boolean decoding = false;
 
-    private final HttpServletRequest request;
+    /**
+     * Creates a new decoder, not yet associated with a request
+     * @param boshHandler
+     */
+    public BoshDecoder(BoshHandler boshHandler) {
+        reader = new DefaultNonBlockingXMLReader();
+        contentHandler = new BoshSaxContentHandler(boshHandler, null);
+        reader.setContentHandler(contentHandler);
+    }
 
     /**
      * Creates a new decoder to parse an HTTP request
@@ -52,10 +74,15 @@ public class BoshDecoder {
      * @param req
      */
     public BoshDecoder(BoshHandler boshHandler, HttpServletRequest req) {
+        this(boshHandler);
         request = req;
-        reader = new DefaultNonBlockingXMLReader();
-        ContentHandler contentHandler = new BoshSaxContentHandler(boshHandler, req);
-        reader.setContentHandler(contentHandler);
+    }
+
+    /**
+     * @return true, while this decoder is processing a request
+     */
+    public boolean isDecoding() {
+        return decoding;
     }
 
     /**
@@ -65,20 +92,38 @@ public class BoshDecoder {
      * @throws SAXException
      */
     public void decode() throws IOException, SAXException {
-        IoBuffer ioBuf = IoBuffer.allocate(1024);
-        ioBuf.setAutoExpand(true);
-        byte[] buf = new byte[1024];
-        InputStream in = request.getInputStream();
-
-        for (;;) {
-            int i = in.read(buf);
-            if (i == -1) {
-                break;
+        decode(request);
+    }
+
+    /**
+     * Decodes the body of the given request into a BOSH request.
+     * @throws IOException
+     * @throws SAXException
+     */
+    public void decode(HttpServletRequest req) throws IOException, SAXException {
+        request = req;
+        reader.reset();
+        contentHandler.reset(req);
+        decoding = true;
+        try {
+            InputStream in = req.getInputStream();
+            for (;;) {
+                int i = in.read(chunk);
+                if (i == -1) {
+                    break;
+                }
+                if (i == 0) {
+                    continue;
+                }
+                chunkBuffer.clear();
+                chunkBuffer.limit(i);
+                reader.parse(chunkBuffer, CharsetUtil.getDecoder());
             }
-            ioBuf.put(buf, 0, i);
+        } finally {
+            decoding = false;
+            request = null;
+            contentHandler.reset(null);
         }
-        ioBuf.flip();
-        reader.parse(ioBuf, CharsetUtil.getDecoder());
     }
 
-}
\ No newline at end of file
+}
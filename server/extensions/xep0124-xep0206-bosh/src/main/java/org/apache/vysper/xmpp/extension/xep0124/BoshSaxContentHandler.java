@@ -48,7 +48,7 @@ public class BoshSaxContentHandler implements ContentHandler {
 
     private final BoshHandler boshHandler;
 
-    private final HttpServletRequest request;
+    private HttpServletRequest request;
 
     private final StanzaBuilderFactory builderFactory;
 
@@ -64,6 +64,17 @@ public class BoshSaxContentHandler implements ContentHandler {
         builderFactory = new StanzaBuilderFactory();
     }
 
+    /**
+     * prepares this handler for decoding the body of another HTTP request
+     * @param req the request the next decoded body belongs to
+     */
+    public void reset(HttpServletRequest req) {
+        request = req;
+        builder = null;
+        depth = 0;
+        isBodyPayloadDecoded = false;
+    }
+
     public void characters(char[] ch, int start, int length) throws SAXException {
         // TODO handle start and length
         if (builder != null) {
@@ -66,6 +66,11 @@ public class BoshServlet extends HttpServlet {
 
     protected String accessControlAllowMethods = "GET, POST, OPTIONS";
 
+    /**
+     * decoders are recycled per servlet container thread, this saves creating a parser for every HTTP request 
+     */
+    private final ThreadLocal<BoshDecoder> decoderCache = new ThreadLocal<BoshDecoder>();
+
     public BoshServlet() {
         initBoshHandler();
     }
@@ -170,8 +175,7 @@ public class BoshServlet extends HttpServlet {
         if (boshResponse == null) {
             // incoming new request
             try {
-                BoshDecoder decoder = new BoshDecoder(boshHandler, req);
-                decoder.decode();
+                getDecoder().decode(req);
             } catch (Throwable e) {
                 logger.error("Exception thrown while decoding XML", e);
             }
@@ -188,6 +192,18 @@ public class BoshServlet extends HttpServlet {
         }
     }
 
+    protected BoshDecoder getDecoder() {
+        BoshDecoder decoder = decoderCache.get();
+        if (decoder == null) {
+            decoder = new BoshDecoder(boshHandler);
+            decoderCache.set(decoder);
+        } else if (decoder.isDecoding()) {
+            // re-entrant call on the same thread, do not disturb the ongoing decoding 
+            decoder = new BoshDecoder(boshHandler);
+        }
+        return decoder;
+    }
+
     @Override
     protected void doDelete(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
         resp.sendError(HttpServletResponse.SC_METHOD_NOT_ALLOWED, INFO_GET);
@@ -42,6 +42,19 @@ public class BoshStanzaUtils {
         return body.build();
     }
 
+    /**
+     * Creates a BOSH response by wrapping several stanzas in one &lt;body/&gt; element
+     * @param stanzas the XMPP stanzas to wrap
+     * @return the BOSH response
+     */
+    public static Stanza wrapStanzas(Collection<Stanza> stanzas) {
+        StanzaBuilder body = createBoshStanzaBuilder();
+        for (Stanza stanza : stanzas) {
+            body.addPreparedElement(stanza);
+        }
+        return body.build();
+    }
+
     /**
      * Creates a unified BOSH response by merging BOSH responses, this is useful when sending more than one message as
      * a response to a HTTP request.
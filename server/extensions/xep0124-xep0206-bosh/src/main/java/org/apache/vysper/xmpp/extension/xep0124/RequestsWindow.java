@@ -23,46 +23,60 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
 /**
+ * the window of suspended BOSH requests of one session, ordered by RID.
+ * <p>
+ * requests are kept in a ring buffer indexed by RID (the slot for a RID is <code>rid &amp; (capacity - 1)</code>),
+ * so inserting an in-order request, removing the lowest request and checking whether a RID is present are O(1). 
+ * the ring grows when the span between lowest and highest RID exceeds its capacity, which only happens 
+ * for unusual request patterns, since the session context limits the number of parallel requests.
+ * <p>
+ * the rare case of more than one request for the same RID is handled by an overflow list.
+ * <p>
+ * this class is not thread-safe, access is guarded by the lock of the owning {@link BoshBackedSessionContext}.
  */
 public class RequestsWindow {
 
     private final static Logger LOGGER = LoggerFactory.getLogger(RequestsWindow.class);
     
+    private static final int INITIAL_CAPACITY = 8;
+
     /*
      * The highest RID that can be read and processed, this is the highest (rightmost) contiguous RID.
      * The requests from the client can come theoretically with missing updates:
      * rid_1, rid_2, rid_4 (missing rid_3, highestContinuousRid is rid_2)
-     * 
-     * must be synchronized along with requestsWindow 
      */
     private long highestContinuousRid = -1;
 
+    private long currentProcessingRequest = -1;
+
     /**
-     * 
-     * must be synchronized along with requestsWindow 
+     * ring buffer holding the (first) BoshRequest for every RID in the window, empty slots are gaps. 
+     * the capacity is always a power of 2.
      */
-    private long currentProcessingRequest = -1;
+    private BoshRequest[] ring = new BoshRequest[INITIAL_CAPACITY];
 
     /**
-     * queue holding all BoshRequests, sorted ascendingly by RID.
-     * 
-     * NOTE: the list does not enforce the order itself, it must be sorted when adding a new request!
-     * but the list always iterates ordered over Requests (which is the advantage over PriorityQueue, which 
-     * needs additional object creation and CPU cycles on iteration time for ordered processing).
-     * since this queue normally only holds 0, 1, 2 or only a handful of elements, and normally new additions 
-     * are in-order, sorting is cheap.
+     * additional requests for RIDs which already have a request in the ring, in order of their arrival 
      */
-    protected final List<BoshRequest> queue = new ArrayList<BoshRequest>();
+    private List<BoshRequest> duplicates = null;
+
+    /**
+     * lowest and highest RID in the window, only valid if size &gt; 0 
+     */
+    private long lowestRid = -1;
+    private long highestRid = -1;
+
+    private int size = 0;
+    
+    private int distinctRids = 0;
 
     protected String sessionId;
     
     protected long latestAddionTimestamp = 0;
-    private Long lastKey;
 
     public RequestsWindow(String sessionId) {
         this.sessionId = sessionId;
@@ -86,16 +100,19 @@ public class RequestsWindow {
         return latestAddionTimestamp;
     }
 
-    public synchronized void queueRequest(BoshRequest br) {
-        Long rid = br.getRid();
+    public void queueRequest(BoshRequest br) {
+        final long rid = br.getRid();
         if (containsRid(rid)) {
             LOGGER.warn("SID = " + sessionId + " - " + "queueing duplicated rid in requests window: " + rid);
+            if (duplicates == null) duplicates = new ArrayList<BoshRequest>(1);
+            duplicates.add(br);
+        } else {
+            insertIntoRing(br, rid);
         }
-        queue.add(br);
-        Collections.sort(queue);
+        size++;
         latestAddionTimestamp = System.currentTimeMillis();
 
-        if (highestContinuousRid < 0 || queue.size() == 1) {
+        if (highestContinuousRid < 0 || size == 1) {
             highestContinuousRid = rid;
         }
         while (containsRid(highestContinuousRid + 1)) {
@@ -104,17 +121,56 @@ public class RequestsWindow {
             // those missing request may come late, and fill the gap, which is tracked here 
             highestContinuousRid++;
         }
-        LOGGER.debug("SID = " + sessionId + " - queuing new request having rid = {}, highest continuous rid = {}", rid, highestContinuousRid);
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("SID = " + sessionId + " - queuing new request having rid = {}, highest continuous rid = {}", rid, highestContinuousRid);
+        }
     }
-    
-    public synchronized boolean isEmpty() {
-        return queue.isEmpty();
+
+    private void insertIntoRing(BoshRequest br, long rid) {
+        if (distinctRids == 0) {
+            lowestRid = rid;
+            highestRid = rid;
+        } else {
+            final long newLowest = Math.min(lowestRid, rid);
+            final long newHighest = Math.max(highestRid, rid);
+            ensureCapacity(newHighest - newLowest + 1);
+            lowestRid = newLowest;
+            highestRid = newHighest;
+        }
+        ring[slot(rid)] = br;
+        distinctRids++;
+    }
+
+    private void ensureCapacity(long span) {
+        if (span <= ring.length) return;
+        if (span > Integer.MAX_VALUE / 2) {
+            throw new IllegalStateException("SID = " + sessionId + " - RID span too large for requests window: " + span);
+        }
+        int capacity = ring.length;
+        while (capacity < span) capacity <<= 1;
+        final BoshRequest[] grownRing = new BoshRequest[capacity];
+        for (long rid = lowestRid; rid <= highestRid; rid++) {
+            grownRing[(int) (rid & (capacity - 1))] = ring[slot(rid)];
+        }
+        ring = grownRing;
+    }
+
+    private int slot(long rid) {
+        return (int) (rid & (ring.length - 1));
+    }
+
+    private BoshRequest getFromRing(long rid) {
+        if (distinctRids == 0 || rid < lowestRid || rid > highestRid) return null;
+        return ring[slot(rid)];
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
     }
     
-    public synchronized Long firstRid() {
-        if (queue.isEmpty()) return null;
-        final BoshRequest first = queue.get(0);
-        return first.getRid();
+    public Long firstRid() {
+        if (size == 0) return null;
+        return lowestRid;
     }
 
     /**
@@ -122,13 +178,13 @@ public class RequestsWindow {
      * It is possible to have more than one BOSH body to process in the case where a lost request is resent by the client.
      * @return the next (by RID order) body to process
      */
-    public synchronized BoshRequest pollNext() {
-        if (queue.isEmpty()) return null;
+    public BoshRequest pollNext() {
+        if (size == 0) return null;
         
-        String ridSeq = logRequestWindow();
+        final String ridSeq = LOGGER.isDebugEnabled() ? logRequestWindow() : null;
 
-        final Long lowestRid = queue.get(0).getRid();
-        currentProcessingRequest = Math.max(currentProcessingRequest, lowestRid);
+        final long lowest = lowestRid;
+        currentProcessingRequest = Math.max(currentProcessingRequest, lowest);
         if (currentProcessingRequest > highestContinuousRid) {
             reinitHCRFromQueue();
         }
@@ -138,79 +194,103 @@ public class RequestsWindow {
             return null; 
         }
 
-        final BoshRequest nextRequest = queue.remove(0);
+        final BoshRequest nextRequest = removeLowest();
         LOGGER.debug("SID = " + sessionId + " - using RID = " + (nextRequest == null ? "NULL" : Long.toString(currentProcessingRequest)) + " " + ridSeq);
         return nextRequest;
     }
 
-    private synchronized void reinitHCRFromQueue() {
-        highestContinuousRid = -1;
-        if (queue.isEmpty()) return;
-
-        final Iterator<BoshRequest> iterator = queue.iterator();
-        while (iterator.hasNext()) {
-            BoshRequest boshRequest = iterator.next();            
-            final Long rid = boshRequest.getRid();
-            if (highestContinuousRid == -1) {
-                highestContinuousRid = rid;
-            } else if (highestContinuousRid + 1 == rid) {
-                highestContinuousRid = rid;
+    private BoshRequest removeLowest() {
+        final int lowestSlot = slot(lowestRid);
+        final BoshRequest lowestRequest = ring[lowestSlot];
+        size--;
+
+        // another request with the same RID moves up into the ring
+        if (duplicates != null) {
+            for (Iterator<BoshRequest> iterator = duplicates.iterator(); iterator.hasNext(); ) {
+                final BoshRequest duplicate = iterator.next();
+                if (duplicate.getRid() == lowestRid) {
+                    iterator.remove();
+                    ring[lowestSlot] = duplicate;
+                    return lowestRequest;
+                }
             }
         }
+
+        ring[lowestSlot] = null;
+        distinctRids--;
+        if (distinctRids > 0) {
+            // skip the gap to the next RID present
+            do {
+                lowestRid++;
+            } while (ring[slot(lowestRid)] == null);
+        }
+        return lowestRequest;
     }
 
-    public synchronized boolean containsRid(Long rid) {
-        for (BoshRequest item : queue) {
-            if (rid.equals(item.getRid())) return true;
+    private void reinitHCRFromQueue() {
+        highestContinuousRid = -1;
+        if (size == 0) return;
+
+        highestContinuousRid = lowestRid;
+        while (containsRid(highestContinuousRid + 1)) {
+            highestContinuousRid++;
         }
-        return false;
+    }
+
+    public boolean containsRid(Long rid) {
+        return containsRid(rid.longValue());
+    }
+
+    public boolean containsRid(long rid) {
+        return getFromRing(rid) != null;
     }
 
     public int size() {
-        return queue.size();
+        return size;
     }
     
     public int getDistinctRIDs() {
-        int count = 0;
-        long prev = -1L;
-        for (BoshRequest boshRequest : queue) {
-            long rid = boshRequest.getRid();
-            if (prev != rid) count++;
-            prev = rid;
-        }
-        return count;
+        return distinctRids;
     }
     
-    public synchronized String logRequestWindow() {
-        final StringBuffer logMsg = new StringBuffer("rids = [");
-        Long prev = -1L;
-        for (Iterator<BoshRequest> iter = queue.iterator(); iter.hasNext(); ) {
-            BoshRequest br = iter.next();
-            Long currentRid = br.getRid();
-
-            if (prev != -1 && prev != currentRid - 1) {
-                logMsg.append("GAP, ");
-            } 
-            logMsg.append(currentRid);
-            if (currentRid.equals(highestContinuousRid)) {
-                logMsg.append(" HCR");
-            }
-            if (currentRid.equals(currentProcessingRequest)) {
-                logMsg.append(" *");
+    public String logRequestWindow() {
+        final StringBuilder logMsg = new StringBuilder("rids = [");
+        if (distinctRids > 0) {
+            long prev = -1;
+            for (long rid = lowestRid; rid <= highestRid; rid++) {
+                if (!containsRid(rid)) continue;
+                final int count = 1 + countDuplicates(rid);
+                for (int i = 0; i < count; i++) {
+                    if (prev != -1) logMsg.append(", ");
+                    if (prev != -1 && prev != rid - 1 && prev != rid) {
+                        logMsg.append("GAP, ");
+                    } 
+                    logMsg.append(rid);
+                    if (rid == highestContinuousRid) {
+                        logMsg.append(" HCR");
+                    }
+                    if (rid == currentProcessingRequest) {
+                        logMsg.append(" *");
+                    }
+                    prev = rid;
+                }
             }
-            if (iter.hasNext()) logMsg.append(", ");
-
-            prev = currentRid;
         }
         logMsg.append("]");
         return logMsg.toString();
     }
 
-    public synchronized Long getLatestRID() {
-        Long rid = null;
-        for (BoshRequest boshRequest : queue) {
-            rid = boshRequest.getRid();
+    private int countDuplicates(long rid) {
+        if (duplicates == null) return 0;
+        int count = 0;
+        for (BoshRequest duplicate : duplicates) {
+            if (duplicate.getRid() == rid) count++;
         }
-        return rid;
+        return count;
+    }
+
+    public Long getLatestRID() {
+        if (size == 0) return null;
+        return highestRid;
     }
 }
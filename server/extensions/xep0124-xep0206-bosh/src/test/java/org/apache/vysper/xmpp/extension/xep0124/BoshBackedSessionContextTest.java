@@ -25,6 +25,8 @@ import static org.easymock.EasyMock.*;
 import static org.junit.Assert.assertEquals;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
 
 import javax.servlet.AsyncContext;
 import javax.servlet.AsyncEvent;
@@ -37,6 +39,7 @@ import org.apache.vysper.xmpp.addressing.EntityImpl;
 import org.apache.vysper.xmpp.protocol.StanzaProcessor;
 import org.apache.vysper.xmpp.server.ServerRuntimeContext;
 import org.apache.vysper.xmpp.stanza.Stanza;
+import org.apache.vysper.xmpp.stanza.StanzaBuilder;
 import org.easymock.Capture;
 import org.easymock.EasyMock;
 import org.easymock.IMocksControl;
@@ -102,6 +105,35 @@ public class BoshBackedSessionContextTest {
         assertEquals(new Renderer(body).getComplete(), new String(boshResponse.getContent()));
     }
 
+    @Test
+    public void testWriteBatch() {
+        HttpServletRequest httpServletRequest = mocksControl.createMock(HttpServletRequest.class);
+        AsyncContext asyncContext = mocksControl.createMock(AsyncContext.class);
+        expect(httpServletRequest.startAsync()).andReturn(asyncContext);
+        expectLastCall().atLeastOnce();
+        expect(httpServletRequest.getAsyncContext()).andReturn(asyncContext);
+        expectLastCall().atLeastOnce();
+        asyncContext.setTimeout(anyLong());
+        asyncContext.dispatch();
+        expectLastCall().atLeastOnce();
+        httpServletRequest.setAttribute(eq(BOSH_REQUEST_ATTRIBUTE), EasyMock.<BoshRequest>notNull());
+        asyncContext.addListener(EasyMock.<AsyncListener>anyObject());
+        Capture<BoshResponse> captured = new Capture<BoshResponse>();
+        httpServletRequest.setAttribute(eq(BOSH_RESPONSE_ATTRIBUTE), EasyMock.<BoshResponse> capture(captured));
+        mocksControl.replay();
+
+        BoshBackedSessionContext boshBackedSessionContext = new BoshBackedSessionContext(serverRuntimeContext, stanzaProcessor, null, inactivityChecker);
+        boshBackedSessionContext.insertRequest(new BoshRequest(httpServletRequest, BoshStanzaUtils.EMPTY_BOSH_RESPONSE, 1L));
+        List<Stanza> stanzas = Arrays.asList(new StanzaBuilder("one").build(), new StanzaBuilder("two").build());
+        boshBackedSessionContext.writeBatch(stanzas);
+        mocksControl.verify();
+
+        BoshResponse boshResponse = captured.getValue();
+        assertEquals(new Renderer(BoshStanzaUtils.wrapStanzas(stanzas)).getComplete(),
+                new String(boshResponse.getContent()));
+        assertEquals(2, BoshStanzaUtils.wrapStanzas(stanzas).getInnerElements().size());
+    }
+
     @Test
     public void testSetBoshVersion1() {
         mocksControl.replay();
@@ -81,4 +81,32 @@ public class BoshDecoderTest {
         assertEquals("en", request.getAttributeValue(NamespaceURIs.XML, "lang"));
     }
 
+    @Test
+    public void testDecodeReusedForLargeBody() throws Exception {
+        StringBuilder text = new StringBuilder();
+        while (text.length() < 10000) {
+            text.append("payload \u00e4\u00f6\u00fc ");
+        }
+        ServletInputStream first = new ServletInputStreamMock("<body rid='1' xmlns='http://jabber.org/protocol/httpbind'/>");
+        ServletInputStream second = new ServletInputStreamMock("<body rid='2' xmlns='http://jabber.org/protocol/httpbind'>"
+                + "<message xmlns='jabber:client'><body>" + text + "</body></message></body>");
+        Capture<Stanza> capturedFirst = new Capture<Stanza>();
+        Capture<Stanza> capturedSecond = new Capture<Stanza>();
+        expect(request.getInputStream()).andReturn(first);
+        boshHandler.process(EasyMock.<HttpServletRequest>notNull(), EasyMock.<Stanza>capture(capturedFirst));
+        expect(request.getInputStream()).andReturn(second);
+        boshHandler.process(EasyMock.<HttpServletRequest>notNull(), EasyMock.<Stanza>capture(capturedSecond));
+        mocksControl.replay();
+        boshDecoder.decode(request);
+        boshDecoder.decode(request);
+        mocksControl.verify();
+
+        assertEquals("1", capturedFirst.getValue().getAttributeValue("rid"));
+        Stanza body = capturedSecond.getValue();
+        assertEquals("2", body.getAttributeValue("rid"));
+        String decodedText = body.getSingleInnerElementsNamed("message").getSingleInnerElementsNamed("body")
+                .getInnerText().getText();
+        assertEquals(text.toString(), decodedText);
+    }
+
 }
@@ -99,6 +99,68 @@ public class RequestsWindowTest extends TestCase {
         
     }
 
+    public void testPollDuplicateRIDsInArrivalOrder() {
+        requestsWindow = new RequestsWindow("1");
+        final BoshRequest first = new BoshRequest(null, null, 7L);
+        final BoshRequest second = new BoshRequest(null, null, 7L);
+        requestsWindow.queueRequest(first);
+        queueNewRequest(8L);
+        requestsWindow.queueRequest(second);
+        assertEquals(3, requestsWindow.size());
+        assertEquals(2, requestsWindow.getDistinctRIDs());
+
+        assertSame(first, requestsWindow.pollNext());
+        assertEquals(Long.valueOf(7L), requestsWindow.firstRid());
+        assertSame(second, requestsWindow.pollNext());
+        assertRID(8L, requestsWindow.pollNext());
+        assertTrue(requestsWindow.isEmpty());
+        assertNull(requestsWindow.firstRid());
+    }
+
+    public void testGrowBeyondInitialCapacity() {
+        requestsWindow = new RequestsWindow("1");
+        for (long rid = 1000; rid < 1040; rid += 2) {
+            queueNewRequest(rid);
+        }
+        assertHighestContinuous(1000);
+        assertEquals(Long.valueOf(1038L), requestsWindow.getLatestRID());
+        for (long rid = 1001; rid < 1040; rid += 2) {
+            queueNewRequest(rid);
+        }
+        assertHighestContinuous(1039);
+        for (long rid = 1000; rid < 1040; rid++) {
+            assertTrue(requestsWindow.containsRid(rid));
+            assertRID(rid, requestsWindow.pollNext());
+        }
+        assertTrue(requestsWindow.isEmpty());
+    }
+
+    public void testWrapAroundRing() {
+        requestsWindow = new RequestsWindow("1");
+        queueNewRequest(1L);
+        queueNewRequest(2L);
+        for (long rid = 3; rid <= 100; rid++) {
+            queueNewRequest(rid);
+            assertEquals(3, requestsWindow.size());
+            assertRID(rid - 2, requestsWindow.pollNext());
+        }
+        assertHighestContinuous(100);
+        assertRID(99L, requestsWindow.pollNext());
+        assertRID(100L, requestsWindow.pollNext());
+        assertTrue(requestsWindow.isEmpty());
+    }
+
+    public void testInsertBelowLowestRID() {
+        requestsWindow = new RequestsWindow("1");
+        queueNewRequest(11L);
+        queueNewRequest(12L);
+        queueNewRequest(10L);
+        assertEquals(Long.valueOf(10L), requestsWindow.firstRid());
+        assertRID(10L, requestsWindow.pollNext());
+        assertRID(11L, requestsWindow.pollNext());
+        assertRID(12L, requestsWindow.pollNext());
+    }
+
     private void assertRID(final long expectedRid, BoshRequest boshRequest) {
         assertEquals(expectedRid, (long)boshRequest.getRid());
     }
@@ -21,6 +21,7 @@ package org.apache.vysper.xmpp.extension.xep0124;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 
 import javax.servlet.ServletInputStream;
 
@@ -29,7 +30,7 @@ public class ServletInputStreamMock extends ServletInputStream {
     private ByteArrayInputStream bytes;
     
     public ServletInputStreamMock(String input) {
-        bytes = new ByteArrayInputStream(input.getBytes());
+        bytes = new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8));
     }
 
     @Override
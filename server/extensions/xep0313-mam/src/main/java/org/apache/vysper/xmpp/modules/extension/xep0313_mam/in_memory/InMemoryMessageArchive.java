@@ -24,7 +24,6 @@ import static java.util.Objects.requireNonNull;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.StringJoiner;
-import java.util.UUID;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
@@ -36,23 +35,37 @@ import org.apache.vysper.xmpp.modules.extension.xep0313_mam.spi.MessageArchive;
 import org.apache.vysper.xmpp.modules.extension.xep0313_mam.spi.MessageFilter;
 import org.apache.vysper.xmpp.modules.extension.xep0313_mam.spi.MessagePageRequest;
 import org.apache.vysper.xmpp.modules.extension.xep0313_mam.spi.SimpleArchivedMessage;
+import org.apache.vysper.xmpp.uuid.TimeBasedUUIDGenerator;
+import org.apache.vysper.xmpp.uuid.UUIDGenerator;
 
 /**
  * @author Réda Housni Alaoui
  */
 public class InMemoryMessageArchive implements MessageArchive {
 
+    /**
+     * shared by all archives, its ids sort in the order the messages have been archived
+     */
+    private static final UUIDGenerator DEFAULT_ID_GENERATOR = new TimeBasedUUIDGenerator();
+
     private final Entity archiveId;
 
+    private final UUIDGenerator idGenerator;
+
     private final List<SimpleArchivedMessage> messages = new ArrayList<>();
 
     public InMemoryMessageArchive(Entity archiveId) {
+        this(archiveId, DEFAULT_ID_GENERATOR);
+    }
+
+    public InMemoryMessageArchive(Entity archiveId, UUIDGenerator idGenerator) {
         this.archiveId = requireNonNull(archiveId);
+        this.idGenerator = requireNonNull(idGenerator);
     }
 
     @Override
     public ArchivedMessage archive(Message message) {
-        SimpleArchivedMessage archivedMessage = new SimpleArchivedMessage(UUID.randomUUID().toString(), message);
+        SimpleArchivedMessage archivedMessage = new SimpleArchivedMessage(idGenerator.create(), message);
         messages.add(archivedMessage);
         return archivedMessage;
     }
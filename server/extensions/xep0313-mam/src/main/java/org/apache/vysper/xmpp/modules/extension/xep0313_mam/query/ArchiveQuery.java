@@ -25,6 +25,7 @@ import org.apache.vysper.xml.fragment.XMLSemanticError;
 import org.apache.vysper.xmpp.addressing.Entity;
 import org.apache.vysper.xmpp.modules.extension.xep0313_mam.spi.ArchivedMessages;
 import org.apache.vysper.xmpp.modules.extension.xep0313_mam.spi.MessageArchive;
+import org.apache.vysper.xmpp.server.jfr.FlightRecorderEvents;
 
 /**
  * @author Réda Housni Alaoui
@@ -47,12 +48,17 @@ public class ArchiveQuery {
         ArchiveFilter archiveFilter = new ArchiveFilter(archiveId, query.getX());
         QuerySet querySet = query.getSet();
 
-        if (querySet.lastPage()) {
-            long pageSize = querySet.pageSize().orElseThrow(
-                    () -> new IllegalArgumentException("Page size must be defined when requesting last page"));
-            return archive.fetchLastPageSortedByOldestFirst(archiveFilter, pageSize);
-        } else {
-            return archive.fetchSortedByOldestFirst(archiveFilter, querySet);
+        Object jfrEvent = FlightRecorderEvents.beginStorage();
+        try {
+            if (querySet.lastPage()) {
+                long pageSize = querySet.pageSize().orElseThrow(
+                        () -> new IllegalArgumentException("Page size must be defined when requesting last page"));
+                return archive.fetchLastPageSortedByOldestFirst(archiveFilter, pageSize);
+            } else {
+                return archive.fetchSortedByOldestFirst(archiveFilter, querySet);
+            }
+        } finally {
+            FlightRecorderEvents.endStorage(jfrEvent, "mam.fetch", archive.getClass());
         }
     }
 
@@ -26,6 +26,7 @@ import java.util.Collections;
 import java.util.List;
 
 import org.apache.vysper.xml.fragment.XMLSemanticError;
+import org.apache.vysper.xmpp.modules.bulkhead.ExecutionClass;
 import org.apache.vysper.xmpp.modules.core.base.handler.DefaultIQHandler;
 import org.apache.vysper.xmpp.modules.extension.xep0313_mam.muc.MUCArchiveQueryHandler;
 import org.apache.vysper.xmpp.modules.extension.xep0313_mam.pubsub.PubsubNodeArchiveQueryHandler;
@@ -68,6 +69,14 @@ public class MAMIQQueryHandler extends DefaultIQHandler {
         return verifyInnerElementWorker(stanza, Query.ELEMENT_NAME) && verifyInnerNamespace(stanza, namespace);
     }
 
+    /**
+     * queries are sets, but only read the archive
+     */
+    @Override
+    protected ExecutionClass getExecutionClass(IQStanza stanza) {
+        return ExecutionClass.STORAGE_READ;
+    }
+
     @Override
     protected List<Stanza> handleSet(IQStanza stanza, ServerRuntimeContext serverRuntimeContext,
             SessionContext sessionContext, StanzaBroker broker) {
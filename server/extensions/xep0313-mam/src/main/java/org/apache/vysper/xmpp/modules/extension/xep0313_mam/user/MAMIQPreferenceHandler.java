@@ -28,6 +28,7 @@ import java.util.Optional;
 import org.apache.vysper.xml.fragment.XMLElement;
 import org.apache.vysper.xml.fragment.XMLSemanticError;
 import org.apache.vysper.xmpp.addressing.Entity;
+import org.apache.vysper.xmpp.modules.bulkhead.ExecutionClass;
 import org.apache.vysper.xmpp.modules.core.base.handler.DefaultIQHandler;
 import org.apache.vysper.xmpp.modules.extension.xep0313_mam.spi.MessageArchives;
 import org.apache.vysper.xmpp.modules.extension.xep0313_mam.spi.UserMessageArchive;
@@ -60,6 +61,11 @@ public class MAMIQPreferenceHandler extends DefaultIQHandler {
                 && verifyInnerNamespace(stanza, namespace);
     }
 
+    @Override
+    protected ExecutionClass getExecutionClass(IQStanza stanza) {
+        return ExecutionClass.forStorageAccess(stanza);
+    }
+
     @Override
     protected List<Stanza> handleGet(IQStanza stanza, ServerRuntimeContext serverRuntimeContext,
             SessionContext sessionContext, StanzaBroker stanzaBroker) {
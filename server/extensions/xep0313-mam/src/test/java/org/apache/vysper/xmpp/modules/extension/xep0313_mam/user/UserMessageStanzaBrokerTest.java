@@ -21,6 +21,7 @@ package org.apache.vysper.xmpp.modules.extension.xep0313_mam.user;
 
 import static org.mockito.Mockito.mock;
 
+import java.util.Arrays;
 import java.util.stream.Stream;
 
 import org.apache.vysper.xmpp.addressing.Entity;
@@ -31,6 +32,7 @@ import org.apache.vysper.xmpp.modules.extension.xep0313_mam.spi.MessageArchivesM
 import org.apache.vysper.xmpp.modules.extension.xep0313_mam.spi.UserMessageArchiveMock;
 import org.apache.vysper.xmpp.protocol.StanzaBroker;
 import org.apache.vysper.xmpp.stanza.MessageStanza;
+import org.apache.vysper.xmpp.stanza.Stanza;
 import org.apache.vysper.xmpp.stanza.MessageStanzaType;
 import org.apache.vysper.xmpp.stanza.StanzaBuilder;
 import org.junit.Before;
@@ -126,6 +128,17 @@ public class UserMessageStanzaBrokerTest {
         romeoArchive.assertUniqueArchivedMessageStanza(messageStanza);
     }
 
+    @Test
+    public void batchWrittenToSessionIsArchived() {
+        UserMessageStanzaBroker tested = buildTested(true, false);
+        MessageStanza messageStanza = buildMessageStanza(MessageStanzaType.NORMAL, ROMEO_IN_ORCHARD,
+                ALICE_IN_RABBIT_HOLE, "hello world");
+
+        tested.writeToSession(Arrays.<Stanza> asList(messageStanza));
+
+        romeoArchive.assertUniqueArchivedMessageStanza(messageStanza);
+    }
+
     @Test
     public void outboundMessageWithoutFrom() {
         UserMessageStanzaBroker tested = buildTested(true, false);
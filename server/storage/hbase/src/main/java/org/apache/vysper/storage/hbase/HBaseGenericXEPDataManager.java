@@ -53,17 +53,13 @@ public abstract class HBaseGenericXEPDataManager {
         final Put put = new Put(entityAsBytes(entity.getBareJID()));
         put.add(COLUMN_FAMILY_NAME_XEP_BYTES, asBytes(column), asBytes(xml));
 
-        HTableInterface table = null;
         try {
-            table = hbaseStorage.getTable(TABLE_NAME_USER);
-            table.put(put);
+            hbaseStorage.mutateEntityRow(put);
             logger.debug("stored private data for {} with key {}", entity, key);
             return true;
         } catch (IOException e) {
             logger.warn("failed to save private data for {} with key {}", entity, key);
             return false;
-        } finally {
-            hbaseStorage.putTable(table);
         }
     }
 
@@ -0,0 +1,286 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.storage.hbase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.hbase.client.HTableInterface;
+import org.apache.hadoop.hbase.client.Row;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * client-side buffer for mutations ({@link org.apache.hadoop.hbase.client.Put}s and
+ * {@link org.apache.hadoop.hbase.client.Delete}s) against one table.
+ * <br>
+ * mutations are collected and sent to HBase in one batch call, either when the
+ * buffer holds {@link #getMaxBufferedMutations()} entries or when the oldest buffered
+ * mutation is older than {@link #getFlushIntervalMillis()}, whatever comes first.
+ * <br>
+ * to preserve read-your-writes within this server, readers call {@link #flushIfPending(byte[])}
+ * before reading a row. a mutation on a row which already has a mutation buffered or in flight forces
+ * a flush first, because HBase does not guarantee ordering of operations within one batch.
+ * <br>
+ * a batch which fails to reach HBase is kept in the buffer and sent again by the next flush. the
+ * failure is reported to the caller triggering the flush, and the flush is retried after the
+ * flush interval.
+ * <br>
+ * a buffer with a maximum size of 1 or less writes every mutation through immediately.
+ *
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class HBaseMutationBuffer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HBaseMutationBuffer.class);
+
+    public static final int DEFAULT_MAX_BUFFERED_MUTATIONS = 100;
+
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 50;
+
+    protected final HBaseStorage hBaseStorage;
+
+    protected final String tableName;
+
+    protected final int maxBufferedMutations;
+
+    protected final long flushIntervalMillis;
+
+    /**
+     * guards {@link #pendingMutations}, {@link #pendingRows}, {@link #inFlightRows} and {@link #scheduledFlush}
+     */
+    private final Object bufferLock = new Object();
+
+    /**
+     * serializes sending batches, so that a flush returns only after all mutations
+     * added before it have reached HBase
+     */
+    private final Object flushLock = new Object();
+
+    private List<Row> pendingMutations = new ArrayList<Row>();
+
+    /**
+     * row keys of the buffered mutations, each row appears at most once per batch
+     */
+    private Set<byte[]> pendingRows = new TreeSet<byte[]>(Bytes.BYTES_COMPARATOR);
+
+    /**
+     * rows of the batch currently being sent, readers and writers of these rows have to wait for the send to complete
+     */
+    private Set<byte[]> inFlightRows = null;
+
+    private ScheduledFuture<?> scheduledFlush;
+
+    private ScheduledExecutorService flushScheduler;
+
+    private long flushedBatches = 0;
+
+    private long flushedMutations = 0;
+
+    public HBaseMutationBuffer(HBaseStorage hBaseStorage, String tableName) {
+        this(hBaseStorage, tableName, DEFAULT_MAX_BUFFERED_MUTATIONS, DEFAULT_FLUSH_INTERVAL_MILLIS);
+    }
+
+    public HBaseMutationBuffer(HBaseStorage hBaseStorage, String tableName, int maxBufferedMutations,
+            long flushIntervalMillis) {
+        this.hBaseStorage = hBaseStorage;
+        this.tableName = tableName;
+        this.maxBufferedMutations = maxBufferedMutations;
+        this.flushIntervalMillis = flushIntervalMillis;
+        if (isBuffering()) {
+            flushScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "hbase-mutation-flusher-" + tableName);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public boolean isBuffering() {
+        return maxBufferedMutations > 1 && flushIntervalMillis > 0;
+    }
+
+    public int getMaxBufferedMutations() {
+        return maxBufferedMutations;
+    }
+
+    public long getFlushIntervalMillis() {
+        return flushIntervalMillis;
+    }
+
+    /**
+     * adds a mutation to the buffer. this might trigger a synchronous flush, in which case
+     * a failure to write to HBase is reported to the caller. when the failing flush has been
+     * triggered by the mutation filling up the buffer, the mutation stays buffered and is sent
+     * again with the next flush.
+     */
+    public void add(Row mutation) throws IOException {
+        if (!isBuffering()) {
+            send(singletonBatch(mutation));
+            return;
+        }
+
+        final byte[] row = mutation.getRow();
+        boolean flushNow = false;
+        while (true) {
+            synchronized (bufferLock) {
+                if (!isPending(row) && pendingMutations.size() < maxBufferedMutations) {
+                    pendingMutations.add(mutation);
+                    pendingRows.add(row);
+                    if (pendingMutations.size() >= maxBufferedMutations) {
+                        flushNow = true;
+                    } else {
+                        scheduleFlush();
+                    }
+                    break;
+                }
+            }
+            // the row is already part of a batch, or the buffer holds mutations which failed to be sent before
+            flush();
+        }
+        if (flushNow) flush();
+    }
+
+    private void scheduleFlush() {
+        if (scheduledFlush != null || flushScheduler.isShutdown()) return;
+        scheduledFlush = flushScheduler.schedule(() -> {
+            try {
+                flush();
+            } catch (IOException e) {
+                LOG.error("failed to flush buffered mutations to HBase table " + tableName + ", will retry", e);
+            }
+        }, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * flushes the buffer if it holds a mutation for the given row
+     */
+    public void flushIfPending(byte[] row) throws IOException {
+        if (!isBuffering()) return;
+        boolean pending;
+        synchronized (bufferLock) {
+            pending = isPending(row);
+        }
+        if (pending) flush();
+    }
+
+    /**
+     * sends all buffered mutations to HBase in one batch. if sending fails, the batch is put back
+     * in front of the mutations buffered in the meantime.
+     */
+    public void flush() throws IOException {
+        synchronized (flushLock) {
+            List<Row> batch;
+            synchronized (bufferLock) {
+                if (scheduledFlush != null) {
+                    scheduledFlush.cancel(false);
+                    scheduledFlush = null;
+                }
+                if (pendingMutations.isEmpty()) return;
+                batch = pendingMutations;
+                inFlightRows = pendingRows;
+                pendingMutations = new ArrayList<Row>();
+                pendingRows = new TreeSet<byte[]>(Bytes.BYTES_COMPARATOR);
+            }
+            boolean sent = false;
+            try {
+                send(batch);
+                sent = true;
+            } finally {
+                synchronized (bufferLock) {
+                    if (!sent) {
+                        // rows in flight are not buffered again meanwhile, so the batches do not overlap
+                        batch.addAll(pendingMutations);
+                        pendingMutations = batch;
+                        pendingRows.addAll(inFlightRows);
+                        scheduleFlush();
+                    }
+                    inFlightRows = null;
+                }
+            }
+        }
+    }
+
+    private boolean isPending(byte[] row) {
+        return pendingRows.contains(row) || (inFlightRows != null && inFlightRows.contains(row));
+    }
+
+    /**
+     * flushes the remaining mutations and stops the flush timer. if the flush fails, the failure
+     * is reported to the caller, and the mutations are only sent by calling {@link #flush()} again.
+     */
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            if (flushScheduler != null) flushScheduler.shutdown();
+        }
+    }
+
+    public int getPendingMutationCount() {
+        synchronized (bufferLock) {
+            return pendingMutations.size();
+        }
+    }
+
+    public long getFlushedBatchCount() {
+        synchronized (flushLock) {
+            return flushedBatches;
+        }
+    }
+
+    public long getFlushedMutationCount() {
+        synchronized (flushLock) {
+            return flushedMutations;
+        }
+    }
+
+    protected void send(List<Row> batch) throws IOException {
+        HTableInterface table = null;
+        try {
+            table = hBaseStorage.getTable(tableName);
+            table.batch(batch);
+            synchronized (flushLock) {
+                flushedBatches++;
+                flushedMutations += batch.size();
+            }
+            LOG.debug("flushed {} mutations to HBase table {}", batch.size(), tableName);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while flushing mutations to HBase table " + tableName, e);
+        } finally {
+            hBaseStorage.putTable(table);
+        }
+    }
+
+    private static List<Row> singletonBatch(Row mutation) {
+        List<Row> batch = new ArrayList<Row>(1);
+        batch.add(mutation);
+        return batch;
+    }
+}
@@ -28,6 +28,7 @@ import org.apache.hadoop.hbase.client.HBaseAdmin;
 import org.apache.hadoop.hbase.client.HTableInterface;
 import org.apache.hadoop.hbase.client.HTablePool;
 import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Row;
 import org.apache.vysper.xmpp.addressing.Entity;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -45,6 +46,11 @@ import static org.apache.vysper.storage.hbase.HBaseUtils.*;
  * create 'vysper_user', {NAME => 'bsc', VERSIONS => 1}, {NAME => 'cct', VERSIONS => 1}, {NAME => 'rst', VERSIONS => 1}, {NAME => 'xep', VERSIONS => 5}
  * }</pre>
  * 
+ * mutations to the user table are buffered client-side and sent in batches, see {@link HBaseMutationBuffer}.
+ * buffer size and flush interval are read from the HBase configuration using the keys
+ * {@link #CONFIG_MUTATION_BUFFER_SIZE} and {@link #CONFIG_MUTATION_BUFFER_FLUSH_INTERVAL}.
+ * a buffer size of 1 disables buffering.
+ * 
  * @author The Apache MINA Project (dev@mina.apache.org)
  */
 public class HBaseStorage {
@@ -59,6 +65,9 @@ public class HBaseStorage {
     public static final byte[] COLUMN_FAMILY_NAME_ROSTER_BYTES = COLUMN_FAMILY_NAME_ROSTER.getBytes();
     public static final String COLUMN_FAMILY_NAME_XEP = "xep";
     public static final byte[] COLUMN_FAMILY_NAME_XEP_BYTES = COLUMN_FAMILY_NAME_XEP.getBytes();
+
+    public static final String CONFIG_MUTATION_BUFFER_SIZE = "vysper.hbase.mutationbuffer.size";
+    public static final String CONFIG_MUTATION_BUFFER_FLUSH_INTERVAL = "vysper.hbase.mutationbuffer.flushinterval.millis";
     
     protected static HBaseStorage hbaseStorageSingleton;
 
@@ -79,6 +88,7 @@ public class HBaseStorage {
     protected Configuration hbaseConfiguration = null;
     protected HBaseAdmin hbaseAdmin;
     protected HTablePool tablePool;
+    protected HBaseMutationBuffer userTableMutationBuffer;
 
     public void init() throws HBaseStorageException {
         try {
@@ -95,6 +105,13 @@ public class HBaseStorage {
             LOG.error("connection to HBase failed", e);
             throw e;
         }
+
+        final int mutationBufferSize = hbaseConfiguration.getInt(CONFIG_MUTATION_BUFFER_SIZE,
+                HBaseMutationBuffer.DEFAULT_MAX_BUFFERED_MUTATIONS);
+        final long mutationBufferFlushInterval = hbaseConfiguration.getLong(CONFIG_MUTATION_BUFFER_FLUSH_INTERVAL,
+                HBaseMutationBuffer.DEFAULT_FLUSH_INTERVAL_MILLIS);
+        userTableMutationBuffer = new HBaseMutationBuffer(this, TABLE_NAME_USER, mutationBufferSize,
+                mutationBufferFlushInterval);
     }
 
     protected void connectHBase() throws HBaseStorageException {
@@ -114,6 +131,39 @@ public class HBaseStorage {
         return tablePool.getTable(tableName);
     }
 
+    /**
+     * queues a Put or Delete against the user table. the mutation is sent to HBase 
+     * together with other buffered mutations, at the latest when the row is read again.
+     */
+    public void mutateEntityRow(Row mutation) throws IOException {
+        userTableMutationBuffer.add(mutation);
+    }
+
+    /**
+     * sends all buffered mutations against the user table to HBase 
+     */
+    public void flushMutations() throws IOException {
+        userTableMutationBuffer.flush();
+    }
+
+    /**
+     * sends the buffered mutations to HBase and releases the connection. called when the server stops.
+     */
+    public void close() throws IOException {
+        synchronized (HBaseStorage.class) {
+            if (hbaseStorageSingleton == this) hbaseStorageSingleton = null;
+        }
+        try {
+            if (userTableMutationBuffer != null) userTableMutationBuffer.close();
+        } finally {
+            if (tablePool != null) tablePool.close();
+        }
+    }
+
+    public HBaseMutationBuffer getUserTableMutationBuffer() {
+        return userTableMutationBuffer;
+    }
+
     public Result getEntityRow(Entity entity, String... columnFamilyNames) {
         if (columnFamilyNames == null || columnFamilyNames.length == 0) {
             columnFamilyNames = new String[]{COLUMN_FAMILY_NAME_CONTACT};
@@ -121,12 +171,10 @@ public class HBaseStorage {
 
         HTableInterface userTable = null;
         try {
+            final byte[] row = entityAsBytes(entity.getBareJID());
+            userTableMutationBuffer.flushIfPending(row);
             userTable = getTable(TABLE_NAME_USER);
-            final Get get = new Get(entityAsBytes(entity.getBareJID()));
-            for (String columnFamilyName : columnFamilyNames) {
-                get.addFamily(asBytes(columnFamilyName));
-            }
-            final Result result = userTable.get(get);
+            final Result result = userTable.get(createGet(row, columnFamilyNames));
             return result;
         } catch (IOException e) {
             e.printStackTrace();  //To change body of catch statement use File | Settings | File Templates.
@@ -136,6 +184,14 @@ public class HBaseStorage {
         }
     }
 
+    protected Get createGet(byte[] row, String... columnFamilyNames) {
+        final Get get = new Get(row);
+        for (String columnFamilyName : columnFamilyNames) {
+            get.addFamily(asBytes(columnFamilyName));
+        }
+        return get;
+    }
+
     public void putTable(HTableInterface userTable) {
         if (userTable == null) return;
         try {
@@ -19,6 +19,9 @@
  */
 package org.apache.vysper.storage.hbase;
 
+import java.io.Closeable;
+import java.io.IOException;
+
 import org.apache.vysper.storage.OpenStorageProviderRegistry;
 import org.apache.vysper.storage.hbase.privatedata.HBasePrivateDataPersistenceManager;
 import org.apache.vysper.storage.hbase.roster.HBaseRosterManager;
@@ -29,13 +32,23 @@ import org.apache.vysper.storage.hbase.vcard.HBaseVcardTempPersistenceManager;
  *
  * @author The Apache MINA Project (dev@mina.apache.org)
  */
-public class HBaseStorageProviderRegistry extends OpenStorageProviderRegistry {
+public class HBaseStorageProviderRegistry extends OpenStorageProviderRegistry implements Closeable {
+
+    private final HBaseStorage hBaseStorage;
 
     public HBaseStorageProviderRegistry() throws HBaseStorageException {
-        add(new HBaseUserManagement(HBaseStorage.getInstance()));
-        add(new HBaseRosterManager(HBaseStorage.getInstance()));
-        add(new HBasePrivateDataPersistenceManager(HBaseStorage.getInstance()));
-        add(new HBaseVcardTempPersistenceManager(HBaseStorage.getInstance()));
+        hBaseStorage = HBaseStorage.getInstance();
+        add(new HBaseUserManagement(hBaseStorage));
+        add(new HBaseRosterManager(hBaseStorage));
+        add(new HBasePrivateDataPersistenceManager(hBaseStorage));
+        add(new HBaseVcardTempPersistenceManager(hBaseStorage));
+    }
+
+    /**
+     * writes the buffered mutations to HBase
+     */
+    public void close() throws IOException {
+        hBaseStorage.close();
     }
 
 }
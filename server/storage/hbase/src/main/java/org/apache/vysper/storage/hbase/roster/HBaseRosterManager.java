@@ -21,7 +21,6 @@ package org.apache.vysper.storage.hbase.roster;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.hadoop.hbase.client.Delete;
-import org.apache.hadoop.hbase.client.HTableInterface;
 import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.vysper.storage.hbase.HBaseStorage;
@@ -39,9 +38,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.NavigableMap;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 import static org.apache.vysper.storage.hbase.HBaseStorage.*;
 import static org.apache.vysper.storage.hbase.HBaseUtils.asBytes;
@@ -60,6 +64,11 @@ public class HBaseRosterManager extends AbstractRosterManager {
     public static final String COLUMN_PREFIX_ASKTYPE = "a:";
     public static final String COLUMN_PREFIX_GROUP = "g:";
 
+    private static final byte NAME_PREFIX_CHAR = 'n';
+    private static final byte TYPE_PREFIX_CHAR = 't';
+    private static final byte ASKTYPE_PREFIX_CHAR = 'a';
+    private static final byte GROUP_PREFIX_CHAR = 'g';
+
     protected HBaseStorage hBaseStorage;
 
     public HBaseRosterManager(HBaseStorage hBaseStorage) {
@@ -69,27 +78,33 @@ public class HBaseRosterManager extends AbstractRosterManager {
     @Override
     protected Roster retrieveRosterInternal(Entity bareJid) {
         final Result entityRow = hBaseStorage.getEntityRow(bareJid, COLUMN_FAMILY_NAME_CONTACT, COLUMN_FAMILY_NAME_ROSTER);
+        return decodeRoster(bareJid, entityRow);
+    }
 
+    protected MutableRoster decodeRoster(Entity bareJid, Result entityRow) {
         MutableRoster roster = new MutableRoster();
+        if (entityRow == null) return roster;
 
         final NavigableMap<byte[],byte[]> contacts = entityRow.getFamilyMap(COLUMN_FAMILY_NAME_CONTACT_BYTES);
         if (contacts == null) return roster;
-        
+
+        final Map<String, ContactColumns> contactDetails = decodeContactDetails(entityRow.getFamilyMap(COLUMN_FAMILY_NAME_ROSTER_BYTES));
+
         for (byte[] contactBytes : contacts.keySet()) {
             String contactAsString = null;
             EntityImpl contactJID = null;
             try {
-                contactAsString = new String(contactBytes, "UTF-8");
+                contactAsString = toStr(contactBytes);
                 contactJID = EntityImpl.parse(contactAsString);
             } catch (Exception e) {
                 LOG.warn("failed to read contact identified by '{}' for user {}", bareJid, contactAsString);
                 continue;
             }
 
-            final NavigableMap<byte[],byte[]> contactDetails = entityRow.getFamilyMap(COLUMN_FAMILY_NAME_ROSTER_BYTES);
-            String name = toStr(contactDetails.get(asBytes(COLUMN_PREFIX_NAME + contactAsString)));
-            String typeString = toStr(contactDetails.get(asBytes(COLUMN_PREFIX_TYPE + contactAsString)));
-            String askTypeString = toStr(contactDetails.get(asBytes(COLUMN_PREFIX_ASKTYPE + contactAsString)));
+            ContactColumns columns = contactDetails.get(contactAsString);
+            if (columns == null) columns = new ContactColumns();
+            String typeString = columns.type;
+            String askTypeString = columns.askType;
 
             SubscriptionType subscriptionType = null;
             try {
@@ -109,24 +124,81 @@ public class HBaseRosterManager extends AbstractRosterManager {
                 continue; // don't return it, don't set a default!
             }
 
+            // groups are stored with consecutive indexes starting from 1, a gap ends the list
             List<RosterGroup> groups = new ArrayList<RosterGroup>();
             int i = 1;
-            while (true) {
-                String columnName = COLUMN_PREFIX_GROUP + i + ":" + contactAsString;
-                String groupName = toStr(contactDetails.get(asBytes(columnName)));
-                if (groupName == null) break;
-
-                groups.add(new RosterGroup(groupName));
+            for (Map.Entry<Integer, String> group : columns.groups.entrySet()) {
+                if (group.getKey() != i) break;
+                groups.add(new RosterGroup(group.getValue()));
                 i++;
             }
 
-            RosterItem item = new RosterItem(contactJID, name, subscriptionType, askSubscriptionType, groups);
-            LOG.info("item loaded for " + bareJid.getFullQualifiedName() + ": " + item.toString());
+            RosterItem item = new RosterItem(contactJID, columns.name, subscriptionType, askSubscriptionType, groups);
+            LOG.debug("item loaded for {}: {}", bareJid, item);
             roster.addItem(item);
         }
         return roster;
     }
 
+    /**
+     * decodes all columns of the roster family in one pass, instead of looking up each
+     * column name per contact.
+     */
+    protected Map<String, ContactColumns> decodeContactDetails(NavigableMap<byte[], byte[]> rosterColumns) {
+        final Map<String, ContactColumns> contactDetails = new HashMap<String, ContactColumns>();
+        if (rosterColumns == null) return contactDetails;
+
+        for (Map.Entry<byte[], byte[]> column : rosterColumns.entrySet()) {
+            final byte[] qualifier = column.getKey();
+            if (qualifier.length < 3 || qualifier[1] != ':') continue;
+            final byte prefix = qualifier[0];
+            int contactOffset = 2;
+            int groupIndex = 0;
+            if (prefix == GROUP_PREFIX_CHAR) {
+                // parse the group index in "g:<index>:<contact>"
+                while (contactOffset < qualifier.length && qualifier[contactOffset] >= '0' && qualifier[contactOffset] <= '9') {
+                    groupIndex = groupIndex * 10 + (qualifier[contactOffset] - '0');
+                    contactOffset++;
+                }
+                if (contactOffset >= qualifier.length || qualifier[contactOffset] != ':') continue;
+                contactOffset++;
+            } else if (prefix != NAME_PREFIX_CHAR && prefix != TYPE_PREFIX_CHAR && prefix != ASKTYPE_PREFIX_CHAR) {
+                continue;
+            }
+            final String contact = new String(qualifier, contactOffset, qualifier.length - contactOffset, StandardCharsets.UTF_8);
+            ContactColumns columns = contactDetails.get(contact);
+            if (columns == null) {
+                columns = new ContactColumns();
+                contactDetails.put(contact, columns);
+            }
+            final String value = toStr(column.getValue());
+            switch (prefix) {
+                case NAME_PREFIX_CHAR:
+                    columns.name = value;
+                    break;
+                case TYPE_PREFIX_CHAR:
+                    columns.type = value;
+                    break;
+                case ASKTYPE_PREFIX_CHAR:
+                    columns.askType = value;
+                    break;
+                default:
+                    if (value != null) columns.groups.put(groupIndex, value);
+            }
+        }
+        return contactDetails;
+    }
+
+    /**
+     * the roster columns for one contact
+     */
+    protected static class ContactColumns {
+        String name;
+        String type;
+        String askType;
+        final SortedMap<Integer, String> groups = new TreeMap<Integer, String>();
+    }
+
     @Override
     protected Roster addNewRosterInternal(Entity jid) {
         return new MutableRoster();
@@ -155,16 +227,12 @@ public class HBaseRosterManager extends AbstractRosterManager {
             i++;
         }
 
-        HTableInterface userTable = null;
         try {
-            userTable = hBaseStorage.getTable(TABLE_NAME_USER);
-            userTable.put(put);
+            hBaseStorage.mutateEntityRow(put);
             LOG.info("contact {} saved to HBase for user {}", rosterItem.getJid(), jid);
         } catch (IOException e) {
             throw new RosterException("failed to add contact node to roster for user = " + jid.getFullQualifiedName()
                     + " and contact jid = " + rosterItem.getJid().getFullQualifiedName(), e);
-        } finally {
-            hBaseStorage.putTable(userTable);
         }
     }
 
@@ -182,16 +250,12 @@ public class HBaseRosterManager extends AbstractRosterManager {
         delete.deleteColumns(COLUMN_FAMILY_NAME_ROSTER_BYTES, asBytes(COLUMN_PREFIX_TYPE + contactIdentifier));
         delete.deleteColumns(COLUMN_FAMILY_NAME_ROSTER_BYTES, asBytes(COLUMN_PREFIX_ASKTYPE + contactIdentifier));
         
-        HTableInterface userTable = null;
         try {
-            userTable = hBaseStorage.getTable(TABLE_NAME_USER);
-            userTable.delete(delete);
+            hBaseStorage.mutateEntityRow(delete);
             LOG.info("contact {} removed from HBase for user {}", jidContact, jidUser);
         } catch (IOException e) {
             throw new RosterException("failed to add contact node to roster for user = " + jidUser.getFullQualifiedName()
                     + " and contact jid = " + jidContact.getFullQualifiedName(), e);
-        } finally {
-            hBaseStorage.putTable(userTable);
         }
     }
 }
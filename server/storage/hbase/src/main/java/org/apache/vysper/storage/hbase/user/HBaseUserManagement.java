@@ -19,7 +19,6 @@
  */
 package org.apache.vysper.storage.hbase.user;
 
-import org.apache.hadoop.hbase.client.HTableInterface;
 import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.vysper.storage.hbase.HBaseStorage;
@@ -28,6 +27,10 @@ import org.apache.vysper.xmpp.addressing.EntityFormatException;
 import org.apache.vysper.xmpp.addressing.EntityImpl;
 import org.apache.vysper.xmpp.authentication.AccountCreationException;
 import org.apache.vysper.xmpp.authentication.AccountManagement;
+import org.apache.vysper.xmpp.authentication.ScramAlgorithm;
+import org.apache.vysper.xmpp.authentication.ScramCredentials;
+import org.apache.vysper.xmpp.authentication.ScramCredentialsCache;
+import org.apache.vysper.xmpp.authentication.ScramCredentialsProvider;
 import org.apache.vysper.xmpp.authentication.UserAuthentication;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -44,11 +47,20 @@ import static org.apache.vysper.storage.hbase.HBaseUtils.entityAsBytes;
  *
  * @author The Apache MINA Project (dev@mina.apache.org)
  */
-public class HBaseUserManagement implements UserAuthentication, AccountManagement {
+public class HBaseUserManagement implements UserAuthentication, AccountManagement, ScramCredentialsProvider {
 
     final Logger logger = LoggerFactory.getLogger(HBaseUserManagement.class);
 
     public static final byte[] PASSWORD_COLUMN = "pwd".getBytes();
+
+    public static final byte[] SCRAM_SHA_1_COLUMN = "scram-sha-1".getBytes();
+
+    public static final byte[] SCRAM_SHA_256_COLUMN = "scram-sha-256".getBytes();
+
+    /**
+     * other servers sharing the HBase cluster might change a password, it is read again after this time
+     */
+    public static final long DEFAULT_CREDENTIALS_CACHE_MAX_AGE_MILLIS = 60 * 1000;
     
     protected HBaseStorage hBaseStorage;
 
@@ -63,21 +75,67 @@ public class HBaseUserManagement implements UserAuthentication, AccountManagemen
      * change once before creating the first account
      */
     private int hashingRounds = 5;
-    
+
+    private int scramIterations = ScramCredentials.DEFAULT_ITERATIONS;
+
+    private ScramCredentialsCache credentialsCache = new ScramCredentialsCache(ScramCredentialsCache.DEFAULT_SIZE,
+            DEFAULT_CREDENTIALS_CACHE_MAX_AGE_MILLIS);
+
+    private final ScramCredentialsCache.Loader credentialsLoader = new ScramCredentialsCache.Loader() {
+        public ScramCredentials load(Entity jid, ScramAlgorithm algorithm) {
+            final Result entityRow = hBaseStorage.getEntityRow(jid, COLUMN_FAMILY_NAME_BASIC);
+            if (entityRow == null) return null;
+            final byte[] encoded = entityRow.getValue(COLUMN_FAMILY_NAME_BASIC.getBytes(), scramColumn(algorithm));
+            return encoded == null ? null : ScramCredentials.decode(new String(encoded, StandardCharsets.UTF_8));
+        }
+    };
+
     public HBaseUserManagement(HBaseStorage hBaseStorage) {
         this.hBaseStorage = hBaseStorage;
     }
 
+    /**
+     * @param scramIterations the iteration count of the SCRAM credentials for passwords set from now on
+     */
+    public void setScramIterations(int scramIterations) {
+        this.scramIterations = scramIterations;
+    }
+
+    /**
+     * @param size the maximum number of users whose credentials are cached, 0 to read them for every login
+     */
+    public void setCredentialsCacheSize(int size) {
+        credentialsCache = new ScramCredentialsCache(size, credentialsCache.getMaxAgeMillis());
+    }
+
+    /**
+     * @param maxAgeMillis the time after which cached credentials are read again, so that passwords changed
+     *          by other servers sharing the storage are seen. 0 to cache them until the password is changed
+     *          by this server, defaults to {@link #DEFAULT_CREDENTIALS_CACHE_MAX_AGE_MILLIS}
+     */
+    public void setCredentialsCacheMaxAge(long maxAgeMillis) {
+        credentialsCache = new ScramCredentialsCache(credentialsCache.getMaxSize(), maxAgeMillis);
+    }
+
     public boolean verifyCredentials(Entity jid, String passwordCleartext, Object credentials) {
         if (passwordCleartext == null)
             return false;
         try {
+            if (getScramCredentials(jid, ScramAlgorithm.SHA_256) != null) {
+                return credentialsCache.verifyPassword(jid, ScramAlgorithm.SHA_256, passwordCleartext,
+                        credentialsLoader);
+            }
+            // accounts created before SCRAM have the password hash only
             final Result entityRow = hBaseStorage.getEntityRow(jid, COLUMN_FAMILY_NAME_BASIC);
             if (entityRow == null) return false;
 
             final byte[] encryptedGivenPassword = encryptPassword(passwordCleartext);
             final byte[] passwordSavedBytes = entityRow.getValue(COLUMN_FAMILY_NAME_BASIC.getBytes(), PASSWORD_COLUMN);
-            return Arrays.equals(passwordSavedBytes, encryptedGivenPassword);
+            if (!Arrays.equals(passwordSavedBytes, encryptedGivenPassword)) return false;
+            // the password is known now, which allows to add the SCRAM credentials
+            setPasswordInHBase(jid.getBareJID(), passwordCleartext);
+            logger.info("SCRAM credentials added for " + jid);
+            return true;
         } catch (Exception e) {
             return false;
         }
@@ -100,6 +158,19 @@ public class HBaseUserManagement implements UserAuthentication, AccountManagemen
         }
     }
 
+    public ScramCredentials getScramCredentials(Entity jid, ScramAlgorithm algorithm) {
+        try {
+            return credentialsCache.getCredentials(jid, algorithm, credentialsLoader);
+        } catch (Exception e) {
+            logger.warn("failed to read SCRAM credentials of " + jid, e);
+            return null;
+        }
+    }
+
+    private static byte[] scramColumn(ScramAlgorithm algorithm) {
+        return algorithm == ScramAlgorithm.SHA_1 ? SCRAM_SHA_1_COLUMN : SCRAM_SHA_256_COLUMN;
+    }
+
     public boolean verifyCredentials(String username, String passwordCleartext, Object credentials) {
         try {
             return verifyCredentials(EntityImpl.parse(username), passwordCleartext, credentials);
@@ -133,13 +204,15 @@ public class HBaseUserManagement implements UserAuthentication, AccountManagemen
     private void setPasswordInHBase(Entity username, String password) throws IOException {
         final Put put = new Put(entityAsBytes(username));
         put.add(COLUMN_FAMILY_NAME_BASIC.getBytes(), PASSWORD_COLUMN, encryptPassword(password));
-        HTableInterface table = null;
-        try {
-            table = hBaseStorage.getTable(HBaseStorage.TABLE_NAME_USER);
-            table.put(put);
-        } finally {
-            hBaseStorage.putTable(table);
+        for (ScramAlgorithm algorithm : ScramAlgorithm.values()) {
+            final String scramCredentials = ScramCredentials.create(algorithm, password, scramIterations).encode();
+            put.add(COLUMN_FAMILY_NAME_BASIC.getBytes(), scramColumn(algorithm),
+                    scramCredentials.getBytes(StandardCharsets.UTF_8));
         }
+        // account changes are written through, callers expect them to be persisted on return
+        hBaseStorage.mutateEntityRow(put);
+        hBaseStorage.flushMutations();
+        credentialsCache.invalidate(username);
     }
 
     public void changePassword(Entity username, String password) throws AccountCreationException {
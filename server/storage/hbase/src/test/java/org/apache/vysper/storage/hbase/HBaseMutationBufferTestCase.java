@@ -0,0 +1,173 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.storage.hbase;
+
+import static org.apache.vysper.storage.hbase.HBaseUtils.asBytes;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.HTableInterface;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Row;
+import org.junit.Test;
+
+/**
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class HBaseMutationBufferTestCase {
+
+    private final List<List<Row>> batches = new ArrayList<List<Row>>();
+
+    private volatile int failingBatches = 0;
+
+    private final HBaseStorage storage = new HBaseStorage() {
+        @Override
+        public HTableInterface getTable(String tableName) {
+            return (HTableInterface) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[] { HTableInterface.class }, (proxy, method, args) -> {
+                        if (method.getName().equals("batch")) {
+                            if (failingBatches > 0) {
+                                failingBatches--;
+                                throw new IOException("region server not available");
+                            }
+                            batches.add(new ArrayList<Row>((List<Row>) args[0]));
+                            return new Object[0];
+                        }
+                        return null;
+                    });
+        }
+    };
+
+    @Test
+    public void flushesWhenFull() throws Exception {
+        HBaseMutationBuffer buffer = new HBaseMutationBuffer(storage, "t", 3, 60000);
+        buffer.add(put("a"));
+        buffer.add(put("b"));
+        assertEquals(0, batches.size());
+        assertEquals(2, buffer.getPendingMutationCount());
+
+        buffer.add(put("c"));
+        assertEquals(1, batches.size());
+        assertEquals(3, batches.get(0).size());
+        assertEquals(0, buffer.getPendingMutationCount());
+        buffer.close();
+    }
+
+    @Test
+    public void flushesAfterInterval() throws Exception {
+        HBaseMutationBuffer buffer = new HBaseMutationBuffer(storage, "t", 100, 10);
+        buffer.add(put("a"));
+        long timeout = System.currentTimeMillis() + 5000;
+        while (buffer.getFlushedBatchCount() == 0 && System.currentTimeMillis() < timeout) {
+            Thread.sleep(5);
+        }
+        assertEquals(1, buffer.getFlushedBatchCount());
+        assertEquals(1, buffer.getFlushedMutationCount());
+        buffer.close();
+    }
+
+    @Test
+    public void flushesPendingRowBeforeRead() throws Exception {
+        HBaseMutationBuffer buffer = new HBaseMutationBuffer(storage, "t", 100, 60000);
+        buffer.add(put("a"));
+        buffer.flushIfPending(asBytes("b"));
+        assertEquals(0, batches.size());
+
+        buffer.flushIfPending(asBytes("a"));
+        assertEquals(1, batches.size());
+        buffer.close();
+    }
+
+    @Test
+    public void neverBatchesMutationsOnSameRow() throws Exception {
+        HBaseMutationBuffer buffer = new HBaseMutationBuffer(storage, "t", 100, 60000);
+        buffer.add(put("a"));
+        buffer.add(put("b"));
+        buffer.add(put("a"));
+        assertEquals(1, batches.size());
+        assertEquals(2, batches.get(0).size());
+
+        buffer.add(new Delete(asBytes("a")));
+        assertEquals(2, batches.size());
+        assertEquals(1, batches.get(1).size());
+        assertEquals(Put.class, batches.get(1).get(0).getClass());
+
+        buffer.flush();
+        assertEquals(3, batches.size());
+        assertEquals(Delete.class, batches.get(2).get(0).getClass());
+        buffer.close();
+    }
+
+    @Test
+    public void keepsFailedBatchForNextFlush() throws Exception {
+        HBaseMutationBuffer buffer = new HBaseMutationBuffer(storage, "t", 100, 60000);
+        buffer.add(put("a"));
+        failingBatches = 1;
+        try {
+            buffer.flush();
+            fail("failure expected");
+        } catch (IOException e) {
+            // expected
+        }
+        assertEquals(1, buffer.getPendingMutationCount());
+
+        buffer.add(put("b"));
+        buffer.flush();
+        assertEquals(1, batches.size());
+        assertEquals(2, batches.get(0).size());
+        assertEquals("a", new String(batches.get(0).get(0).getRow(), "UTF-8"));
+        buffer.close();
+    }
+
+    @Test
+    public void retriesFailedTimedFlush() throws Exception {
+        HBaseMutationBuffer buffer = new HBaseMutationBuffer(storage, "t", 100, 10);
+        failingBatches = 2;
+        buffer.add(put("a"));
+        long timeout = System.currentTimeMillis() + 5000;
+        while (buffer.getFlushedBatchCount() == 0 && System.currentTimeMillis() < timeout) {
+            Thread.sleep(5);
+        }
+        assertEquals(1, buffer.getFlushedMutationCount());
+        assertEquals(0, buffer.getPendingMutationCount());
+        buffer.close();
+    }
+
+    @Test
+    public void writesThroughWhenDisabled() throws Exception {
+        HBaseMutationBuffer buffer = new HBaseMutationBuffer(storage, "t", 1, 60000);
+        buffer.add(put("a"));
+        buffer.add(put("b"));
+        assertEquals(2, batches.size());
+        buffer.close();
+    }
+
+    private Put put(String row) {
+        Put put = new Put(asBytes(row));
+        put.add(asBytes("f"), asBytes("q"), asBytes("v"));
+        return put;
+    }
+}
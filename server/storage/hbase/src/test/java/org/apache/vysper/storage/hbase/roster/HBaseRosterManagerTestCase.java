@@ -0,0 +1,129 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ *
+ */
+package org.apache.vysper.storage.hbase.roster;
+
+import static org.apache.vysper.storage.hbase.HBaseStorage.COLUMN_FAMILY_NAME_CONTACT_BYTES;
+import static org.apache.vysper.storage.hbase.HBaseStorage.COLUMN_FAMILY_NAME_ROSTER_BYTES;
+import static org.apache.vysper.storage.hbase.HBaseUtils.asBytes;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.vysper.storage.hbase.roster.HBaseRosterManager.ContactColumns;
+import org.apache.vysper.xmpp.addressing.Entity;
+import org.apache.vysper.xmpp.addressing.EntityImpl;
+import org.apache.vysper.xmpp.modules.roster.AskSubscriptionType;
+import org.apache.vysper.xmpp.modules.roster.MutableRoster;
+import org.apache.vysper.xmpp.modules.roster.RosterItem;
+import org.apache.vysper.xmpp.modules.roster.SubscriptionType;
+import org.junit.Test;
+
+/**
+ * @author The Apache MINA Project (dev@mina.apache.org)
+ */
+public class HBaseRosterManagerTestCase {
+
+    private static final Entity USER = EntityImpl.parseUnchecked("user@vysper.org");
+
+    private static final Entity CONTACT = EntityImpl.parseUnchecked("contact@vysper.org");
+
+    private final HBaseRosterManager rosterManager = new HBaseRosterManager(null);
+
+    @Test
+    public void decodesAllColumnsOfOneContact() {
+        NavigableMap<byte[], byte[]> columns = new TreeMap<byte[], byte[]>(Bytes.BYTES_COMPARATOR);
+        columns.put(asBytes("n:contact@vysper.org"), asBytes("Contact"));
+        columns.put(asBytes("t:contact@vysper.org"), asBytes("BOTH"));
+        columns.put(asBytes("a:contact@vysper.org"), asBytes("ASK_SUBSCRIBE"));
+        columns.put(asBytes("g:1:contact@vysper.org"), asBytes("friends"));
+        columns.put(asBytes("g:12:contact@vysper.org"), asBytes("work"));
+        columns.put(asBytes("n:other@vysper.org"), asBytes("Other"));
+
+        Map<String, ContactColumns> contacts = rosterManager.decodeContactDetails(columns);
+        assertEquals(2, contacts.size());
+
+        ContactColumns contact = contacts.get("contact@vysper.org");
+        assertEquals("Contact", contact.name);
+        assertEquals("BOTH", contact.type);
+        assertEquals("ASK_SUBSCRIBE", contact.askType);
+        assertEquals(2, contact.groups.size());
+        assertEquals("friends", contact.groups.get(1));
+        assertEquals("work", contact.groups.get(12));
+
+        ContactColumns other = contacts.get("other@vysper.org");
+        assertEquals("Other", other.name);
+        assertNull(other.type);
+        assertTrue(other.groups.isEmpty());
+    }
+
+    @Test
+    public void skipsUnknownAndMalformedColumns() {
+        NavigableMap<byte[], byte[]> columns = new TreeMap<byte[], byte[]>(Bytes.BYTES_COMPARATOR);
+        columns.put(asBytes("x:contact@vysper.org"), asBytes("unknown prefix"));
+        columns.put(asBytes("n"), asBytes("too short"));
+        columns.put(asBytes("nn:contact@vysper.org"), asBytes("no separator"));
+        columns.put(asBytes("g:contact@vysper.org"), asBytes("no group index"));
+        columns.put(asBytes("g:1"), asBytes("no contact"));
+
+        assertTrue(rosterManager.decodeContactDetails(columns).isEmpty());
+        assertTrue(rosterManager.decodeContactDetails(null).isEmpty());
+    }
+
+    @Test
+    public void decodesRosterFromEntityRow() {
+        List<KeyValue> keyValues = new ArrayList<KeyValue>();
+        keyValues.add(contactColumn("contact@vysper.org", "both"));
+        keyValues.add(rosterColumn("a:contact@vysper.org", "NOT_SET"));
+        keyValues.add(rosterColumn("g:1:contact@vysper.org", "friends"));
+        keyValues.add(rosterColumn("g:2:contact@vysper.org", "family"));
+        // groups after a gap in the indexes are ignored
+        keyValues.add(rosterColumn("g:4:contact@vysper.org", "stale"));
+        keyValues.add(rosterColumn("n:contact@vysper.org", "Contact"));
+        keyValues.add(rosterColumn("t:contact@vysper.org", "BOTH"));
+
+        MutableRoster roster = rosterManager.decodeRoster(USER, new Result(keyValues));
+        RosterItem item = roster.getEntry(CONTACT);
+        assertEquals("Contact", item.getName());
+        assertEquals(SubscriptionType.BOTH, item.getSubscriptionType());
+        assertEquals(AskSubscriptionType.NOT_SET, item.getAskSubscriptionType());
+        assertEquals(2, item.getGroups().size());
+        assertEquals("friends", item.getGroups().get(0).getName());
+        assertEquals("family", item.getGroups().get(1).getName());
+    }
+
+    private static KeyValue contactColumn(String contact, String value) {
+        return new KeyValue(asBytes(USER.getFullQualifiedName()), COLUMN_FAMILY_NAME_CONTACT_BYTES, asBytes(contact),
+                asBytes(value));
+    }
+
+    private static KeyValue rosterColumn(String qualifier, String value) {
+        return new KeyValue(asBytes(USER.getFullQualifiedName()), COLUMN_FAMILY_NAME_ROSTER_BYTES, asBytes(qualifier),
+                asBytes(value));
+    }
+}
@@ -19,8 +19,11 @@
  */
 package org.apache.vysper.storage.jcr.user;
 
+import java.util.Locale;
+
 import javax.jcr.Node;
 import javax.jcr.Property;
+import javax.jcr.RepositoryException;
 
 import org.apache.vysper.storage.jcr.JcrStorage;
 import org.apache.vysper.storage.jcr.JcrStorageException;
@@ -29,6 +32,10 @@ import org.apache.vysper.xmpp.addressing.EntityFormatException;
 import org.apache.vysper.xmpp.addressing.EntityImpl;
 import org.apache.vysper.xmpp.authentication.AccountCreationException;
 import org.apache.vysper.xmpp.authentication.AccountManagement;
+import org.apache.vysper.xmpp.authentication.ScramAlgorithm;
+import org.apache.vysper.xmpp.authentication.ScramCredentials;
+import org.apache.vysper.xmpp.authentication.ScramCredentialsCache;
+import org.apache.vysper.xmpp.authentication.ScramCredentialsProvider;
 import org.apache.vysper.xmpp.authentication.UserAuthentication;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -37,7 +44,7 @@ import org.slf4j.LoggerFactory;
  *
  * @author The Apache MINA Project (dev@mina.apache.org)
  */
-public class JcrUserManagement implements UserAuthentication, AccountManagement {
+public class JcrUserManagement implements UserAuthentication, AccountManagement, ScramCredentialsProvider {
 
     final Logger logger = LoggerFactory.getLogger(JcrUserManagement.class);
 
@@ -45,27 +52,97 @@ public class JcrUserManagement implements UserAuthentication, AccountManagement
 
     private static final String CREDENTIALS_NAMESPACE = "vysper_internal_credentials";
 
+    private int scramIterations = ScramCredentials.DEFAULT_ITERATIONS;
+
+    private ScramCredentialsCache credentialsCache = new ScramCredentialsCache(ScramCredentialsCache.DEFAULT_SIZE);
+
+    private final ScramCredentialsCache.Loader credentialsLoader = new ScramCredentialsCache.Loader() {
+        public ScramCredentials load(Entity jid, ScramAlgorithm algorithm) {
+            try {
+                final Node credentialsNode = jcrStorage.getEntityNode(jid, CREDENTIALS_NAMESPACE, false);
+                if (credentialsNode == null || !credentialsNode.hasProperty(scramProperty(algorithm)))
+                    return null;
+                return ScramCredentials.decode(credentialsNode.getProperty(scramProperty(algorithm)).getString());
+            } catch (Exception e) {
+                logger.warn("failed to read SCRAM credentials of " + jid, e);
+                return null;
+            }
+        }
+    };
+
     public JcrUserManagement(JcrStorage jcrStorage) {
         this.jcrStorage = jcrStorage;
     }
 
+    /**
+     * @param scramIterations the iteration count of the SCRAM credentials for passwords set from now on
+     */
+    public void setScramIterations(int scramIterations) {
+        this.scramIterations = scramIterations;
+    }
+
+    /**
+     * @param size the maximum number of users whose credentials are cached, 0 to read them for every login
+     */
+    public void setCredentialsCacheSize(int size) {
+        credentialsCache = new ScramCredentialsCache(size, credentialsCache.getMaxAgeMillis());
+    }
+
+    /**
+     * @param maxAgeMillis the time after which cached credentials are read again, so that passwords changed
+     *          by other servers sharing the storage are seen. 0 to cache them until the password is changed
+     *          by this server
+     */
+    public void setCredentialsCacheMaxAge(long maxAgeMillis) {
+        credentialsCache = new ScramCredentialsCache(credentialsCache.getMaxSize(), maxAgeMillis);
+    }
+
     public boolean verifyCredentials(Entity jid, String passwordCleartext, Object credentials) {
         if (passwordCleartext == null)
             return false;
+        if (getScramCredentials(jid, ScramAlgorithm.SHA_256) != null) {
+            return credentialsCache.verifyPassword(jid, ScramAlgorithm.SHA_256, passwordCleartext, credentialsLoader);
+        }
         try {
+            // accounts created before SCRAM have the password in cleartext
             final Node credentialsNode = jcrStorage.getEntityNode(jid, CREDENTIALS_NAMESPACE, false);
-            if (credentialsNode == null)
+            if (credentialsNode == null || !credentialsNode.hasProperty("password"))
                 return false;
             final Property property = credentialsNode.getProperty("password");
-            if (property == null)
-                return false;
             final String password = property.getValue().getString();
-            return passwordCleartext.equals(password);
+            if (!passwordCleartext.equals(password))
+                return false;
+            setCredentials(credentialsNode, passwordCleartext);
+            credentialsCache.invalidate(jid);
+            logger.info("JCR password replaced by SCRAM credentials: " + credentialsNode);
+            return true;
         } catch (Exception e) {
             return false;
         }
     }
 
+    public ScramCredentials getScramCredentials(Entity jid, ScramAlgorithm algorithm) {
+        return credentialsCache.getCredentials(jid, algorithm, credentialsLoader);
+    }
+
+    private static String scramProperty(ScramAlgorithm algorithm) {
+        return algorithm.getMechanismName().toLowerCase(Locale.US);
+    }
+
+    /**
+     * stores the SCRAM credentials, and removes the password kept in cleartext by earlier versions
+     */
+    private void setCredentials(Node credentialsNode, String password) throws RepositoryException {
+        for (ScramAlgorithm algorithm : ScramAlgorithm.values()) {
+            credentialsNode.setProperty(scramProperty(algorithm),
+                    ScramCredentials.create(algorithm, password, scramIterations).encode());
+        }
+        if (credentialsNode.hasProperty("password")) {
+            credentialsNode.setProperty("password", (String) null);
+        }
+        credentialsNode.save();
+    }
+
     public boolean verifyCredentials(String username, String passwordCleartext, Object credentials) {
         try {
             return verifyCredentials(EntityImpl.parse(username), passwordCleartext, credentials);
@@ -94,8 +171,8 @@ public class JcrUserManagement implements UserAuthentication, AccountManagement
         // now, finally, create
         try {
             final Node credentialsNode = jcrStorage.getEntityNode(username, CREDENTIALS_NAMESPACE, true);
-            credentialsNode.setProperty("password", password);
-            credentialsNode.save();
+            setCredentials(credentialsNode, password);
+            credentialsCache.invalidate(username);
             logger.info("JCR node created: " + credentialsNode);
         } catch (Exception e) {
             // TODO remove account?
@@ -107,8 +184,8 @@ public class JcrUserManagement implements UserAuthentication, AccountManagement
     public void changePassword(Entity username, String password) throws AccountCreationException {
         try {
             final Node credentialsNode = jcrStorage.getEntityNode(username, CREDENTIALS_NAMESPACE, false);
-            credentialsNode.setProperty("password", password);
-            credentialsNode.save();
+            setCredentials(credentialsNode, password);
+            credentialsCache.invalidate(username);
             logger.info("JCR password changed: " + credentialsNode);
         } catch (Exception e) {
             // TODO remove account?